@@ -17,19 +17,201 @@ package org.apache.tapestry5.ioc.internal.util;
 import org.apache.tapestry5.ioc.MessageFormatter;
 import org.apache.tapestry5.ioc.util.ExceptionUtils;
 
+import java.text.DecimalFormatSymbols;
+import java.util.Formattable;
+import java.util.List;
 import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 
+/**
+ * Formats using {@link String#format(Locale, String, Object...)}. The format is analyzed once, when the formatter is
+ * created, into literal text and format specifiers; simple specifiers ("%s", and "%d" for integral values)
+ * are formatted directly, and only other specifiers are passed (individually) to String.format().
+ */
 public class MessageFormatterImpl implements MessageFormatter
 {
+    /**
+     * The format specifier syntax, as parsed by {@link java.util.Formatter}.
+     */
+    private static final Pattern SPECIFIER = Pattern.compile("%(\\d+\\$)?([-#+ 0,(<]*)?(\\d+)?(\\.\\d+)?([tT])?([a-zA-Z%])");
+
+    private static final class Specifier
+    {
+        /**
+         * Index of the argument being formatted.
+         */
+        final int argIndex;
+
+        /**
+         * The specifier, without an explicit or relative argument index.
+         */
+        final String specifier;
+
+        final char conversion;
+
+        /**
+         * If true, there are no flags, width or precision.
+         */
+        final boolean simple;
+
+        Specifier(int argIndex, String specifier, char conversion, boolean simple)
+        {
+            this.argIndex = argIndex;
+            this.specifier = specifier;
+            this.conversion = conversion;
+            this.simple = simple;
+        }
+    }
+
     private final String format;
 
     private final Locale locale;
 
+    /**
+     * Literal text (as Strings) and {@link Specifier}s, or null if the format uses features (or contains errors) that
+     * are left entirely to String.format().
+     */
+    private final Object[] segments;
+
+    /**
+     * The largest argument index used by the format.
+     */
+    private final int maxArgIndex;
+
+    /**
+     * If true, "%d" of an integral value matches {@link Long#toString()} (the locale uses ASCII digits).
+     */
+    private final boolean asciiDigits;
+
     public MessageFormatterImpl(String format, Locale locale)
     {
         this.format = format;
         this.locale = locale;
+
+        List<Object> segments = CollectionFactory.newList();
+
+        maxArgIndex = compile(format, segments);
+
+        this.segments = maxArgIndex < -1 ? null : segments.toArray();
+
+        asciiDigits = locale == null || DecimalFormatSymbols.getInstance(locale).getZeroDigit() == '0';
+    }
+
+    /**
+     * Analyzes the format into segments.
+     *
+     * @return the maximum argument index, or -2 if the format can not be compiled
+     */
+    private static int compile(String format, List<Object> segments)
+    {
+        Matcher matcher = SPECIFIER.matcher(format);
+
+        StringBuilder text = new StringBuilder();
+
+        int ordinaryIndex = -1;
+        int lastIndex = -1;
+        int maxIndex = -1;
+        int position = 0;
+
+        while (matcher.find())
+        {
+            if (!appendText(text, format, position, matcher.start()))
+            {
+                return -2;
+            }
+
+            position = matcher.end();
+
+            String explicitIndex = matcher.group(1);
+            String flags = matcher.group(2) == null ? "" : matcher.group(2);
+            boolean simple = flags.length() == 0 && matcher.group(3) == null && matcher.group(4) == null
+                    && matcher.group(5) == null;
+            char conversion = matcher.group(6).charAt(0);
+
+            if (conversion == '%' || conversion == 'n')
+            {
+                if (!simple || explicitIndex != null)
+                {
+                    return -2;
+                }
+
+                text.append(conversion == '%' ? "%" : System.lineSeparator());
+
+                continue;
+            }
+
+            int argIndex;
+
+            if (flags.indexOf('<') >= 0)
+            {
+                if (lastIndex < 0)
+                {
+                    return -2;
+                }
+
+                argIndex = lastIndex;
+                flags = flags.replace("<", "");
+            } else if (explicitIndex != null)
+            {
+                argIndex = Integer.parseInt(explicitIndex.substring(0, explicitIndex.length() - 1)) - 1;
+
+                if (argIndex < 0)
+                {
+                    return -2;
+                }
+            } else
+            {
+                argIndex = ++ordinaryIndex;
+            }
+
+            lastIndex = argIndex;
+            maxIndex = Math.max(maxIndex, argIndex);
+
+            if (text.length() > 0)
+            {
+                segments.add(text.toString());
+                text.setLength(0);
+            }
+
+            String specifier = "%" + flags + nonNull(matcher.group(3)) + nonNull(matcher.group(4))
+                    + nonNull(matcher.group(5)) + conversion;
+
+            segments.add(new Specifier(argIndex, specifier, conversion, simple));
+        }
+
+        if (!appendText(text, format, position, format.length()))
+        {
+            return -2;
+        }
+
+        if (text.length() > 0)
+        {
+            segments.add(text.toString());
+        }
+
+        return maxIndex;
+    }
+
+    /**
+     * Appends literal text; returns false if the text contains a '%' that is not part of a valid specifier.
+     */
+    private static boolean appendText(StringBuilder builder, String format, int start, int end)
+    {
+        if (format.indexOf('%', start) >= 0 && format.indexOf('%', start) < end)
+        {
+            return false;
+        }
+
+        builder.append(format, start, end);
+
+        return true;
+    }
+
+    private static String nonNull(String value)
+    {
+        return value == null ? "" : value;
     }
 
     @Override
@@ -48,7 +230,48 @@ public class MessageFormatterImpl implements MessageFormatter
         // Might be tempting to create a Formatter object and just keep reusing it ... but
         // Formatters are not threadsafe.
 
-        return String.format(locale, format, args);
+        if (segments == null || maxArgIndex >= args.length)
+        {
+            // Let String.format() report any problem.
+
+            return String.format(locale, format, args);
+        }
+
+        StringBuilder builder = new StringBuilder(format.length() + 16 * args.length);
+
+        for (Object segment : segments)
+        {
+            if (segment instanceof String)
+            {
+                builder.append((String) segment);
+                continue;
+            }
+
+            Specifier specifier = (Specifier) segment;
+
+            Object arg = args[specifier.argIndex];
+
+            if (specifier.simple && isDirect(specifier.conversion, arg))
+            {
+                builder.append(String.valueOf(arg));
+            } else
+            {
+                builder.append(String.format(locale, specifier.specifier, arg));
+            }
+        }
+
+        return builder.toString();
+    }
+
+    private boolean isDirect(char conversion, Object arg)
+    {
+        if (conversion == 's')
+        {
+            return !(arg instanceof Formattable);
+        }
+
+        return conversion == 'd' && asciiDigits
+                && (arg instanceof Integer || arg instanceof Long || arg instanceof Short || arg instanceof Byte);
     }
 
     /**
@@ -59,7 +59,9 @@ public abstract class AbstractMessages implements Messages
     @Override
     public String get(String key)
     {
-        if (contains(key)) return valueForKey(key);
+        String value = valueForKey(key);
+
+        if (value != null) return value;
 
         return String.format("[[missing key: %s]]", key);
     }
@@ -30,7 +30,8 @@ public interface ClassLoaderDelegate
     boolean shouldInterceptClassLoading(String className);
 
     /**
-     * Load the class, transforming it as necessary.
+     * Load the class, transforming it as necessary. This is invoked without any lock held, and may be invoked
+     * concurrently (for the same or different classes); the delegate must ensure each class is defined only once.
      * 
      * @param className
      *            binary class name
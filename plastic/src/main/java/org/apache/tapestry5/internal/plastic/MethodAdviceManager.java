@@ -14,7 +14,9 @@
 
 package org.apache.tapestry5.internal.plastic;
 
+import org.apache.tapestry5.internal.plastic.asm.Label;
 import org.apache.tapestry5.internal.plastic.asm.Opcodes;
+import org.apache.tapestry5.internal.plastic.asm.Type;
 import org.apache.tapestry5.internal.plastic.asm.tree.ClassNode;
 import org.apache.tapestry5.internal.plastic.asm.tree.MethodNode;
 import org.apache.tapestry5.plastic.*;
@@ -24,7 +26,8 @@ import java.util.List;
 /**
  * Responsible for tracking the advice added to a method, as well as creating the MethodInvocation
  * class for the method and ultimately rewriting the original method to instantiate the MethodInvocation
- * and handle the success or failure result.
+ * and handle the success or failure result. When all advice for the method is {@link InlineMethodAdvice}, the
+ * MethodInvocation is skipped entirely, and calls to the advice are woven directly into the original method.
  */
 class MethodAdviceManager
 {
@@ -370,6 +373,12 @@ class MethodAdviceManager
     {
         createNewMethod();
 
+        if (isInlineable())
+        {
+            rewriteOriginalMethodInline();
+            return;
+        }
+
         plasticClass.pool.realize(plasticClass.className, ClassType.METHOD_INVOCATION, invocationClassNode);
 
         String fieldName = String.format("methodinvocationbundle_%s_%s", description.methodName,
@@ -383,13 +392,7 @@ class MethodAdviceManager
 
         // Ok, here's the easy part: replace the method invocation with instantiating the invocation class
 
-        advisedMethodNode.instructions.clear();
-        advisedMethodNode.tryCatchBlocks.clear();
-
-        if (advisedMethodNode.localVariables != null)
-        {
-            advisedMethodNode.localVariables.clear();
-        }
+        clearAdvisedMethod();
 
         InstructionBuilder builder = plasticClass.newBuilder(description, advisedMethodNode);
 
@@ -446,4 +449,197 @@ class MethodAdviceManager
             }
         });
     }
+
+    private void clearAdvisedMethod()
+    {
+        advisedMethodNode.instructions.clear();
+        advisedMethodNode.tryCatchBlocks.clear();
+
+        if (advisedMethodNode.localVariables != null)
+        {
+            advisedMethodNode.localVariables.clear();
+        }
+    }
+
+    private boolean isInlineable()
+    {
+        for (MethodAdvice a : advice)
+        {
+            if (!(a instanceof InlineMethodAdvice))
+                return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * Rewrites the original method to invoke each advice's before and after callbacks around a direct call to the
+     * new method; nothing is allocated and nothing is boxed. This is done directly against the method node, as
+     * {@link InstructionBuilder} has no way to express the overlapping exception ranges needed to ensure
+     * each advice's after callback is invoked exactly once. The generated code is equivalent to nested try / catch
+     * blocks:
+     * <pre>
+     * Object state0 = advice[0].beforeInvocation(this, instanceContext);
+     * try {
+     *   Object state1 = advice[1].beforeInvocation(this, instanceContext);
+     *   try {
+     *     result = advised$method(...);
+     *   } catch (Throwable t) { advice[1].afterInvocation(this, state1, t); throw t; }
+     *   advice[1].afterInvocation(this, state1, null);
+     * } catch (Throwable t) { advice[0].afterInvocation(this, state0, t); throw t; }
+     * advice[0].afterInvocation(this, state0, null);
+     * return result;
+     * </pre>
+     */
+    private void rewriteOriginalMethodInline()
+    {
+        String classInternalName = plasticClass.nameCache.toInternalName(plasticClass.className);
+
+        String fieldName = String.format("inlinemethodadvice_%s_%s", description.methodName,
+                PlasticUtils.nextUID());
+        String fieldType = InlineMethodAdvice.class.getName() + "[]";
+        String fieldDesc = plasticClass.nameCache.toDesc(fieldType);
+
+        InlineMethodAdvice[] adviceArray = advice.toArray(new InlineMethodAdvice[advice.size()]);
+
+        plasticClass.classNode.visitField(Opcodes.ACC_PRIVATE | Opcodes.ACC_FINAL, fieldName, fieldDesc, null, null);
+        plasticClass.initializeFieldFromStaticContext(fieldName, fieldType, adviceArray);
+
+        String instanceContextFieldName = plasticClass.getInstanceContextFieldName();
+        String instanceContextDesc = plasticClass.nameCache.toDesc(InstanceContext.class.getName());
+        String adviceInternalName = plasticClass.nameCache.toInternalName(InlineMethodAdvice.class);
+        String beforeDesc = plasticClass.nameCache.toMethodDescriptor(Object.class, Object.class, InstanceContext.class);
+        String afterDesc = plasticClass.nameCache.toMethodDescriptor(void.class, Object.class, Object.class,
+                Throwable.class);
+        String throwableInternalName = plasticClass.nameCache.toInternalName(Throwable.class);
+
+        clearAdvisedMethod();
+
+        MethodNode mv = advisedMethodNode;
+
+        Type[] argumentTypes = Type.getArgumentTypes(mv.desc);
+        Type returnType = Type.getReturnType(mv.desc);
+
+        int nextLocal = 1;
+
+        for (Type t : argumentTypes)
+        {
+            nextLocal += t.getSize();
+        }
+
+        int adviceLocal = nextLocal++;
+        int failureLocal = nextLocal++;
+        int resultLocal = nextLocal;
+        int firstStateLocal = resultLocal + returnType.getSize();
+
+        int count = adviceArray.length;
+
+        Label[] tryStart = new Label[count];
+        Label[] successStart = new Label[count];
+        Label[] handler = new Label[count];
+
+        mv.visitVarInsn(Opcodes.ALOAD, 0);
+        mv.visitFieldInsn(Opcodes.GETFIELD, classInternalName, fieldName, fieldDesc);
+        mv.visitVarInsn(Opcodes.ASTORE, adviceLocal);
+
+        for (int i = 0; i < count; i++)
+        {
+            tryStart[i] = new Label();
+            successStart[i] = new Label();
+            handler[i] = new Label();
+
+            loadAdvice(mv, adviceLocal, i);
+            mv.visitVarInsn(Opcodes.ALOAD, 0);
+            mv.visitVarInsn(Opcodes.ALOAD, 0);
+            mv.visitFieldInsn(Opcodes.GETFIELD, classInternalName, instanceContextFieldName, instanceContextDesc);
+            mv.visitMethodInsn(Opcodes.INVOKEINTERFACE, adviceInternalName, "beforeInvocation", beforeDesc, true);
+            mv.visitVarInsn(Opcodes.ASTORE, firstStateLocal + i);
+
+            mv.visitLabel(tryStart[i]);
+        }
+
+        mv.visitVarInsn(Opcodes.ALOAD, 0);
+
+        int argumentLocal = 1;
+
+        for (Type t : argumentTypes)
+        {
+            mv.visitVarInsn(t.getOpcode(Opcodes.ILOAD), argumentLocal);
+            argumentLocal += t.getSize();
+        }
+
+        mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, classInternalName, newMethodName, mv.desc, false);
+
+        if (!isVoid)
+            mv.visitVarInsn(returnType.getOpcode(Opcodes.ISTORE), resultLocal);
+
+        // Each after callback on the success path is inside the protected range of every outer advice,
+        // but outside its own.
+
+        for (int i = count - 1; i >= 0; i--)
+        {
+            mv.visitLabel(successStart[i]);
+
+            invokeAfter(mv, adviceLocal, i, firstStateLocal + i, -1, adviceInternalName, afterDesc);
+        }
+
+        if (isVoid)
+        {
+            mv.visitInsn(Opcodes.RETURN);
+        } else
+        {
+            mv.visitVarInsn(returnType.getOpcode(Opcodes.ILOAD), resultLocal);
+            mv.visitInsn(returnType.getOpcode(Opcodes.IRETURN));
+        }
+
+        // Handlers are laid out innermost first, so that an exception thrown by one handler's after callback
+        // is caught by the handler for the next outer advice.
+
+        for (int i = count - 1; i >= 0; i--)
+        {
+            mv.visitLabel(handler[i]);
+            mv.visitVarInsn(Opcodes.ASTORE, failureLocal);
+
+            invokeAfter(mv, adviceLocal, i, firstStateLocal + i, failureLocal, adviceInternalName, afterDesc);
+
+            mv.visitVarInsn(Opcodes.ALOAD, failureLocal);
+            mv.visitInsn(Opcodes.ATHROW);
+        }
+
+        // The exception table is searched in order, so innermost ranges come first.
+
+        for (int i = count - 1; i >= 0; i--)
+        {
+            mv.visitTryCatchBlock(tryStart[i], successStart[i], handler[i], throwableInternalName);
+
+            if (i < count - 1)
+                mv.visitTryCatchBlock(handler[count - 1], handler[i], handler[i], throwableInternalName);
+        }
+    }
+
+    private static void loadAdvice(MethodNode mv, int adviceLocal, int index)
+    {
+        mv.visitVarInsn(Opcodes.ALOAD, adviceLocal);
+        mv.visitLdcInsn(index);
+        mv.visitInsn(Opcodes.AALOAD);
+    }
+
+    /**
+     * Invokes afterInvocation() on an advice; the failure is loaded from the indicated local, or is null if
+     * failureLocal is negative.
+     */
+    private static void invokeAfter(MethodNode mv, int adviceLocal, int index, int stateLocal, int failureLocal,
+                                    String adviceInternalName, String afterDesc)
+    {
+        loadAdvice(mv, adviceLocal, index);
+        mv.visitVarInsn(Opcodes.ALOAD, 0);
+        mv.visitVarInsn(Opcodes.ALOAD, stateLocal);
+
+        if (failureLocal < 0)
+            mv.visitInsn(Opcodes.ACONST_NULL);
+        else
+            mv.visitVarInsn(Opcodes.ALOAD, failureLocal);
+
+        mv.visitMethodInsn(Opcodes.INVOKEINTERFACE, adviceInternalName, "afterInvocation", afterDesc, true);
+    }
 }
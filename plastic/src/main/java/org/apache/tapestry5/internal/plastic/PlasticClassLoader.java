@@ -34,29 +34,38 @@ public class PlasticClassLoader extends ClassLoader
     @Override
     protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException
     {
-        synchronized(getClassLoadingLock(name))
-        {
-            Class<?> loadedClass = findLoadedClass(name);
+        Class<?> loadedClass = findLoadedClass(name);
+
+        if (loadedClass != null)
+            return loadedClass;
 
-            if (loadedClass != null)
-                return loadedClass;
+        if (delegate.shouldInterceptClassLoading(name))
+        {
+            // The delegate is responsible for locking, per class name, so that different classes
+            // may be loaded and transformed concurrently.
 
-            if (delegate.shouldInterceptClassLoading(name))
-            {
-                Class<?> c = delegate.loadAndTransformClass(name);
+            Class<?> c = delegate.loadAndTransformClass(name);
 
-                if (resolve)
-                    resolveClass(c);
+            if (resolve)
+                resolveClass(c);
 
-                return c;
-            } else
-            {
-                return super.loadClass(name, resolve);
-            }
+            return c;
         }
+
+        return super.loadClass(name, resolve);
+    }
+
+    /**
+     * Returns the class, if it has already been defined by this class loader, or null.
+     *
+     * @since 5.5
+     */
+    Class<?> findLoaded(String className)
+    {
+        return findLoadedClass(className);
     }
 
-    public synchronized Class<?> defineClassWithBytecode(String className, byte[] bytecode)
+    public Class<?> defineClassWithBytecode(String className, byte[] bytecode)
     {
         synchronized(getClassLoadingLock(className))
         {
@@ -28,7 +28,10 @@ import java.io.InputStream;
 import java.lang.annotation.Annotation;
 import java.lang.reflect.Modifier;
 import java.util.*;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * Responsible for managing a class loader that allows ASM {@link ClassNode}s
@@ -45,16 +48,63 @@ public class PlasticClassPool implements ClassLoaderDelegate, Opcodes, PlasticCl
 
     private final Set<String> controlledPackages;
 
-    private final Map<String, Boolean> checkedExceptionCache = new HashMap<String, Boolean>();
+    private final Map<String, Boolean> checkedExceptionCache = PlasticInternalUtils.newConcurrentMap();
 
+    /**
+     * Names of classes being transformed by the current thread, used to detect cycles.
+     */
+    private final ThreadLocal<Stack<String>> activeInstrumentClassNames = new ThreadLocal<Stack<String>>()
+    {
+        @Override
+        protected Stack<String> initialValue()
+        {
+            return new Stack<String>();
+        }
+    };
+
+    /**
+     * How long a thread waits for another thread to finish transforming a class before checking for a deadlock.
+     */
+    private static final long DEADLOCK_CHECK_INTERVAL_MS = 50;
+
+    /**
+     * Lock held while a class is loaded and transformed; there is one per class name, so that different classes may be
+     * transformed concurrently.
+     */
+    static final class TransformationLock extends ReentrantLock
+    {
+        final String className;
+
+        TransformationLock(String className)
+        {
+            this.className = className;
+        }
+
+        Thread owner()
+        {
+            return getOwner();
+        }
+
+        boolean isHeldByAnotherThread()
+        {
+            return isLocked() && !isHeldByCurrentThread();
+        }
+    }
 
-    // Would use Deque, but that's added in 1.6 and we're still striving for 1.5 code compatibility.
+    private final ConcurrentMap<String, TransformationLock> transformationLocks = PlasticInternalUtils.newConcurrentMap();
 
-    private final Stack<String> activeInstrumentClassNames = new Stack<String>();
+    /**
+     * Maps threads to the lock each is waiting to obtain, used to detect deadlocks.
+     */
+    private final ConcurrentMap<Thread, TransformationLock> blockedThreads = PlasticInternalUtils.newConcurrentMap();
+
+    /**
+     * Threads waiting to obtain the field instrumentations of a class being transformed by another thread.
+     */
+    private final Set<Thread> awaitingInstrumentations = Collections.newSetFromMap(PlasticInternalUtils.<Thread, Boolean>newConcurrentMap());
 
     /**
      * Maps class names to instantiators for that class name.
-     * Synchronized on the loader.
      */
     private final Map<String, ClassInstantiator> instantiators = PlasticInternalUtils.newConcurrentMap();
 
@@ -89,14 +139,14 @@ public class PlasticClassPool implements ClassLoaderDelegate, Opcodes, PlasticCl
     }
 
     /**
-     * Map from FQCN to BaseClassDef. Synchronized on the loader.
+     * Map from FQCN to BaseClassDef.
      */
-    private final Map<String, BaseClassDef> baseClassDefs = PlasticInternalUtils.newMap();
+    private final Map<String, BaseClassDef> baseClassDefs = PlasticInternalUtils.newConcurrentMap();
 
 
-    private final Map<String, FieldInstrumentations> instrumentations = PlasticInternalUtils.newMap();
+    private final Map<String, FieldInstrumentations> instrumentations = PlasticInternalUtils.newConcurrentMap();
 
-    private final Map<String, String> transformedClassNameToImplementationClassName = PlasticInternalUtils.newMap();
+    private final Map<String, String> transformedClassNameToImplementationClassName = PlasticInternalUtils.newConcurrentMap();
 
 
     private final FieldInstrumentations placeholder = new FieldInstrumentations(null);
@@ -134,31 +184,24 @@ public class PlasticClassPool implements ClassLoaderDelegate, Opcodes, PlasticCl
     public Class realizeTransformedClass(ClassNode classNode, InheritanceData inheritanceData,
                                          StaticContext staticContext)
     {
-        synchronized (loader)
-        {
-            Class result = realize(PlasticInternalUtils.toClassName(classNode.name), ClassType.PRIMARY, classNode);
-            baseClassDefs.put(result.getName(), new BaseClassDef(inheritanceData, staticContext));
-
-            return result;
-        }
+        Class result = realize(PlasticInternalUtils.toClassName(classNode.name), ClassType.PRIMARY, classNode);
+        baseClassDefs.put(result.getName(), new BaseClassDef(inheritanceData, staticContext));
 
+        return result;
     }
 
     public Class realize(String primaryClassName, ClassType classType, ClassNode classNode)
     {
-        synchronized (loader)
+        if (!listeners.isEmpty())
         {
-            if (!listeners.isEmpty())
-            {
-                fire(toEvent(primaryClassName, classType, classNode));
-            }
+            fire(toEvent(primaryClassName, classType, classNode));
+        }
 
-            byte[] bytecode = toBytecode(classNode);
+        byte[] bytecode = toBytecode(classNode);
 
-            String className = PlasticInternalUtils.toClassName(classNode.name);
+        String className = PlasticInternalUtils.toClassName(classNode.name);
 
-            return loader.defineClassWithBytecode(className, bytecode);
-        }
+        return loader.defineClassWithBytecode(className, bytecode);
     }
 
     private PlasticClassEvent toEvent(final String primaryClassName, final ClassType classType,
@@ -332,10 +375,30 @@ public class PlasticClassPool implements ClassLoaderDelegate, Opcodes, PlasticCl
         return false;
     }
 
-    // Hopefully the synchronized will not cause a deadlock
-
     @Override
-    public synchronized Class<?> loadAndTransformClass(String className) throws ClassNotFoundException
+    public Class<?> loadAndTransformClass(String className) throws ClassNotFoundException
+    {
+        TransformationLock lock = lockForTransformation(className);
+
+        try
+        {
+            // Another thread may have loaded the class while this thread was waiting for the lock.
+
+            Class<?> loaded = loader.findLoaded(className);
+
+            if (loaded != null)
+            {
+                return loaded;
+            }
+
+            return doLoadAndTransformClass(className);
+        } finally
+        {
+            lock.unlock();
+        }
+    }
+
+    private Class<?> doLoadAndTransformClass(String className) throws ClassNotFoundException
     {
         // Inner classes are not transformed, but they are loaded by the same class loader.
 
@@ -347,6 +410,8 @@ public class PlasticClassPool implements ClassLoaderDelegate, Opcodes, PlasticCl
         // TODO: What about interfaces, enums, annotations, etc. ... they shouldn't be in the package, but
         // we should generate a reasonable error message.
 
+        Stack<String> activeInstrumentClassNames = this.activeInstrumentClassNames.get();
+
         if (activeInstrumentClassNames.contains(className))
         {
             StringBuilder builder = new StringBuilder("");
@@ -385,6 +450,133 @@ public class PlasticClassPool implements ClassLoaderDelegate, Opcodes, PlasticCl
         }
     }
 
+    /**
+     * Obtains the lock for loading and transforming the class, blocking while another thread transforms the class.
+     * A cycle of threads, each waiting on a class being transformed by the next, would otherwise be a deadlock, and
+     * instead results in an exception (just as the same cycle in a single thread does).
+     */
+    private TransformationLock lockForTransformation(String className)
+    {
+        TransformationLock lock = getTransformationLock(className);
+
+        List<String> cycle = acquire(lock);
+
+        if (cycle != null)
+        {
+            throw cycleException(lock, cycle);
+        }
+
+        return lock;
+    }
+
+    private TransformationLock getTransformationLock(String className)
+    {
+        TransformationLock lock = transformationLocks.get(className);
+
+        if (lock == null)
+        {
+            TransformationLock newLock = new TransformationLock(className);
+
+            lock = transformationLocks.putIfAbsent(className, newLock);
+
+            if (lock == null)
+            {
+                lock = newLock;
+            }
+        }
+
+        return lock;
+    }
+
+    /**
+     * Obtains the lock, blocking while another thread holds it. While blocked, the thread periodically checks that it
+     * is not part of a cycle of threads, each waiting on a class being transformed by the next.
+     *
+     * @return null once the lock has been obtained, or the names of the classes in the cycle (in which case the lock
+     * has not been obtained)
+     */
+    private List<String> acquire(TransformationLock lock)
+    {
+        if (lock.tryLock())
+        {
+            return null;
+        }
+
+        Thread current = Thread.currentThread();
+
+        blockedThreads.put(current, lock);
+
+        try
+        {
+            while (!lock.tryLock(DEADLOCK_CHECK_INTERVAL_MS, TimeUnit.MILLISECONDS))
+            {
+                List<String> cycle = findCycle(current, lock);
+
+                if (cycle != null)
+                {
+                    return cycle;
+                }
+            }
+
+            return null;
+        } catch (InterruptedException ex)
+        {
+            current.interrupt();
+
+            throw new IllegalStateException(String.format("Interrupted while waiting for class %s to be transformed.",
+                    lock.className), ex);
+        } finally
+        {
+            blockedThreads.remove(current);
+        }
+    }
+
+    private List<String> findCycle(Thread current, TransformationLock lock)
+    {
+        List<String> classNames = new ArrayList<String>();
+
+        TransformationLock next = lock;
+
+        // Follow the chain: the owner of the lock, the lock that owner is waiting for, and so on.
+
+        while (next != null && classNames.size() <= blockedThreads.size())
+        {
+            classNames.add(next.className);
+
+            Thread owner = next.owner();
+
+            if (owner == null)
+            {
+                return null;
+            }
+
+            if (owner == current)
+            {
+                return classNames;
+            }
+
+            next = blockedThreads.get(owner);
+        }
+
+        return null;
+    }
+
+    private static IllegalStateException cycleException(TransformationLock lock, List<String> cycle)
+    {
+        StringBuilder builder = new StringBuilder();
+        String sep = "";
+
+        for (String name : cycle)
+        {
+            builder.append(sep).append(name);
+
+            sep = ", ";
+        }
+
+        return new IllegalStateException(String.format("Unable to transform class %s as it is being transformed by another thread that is waiting on this thread; there is a cycle among the following classes: %s.",
+                lock.className, builder));
+    }
+
     private Class loadInnerClass(String className)
     {
         ClassNode classNode = constructClassNodeFromBytecode(className);
@@ -686,12 +878,24 @@ public class PlasticClassPool implements ClassLoaderDelegate, Opcodes, PlasticCl
     {
         FieldInstrumentations result = instrumentations.get(classInternalName);
 
+        String className = PlasticInternalUtils.toClassName(classInternalName);
+
         if (result != null)
         {
-            return result;
-        }
+            TransformationLock lock = transformationLocks.get(className);
 
-        String className = PlasticInternalUtils.toClassName(classInternalName);
+            if (lock == null || !lock.isHeldByAnotherThread())
+            {
+                return result;
+            }
+
+            // The instrumentations are incomplete until the other thread has transformed the class, so wait for it.
+
+            if (awaitTransformation(lock))
+            {
+                return result;
+            }
+        }
 
         // If it is a top-level (not inner) class in a controlled package, then we
         // will recursively load the class, to identify any field instrumentations
@@ -720,6 +924,48 @@ public class PlasticClassPool implements ClassLoaderDelegate, Opcodes, PlasticCl
         return result;
     }
 
+    /**
+     * Waits for another thread to finish transforming a class, before its field instrumentations are used.
+     * The classes may access each other's fields, with the other thread waiting on this one to obtain the
+     * instrumentations of a class this thread is transforming. In that case, both threads have completed their field
+     * transformations, and the instrumentations are used as they are (just as a single thread would use them,
+     * transforming one class while the other is in progress).
+     *
+     * @return true if the instrumentations are to be used as they are, false if the other thread has finished
+     */
+    private boolean awaitTransformation(TransformationLock lock)
+    {
+        Thread current = Thread.currentThread();
+
+        awaitingInstrumentations.add(current);
+
+        try
+        {
+            List<String> cycle = acquire(lock);
+
+            if (cycle == null)
+            {
+                lock.unlock();
+
+                return false;
+            }
+
+            Thread owner = lock.owner();
+
+            // The owner may have moved on since the cycle was found; if so, the instrumentations are now complete.
+
+            if (owner == null || awaitingInstrumentations.contains(owner))
+            {
+                return true;
+            }
+
+            throw cycleException(lock, cycle);
+        } finally
+        {
+            awaitingInstrumentations.remove(current);
+        }
+    }
+
     FieldInstrumentation getFieldInstrumentation(String ownerClassInternalName, String fieldName, boolean forRead)
     {
         String currentName = ownerClassInternalName;
@@ -0,0 +1,76 @@
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+
+package org.apache.tapestry5.plastic;
+
+/**
+ * A specialized form of {@link MethodAdvice} for advice that only needs to act before and after the advised method,
+ * without inspecting or replacing parameters, the return value, or thrown exceptions (transaction management,
+ * timing, and tracking are common examples). When every piece of advice on a method is inline advice, Plastic weaves
+ * calls to {@link #beforeInvocation(Object, InstanceContext)} and {@link #afterInvocation(Object, Object, Throwable)}
+ * directly into the advised method; no {@link MethodInvocation} is instantiated and no parameter or return value is
+ * boxed. When inline advice is mixed with other advice, it participates in the normal {@link MethodInvocation}
+ * chain via {@link #advise(MethodInvocation)}.
+ *
+ * @since 5.5
+ */
+public interface InlineMethodAdvice extends MethodAdvice
+{
+    /**
+     * Invoked before the advised method (and before any advice added after this advice).
+     *
+     * @param instance
+     *         the object whose method is being invoked
+     * @param instanceContext
+     *         the instance context of that object
+     * @return an arbitrary value, passed back to {@link #afterInvocation(Object, Object, Throwable)}
+     */
+    Object beforeInvocation(Object instance, InstanceContext instanceContext);
+
+    /**
+     * Invoked after the advised method completes, whether it returns normally or throws an exception. If this method
+     * throws an exception, that exception replaces any the method threw. Not invoked if
+     * {@link #beforeInvocation(Object, InstanceContext)} throws an exception.
+     *
+     * @param instance
+     *         the object whose method was invoked
+     * @param state
+     *         the value returned from {@link #beforeInvocation(Object, InstanceContext)}
+     * @param failure
+     *         the exception (checked or unchecked) thrown by the method, or null if the method returned normally
+     */
+    void afterInvocation(Object instance, Object state, Throwable failure);
+
+    /**
+     * Adapts this advice to the {@link MethodInvocation} chain, for methods that also have other advice.
+     */
+    @Override
+    default void advise(MethodInvocation invocation)
+    {
+        Object instance = invocation.getInstance();
+
+        Object state = beforeInvocation(instance, invocation.getInstanceContext());
+
+        try
+        {
+            invocation.proceed();
+        } catch (RuntimeException | Error ex)
+        {
+            afterInvocation(instance, state, ex);
+
+            throw ex;
+        }
+
+        afterInvocation(instance, state, invocation.getCheckedException(Exception.class));
+    }
+}
@@ -0,0 +1,175 @@
+package org.apache.tapestry5.plastic
+
+import testannotations.SimpleAnnotation
+
+import java.util.concurrent.Callable
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.Executors
+import java.util.concurrent.TimeUnit
+
+class ConcurrentTransformationTests extends AbstractPlasticSpecification {
+
+    def "the same class loaded from many threads is transformed once"() {
+        def transformed = Collections.synchronizedList([])
+
+        def mgr = createMgr({ PlasticClass pc ->
+            transformed << pc.className
+        } as PlasticClassTransformer)
+
+        def start = new CountDownLatch(1)
+        def executor = Executors.newFixedThreadPool(8)
+
+        when:
+
+        def futures = (1..8).collect {
+            executor.submit({
+                start.await()
+
+                mgr.getClassInstantiator("testsubjects.ChildClass").newInstance().getClass()
+            } as Callable)
+        }
+
+        start.countDown()
+
+        def classes = futures.collect { it.get(10, TimeUnit.SECONDS) }
+
+        then:
+
+        classes.unique().size() == 1
+
+        transformed.sort() == ["testsubjects.BaseClass", "testsubjects.ChildClass", "testsubjects.MiddleClass"]
+
+        cleanup:
+
+        executor.shutdownNow()
+    }
+
+    def "different classes are transformed concurrently"() {
+        def inside = new CountDownLatch(2)
+
+        def mgr = createMgr({ PlasticClass pc ->
+            // Each transformation waits until the other has started; this would time out if transformations
+            // were performed one at a time.
+
+            inside.countDown()
+
+            assert inside.await(10, TimeUnit.SECONDS)
+        } as PlasticClassTransformer)
+
+        def executor = Executors.newFixedThreadPool(2)
+
+        when:
+
+        def futures = ["testsubjects.Empty", "testsubjects.SingleMethod"].collect { name ->
+            executor.submit({ mgr.getClassInstantiator(name).newInstance() } as Callable)
+        }
+
+        futures.each { it.get(20, TimeUnit.SECONDS) }
+
+        then:
+
+        noExceptionThrown()
+
+        cleanup:
+
+        executor.shutdownNow()
+    }
+
+    def "a cycle between threads transforming classes is an error, not a deadlock"() {
+        def inside = new CountDownLatch(2)
+        def loaderHolder = []
+
+        def others = ["testsubjects.Empty": "testsubjects.SingleMethod", "testsubjects.SingleMethod": "testsubjects.Empty"]
+
+        def mgr = createMgr({ PlasticClass pc ->
+            def other = others[pc.className]
+
+            inside.countDown()
+            inside.await(10, TimeUnit.SECONDS)
+
+            loaderHolder[0].loadClass(other)
+        } as PlasticClassTransformer)
+
+        loaderHolder[0] = mgr.classLoader
+
+        def executor = Executors.newFixedThreadPool(2)
+
+        when:
+
+        def futures = others.keySet().collect { name ->
+            executor.submit({
+                try {
+                    mgr.getClassInstantiator(name)
+
+                    return null
+                } catch (Throwable t) {
+                    return t
+                }
+            } as Callable)
+        }
+
+        def failures = futures.collect { it.get(20, TimeUnit.SECONDS) }
+
+        then:
+
+        failures.every { it != null }
+        failures.every { messages(it).any { it?.contains("there is a cycle among the following classes") } }
+
+        cleanup:
+
+        executor.shutdownNow()
+    }
+
+    def "classes accessing each other's fields are transformed concurrently"() {
+        def inside = new CountDownLatch(2)
+
+        def mgr = createMgr({ PlasticClass pc ->
+            def value = pc.className.endsWith("A") ? "from A" : "from B"
+
+            pc.getFieldsWithAnnotation(SimpleAnnotation).each { f ->
+                f.setConduit({ instance, context -> value } as FieldConduit)
+            }
+
+            // Both threads are transforming their class before either intercepts field access to the other.
+
+            inside.countDown()
+
+            assert inside.await(10, TimeUnit.SECONDS)
+        } as PlasticClassTransformer)
+
+        def names = ["testsubjects.MutualFieldAccessA", "testsubjects.MutualFieldAccessB"]
+
+        def executor = Executors.newFixedThreadPool(2)
+
+        when:
+
+        def futures = names.collect { name ->
+            executor.submit({ mgr.getClassInstantiator(name).newInstance() } as Callable)
+        }
+
+        def (a, b) = futures.collect { it.get(20, TimeUnit.SECONDS) }
+
+        a.other = b
+        b.other = a
+
+        then:
+
+        a.otherValue == "from B"
+        b.otherValue == "from A"
+
+        cleanup:
+
+        executor.shutdownNow()
+    }
+
+    private static List<String> messages(Throwable t) {
+        def result = []
+
+        while (t != null) {
+            result << t.message
+            t = t.cause
+        }
+
+        return result
+    }
+}
@@ -0,0 +1,177 @@
+package org.apache.tapestry5.plastic
+
+import testsubjects.MethodAdviceTarget
+import testsubjects.SingleMethod
+import testsubjects.WidePrimitives
+
+import java.sql.SQLException
+
+class InlineMethodAdviceTests extends AbstractPlasticSpecification {
+
+    def log = []
+
+    def "inline advice is invoked around a method with wide parameters"() {
+        def mgr = createMgr({ PlasticClass pc ->
+            findMethod(pc, "doMath").addAdvice(new RecordingAdvice("outer", log)).addAdvice(new RecordingAdvice("inner", log))
+        } as PlasticClassTransformer)
+
+        def o = mgr.getClassInstantiator(WidePrimitives.name).newInstance()
+
+        when:
+
+        def result = o.doMath(2L, 4.0d, 5, 6L)
+
+        then:
+
+        result == 38.0d
+        log == ["outer:before", "inner:before", "inner:after:null", "outer:after:null"]
+    }
+
+    def "inline advice on a void method"() {
+        def mgr = createMgr({ PlasticClass pc ->
+            findMethod(pc, "aSingleMethod").addAdvice(new RecordingAdvice("only", log))
+        } as PlasticClassTransformer)
+
+        def o = mgr.getClassInstantiator(SingleMethod.name).newInstance()
+
+        when:
+
+        o.aSingleMethod(123)
+
+        then:
+
+        log == ["only:before", "only:after:null"]
+    }
+
+    def "inline advice sees checked exceptions, which are still thrown"() {
+        def mgr = createMgr({ PlasticClass pc ->
+            findMethod(pc, "maybeThrow").addAdvice(new RecordingAdvice("outer", log)).addAdvice(new RecordingAdvice("inner", log))
+        } as PlasticClassTransformer)
+
+        def o = mgr.getClassInstantiator(MethodAdviceTarget.name).newInstance()
+
+        expect:
+
+        o.maybeThrow(7L) == 7L
+
+        when:
+
+        log.clear()
+
+        o.maybeThrow(0L)
+
+        then:
+
+        thrown(SQLException)
+
+        log == ["outer:before", "inner:before", "inner:after:SQLException", "outer:after:SQLException"]
+    }
+
+    def "an exception thrown by inline advice after the method is seen by outer advice"() {
+        def failing = new RecordingAdvice("inner", log) {
+            @Override
+            void afterInvocation(Object instance, Object state, Throwable failure) {
+                super.afterInvocation(instance, state, failure)
+
+                throw new IllegalStateException("inner")
+            }
+        }
+
+        def mgr = createMgr({ PlasticClass pc ->
+            findMethod(pc, "dupe").addAdvice(new RecordingAdvice("outer", log)).addAdvice(failing)
+        } as PlasticClassTransformer)
+
+        def o = mgr.getClassInstantiator(MethodAdviceTarget.name).newInstance()
+
+        when:
+
+        o.dupe(2, "x")
+
+        then:
+
+        def e = thrown(IllegalStateException)
+
+        e.message == "inner"
+
+        log == ["outer:before", "inner:before", "inner:after:null", "outer:after:IllegalStateException"]
+    }
+
+    def "inline advice mixed with other advice uses the method invocation"() {
+        def mgr = createMgr({ PlasticClass pc ->
+            findMethod(pc, "maybeThrow").addAdvice(new RecordingAdvice("outer", log)).addAdvice({ MethodInvocation mi ->
+                log << "advice"
+                mi.proceed()
+            } as MethodAdvice).addAdvice(new RecordingAdvice("inner", log))
+        } as PlasticClassTransformer)
+
+        def o = mgr.getClassInstantiator(MethodAdviceTarget.name).newInstance()
+
+        when:
+
+        o.maybeThrow(0L)
+
+        then:
+
+        thrown(SQLException)
+
+        log == ["outer:before", "advice", "inner:before", "inner:after:SQLException", "outer:after:SQLException"]
+    }
+
+    def "state returned before the method is passed back after the method"() {
+        def states = []
+
+        def advice = new InlineMethodAdvice() {
+            @Override
+            Object beforeInvocation(Object instance, InstanceContext instanceContext) {
+                assert instanceContext.instanceType.name == MethodAdviceTarget.name
+                return instance
+            }
+
+            @Override
+            void afterInvocation(Object instance, Object state, Throwable failure) {
+                states << state
+            }
+        }
+
+        def mgr = createMgr({ PlasticClass pc ->
+            findMethod(pc, "dupe").addAdvice(advice)
+        } as PlasticClassTransformer)
+
+        def o = mgr.getClassInstantiator(MethodAdviceTarget.name).newInstance()
+
+        when:
+
+        def result = o.dupe(3, "a")
+
+        then:
+
+        result == "a a a"
+        states.size() == 1
+        states[0].is(o)
+    }
+
+    static class RecordingAdvice implements InlineMethodAdvice {
+        final String name
+
+        final List log
+
+        RecordingAdvice(String name, List log) {
+            this.name = name
+            this.log = log
+        }
+
+        @Override
+        Object beforeInvocation(Object instance, InstanceContext instanceContext) {
+            log << "$name:before".toString()
+
+            return name
+        }
+
+        @Override
+        void afterInvocation(Object instance, Object state, Throwable failure) {
+            assert state == name
+
+            log << "$name:after:${failure?.class?.simpleName}".toString()
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package testsubjects;
+
+import testannotations.SimpleAnnotation;
+
+/**
+ * Reads a field of {@link MutualFieldAccessB}, which reads a field of this class.
+ */
+public class MutualFieldAccessA
+{
+    @SimpleAnnotation
+    String value;
+
+    MutualFieldAccessB other;
+
+    public String getOtherValue()
+    {
+        return other.value;
+    }
+}
@@ -0,0 +1,19 @@
+package testsubjects;
+
+import testannotations.SimpleAnnotation;
+
+/**
+ * Reads a field of {@link MutualFieldAccessA}, which reads a field of this class.
+ */
+public class MutualFieldAccessB
+{
+    @SimpleAnnotation
+    String value;
+
+    MutualFieldAccessA other;
+
+    public String getOtherValue()
+    {
+        return other.value;
+    }
+}
@@ -0,0 +1,54 @@
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.apache.tapestry5.benchmarks;
+
+import org.apache.tapestry5.test.PageTester;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Shared benchmark state: a Tapestry application, running in-process inside a {@link PageTester}.
+ */
+@State(Scope.Benchmark)
+public class BenchmarkApplication
+{
+    public static final String APP_PACKAGE = "org.apache.tapestry5.benchmarks.app";
+
+    public static final String APP_NAME = "app";
+
+    private PageTester tester;
+
+    @Setup
+    public void startup()
+    {
+        tester = new PageTester(APP_PACKAGE, APP_NAME);
+    }
+
+    @TearDown
+    public void shutdown()
+    {
+        tester.shutdown();
+    }
+
+    public PageTester getTester()
+    {
+        return tester;
+    }
+
+    public <T> T getService(Class<T> serviceInterface)
+    {
+        return tester.getService(serviceInterface);
+    }
+}
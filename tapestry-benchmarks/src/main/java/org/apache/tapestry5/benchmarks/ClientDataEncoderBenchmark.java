@@ -0,0 +1,87 @@
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.apache.tapestry5.benchmarks;
+
+import org.apache.tapestry5.services.ClientDataEncoder;
+import org.apache.tapestry5.services.ClientDataSink;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures encoding and decoding of client data, as used for the form data stored in each Form.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ClientDataEncoderBenchmark
+{
+    @Param("100")
+    public int entries;
+
+    private ClientDataEncoder encoder;
+
+    private List<Object> payload;
+
+    private String encoded;
+
+    @Setup
+    public void setup(BenchmarkApplication application) throws IOException
+    {
+        encoder = application.getService(ClientDataEncoder.class);
+
+        payload = new ArrayList<Object>(entries);
+
+        for (int i = 0; i < entries; i++)
+        {
+            payload.add("form.loop.textfield_" + i);
+            payload.add(i);
+        }
+
+        encoded = encode();
+    }
+
+    @Benchmark
+    public String encode() throws IOException
+    {
+        ClientDataSink sink = encoder.createSink();
+
+        ObjectOutputStream stream = sink.getObjectOutputStream();
+
+        stream.writeObject(payload);
+
+        return sink.getClientData();
+    }
+
+    @Benchmark
+    public Object decode() throws Exception
+    {
+        ObjectInputStream stream = encoder.decodeClientData(encoded);
+
+        try
+        {
+            return stream.readObject();
+        } finally
+        {
+            stream.close();
+        }
+    }
+}
@@ -0,0 +1,94 @@
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.apache.tapestry5.benchmarks;
+
+import org.apache.tapestry5.Link;
+import org.apache.tapestry5.internal.EmptyEventContext;
+import org.apache.tapestry5.internal.services.ArrayEventContext;
+import org.apache.tapestry5.internal.test.TestableRequest;
+import org.apache.tapestry5.internal.test.TestableResponse;
+import org.apache.tapestry5.ioc.services.TypeCoercer;
+import org.apache.tapestry5.services.*;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures creating page render and component event links, and decoding the corresponding request paths.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(1)
+@State(Scope.Thread)
+public class ComponentEventLinkEncoderBenchmark
+{
+    private ComponentEventLinkEncoder encoder;
+
+    private TestableRequest request;
+
+    private PageRenderRequestParameters pageRenderParameters;
+
+    private ComponentEventRequestParameters componentEventParameters;
+
+    @Setup
+    public void setup(BenchmarkApplication application)
+    {
+        TypeCoercer typeCoercer = application.getService(TypeCoercer.class);
+
+        request = application.getService(TestableRequest.class);
+
+        TestableResponse response = application.getService(TestableResponse.class);
+
+        // Link creation and decoding consult the current request, which is per-thread.
+        application.getService(RequestGlobals.class).storeRequestResponse(request, response);
+
+        encoder = application.getService(ComponentEventLinkEncoder.class);
+
+        pageRenderParameters = new PageRenderRequestParameters("Index",
+                new ArrayEventContext(typeCoercer, 42, "some value"));
+
+        componentEventParameters = new ComponentEventRequestParameters("Index", "Index", "grid.pager", "action",
+                new EmptyEventContext(), new ArrayEventContext(typeCoercer, 42));
+    }
+
+    @Benchmark
+    public Link createPageRenderLink()
+    {
+        return encoder.createPageRenderLink(pageRenderParameters);
+    }
+
+    @Benchmark
+    public Link createComponentEventLink()
+    {
+        return encoder.createComponentEventLink(componentEventParameters, false);
+    }
+
+    @Benchmark
+    public PageRenderRequestParameters decodePageRenderRequest()
+    {
+        request.clear().setPath("/index/42/some%20value");
+
+        return encoder.decodePageRenderRequest(request);
+    }
+
+    @Benchmark
+    public ComponentEventRequestParameters decodeComponentEventRequest()
+    {
+        request.clear().setPath("/index.grid.pager:action/42");
+
+        return encoder.decodeComponentEventRequest(request);
+    }
+}
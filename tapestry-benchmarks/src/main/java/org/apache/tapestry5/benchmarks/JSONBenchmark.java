@@ -0,0 +1,73 @@
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.apache.tapestry5.benchmarks;
+
+import org.apache.tapestry5.json.JSONArray;
+import org.apache.tapestry5.json.JSONObject;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures parsing and printing of JSON, as typical of Ajax responses.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class JSONBenchmark
+{
+    @Param("200")
+    public int rows;
+
+    private JSONObject object;
+
+    private String text;
+
+    @Setup
+    public void setup()
+    {
+        JSONArray array = new JSONArray();
+
+        for (int i = 0; i < rows; i++)
+        {
+            array.put(new JSONObject("id", i, "name", "Name #" + i, "email", "user" + i + "@example.org",
+                    "amount", i * 1.25d, "active", i % 3 != 0,
+                    "tags", new JSONArray("alpha", "beta \"quoted\"", "gamma\n")));
+        }
+
+        object = new JSONObject("total", rows, "rows", array);
+
+        text = object.toCompactString();
+    }
+
+    @Benchmark
+    public JSONObject parse()
+    {
+        return new JSONObject(text);
+    }
+
+    @Benchmark
+    public String printCompact()
+    {
+        return object.toCompactString();
+    }
+
+    @Benchmark
+    public String printPretty()
+    {
+        return object.toString(false);
+    }
+}
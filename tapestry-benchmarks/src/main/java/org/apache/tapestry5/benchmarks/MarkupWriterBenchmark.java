@@ -0,0 +1,91 @@
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.apache.tapestry5.benchmarks;
+
+import org.apache.tapestry5.MarkupWriter;
+import org.apache.tapestry5.dom.Html5MarkupModel;
+import org.apache.tapestry5.internal.services.MarkupWriterImpl;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.PrintWriter;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures building a DOM with the {@link MarkupWriter}, and serializing the DOM to markup.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class MarkupWriterBenchmark
+{
+    @Param("1000")
+    public int rows;
+
+    private MarkupWriter prebuilt;
+
+    @Setup
+    public void setup()
+    {
+        prebuilt = buildDocument();
+    }
+
+    @Benchmark
+    public MarkupWriter buildDocument()
+    {
+        MarkupWriter writer = new MarkupWriterImpl(new Html5MarkupModel());
+
+        writer.element("html");
+        writer.element("body");
+        writer.element("table", "class", "table table-striped");
+
+        for (int i = 0; i < rows; i++)
+        {
+            writer.element("tr", "class", (i & 1) == 0 ? "even" : "odd", "data-row", Integer.toString(i));
+
+            writer.element("td");
+            writer.write("Name #" + i);
+            writer.end();
+
+            writer.element("td");
+            writer.element("a", "href", "/index.grid.row:select/" + i);
+            writer.write("<select> & \"go\"");
+            writer.end();
+            writer.end();
+
+            writer.end();
+        }
+
+        writer.end();
+        writer.end();
+        writer.end();
+
+        return writer;
+    }
+
+    @Benchmark
+    public long toMarkup()
+    {
+        NullWriter sink = new NullWriter();
+
+        PrintWriter pw = new PrintWriter(sink);
+
+        prebuilt.toMarkup(pw);
+
+        pw.flush();
+
+        return sink.getCount();
+    }
+}
@@ -0,0 +1,57 @@
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.apache.tapestry5.benchmarks;
+
+import java.io.Writer;
+
+/**
+ * A Writer that discards its output, keeping just a count of characters written (so that the JIT can not
+ * eliminate the work of producing the output).
+ */
+public class NullWriter extends Writer
+{
+    private long count;
+
+    @Override
+    public void write(char[] cbuf, int off, int len)
+    {
+        count += len;
+    }
+
+    @Override
+    public void write(String str, int off, int len)
+    {
+        count += len;
+    }
+
+    @Override
+    public void write(int c)
+    {
+        count++;
+    }
+
+    @Override
+    public void flush()
+    {
+    }
+
+    @Override
+    public void close()
+    {
+    }
+
+    public long getCount()
+    {
+        return count;
+    }
+}
@@ -0,0 +1,84 @@
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.apache.tapestry5.benchmarks;
+
+import org.apache.tapestry5.PropertyConduit;
+import org.apache.tapestry5.benchmarks.app.entities.Row;
+import org.apache.tapestry5.services.PropertyConduitSource;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures reading and updating properties through conduits, as done by every property binding.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class PropertyConduitBenchmark
+{
+    private PropertyConduitSource source;
+
+    private PropertyConduit nameConduit;
+
+    private PropertyConduit amountConduit;
+
+    private PropertyConduit nameLengthConduit;
+
+    private final Row row = new Row(1, "Name", "user@example.org", 1.5d, true);
+
+    @Setup
+    public void setup(BenchmarkApplication application)
+    {
+        source = application.getService(PropertyConduitSource.class);
+
+        nameConduit = source.create(Row.class, "name");
+        amountConduit = source.create(Row.class, "amount");
+        nameLengthConduit = source.create(Row.class, "name.length()");
+    }
+
+    @Benchmark
+    public Object getString()
+    {
+        return nameConduit.get(row);
+    }
+
+    @Benchmark
+    public Object getPrimitive()
+    {
+        return amountConduit.get(row);
+    }
+
+    @Benchmark
+    public Object getMethodChain()
+    {
+        return nameLengthConduit.get(row);
+    }
+
+    @Benchmark
+    public Row setPrimitive()
+    {
+        amountConduit.set(row, 2.5d);
+
+        return row;
+    }
+
+    @Benchmark
+    public PropertyConduit createCached()
+    {
+        return source.create(Row.class, "name");
+    }
+}
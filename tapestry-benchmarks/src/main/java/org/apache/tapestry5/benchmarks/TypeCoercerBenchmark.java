@@ -0,0 +1,71 @@
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.apache.tapestry5.benchmarks;
+
+import org.apache.tapestry5.ioc.services.TypeCoercer;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures common type coercions, including those requiring a compound coercion.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class TypeCoercerBenchmark
+{
+    private TypeCoercer typeCoercer;
+
+    private final Object[] array = {"a", "b", "c"};
+
+    @Setup
+    public void setup(BenchmarkApplication application)
+    {
+        typeCoercer = application.getService(TypeCoercer.class);
+    }
+
+    @Benchmark
+    public Object stringToInteger()
+    {
+        return typeCoercer.coerce("12345", Integer.class);
+    }
+
+    @Benchmark
+    public Object integerToLong()
+    {
+        return typeCoercer.coerce(12345, Long.class);
+    }
+
+    @Benchmark
+    public Object stringToBoolean()
+    {
+        return typeCoercer.coerce("true", Boolean.class);
+    }
+
+    @Benchmark
+    public Object arrayToList()
+    {
+        return typeCoercer.coerce(array, List.class);
+    }
+
+    @Benchmark
+    public Object identity()
+    {
+        return typeCoercer.coerce("value", String.class);
+    }
+}
@@ -0,0 +1,111 @@
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.apache.tapestry5.benchmarks.app.entities;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A simple bean rendered by the benchmark pages, and used as the subject of property conduit benchmarks.
+ */
+public class Row
+{
+    private int id;
+
+    private String name;
+
+    private String email;
+
+    private double amount;
+
+    private boolean active;
+
+    public Row()
+    {
+    }
+
+    public Row(int id, String name, String email, double amount, boolean active)
+    {
+        this.id = id;
+        this.name = name;
+        this.email = email;
+        this.amount = amount;
+        this.active = active;
+    }
+
+    /**
+     * Creates an unmodifiable list of rows, with predictable contents.
+     */
+    public static List<Row> createRows(int count)
+    {
+        List<Row> result = new ArrayList<Row>(count);
+
+        for (int i = 0; i < count; i++)
+        {
+            result.add(new Row(i, "Name #" + i, "user" + i + "@example.org", i * 1.25d, i % 3 != 0));
+        }
+
+        return Collections.unmodifiableList(result);
+    }
+
+    public int getId()
+    {
+        return id;
+    }
+
+    public void setId(int id)
+    {
+        this.id = id;
+    }
+
+    public String getName()
+    {
+        return name;
+    }
+
+    public void setName(String name)
+    {
+        this.name = name;
+    }
+
+    public String getEmail()
+    {
+        return email;
+    }
+
+    public void setEmail(String email)
+    {
+        this.email = email;
+    }
+
+    public double getAmount()
+    {
+        return amount;
+    }
+
+    public void setAmount(double amount)
+    {
+        this.amount = amount;
+    }
+
+    public boolean isActive()
+    {
+        return active;
+    }
+
+    public void setActive(boolean active)
+    {
+        this.active = active;
+    }
+}
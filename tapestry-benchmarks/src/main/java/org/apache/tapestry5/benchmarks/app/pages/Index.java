@@ -0,0 +1,38 @@
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.apache.tapestry5.benchmarks.app.pages;
+
+import org.apache.tapestry5.annotations.Property;
+import org.apache.tapestry5.benchmarks.app.entities.Row;
+
+import java.util.List;
+
+/**
+ * A page representative of a typical data-heavy page: a loop generating links, and a grid.
+ */
+public class Index
+{
+    private static final List<Row> ROWS = Row.createRows(100);
+
+    @Property
+    private Row row;
+
+    public List<Row> getRows()
+    {
+        return ROWS;
+    }
+
+    void onSelect(int id)
+    {
+    }
+}
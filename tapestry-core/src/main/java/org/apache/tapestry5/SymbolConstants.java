@@ -430,6 +430,37 @@ public class SymbolConstants
      */
     public static final String SESSION_LOCKING_ENABLED = "tapestry.session-locking-enabled";
 
+    /**
+     * The kind of locking used when {@linkplain #SESSION_LOCKING_ENABLED session locking is enabled}:
+     * <dl>
+     * <dt>read-write (the default)</dt>
+     * <dd>A single read/write lock for the session, as described above.</dd>
+     * <dt>optimistic</dt>
+     * <dd>Reading attribute names holds no lock, unless it overlaps a request that is updating the session (then the
+     * names are read again, under a shared lock). Getting an attribute acquires a shared lock, setting one acquires an
+     * exclusive lock on the session.</dd>
+     * <dt>striped</dt>
+     * <dd>Getting or setting an attribute locks only a portion of the session, chosen by the attribute's name, so
+     * concurrent requests using different attributes do not wait for each other; getting an attribute acquires a shared
+     * lock. A request that already holds a lock waits at most {@link #SESSION_LOCK_TIMEOUT} for another, then fails with
+     * an exception, rather than risk a deadlock.</dd>
+     * </dl>
+     * With the optimistic and striped strategies, concurrent requests may get the same attribute, so objects stored in
+     * the session that are changed in place should be thread-safe.
+     *
+     * @see org.apache.tapestry5.services.SessionLockMetrics
+     * @since 5.5
+     */
+    public static final String SESSION_LOCKING_STRATEGY = "tapestry.session-locking-strategy";
+
+    /**
+     * With the striped {@linkplain #SESSION_LOCKING_STRATEGY session locking strategy}, the longest time a request that
+     * already holds a lock will wait for another before failing. Defaults to "5 s".
+     *
+     * @since 5.5
+     */
+    public static final String SESSION_LOCK_TIMEOUT = "tapestry.session-lock-timeout";
+
     /**
      * If true (the default), then Tapestry will automatically include the "core" stack in all
      * pages.
@@ -627,4 +658,138 @@ public class SymbolConstants
      * @since 5.4
      */
     public static final String PRELOADER_MODE = "tapestry.page-preload-mode";
+
+    /**
+     * The maximum number of page instances (the same page loaded for different locales or other
+     * {@linkplain org.apache.tapestry5.services.pageload.ComponentResourceSelector selectors} counts once for each)
+     * kept in the page cache. The default, 0, means no limit.
+     *
+     * When neither this nor {@link #PAGE_CACHE_MAX_WEIGHT} is set, pages are held by soft references, and
+     * may be discarded by the garbage collector when memory is low. Otherwise, pages are held by
+     * strong references, and the page cache discards pages (according to
+     * {@link #PAGE_CACHE_EVICTION_POLICY}) only when the bounds are exceeded.
+     *
+     * @since 5.5
+     */
+    public static final String PAGE_CACHE_MAX_PAGES = "tapestry.page-cache-max-pages";
+
+    /**
+     * The maximum total weight of the page instances kept in the page cache, where the weight of a page is an
+     * estimate of its size that factors in its components, mixins, template elements and bindings
+     * (see {@link org.apache.tapestry5.internal.structure.Page.Stats#weight}). The default, 0, means no limit.
+     *
+     * @see #PAGE_CACHE_MAX_PAGES
+     * @since 5.5
+     */
+    public static final String PAGE_CACHE_MAX_WEIGHT = "tapestry.page-cache-max-weight";
+
+    /**
+     * Controls which page is discarded when the page cache is bounded, and exceeds its bounds:
+     * "LRU" (the default) or "LFU".
+     *
+     * @see org.apache.tapestry5.services.pageload.PageCacheEvictionPolicy
+     * @since 5.5
+     */
+    public static final String PAGE_CACHE_EVICTION_POLICY = "tapestry.page-cache-eviction-policy";
+
+    /**
+     * A comma-separated list of page names for pages that, once loaded, are never discarded from the
+     * page cache (except when the cache is invalidated, in development mode). Defaults to the empty string.
+     *
+     * @since 5.5
+     */
+    public static final String PAGE_CACHE_PINNED_PAGES = "tapestry.page-cache-pinned-pages";
+
+    /**
+     * The number of threads used to {@linkplain org.apache.tapestry5.services.pageload.PagePreloader preload pages}.
+     * The default, 1, loads pages sequentially on the thread that starts the Registry (or on the
+     * {@linkplain #PRELOADER_BACKGROUND background} thread). Larger values load pages in parallel: that thread is
+     * joined by additional threads from the {@link org.apache.tapestry5.ioc.services.ParallelExecutor} thread pool
+     * (so the effective concurrency is also limited by the size of that pool).
+     *
+     * @since 5.5
+     */
+    public static final String PRELOADER_CONCURRENCY = "tapestry.page-preloader-concurrency";
+
+    /**
+     * A comma-separated list of locale names for which pages are preloaded, or "*" for all
+     * {@linkplain #SUPPORTED_LOCALES supported locales}. The default, blank, preloads pages only for the first
+     * supported locale.
+     *
+     * @since 5.5
+     */
+    public static final String PRELOADER_LOCALES = "tapestry.page-preloader-locales";
+
+    /**
+     * If true, pages are preloaded in the background, on a thread started for that purpose, rather than delaying
+     * Registry startup until preloading is complete. {@link org.apache.tapestry5.services.pageload.PagePreloader#isPreloadComplete()}
+     * identifies when the preload has finished, and {@link org.apache.tapestry5.services.pageload.PagePreloader#isPreloadSuccessful()}
+     * whether every page was loaded. Defaults to false.
+     *
+     * @since 5.5
+     */
+    public static final String PRELOADER_BACKGROUND = "tapestry.page-preloader-background";
+
+    /**
+     * A directory in which GZip compressed asset content (including aggregated JavaScript stacks) is stored, rather
+     * than being kept in memory. Each distinct content is compressed once and stored in a file named for a digest of the
+     * content, so the directory may be shared between restarts and redeployments (files are never deleted by Tapestry).
+     * The default, blank, keeps compressed content in memory.
+     *
+     * @see #GZIP_COMPRESSION_ENABLED
+     * @since 5.5
+     */
+    public static final String COMPRESSED_ASSET_DIRECTORY = "tapestry.compressed-asset-directory";
+
+    /**
+     * The compression level (0 to 9, or -1 for the JDK default) used when compressing responses with GZip.
+     * Defaults to -1.
+     *
+     * @see #GZIP_COMPRESSION_LEVELS
+     * @since 5.5
+     */
+    public static final String GZIP_COMPRESSION_LEVEL = "tapestry.gzip-compression-level";
+
+    /**
+     * Overrides {@link #GZIP_COMPRESSION_LEVEL} for specific content types, as a comma-separated list of
+     * <code>content-type=level</code> terms, for example "text/html=6,application/json=1". Defaults to blank.
+     *
+     * @since 5.5
+     */
+    public static final String GZIP_COMPRESSION_LEVELS = "tapestry.gzip-compression-levels";
+
+    /**
+     * If true, the {@linkplain #MIN_GZIP_SIZE minimum size} for GZip compression of dynamic responses is scaled, for
+     * each content type, by the compression ratio observed for earlier responses of that type, so that content that
+     * compresses poorly must be larger before it is compressed. Defaults to false.
+     *
+     * @since 5.5
+     */
+    public static final String GZIP_ADAPTIVE_CUTOVER = "tapestry.gzip-adaptive-cutover";
+
+    /**
+     * The maximum number of {@link java.util.zip.Deflater}s kept for reuse when compressing responses. Defaults to 32.
+     *
+     * @since 5.5
+     */
+    public static final String GZIP_DEFLATER_POOL_SIZE = "tapestry.gzip-deflater-pool-size";
+
+    /**
+     * If true, {@linkplain org.apache.tapestry5.services.ClientDataEncoder client data} (such as form data) is
+     * written in a compact binary format, rather than as GZip compressed Java serialization. Data in either format can
+     * always be read, but compact data can only be read by servers running this release or later, configured with the
+     * same compact client data class names. Defaults to false.
+     *
+     * @since 5.5
+     */
+    public static final String CLIENT_DATA_COMPACT_FORMAT = "tapestry.client-data-compact-format";
+
+    /**
+     * A directory in which parsed component templates are stored, so that templates need not be parsed again after a
+     * restart. Stored templates are checked against the content of the template (and the Tapestry version) before being
+     * used. The default, blank, parses templates on every start.
+     *
+     * @since 5.5
+     */
+    public static final String TEMPLATE_CACHE_DIRECTORY = "tapestry.template-cache-directory";
 }
@@ -34,6 +34,7 @@ import org.apache.tapestry5.ioc.internal.util.InternalUtils;
 import org.apache.tapestry5.services.BeanModelSource;
 import org.apache.tapestry5.services.ComponentClassResolver;
 import org.apache.tapestry5.services.pageload.ComponentResourceSelector;
+import org.apache.tapestry5.services.pageload.PageCacheStatistics;
 
 import java.util.Collection;
 import java.util.List;
@@ -154,6 +155,11 @@ public class PageCatalog
         return pageSource.getAllPages();
     }
 
+    public PageCacheStatistics getCacheStatistics()
+    {
+        return pageSource.getCacheStatistics();
+    }
+
     Object onSuccessFromSinglePageLoad()
     {
         boolean found = !F.flow(getPages()).filter(new Predicate<Page>()
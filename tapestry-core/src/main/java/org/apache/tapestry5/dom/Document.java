@@ -52,6 +52,13 @@ public final class Document extends Node
      */
     private List<Node> preamble;
 
+    /**
+     * Scratch space reused by elements as they write their start tags.
+     */
+    private StringBuilder markupBuilder;
+
+    private char[] markupChars;
+
     /**
      * Same as Document(model, null).
      * @param model a {@link MarkupModel}.
@@ -188,6 +195,40 @@ public final class Document extends Node
         rootElement.toMarkup(document, writer, initialNamespaceMap);
     }
 
+    /**
+     * Returns an empty builder, used by an element to assemble its start tag; the builder is reused for each element
+     * (and must be written, with {@link #writeMarkupBuilder(PrintWriter)}, before any other element uses it).
+     */
+    StringBuilder markupBuilder()
+    {
+        if (markupBuilder == null)
+        {
+            markupBuilder = new StringBuilder(200);
+        } else
+        {
+            markupBuilder.setLength(0);
+        }
+
+        return markupBuilder;
+    }
+
+    /**
+     * Writes the content of the {@linkplain #markupBuilder() markup builder} without converting it to a String.
+     */
+    void writeMarkupBuilder(PrintWriter writer)
+    {
+        int length = markupBuilder.length();
+
+        if (markupChars == null || markupChars.length < length)
+        {
+            markupChars = new char[Math.max(length, 200)];
+        }
+
+        markupBuilder.getChars(0, length, markupChars, 0);
+
+        writer.write(markupChars, 0, length);
+    }
+
     public Element getRootElement()
     {
         return rootElement;
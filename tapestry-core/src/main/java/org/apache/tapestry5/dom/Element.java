@@ -373,7 +373,7 @@ public final class Element extends Node
 
         MarkupModel markupModel = document.getMarkupModel();
 
-        StringBuilder builder = new StringBuilder();
+        StringBuilder builder = document.markupBuilder();
 
         String prefixedElementName = toPrefixedName(localNamespacePrefixToURI, namespace, name);
 
@@ -389,7 +389,9 @@ public final class Element extends Node
 
         // Next, emit namespace declarations for each namespace.
 
-        List<String> namespaces = InternalUtils.sortedKeys(namespaceToPrefix);
+        List<String> namespaces = namespaceToPrefix == null
+                ? Collections.<String>emptyList()
+                : InternalUtils.sortedKeys(namespaceToPrefix);
 
         for (String namespace : namespaces)
         {
@@ -421,7 +423,7 @@ public final class Element extends Node
 
         builder.append(close);
 
-        writer.print(builder.toString());
+        document.writeMarkupBuilder(writer);
 
         if (hasChildren)
             writeChildMarkup(document, writer, localNamespacePrefixToURI);
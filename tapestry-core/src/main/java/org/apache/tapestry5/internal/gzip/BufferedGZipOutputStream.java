@@ -23,7 +23,6 @@ import java.io.BufferedOutputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
-import java.util.zip.GZIPOutputStream;
 
 /**
  * A buffered output stream that, when a certain number of bytes is buffered (the cutover point) will open a compressed
@@ -39,6 +38,8 @@ public class BufferedGZipOutputStream extends ServletOutputStream
 
     private final int cutover;
 
+    private final GZipCompressor compressor;
+
     private ByteArrayOutputStream byteArrayOutputStream;
 
     /**
@@ -47,15 +48,17 @@ public class BufferedGZipOutputStream extends ServletOutputStream
      */
     private OutputStream currentOutputStream;
 
-    public BufferedGZipOutputStream(String contentType, HttpServletResponse response, int cutover,
+    public BufferedGZipOutputStream(String contentType, HttpServletResponse response, GZipCompressor compressor,
                                     CompressionAnalyzer analyzer)
     {
         this.contentType = contentType;
         this.response = response;
-        this.cutover = cutover;
+        this.compressor = compressor;
         this.analyzer = analyzer;
 
-        byteArrayOutputStream = new ByteArrayOutputStream(cutover);
+        cutover = compressor.getCutover(contentType);
+
+        byteArrayOutputStream = new ByteArrayOutputStream(Math.min(cutover, 8192));
 
         currentOutputStream = byteArrayOutputStream;
     }
@@ -77,7 +80,7 @@ public class BufferedGZipOutputStream extends ServletOutputStream
         boolean useCompression = gzip && analyzer.isCompressable(contentType);
 
         OutputStream possiblyCompressed = useCompression
-                ? new GZIPOutputStream(responseOutputStream)
+                ? compressor.compress(responseOutputStream, contentType)
                 : responseOutputStream;
 
         if (useCompression)
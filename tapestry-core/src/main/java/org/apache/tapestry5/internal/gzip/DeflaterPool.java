@@ -0,0 +1,95 @@
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.apache.tapestry5.internal.gzip;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.Deflater;
+
+/**
+ * A bounded pool of {@link Deflater} instances (in "nowrap" mode, as needed for GZIP), so that native
+ * compression state is not allocated and released for each response.
+ *
+ * @since 5.5
+ */
+public class DeflaterPool
+{
+    private final Queue<Deflater> pool = new ConcurrentLinkedQueue<Deflater>();
+
+    private final AtomicInteger pooledCount = new AtomicInteger();
+
+    private final int maxPooled;
+
+    public DeflaterPool(int maxPooled)
+    {
+        this.maxPooled = maxPooled;
+    }
+
+    /**
+     * Returns a reset Deflater with the given compression level.
+     */
+    public Deflater acquire(int level)
+    {
+        Deflater deflater = pool.poll();
+
+        if (deflater == null)
+        {
+            return new Deflater(level, true);
+        }
+
+        pooledCount.decrementAndGet();
+
+        deflater.setLevel(level);
+
+        return deflater;
+    }
+
+    /**
+     * Returns a Deflater to the pool; if the pool is full, the Deflater is ended instead.
+     */
+    public void release(Deflater deflater)
+    {
+        deflater.reset();
+
+        if (pooledCount.incrementAndGet() <= maxPooled)
+        {
+            pool.offer(deflater);
+            return;
+        }
+
+        pooledCount.decrementAndGet();
+
+        deflater.end();
+    }
+
+    /**
+     * Ends all pooled Deflaters.
+     */
+    public void clear()
+    {
+        while (true)
+        {
+            Deflater deflater = pool.poll();
+
+            if (deflater == null)
+            {
+                return;
+            }
+
+            pooledCount.decrementAndGet();
+
+            deflater.end();
+        }
+    }
+}
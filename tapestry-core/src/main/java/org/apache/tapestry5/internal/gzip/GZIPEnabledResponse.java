@@ -25,7 +25,7 @@ import java.io.IOException;
 
 public class GZIPEnabledResponse extends HttpServletResponseWrapper
 {
-    private final int cutover;
+    private final GZipCompressor compressor;
 
     private final HttpServletRequest request;
 
@@ -35,14 +35,14 @@ public class GZIPEnabledResponse extends HttpServletResponseWrapper
 
     private boolean contentLengthSet = false;
 
-    public GZIPEnabledResponse(HttpServletResponse response, HttpServletRequest request, int cutover,
+    public GZIPEnabledResponse(HttpServletResponse response, HttpServletRequest request, GZipCompressor compressor,
                                CompressionAnalyzer analyzer)
     {
         super(response);
 
         this.request = request;
         this.response = response;
-        this.cutover = cutover;
+        this.compressor = compressor;
         this.analyzer = analyzer;
     }
 
@@ -61,7 +61,7 @@ public class GZIPEnabledResponse extends HttpServletResponseWrapper
 
         String contentType = getContentType();
 
-        return new BufferedGZipOutputStream(contentType, response, cutover, analyzer);
+        return new BufferedGZipOutputStream(contentType, response, compressor, analyzer);
     }
 
     private boolean isCompressionDisabled()
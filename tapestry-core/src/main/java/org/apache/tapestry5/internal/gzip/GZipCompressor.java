@@ -0,0 +1,190 @@
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.apache.tapestry5.internal.gzip;
+
+import org.apache.tapestry5.SymbolConstants;
+import org.apache.tapestry5.internal.TapestryInternalUtils;
+import org.apache.tapestry5.ioc.annotations.Symbol;
+import org.apache.tapestry5.ioc.internal.util.CollectionFactory;
+import org.apache.tapestry5.ioc.services.RegistryShutdownHub;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Shared state for GZIP compression of responses: pooled {@link java.util.zip.Deflater}s, compression level
+ * by content type, and (optionally) a cutover point for each content type, adapted to the observed compression
+ * ratio.
+ *
+ * @since 5.5
+ */
+public class GZipCompressor
+{
+    /**
+     * Upper limit on an adapted cutover; content types that barely compress are only compressed when larger than this.
+     */
+    static final int MAX_ADAPTIVE_CUTOVER = 64 * 1024;
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private final int cutover;
+
+    private final int defaultLevel;
+
+    private final Map<String, Integer> levels = CollectionFactory.newCaseInsensitiveMap();
+
+    private final boolean adaptiveCutover;
+
+    private final DeflaterPool pool;
+
+    private final ConcurrentMap<String, CompressionRatio> ratios = CollectionFactory.newConcurrentMap();
+
+    /**
+     * Tracks an exponentially weighted moving average of the compression ratio (compressed size / uncompressed size)
+     * for a content type. Updates are not synchronized; an occasional lost update is harmless.
+     */
+    private static final class CompressionRatio implements PooledGZipOutputStream.CloseListener
+    {
+        private volatile double ratio = -1;
+
+        public void closed(long uncompressedBytes, long compressedBytes)
+        {
+            if (uncompressedBytes == 0)
+            {
+                return;
+            }
+
+            double observed = (double) compressedBytes / uncompressedBytes;
+
+            double current = ratio;
+
+            ratio = current < 0 ? observed : 0.9 * current + 0.1 * observed;
+        }
+    }
+
+    public GZipCompressor(@Symbol(SymbolConstants.MIN_GZIP_SIZE)
+                          int cutover,
+
+                          @Symbol(SymbolConstants.GZIP_COMPRESSION_LEVEL)
+                          int defaultLevel,
+
+                          @Symbol(SymbolConstants.GZIP_COMPRESSION_LEVELS)
+                          String levels,
+
+                          @Symbol(SymbolConstants.GZIP_ADAPTIVE_CUTOVER)
+                          boolean adaptiveCutover,
+
+                          @Symbol(SymbolConstants.GZIP_DEFLATER_POOL_SIZE)
+                          int poolSize,
+
+                          RegistryShutdownHub shutdownHub)
+    {
+        this.cutover = cutover;
+        this.defaultLevel = defaultLevel;
+        this.adaptiveCutover = adaptiveCutover;
+
+        pool = new DeflaterPool(poolSize);
+
+        for (String term : TapestryInternalUtils.splitAtCommas(levels))
+        {
+            int equalsx = term.indexOf('=');
+
+            if (equalsx < 1)
+            {
+                throw new IllegalArgumentException(String.format("Unable to parse '%s' (in symbol %s) as <content type>=<level>.",
+                        term, SymbolConstants.GZIP_COMPRESSION_LEVELS));
+            }
+
+            this.levels.put(term.substring(0, equalsx).trim(), Integer.parseInt(term.substring(equalsx + 1).trim()));
+        }
+
+        shutdownHub.addRegistryShutdownListener(new Runnable()
+        {
+            public void run()
+            {
+                pool.clear();
+            }
+        });
+    }
+
+    /**
+     * Strips parameters (such as the charset) from the content type.
+     */
+    private static String baseContentType(String contentType)
+    {
+        if (contentType == null)
+        {
+            return "";
+        }
+
+        int semix = contentType.indexOf(';');
+
+        return (semix < 0 ? contentType : contentType.substring(0, semix)).trim();
+    }
+
+    /**
+     * Returns the number of bytes of content (of the given content type) to buffer before deciding to compress.
+     */
+    public int getCutover(String contentType)
+    {
+        if (!adaptiveCutover)
+        {
+            return cutover;
+        }
+
+        CompressionRatio ratio = ratios.get(baseContentType(contentType));
+
+        double savings = ratio == null || ratio.ratio < 0 ? 1 : 1 - ratio.ratio;
+
+        // Compression must save enough to be worthwhile; content that compresses poorly
+        // must be larger before it is compressed.
+
+        return savings * MAX_ADAPTIVE_CUTOVER <= cutover
+                ? MAX_ADAPTIVE_CUTOVER
+                : (int) (cutover / savings);
+    }
+
+    /**
+     * Returns a stream that compresses content (of the given type) to the output stream.
+     */
+    public OutputStream compress(OutputStream out, String contentType) throws IOException
+    {
+        String baseContentType = baseContentType(contentType);
+
+        Integer level = levels.get(baseContentType);
+
+        return new PooledGZipOutputStream(out, pool, level == null ? defaultLevel : level, BUFFER_SIZE,
+                adaptiveCutover ? getRatio(baseContentType) : null);
+    }
+
+    private CompressionRatio getRatio(String baseContentType)
+    {
+        CompressionRatio ratio = ratios.get(baseContentType);
+
+        if (ratio == null)
+        {
+            CompressionRatio newRatio = new CompressionRatio();
+
+            ratio = ratios.putIfAbsent(baseContentType, newRatio);
+
+            if (ratio == null)
+            {
+                ratio = newRatio;
+            }
+        }
+
+        return ratio;
+    }
+}
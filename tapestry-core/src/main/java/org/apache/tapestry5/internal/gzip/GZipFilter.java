@@ -14,8 +14,7 @@
 
 package org.apache.tapestry5.internal.gzip;
 
-import org.apache.tapestry5.SymbolConstants;
-import org.apache.tapestry5.ioc.annotations.Symbol;
+import org.apache.tapestry5.ioc.annotations.Autobuild;
 import org.apache.tapestry5.services.HttpServletRequestFilter;
 import org.apache.tapestry5.services.HttpServletRequestHandler;
 import org.apache.tapestry5.services.ResponseCompressionAnalyzer;
@@ -30,21 +29,21 @@ import java.io.IOException;
  */
 public class GZipFilter implements HttpServletRequestFilter
 {
-    private final int cutover;
+    private final GZipCompressor compressor;
 
     private final ResponseCompressionAnalyzer responseAnalyzer;
 
     private final CompressionAnalyzer compressionAnalyzer;
 
     public GZipFilter(
-            @Symbol(SymbolConstants.MIN_GZIP_SIZE)
-            int cutover,
+            @Autobuild
+            GZipCompressor compressor,
 
             ResponseCompressionAnalyzer responseAnalyzer,
 
             CompressionAnalyzer compressionAnalyzer)
     {
-        this.cutover = cutover;
+        this.compressor = compressor;
         this.responseAnalyzer = responseAnalyzer;
         this.compressionAnalyzer = compressionAnalyzer;
     }
@@ -53,7 +52,7 @@ public class GZipFilter implements HttpServletRequestFilter
             throws IOException
     {
         HttpServletResponse newResponse = responseAnalyzer.isGZipSupported()
-                ? new GZIPEnabledResponse(response, request, cutover, compressionAnalyzer)
+                ? new GZIPEnabledResponse(response, request, compressor, compressionAnalyzer)
                 : response;
 
         return handler.service(request, newResponse);
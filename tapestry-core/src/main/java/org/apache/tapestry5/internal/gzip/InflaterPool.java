@@ -0,0 +1,92 @@
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.apache.tapestry5.internal.gzip;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.Inflater;
+
+/**
+ * A bounded pool of {@link Inflater} instances (in "nowrap" mode, to match {@link DeflaterPool}).
+ *
+ * @since 5.5
+ */
+public class InflaterPool
+{
+    private final Queue<Inflater> pool = new ConcurrentLinkedQueue<Inflater>();
+
+    private final AtomicInteger pooledCount = new AtomicInteger();
+
+    private final int maxPooled;
+
+    public InflaterPool(int maxPooled)
+    {
+        this.maxPooled = maxPooled;
+    }
+
+    /**
+     * Returns a reset Inflater.
+     */
+    public Inflater acquire()
+    {
+        Inflater inflater = pool.poll();
+
+        if (inflater == null)
+        {
+            return new Inflater(true);
+        }
+
+        pooledCount.decrementAndGet();
+
+        return inflater;
+    }
+
+    /**
+     * Returns an Inflater to the pool; if the pool is full, the Inflater is ended instead.
+     */
+    public void release(Inflater inflater)
+    {
+        inflater.reset();
+
+        if (pooledCount.incrementAndGet() <= maxPooled)
+        {
+            pool.offer(inflater);
+            return;
+        }
+
+        pooledCount.decrementAndGet();
+
+        inflater.end();
+    }
+
+    /**
+     * Ends all pooled Inflaters.
+     */
+    public void clear()
+    {
+        while (true)
+        {
+            Inflater inflater = pool.poll();
+
+            if (inflater == null)
+            {
+                return;
+            }
+
+            pooledCount.decrementAndGet();
+
+            inflater.end();
+        }
+    }
+}
@@ -0,0 +1,101 @@
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.apache.tapestry5.internal.gzip;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * Writes raw (unframed) deflate data using a {@link java.util.zip.Deflater} from a {@link DeflaterPool}, which is
+ * returned to the pool when the stream is closed.
+ *
+ * @see PooledInflaterInputStream
+ * @since 5.5
+ */
+public class PooledDeflaterOutputStream extends DeflaterOutputStream
+{
+    private final DeflaterPool pool;
+
+    private boolean closed;
+
+    public PooledDeflaterOutputStream(OutputStream out, DeflaterPool pool, int level)
+    {
+        super(out, pool.acquire(level));
+
+        this.pool = pool;
+    }
+
+    /**
+     * Guards against use after close, when the Deflater may already have been handed to another stream.
+     */
+    private void ensureOpen() throws IOException
+    {
+        if (closed)
+        {
+            throw new IOException("Stream closed");
+        }
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException
+    {
+        ensureOpen();
+
+        super.write(b, off, len);
+    }
+
+    @Override
+    public void flush() throws IOException
+    {
+        ensureOpen();
+
+        super.flush();
+    }
+
+    @Override
+    public void finish() throws IOException
+    {
+        ensureOpen();
+
+        if (def.finished())
+        {
+            return;
+        }
+
+        super.finish();
+
+        // A "nowrap" Inflater may require an extra byte of input beyond the end of the data.
+
+        out.write(0);
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        if (closed)
+        {
+            return;
+        }
+
+        try
+        {
+            super.close();
+        } finally
+        {
+            closed = true;
+
+            pool.release(def);
+        }
+    }
+}
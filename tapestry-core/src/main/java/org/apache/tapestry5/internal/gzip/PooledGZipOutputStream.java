@@ -0,0 +1,159 @@
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.apache.tapestry5.internal.gzip;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * Equivalent to {@link java.util.zip.GZIPOutputStream}, but using a {@link Deflater} from a {@link DeflaterPool}
+ * (which is returned to the pool when the stream is closed).
+ *
+ * @since 5.5
+ */
+public class PooledGZipOutputStream extends DeflaterOutputStream
+{
+    private static final int GZIP_MAGIC = 0x8b1f;
+
+    private static final int TRAILER_SIZE = 8;
+
+    private static final byte[] HEADER = {
+            (byte) GZIP_MAGIC,
+            (byte) (GZIP_MAGIC >> 8),
+            Deflater.DEFLATED,
+            0, // flags
+            0, 0, 0, 0, // modification time
+            0, // extra flags
+            0 // operating system
+    };
+
+    /**
+     * Notified when the stream is closed.
+     */
+    public interface CloseListener
+    {
+        void closed(long uncompressedBytes, long compressedBytes);
+    }
+
+    private final CRC32 crc = new CRC32();
+
+    private final DeflaterPool pool;
+
+    private final CloseListener listener;
+
+    private boolean finished, closed;
+
+    public PooledGZipOutputStream(OutputStream out, DeflaterPool pool, int level, int bufferSize,
+                                  CloseListener listener) throws IOException
+    {
+        super(out, pool.acquire(level), bufferSize);
+
+        this.pool = pool;
+        this.listener = listener;
+
+        out.write(HEADER);
+    }
+
+    /**
+     * Once closed, the Deflater belongs to the pool (and may be in use by another stream), so it must not be used.
+     */
+    private void ensureOpen() throws IOException
+    {
+        if (closed)
+        {
+            throw new IOException("Stream closed");
+        }
+    }
+
+    @Override
+    public void write(byte[] buf, int off, int len) throws IOException
+    {
+        ensureOpen();
+
+        super.write(buf, off, len);
+
+        crc.update(buf, off, len);
+    }
+
+    @Override
+    public void finish() throws IOException
+    {
+        ensureOpen();
+
+        if (finished)
+        {
+            return;
+        }
+
+        finished = true;
+
+        def.finish();
+
+        while (!def.finished())
+        {
+            deflate();
+        }
+
+        byte[] trailer = new byte[TRAILER_SIZE];
+
+        writeInt((int) crc.getValue(), trailer, 0);
+        writeInt(def.getTotalIn(), trailer, 4);
+
+        out.write(trailer);
+    }
+
+    private static void writeInt(int value, byte[] buffer, int offset)
+    {
+        buffer[offset] = (byte) value;
+        buffer[offset + 1] = (byte) (value >> 8);
+        buffer[offset + 2] = (byte) (value >> 16);
+        buffer[offset + 3] = (byte) (value >> 24);
+    }
+
+    @Override
+    public void flush() throws IOException
+    {
+        ensureOpen();
+
+        super.flush();
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        if (closed)
+        {
+            return;
+        }
+
+        try
+        {
+            finish();
+
+            if (listener != null)
+            {
+                listener.closed(def.getBytesRead(), def.getBytesWritten() + HEADER.length + TRAILER_SIZE);
+            }
+
+            out.close();
+        } finally
+        {
+            closed = true;
+
+            pool.release(def);
+        }
+    }
+}
@@ -0,0 +1,56 @@
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.apache.tapestry5.internal.gzip;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Reads data written by {@link PooledDeflaterOutputStream}, using an {@link java.util.zip.Inflater} from an
+ * {@link InflaterPool}, which is returned to the pool when the stream is closed.
+ *
+ * @since 5.5
+ */
+public class PooledInflaterInputStream extends InflaterInputStream
+{
+    private final InflaterPool pool;
+
+    private boolean closed;
+
+    public PooledInflaterInputStream(InputStream in, InflaterPool pool)
+    {
+        super(in, pool.acquire());
+
+        this.pool = pool;
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        if (closed)
+        {
+            return;
+        }
+
+        closed = true;
+
+        try
+        {
+            super.close();
+        } finally
+        {
+            pool.release(inf);
+        }
+    }
+}
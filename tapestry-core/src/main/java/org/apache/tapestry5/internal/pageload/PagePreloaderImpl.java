@@ -13,18 +13,27 @@
 package org.apache.tapestry5.internal.pageload;
 
 import org.apache.tapestry5.SymbolConstants;
+import org.apache.tapestry5.internal.TapestryInternalUtils;
+import org.apache.tapestry5.ioc.Invokable;
 import org.apache.tapestry5.ioc.OperationTracker;
 import org.apache.tapestry5.ioc.annotations.Symbol;
 import org.apache.tapestry5.ioc.internal.util.CollectionFactory;
+import org.apache.tapestry5.ioc.services.ParallelExecutor;
+import org.apache.tapestry5.ioc.services.PerthreadManager;
 import org.apache.tapestry5.ioc.services.ThreadLocale;
 import org.apache.tapestry5.ioc.util.ExceptionUtils;
 import org.apache.tapestry5.services.ComponentSource;
 import org.apache.tapestry5.services.LocalizationSetter;
 import org.apache.tapestry5.services.pageload.PagePreloader;
+import org.apache.tapestry5.services.pageload.PreloaderMode;
 import org.slf4j.Logger;
 
 import java.util.Collection;
 import java.util.List;
+import java.util.Locale;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class PagePreloaderImpl implements PagePreloader
 {
@@ -40,19 +49,158 @@ public class PagePreloaderImpl implements PagePreloader
 
     private final LocalizationSetter localizationSetter;
 
+    private final ParallelExecutor parallelExecutor;
+
+    private final PerthreadManager perthreadManager;
+
+    private final int concurrency;
+
+    private final String localeNames;
+
+    private final boolean background;
+
+    private volatile boolean complete;
+
+    private volatile boolean successful;
+
+    private final AtomicInteger loadedCount = new AtomicInteger();
+
+    private static final class PreloadTask
+    {
+        final String pageName;
+
+        final Locale locale;
+
+        PreloadTask(String pageName, Locale locale)
+        {
+            this.pageName = pageName;
+            this.locale = locale;
+        }
+    }
+
+    /**
+     * Tracks the helpers (beyond the thread driving the preload) that load pages from the shared queue. A helper
+     * that starts after the driver has finished with the queue does nothing, so the driver never waits on a helper
+     * still waiting for a thread.
+     */
+    private final class Helpers implements Invokable<Void>
+    {
+        private final Queue<PreloadTask> queue;
+
+        private int running;
+
+        private boolean closed;
+
+        private RuntimeException failure;
+
+        Helpers(Queue<PreloadTask> queue)
+        {
+            this.queue = queue;
+        }
+
+        @Override
+        public Void invoke()
+        {
+            if (!begin())
+            {
+                return null;
+            }
+
+            try
+            {
+                drain(queue);
+            } catch (RuntimeException ex)
+            {
+                fail(ex);
+            } finally
+            {
+                finish();
+            }
+
+            return null;
+        }
+
+        private synchronized boolean begin()
+        {
+            if (closed)
+            {
+                return false;
+            }
+
+            running++;
+
+            return true;
+        }
+
+        private synchronized void fail(RuntimeException ex)
+        {
+            if (failure == null)
+            {
+                failure = ex;
+            }
+        }
+
+        private synchronized void finish()
+        {
+            running--;
+
+            notifyAll();
+        }
+
+        /**
+         * Prevents any further helpers from starting, waits for running helpers to finish, and rethrows
+         * the first failure of any helper.
+         */
+        synchronized void close() throws InterruptedException
+        {
+            closed = true;
+
+            while (running > 0)
+            {
+                wait();
+            }
+
+            if (failure != null)
+            {
+                throw failure;
+            }
+        }
+    }
+
     public PagePreloaderImpl(Logger logger,
                              OperationTracker tracker,
                              ComponentSource componentSource, Collection<String> configuration,
                              ThreadLocale threadLocale,
-                             LocalizationSetter localizationSetter)
+                             LocalizationSetter localizationSetter,
+                             ParallelExecutor parallelExecutor,
+                             PerthreadManager perthreadManager,
+                             @Symbol(SymbolConstants.PRELOADER_CONCURRENCY)
+                             int concurrency,
+                             @Symbol(SymbolConstants.PRELOADER_LOCALES)
+                             String localeNames,
+                             @Symbol(SymbolConstants.PRELOADER_BACKGROUND)
+                             boolean background,
+                             @Symbol(SymbolConstants.PRELOADER_MODE)
+                             PreloaderMode mode,
+                             @Symbol(SymbolConstants.PRODUCTION_MODE)
+                             boolean productionMode)
     {
         this.tracker = tracker;
         this.componentSource = componentSource;
         this.logger = logger;
         this.threadLocale = threadLocale;
         this.localizationSetter = localizationSetter;
+        this.parallelExecutor = parallelExecutor;
+        this.perthreadManager = perthreadManager;
+        this.concurrency = Math.max(1, concurrency);
+        this.localeNames = localeNames;
+        this.background = background;
 
         pageNames.addAll(configuration);
+
+        // When preloading is disabled, the application is as ready as it will ever be.
+        complete = pageNames.isEmpty() || !mode.isEnabledFor(productionMode);
+        successful = complete;
     }
 
     @Override
@@ -63,25 +211,137 @@ public class PagePreloaderImpl implements PagePreloader
             return;
         }
 
-        logger.info(String.format("Preloading %,d pages.", pageNames.size()));
+        if (background)
+        {
+            // A thread of its own, rather than one from the ParallelExecutor, so that the preload neither waits
+            // for, nor occupies, one of the threads loading pages.
+
+            Thread thread = new Thread(new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    try
+                    {
+                        preloadAndMarkComplete();
+                    } finally
+                    {
+                        perthreadManager.cleanup();
+                    }
+                }
+            }, "Tapestry page preloader");
+
+            thread.setDaemon(true);
+            thread.start();
+
+            return;
+        }
 
-        threadLocale.setLocale(localizationSetter.getSupportedLocales().get(0));
+        preloadAndMarkComplete();
+    }
+
+    @Override
+    public boolean isPreloadComplete()
+    {
+        return complete;
+    }
+
+    @Override
+    public boolean isPreloadSuccessful()
+    {
+        return successful;
+    }
+
+    @Override
+    public int getPreloadedPageCount()
+    {
+        return loadedCount.get();
+    }
+
+    private void preloadAndMarkComplete()
+    {
+        try
+        {
+            preload();
+        } finally
+        {
+            complete = true;
+        }
+    }
+
+    private List<Locale> getPreloadLocales()
+    {
+        List<Locale> supported = localizationSetter.getSupportedLocales();
+
+        if (localeNames.trim().equals("*"))
+        {
+            return supported;
+        }
+
+        List<Locale> result = CollectionFactory.newList();
+
+        for (String name : TapestryInternalUtils.splitAtCommas(localeNames))
+        {
+            if (localizationSetter.isSupportedLocaleName(name))
+            {
+                result.add(localizationSetter.toLocale(name));
+            } else
+            {
+                logger.warn(String.format("Locale '%s' is not a supported locale, and will not be preloaded.", name));
+            }
+        }
+
+        if (result.isEmpty())
+        {
+            result.add(supported.get(0));
+        }
+
+        return result;
+    }
+
+    private void preload()
+    {
+        List<Locale> locales = getPreloadLocales();
+
+        // Pages are loaded for the first locale before any other locale, as that is where
+        // nearly all of the expense (class transformation, template parsing) occurs.
+
+        final Queue<PreloadTask> queue = new ConcurrentLinkedQueue<PreloadTask>();
+
+        for (Locale locale : locales)
+        {
+            for (String pageName : pageNames)
+            {
+                queue.add(new PreloadTask(pageName, locale));
+            }
+        }
+
+        int taskCount = queue.size();
+
+        int workerCount = Math.min(concurrency, taskCount);
+
+        logger.info(String.format("Preloading %,d pages (for %,d locales, using %,d threads).", pageNames.size(),
+                locales.size(), workerCount));
 
         final long startNanos = System.nanoTime();
 
+        // The current thread is one of the workers; the others are helpers from the ParallelExecutor.
+
+        Helpers helpers = new Helpers(queue);
+
+        for (int i = 1; i < workerCount; i++)
+        {
+            parallelExecutor.invoke(helpers);
+        }
+
         try
         {
-            for (final String pageName : pageNames)
+            try
             {
-                tracker.run(String.format("Preloading page '%s'.", pageName), new Runnable()
-                        {
-                            @Override
-                            public void run()
-                            {
-                                componentSource.getPage(pageName);
-                            }
-                        }
-                );
+                drain(queue);
+            } finally
+            {
+                helpers.close();
             }
         } catch (Exception ex)
         {
@@ -94,7 +354,48 @@ public class PagePreloaderImpl implements PagePreloader
         final double elapsedNanos = System.nanoTime() - startNanos;
 
         logger.info(String.format("Preloaded %,d pages in %.2f seconds.",
-                pageNames.size(),
+                taskCount,
                 elapsedNanos * 10E-10d));
+
+        successful = true;
+    }
+
+    /**
+     * Loads pages until the queue is empty. When a page fails to load, the remaining tasks are discarded
+     * (so that other workers stop promptly) and the exception is rethrown.
+     */
+    private void drain(Queue<PreloadTask> queue)
+    {
+        while (true)
+        {
+            final PreloadTask task = queue.poll();
+
+            if (task == null)
+            {
+                return;
+            }
+
+            threadLocale.setLocale(task.locale);
+
+            try
+            {
+                tracker.run(String.format("Preloading page '%s' (%s).", task.pageName, task.locale), new Runnable()
+                        {
+                            @Override
+                            public void run()
+                            {
+                                componentSource.getPage(task.pageName);
+                            }
+                        }
+                );
+            } catch (RuntimeException ex)
+            {
+                queue.clear();
+
+                throw ex;
+            }
+
+            loadedCount.incrementAndGet();
+        }
     }
 }
@@ -98,4 +98,14 @@ public class ComponentTemplateImpl implements ComponentTemplate
     {
         return extension;
     }
+
+    /**
+     * Returns the overrides (extension point id to tokens) defined by this template, or null if there are none.
+     *
+     * @since 5.5
+     */
+    public Map<String, List<TemplateToken>> getOverrides()
+    {
+        return overrides;
+    }
 }
@@ -19,7 +19,9 @@ import static org.apache.tapestry5.ioc.internal.util.CollectionFactory.newList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 
+import org.apache.tapestry5.ioc.internal.util.CollectionFactory;
 import org.apache.tapestry5.ioc.internal.util.InternalUtils;
 import org.apache.tapestry5.services.PersistentFieldChange;
 import org.apache.tapestry5.services.PersistentFieldStrategy;
@@ -29,6 +31,11 @@ import org.apache.tapestry5.services.Session;
 /**
  * Base class for strategies that store their values as keys in the session. Implements a uniform format for the keys,
  * based on a prefix to identify the particular strategy.
+ *
+ * Starting in 5.5, the keys for each page are tracked by a {@link PersistentFieldIndex}, stored in the session
+ * under the prefix and page name, so that a page's fields can be located without scanning all session attributes.
+ * Values persisted without an index (by earlier releases) are indexed the first time a session is found to be
+ * missing an index.
  */
 public abstract class AbstractSessionPersistentFieldStrategy implements PersistentFieldStrategy
 {
@@ -36,10 +43,18 @@ public abstract class AbstractSessionPersistentFieldStrategy implements Persiste
 
     private final Request request;
 
+    /**
+     * Name of the attribute that marks a session as {@linkplain #migrate(Session) migrated}. Page names never contain
+     * '@', so this can't be the name of an index.
+     */
+    private final String migratedName;
+
     protected AbstractSessionPersistentFieldStrategy(String prefix, Request request)
     {
         this.prefix = prefix;
         this.request = request;
+
+        migratedName = prefix + "@indexed";
     }
 
     public final Collection<PersistentFieldChange> gatherFieldChanges(String pageName)
@@ -48,18 +63,25 @@ public abstract class AbstractSessionPersistentFieldStrategy implements Persiste
 
         if (session == null) return Collections.emptyList();
 
-        List<PersistentFieldChange> result = newList();
+        PersistentFieldIndex index = getIndex(session, prefix + pageName, false);
 
-        String fullPrefix = prefix + pageName + ":";
+        if (index == null) return Collections.emptyList();
 
-        for (String name : session.getAttributeNames(fullPrefix))
+        List<PersistentFieldChange> result = newList();
+
+        for (String name : index.getAttributeNames())
         {
             Object persistedValue = session.getAttribute(name);
 
-            Object applicationValue = persistedValue == null ? null : convertPersistedToApplicationValue(
-                    persistedValue);
+            // The attribute may have been removed directly from the HttpSession, bypassing the index.
 
-            PersistentFieldChange change = buildChange(name, applicationValue);
+            if (persistedValue == null)
+            {
+                discardAttribute(session, name);
+                continue;
+            }
+
+            PersistentFieldChange change = buildChange(name, convertPersistedToApplicationValue(persistedValue));
 
             result.add(change);
 
@@ -75,12 +97,18 @@ public abstract class AbstractSessionPersistentFieldStrategy implements Persiste
 
         if (session == null) return;
 
-        String fullPrefix = prefix + pageName + ":";
+        String indexName = prefix + pageName;
+
+        PersistentFieldIndex index = getIndex(session, indexName, true);
 
-        for (String name : session.getAttributeNames(fullPrefix))
+        if (index == null) return;
+
+        for (String name : index.getAttributeNames())
         {
             session.setAttribute(name, null);
         }
+
+        session.setAttribute(indexName, null);
     }
 
     /**
@@ -89,11 +117,101 @@ public abstract class AbstractSessionPersistentFieldStrategy implements Persiste
      *
      * @param session       the session from which a value was just read
      * @param attributeName the name of the attribute used to read a value
+     * @see #discardAttribute(Session, String)
      */
     protected void didReadChange(Session session, String attributeName)
     {
     }
 
+    /**
+     * Removes a persisted value from the session, updating the page's index of attributes.
+     *
+     * @param session       the session from which to remove the value
+     * @param attributeName the name of the attribute storing the value
+     * @since 5.5
+     */
+    protected final void discardAttribute(Session session, String attributeName)
+    {
+        String indexName = attributeName.substring(0, attributeName.indexOf(':', prefix.length()));
+
+        PersistentFieldIndex index = (PersistentFieldIndex) session.getAttributeForUpdate(indexName);
+
+        session.setAttribute(attributeName, null);
+
+        if (index == null) return;
+
+        PersistentFieldIndex updated = index.without(attributeName);
+
+        if (updated != index)
+        {
+            session.setAttribute(indexName, updated.isEmpty() ? null : updated);
+        }
+    }
+
+    /**
+     * Returns the index for a page, or null if the page has no persistent fields. The first time a session is found
+     * without an index, it is {@linkplain #migrate(Session) migrated}.
+     *
+     * @param forUpdate if true, the index is read {@linkplain Session#getAttributeForUpdate(String) for update}
+     */
+    private PersistentFieldIndex getIndex(Session session, String indexName, boolean forUpdate)
+    {
+        PersistentFieldIndex index = readIndex(session, indexName, forUpdate);
+
+        if (index != null || session.getAttribute(migratedName) != null) return index;
+
+        migrate(session);
+
+        return readIndex(session, indexName, forUpdate);
+    }
+
+    private static PersistentFieldIndex readIndex(Session session, String indexName, boolean forUpdate)
+    {
+        return (PersistentFieldIndex) (forUpdate ? session.getAttributeForUpdate(indexName) : session.getAttribute(indexName));
+    }
+
+    /**
+     * Scans the session's attribute names to index any values persisted without an index (by earlier releases, or
+     * by servers still running one), then marks the session so that this only happens once.
+     */
+    private void migrate(Session session)
+    {
+        Map<String, PersistentFieldIndex> stored = CollectionFactory.newMap();
+        Map<String, PersistentFieldIndex> indexes = CollectionFactory.newMap();
+
+        for (String name : session.getAttributeNames(prefix))
+        {
+            // Only field values have a colon after the page name; indexes and the marker don't.
+
+            int colonx = name.indexOf(':', prefix.length());
+
+            if (colonx < 0) continue;
+
+            String indexName = name.substring(0, colonx);
+
+            PersistentFieldIndex index = indexes.get(indexName);
+
+            if (index == null)
+            {
+                index = (PersistentFieldIndex) session.getAttributeForUpdate(indexName);
+
+                stored.put(indexName, index);
+            }
+
+            indexes.put(indexName, index == null ? new PersistentFieldIndex(name) : index.with(name));
+        }
+
+        for (Map.Entry<String, PersistentFieldIndex> entry : indexes.entrySet())
+        {
+            if (entry.getValue() != stored.get(entry.getKey()))
+            {
+                session.setAttribute(entry.getKey(), entry.getValue());
+            }
+        }
+
+        session.setAttribute(migratedName, Boolean.TRUE);
+    }
+
     private PersistentFieldChange buildChange(String name, Object newValue)
     {
         String[] chunks = name.split(":");
@@ -114,6 +232,9 @@ public abstract class AbstractSessionPersistentFieldStrategy implements Persiste
 
         StringBuilder builder = new StringBuilder(prefix);
         builder.append(pageName);
+
+        String indexName = builder.toString();
+
         builder.append(':');
 
         if (componentId != null) builder.append(componentId);
@@ -121,14 +242,35 @@ public abstract class AbstractSessionPersistentFieldStrategy implements Persiste
         builder.append(':');
         builder.append(fieldName);
 
+        String attributeName = builder.toString();
+
         Session session = request.getSession(persistedValue != null);
 
         // TAPESTRY-2308: The session will be false when newValue is null and the session
         // does not already exist.
 
-        if (session != null)
+        if (session == null) return;
+
+        if (persistedValue == null)
+        {
+            discardAttribute(session, attributeName);
+            return;
+        }
+
+        // The index is read for update before the value is stored, so that concurrent requests storing
+        // other fields of the page can't lose each other's additions.
+
+        PersistentFieldIndex index = getIndex(session, indexName, true);
+
+        session.setAttribute(attributeName, persistedValue);
+
+        PersistentFieldIndex updated = index == null ? new PersistentFieldIndex(attributeName) : index.with(attributeName);
+
+        // The index is immutable, and only stored (and replicated) when it changes.
+
+        if (updated != index)
         {
-            session.setAttribute(builder.toString(), persistedValue);
+            session.setAttribute(indexName, updated);
         }
     }
 
@@ -18,9 +18,13 @@ import org.apache.tapestry5.SymbolConstants;
 import org.apache.tapestry5.alerts.AlertManager;
 import org.apache.tapestry5.internal.InternalConstants;
 import org.apache.tapestry5.internal.TapestryInternalUtils;
+import org.apache.tapestry5.internal.gzip.DeflaterPool;
+import org.apache.tapestry5.internal.gzip.InflaterPool;
+import org.apache.tapestry5.internal.gzip.PooledInflaterInputStream;
 import org.apache.tapestry5.internal.util.Base64InputStream;
 import org.apache.tapestry5.internal.util.MacOutputStream;
 import org.apache.tapestry5.ioc.annotations.Symbol;
+import org.apache.tapestry5.ioc.services.RegistryShutdownHub;
 import org.apache.tapestry5.services.ClientDataEncoder;
 import org.apache.tapestry5.services.ClientDataSink;
 import org.apache.tapestry5.services.URLEncoder;
@@ -29,24 +33,59 @@ import org.slf4j.Logger;
 import javax.crypto.spec.SecretKeySpec;
 import java.io.BufferedInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.ObjectInputStream;
 import java.io.UnsupportedEncodingException;
 import java.security.Key;
 import java.security.MessageDigest;
+import java.util.Collection;
 import java.util.zip.GZIPInputStream;
 
 public class ClientDataEncoderImpl implements ClientDataEncoder
 {
     private final URLEncoder urlEncoder;
 
+    private static final int MAX_POOLED = 16;
+
     private final Key hmacKey;
 
+    private final boolean compactFormat;
+
+    private final ClientDataTypes types;
+
+    private final ComponentClassCache classCache;
+
+    private final DeflaterPool deflaterPool = new DeflaterPool(MAX_POOLED);
+
+    private final InflaterPool inflaterPool = new InflaterPool(MAX_POOLED);
+
+    private final ClientDataMetrics metrics;
+
     public ClientDataEncoderImpl(URLEncoder urlEncoder, @Symbol(SymbolConstants.HMAC_PASSPHRASE) String passphrase,
                                  Logger logger,
                                  @Symbol(InternalConstants.TAPESTRY_APP_PACKAGE_PARAM)
-                                 String applicationPackageName, AlertManager alertManager) throws UnsupportedEncodingException
+                                 String applicationPackageName, AlertManager alertManager,
+                                 @Symbol(SymbolConstants.CLIENT_DATA_COMPACT_FORMAT)
+                                 boolean compactFormat,
+                                 Collection<String> compactClassNames,
+                                 ComponentClassCache classCache,
+                                 RegistryShutdownHub shutdownHub) throws UnsupportedEncodingException
     {
         this.urlEncoder = urlEncoder;
+        this.compactFormat = compactFormat;
+        this.classCache = classCache;
+
+        types = new ClientDataTypes(compactClassNames);
+        metrics = new ClientDataMetrics(logger);
+
+        shutdownHub.addRegistryShutdownListener(new Runnable()
+        {
+            public void run()
+            {
+                deflaterPool.clear();
+                inflaterPool.clear();
+            }
+        });
 
         if (passphrase.equals(""))
         {
@@ -73,7 +112,7 @@ public class ClientDataEncoderImpl implements ClientDataEncoder
     {
         try
         {
-            return new ClientDataSinkImpl(urlEncoder, hmacKey);
+            return new ClientDataSinkImpl(urlEncoder, hmacKey, compactFormat ? deflaterPool : null, types, metrics);
         } catch (IOException ex)
         {
             throw new RuntimeException(ex);
@@ -82,7 +121,7 @@ public class ClientDataEncoderImpl implements ClientDataEncoder
 
     public ObjectInputStream decodeClientData(String clientData)
     {
-        // The clientData is Base64 that's been gzip'ed (i.e., this matches
+        // The clientData is Base64 of either the compact format, or that's been gzip'ed (i.e., this matches
         // what ClientDataSinkImpl does).
 
         int colonx = clientData.indexOf(':');
@@ -104,13 +143,25 @@ public class ClientDataEncoderImpl implements ClientDataEncoder
 
             validateHMAC(storedHmacResult, b64in);
 
-            // After reading it once to validate, reset it for the actual read (which includes the GZip decompression).
+            // After reading it once to validate, reset it for the actual read (which includes the decompression).
 
             b64in.reset();
 
-            BufferedInputStream buffered = new BufferedInputStream(new GZIPInputStream(b64in));
+            // Data in the legacy format, from before an upgrade, or with the compact format disabled,
+            // is still readable.
+
+            b64in.mark(1);
+
+            if (b64in.read() != ClientDataSinkImpl.COMPACT_FORMAT)
+            {
+                b64in.reset();
+
+                return new ObjectInputStream(new BufferedInputStream(new GZIPInputStream(b64in)));
+            }
+
+            InputStream buffered = new BufferedInputStream(new PooledInflaterInputStream(b64in, inflaterPool));
 
-            return new ObjectInputStream(buffered);
+            return new CompactObjectInputStream(buffered, types, classCache);
         } catch (IOException ex)
         {
             throw new RuntimeException(ex);
@@ -0,0 +1,64 @@
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.apache.tapestry5.internal.services;
+
+import org.slf4j.Logger;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Tracks the size of client data produced by {@link ClientDataSinkImpl}, logged (at debug level) as each sink's data
+ * is encoded.
+ *
+ * @since 5.5
+ */
+class ClientDataMetrics
+{
+    private final Logger logger;
+
+    private final AtomicLong count = new AtomicLong();
+
+    private final AtomicLong totalSerialized = new AtomicLong();
+
+    private final AtomicLong totalEncoded = new AtomicLong();
+
+    private final AtomicLong maxEncoded = new AtomicLong();
+
+    ClientDataMetrics(Logger logger)
+    {
+        this.logger = logger;
+    }
+
+    void record(long serializedBytes, int encodedLength)
+    {
+        long n = count.incrementAndGet();
+        long serialized = totalSerialized.addAndGet(serializedBytes);
+        long encoded = totalEncoded.addAndGet(encodedLength);
+
+        while (true)
+        {
+            long max = maxEncoded.get();
+
+            if (encodedLength <= max || maxEncoded.compareAndSet(max, encodedLength))
+            {
+                break;
+            }
+        }
+
+        if (logger != null && logger.isDebugEnabled())
+        {
+            logger.debug(String.format("Encoded %,d bytes of client data as %,d characters (%,d encoded; average %,d bytes as %,d characters, maximum %,d characters).",
+                    serializedBytes, encodedLength, n, serialized / n, encoded / n, maxEncoded.get()));
+        }
+    }
+}
@@ -14,6 +14,8 @@
 
 package org.apache.tapestry5.internal.services;
 
+import org.apache.tapestry5.internal.gzip.DeflaterPool;
+import org.apache.tapestry5.internal.gzip.PooledDeflaterOutputStream;
 import org.apache.tapestry5.internal.util.Base64OutputStream;
 import org.apache.tapestry5.internal.util.MacOutputStream;
 import org.apache.tapestry5.internal.util.TeeOutputStream;
@@ -25,10 +27,17 @@ import java.io.IOException;
 import java.io.ObjectOutputStream;
 import java.io.OutputStream;
 import java.security.Key;
+import java.util.zip.Deflater;
 import java.util.zip.GZIPOutputStream;
 
 public class ClientDataSinkImpl implements ClientDataSink
 {
+    /**
+     * Identifies the compact format (raw deflate of a {@link CompactObjectOutputStream}). The legacy format
+     * (GZIP of a standard ObjectOutputStream) always starts with the GZIP magic number, 0x1f.
+     */
+    static final int COMPACT_FORMAT = 1;
+
     private final Base64OutputStream base64OutputStream;
 
     private final ObjectOutputStream objectOutputStream;
@@ -39,21 +48,55 @@ public class ClientDataSinkImpl implements ClientDataSink
 
     private final MacOutputStream macOutputStream;
 
+    private final ClientDataMetrics metrics;
+
+    private long serializedBytes;
+
+    private String clientData;
+
+    /**
+     * Creates a sink for the legacy format.
+     */
     public ClientDataSinkImpl(URLEncoder urlEncoder, Key hmacKey) throws IOException
+    {
+        this(urlEncoder, hmacKey, null, null, null);
+    }
+
+    /**
+     * @param deflaterPool
+     *         used for the compact format, or null for the legacy format
+     * @param types
+     *         class ids for the compact format
+     * @param metrics
+     *         optional, records the size of the client data
+     * @since 5.5
+     */
+    ClientDataSinkImpl(URLEncoder urlEncoder, Key hmacKey, DeflaterPool deflaterPool, ClientDataTypes types,
+                       ClientDataMetrics metrics) throws IOException
     {
         this.urlEncoder = urlEncoder;
+        this.metrics = metrics;
 
         base64OutputStream = new Base64OutputStream();
         macOutputStream =  MacOutputStream.streamFor(hmacKey);
 
-        final BufferedOutputStream pipeline = new BufferedOutputStream(new GZIPOutputStream(
-                new TeeOutputStream(macOutputStream, base64OutputStream)));
+        OutputStream tee = new TeeOutputStream(macOutputStream, base64OutputStream);
+
+        if (deflaterPool != null)
+        {
+            tee.write(COMPACT_FORMAT);
+        }
+
+        final BufferedOutputStream pipeline = new BufferedOutputStream(deflaterPool == null
+                ? new GZIPOutputStream(tee)
+                : new PooledDeflaterOutputStream(tee, deflaterPool, Deflater.DEFAULT_COMPRESSION));
 
         OutputStream guard = new OutputStream()
         {
             @Override
             public void write(int b) throws IOException
             {
+                serializedBytes++;
                 pipeline.write(b);
             }
 
@@ -74,18 +117,22 @@ public class ClientDataSinkImpl implements ClientDataSink
             @Override
             public void write(byte[] b) throws IOException
             {
+                serializedBytes += b.length;
                 pipeline.write(b);
             }
 
             @Override
             public void write(byte[] b, int off, int len) throws IOException
             {
+                serializedBytes += len;
                 pipeline.write(b, off, len);
             }
         };
 
 
-        objectOutputStream = new ObjectOutputStream(guard);
+        objectOutputStream = deflaterPool == null
+                ? new ObjectOutputStream(guard)
+                : new CompactObjectOutputStream(guard, types);
     }
 
     public ObjectOutputStream getObjectOutputStream()
@@ -95,6 +142,11 @@ public class ClientDataSinkImpl implements ClientDataSink
 
     public String getClientData()
     {
+        if (clientData != null)
+        {
+            return clientData;
+        }
+
         if (!closed)
         {
             try
@@ -106,7 +158,14 @@ public class ClientDataSinkImpl implements ClientDataSink
             }
         }
 
-        return macOutputStream.getResult() + ":" + base64OutputStream.toBase64();
+        clientData = macOutputStream.getResult() + ":" + base64OutputStream.toBase64();
+
+        if (metrics != null)
+        {
+            metrics.record(serializedBytes, clientData.length());
+        }
+
+        return clientData;
     }
 
     public String getEncodedClientData()
@@ -0,0 +1,85 @@
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.apache.tapestry5.internal.services;
+
+import org.apache.tapestry5.ioc.internal.util.CollectionFactory;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Map;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+/**
+ * Assigns short numeric ids to frequently serialized class names, for {@link CompactObjectOutputStream}.
+ * Ids are assigned in sorted name order, so that any server with the same configuration assigns the same ids.
+ *
+ * @since 5.5
+ */
+public class ClientDataTypes
+{
+    private final String[] names;
+
+    private final Map<String, Integer> ids = CollectionFactory.newMap();
+
+    private final int hash;
+
+    public ClientDataTypes(Collection<String> classNames)
+    {
+        SortedSet<String> sorted = new TreeSet<String>(classNames);
+
+        names = sorted.toArray(new String[sorted.size()]);
+
+        for (int i = 0; i < names.length; i++)
+        {
+            ids.put(names[i], i);
+        }
+
+        hash = Arrays.hashCode(names);
+    }
+
+    /**
+     * Returns a hash of the table of class names. It is written to, and checked against, each stream, so that data
+     * written with a different table is rejected rather than read using the wrong classes.
+     */
+    public int getHash()
+    {
+        return hash;
+    }
+
+    /**
+     * Returns the id for the class name, or -1 if the name does not have an id.
+     */
+    public int idOf(String className)
+    {
+        Integer id = ids.get(className);
+
+        return id == null ? -1 : id;
+    }
+
+    /**
+     * Returns the class name for an id.
+     *
+     * @throws IllegalArgumentException
+     *         if the id is not valid
+     */
+    public String nameOf(int id)
+    {
+        if (id < 0 || id >= names.length)
+        {
+            throw new IllegalArgumentException(String.format("Client data class id %d is not valid.", id));
+        }
+
+        return names[id];
+    }
+}
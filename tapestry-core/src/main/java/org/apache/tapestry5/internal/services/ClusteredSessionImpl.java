@@ -60,6 +60,16 @@ public class ClusteredSessionImpl extends SessionImpl
         return result;
     }
 
+    @Override
+    public Object getAttributeForUpdate(String name)
+    {
+        Object result = super.getAttributeForUpdate(name);
+
+        sessionAttributeCache.put(name, result);
+
+        return result;
+    }
+
     public void setAttribute(String name, Object value)
     {
         super.setAttribute(name, value);
@@ -0,0 +1,135 @@
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.apache.tapestry5.internal.services;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InvalidClassException;
+import java.io.ObjectInputStream;
+import java.io.ObjectStreamClass;
+import java.io.StreamCorruptedException;
+
+/**
+ * Reads data written by {@link CompactObjectOutputStream}, resolving classes via the {@link ComponentClassCache}.
+ *
+ * @since 5.5
+ */
+public class CompactObjectInputStream extends ObjectInputStream
+{
+    private final ClientDataTypes types;
+
+    private final ComponentClassCache classCache;
+
+    /**
+     * @throws InvalidClassException
+     *         if the data was written with a different table of class ids
+     */
+    public CompactObjectInputStream(InputStream in, ClientDataTypes types, ComponentClassCache classCache) throws IOException
+    {
+        super(checkHeader(in, types));
+
+        this.types = types;
+        this.classCache = classCache;
+    }
+
+    /**
+     * Invoked before the super-class constructor, which is where the stream header is normally read.
+     */
+    private static InputStream checkHeader(InputStream in, ClientDataTypes types) throws IOException
+    {
+        int hash = new DataInputStream(in).readInt();
+
+        if (hash != types.getHash())
+        {
+            throw new InvalidClassException(String.format(
+                    "Client data was written using a different set of compact client data class names (hash %08x, expected %08x). " +
+                            "All servers reading the data must be configured with the same class names.",
+                    hash, types.getHash()));
+        }
+
+        return in;
+    }
+
+    @Override
+    protected void readStreamHeader() throws IOException
+    {
+    }
+
+    @Override
+    protected ObjectStreamClass readClassDescriptor() throws IOException, ClassNotFoundException
+    {
+        int type = read();
+
+        String className;
+
+        switch (type)
+        {
+            case CompactObjectOutputStream.DESCRIPTOR:
+                return super.readClassDescriptor();
+
+            case CompactObjectOutputStream.CLASS_NAME:
+                className = readUTF();
+                break;
+
+            case CompactObjectOutputStream.CLASS_ID:
+                className = types.nameOf(readUnsignedShort());
+                break;
+
+            default:
+                throw new StreamCorruptedException(String.format("Unexpected class descriptor type %d.", type));
+        }
+
+        long serialVersionUID = readLong();
+        int layoutHash = readInt();
+
+        Class clazz;
+
+        try
+        {
+            clazz = classCache.forName(className);
+        } catch (RuntimeException ex)
+        {
+            throw new ClassNotFoundException(className, ex);
+        }
+
+        ObjectStreamClass desc = ObjectStreamClass.lookupAny(clazz);
+
+        if (desc.getSerialVersionUID() != serialVersionUID)
+        {
+            throw new InvalidClassException(className, String.format(
+                    "local class incompatible: stream classdesc serialVersionUID = %d, local class serialVersionUID = %d",
+                    serialVersionUID, desc.getSerialVersionUID()));
+        }
+
+        // Fields are read using the local descriptor, so they must match those written.
+
+        if (CompactObjectOutputStream.layoutHash(desc) != layoutHash)
+        {
+            throw new InvalidClassException(className,
+                    "local class incompatible: serializable fields differ from those of the stream class");
+        }
+
+        return desc;
+    }
+
+    @Override
+    protected Class<?> resolveClass(ObjectStreamClass desc) throws IOException, ClassNotFoundException
+    {
+        // Compact descriptors are looked up from the class itself.
+
+        Class<?> clazz = desc.forClass();
+
+        return clazz != null ? clazz : super.resolveClass(desc);
+    }
+}
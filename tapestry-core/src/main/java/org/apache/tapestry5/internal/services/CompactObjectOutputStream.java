@@ -0,0 +1,112 @@
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.apache.tapestry5.internal.services;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.io.ObjectStreamField;
+import java.io.OutputStream;
+
+/**
+ * An ObjectOutputStream that writes a compact reference to each class (a short id, or the class name, plus the
+ * serial version UID, and a hash of its serializable fields) in place of the full class descriptor. In place of the
+ * standard stream header, the {@linkplain ClientDataTypes#getHash() hash of the class id table} is written. This is
+ * only appropriate where the reader has the same classes available, as is the case for client data read back by the
+ * same application. Classes that can not be identified this way (arrays, interfaces, enums and the like) fall back to
+ * the standard class descriptor.
+ *
+ * @see CompactObjectInputStream
+ * @since 5.5
+ */
+public class CompactObjectOutputStream extends ObjectOutputStream
+{
+    static final int DESCRIPTOR = 0;
+
+    static final int CLASS_NAME = 1;
+
+    static final int CLASS_ID = 2;
+
+    private final ClientDataTypes types;
+
+    public CompactObjectOutputStream(OutputStream out, ClientDataTypes types) throws IOException
+    {
+        super(writeHeader(out, types));
+
+        this.types = types;
+    }
+
+    /**
+     * Invoked before the super-class constructor, which is where the stream header is normally written.
+     */
+    private static OutputStream writeHeader(OutputStream out, ClientDataTypes types) throws IOException
+    {
+        new DataOutputStream(out).writeInt(types.getHash());
+
+        return out;
+    }
+
+    @Override
+    protected void writeStreamHeader() throws IOException
+    {
+    }
+
+    /**
+     * Computes a hash of the names and types of the serializable fields of the class.
+     */
+    static int layoutHash(ObjectStreamClass desc)
+    {
+        int result = 0;
+
+        for (ObjectStreamField field : desc.getFields())
+        {
+            result = 31 * result + field.getName().hashCode();
+            result = 31 * result + field.getTypeCode();
+
+            String typeString = field.getTypeString();
+
+            result = 31 * result + (typeString == null ? 0 : typeString.hashCode());
+        }
+
+        return result;
+    }
+
+    @Override
+    protected void writeClassDescriptor(ObjectStreamClass desc) throws IOException
+    {
+        Class clazz = desc.forClass();
+
+        if (clazz.isPrimitive() || clazz.isArray() || clazz.isInterface() || desc.getSerialVersionUID() == 0)
+        {
+            write(DESCRIPTOR);
+            super.writeClassDescriptor(desc);
+            return;
+        }
+
+        int id = types.idOf(desc.getName());
+
+        if (id < 0)
+        {
+            write(CLASS_NAME);
+            writeUTF(desc.getName());
+        } else
+        {
+            write(CLASS_ID);
+            writeShort(id);
+        }
+
+        writeLong(desc.getSerialVersionUID());
+        writeInt(layoutHash(desc));
+    }
+}
@@ -57,12 +57,9 @@ public class ComponentClassResolverImpl implements ComponentClassResolver, Inval
      */
     private final Map<String, String> packageNameToLibraryName = CollectionFactory.newMap();
 
-    // Flag indicating that the maps have been cleared following an invalidation
-    // and need to be rebuilt. The flag and the four maps below are not synchronized
-    // because they are only modified inside a synchronized block. That should be strong enough ...
-    // and changes made will become "visible" at the end of the synchronized block. Because of the
-    // structure of Tapestry, there should not be any reader threads while the write thread
-    // is operating.
+    // Flag indicating that the data has been invalidated and needs to be rebuilt. The data
+    // is an immutable snapshot, rebuilt inside a synchronized block and then published
+    // (via a volatile field), so readers never need to lock.
 
     private volatile boolean needsRebuild = true;
 
@@ -119,6 +116,11 @@ public class ComponentClassResolverImpl implements ComponentClassResolver, Inval
 
         private boolean invalid = false;
 
+        /**
+         * Case-sensitive lookups, built once the data is complete; see {@link #freeze()}.
+         */
+        private Map<String, String> pageLookup, componentLookup, mixinLookup, canonicalPageNameLookup;
+
         private void rebuild(String pathPrefix, String rootPackage)
         {
             fill(pathPrefix, rootPackage, InternalConstants.PAGES_SUBPACKAGE, pageToClassName, pageToClassNames);
@@ -295,6 +297,46 @@ public class ComponentClassResolverImpl implements ComponentClassResolver, Inval
             classNames.add(className);
         }
 
+        /**
+         * Builds case-sensitive lookup tables for each of the case-insensitive maps. Names are nearly always
+         * provided in their natural case, and a HashMap lookup of a String (whose hash code is cached) is much cheaper
+         * than a case-insensitive lookup. The tables also include names inherited from the core library, so that a
+         * single lookup is usually enough.
+         */
+        private void freeze()
+        {
+            pageLookup = exactLookup(pageToClassName);
+            componentLookup = exactLookup(componentToClassName);
+            mixinLookup = exactLookup(mixinToClassName);
+            canonicalPageNameLookup = exactLookup(pageNameToCanonicalPageName);
+        }
+
+        private Map<String, String> exactLookup(Map<String, String> caseInsensitive)
+        {
+            Map<String, String> result = new HashMap<String, String>(caseInsensitive.size() * 2);
+
+            for (Map.Entry<String, String> entry : caseInsensitive.entrySet())
+            {
+                String name = entry.getKey();
+
+                result.put(name, entry.getValue());
+
+                if (name.startsWith(CORE_LIBRARY_PREFIX))
+                {
+                    String inheritedName = name.substring(CORE_LIBRARY_PREFIX.length());
+
+                    // The application may override a core page/component/mixin
+
+                    if (!caseInsensitive.containsKey(inheritedName))
+                    {
+                        result.put(inheritedName, entry.getValue());
+                    }
+                }
+            }
+
+            return result;
+        }
+
         private void validate()
         {
             validate("page name", pageToClassNames);
@@ -403,7 +445,8 @@ public class ComponentClassResolverImpl implements ComponentClassResolver, Inval
     }
 
     /**
-     * Returns the current data, or atomically rebuilds it. In rare race conditions, the data may be rebuilt more than once, overlapping.
+     * Returns the current data, or rebuilds it (only one thread rebuilds the data; other threads
+     * that need the data wait for it).
      */
     private Data getData()
     {
@@ -412,6 +455,16 @@ public class ComponentClassResolverImpl implements ComponentClassResolver, Inval
             return data;
         }
 
+        return rebuildData();
+    }
+
+    private synchronized Data rebuildData()
+    {
+        if (!needsRebuild)
+        {
+            return data;
+        }
+
         Data newData = new Data();
 
         for (Map.Entry<String, List<String>> entry : libraryNameToPackageNames.entrySet())
@@ -427,16 +480,20 @@ public class ComponentClassResolverImpl implements ComponentClassResolver, Inval
         }
 
         newData.validate();
+        newData.freeze();
 
         showChanges("pages", data.pageToClassName, newData.pageToClassName);
         showChanges("components", data.componentToClassName, newData.componentToClassName);
         showChanges("mixins", data.mixinToClassName, newData.mixinToClassName);
 
-        needsRebuild = false;
+        // Publish the new data before clearing the flag, so that no reader can see the
+        // flag cleared, but the old data.
 
         data = newData;
 
-        return data;
+        needsRebuild = false;
+
+        return newData;
     }
 
     private static int countUnique(Map<String, String> map)
@@ -532,7 +589,7 @@ public class ComponentClassResolverImpl implements ComponentClassResolver, Inval
     {
         Data data = getData();
 
-        String result = locate(pageName, data.pageToClassName);
+        String result = locate(pageName, data.pageLookup, data.pageToClassName);
 
         if (result == null)
         {
@@ -545,7 +602,9 @@ public class ComponentClassResolverImpl implements ComponentClassResolver, Inval
 
     public boolean isPageName(final String pageName)
     {
-        return locate(pageName, getData().pageToClassName) != null;
+        Data data = getData();
+
+        return locate(pageName, data.pageLookup, data.pageToClassName) != null;
     }
 
     public boolean isPage(final String pageClassName)
@@ -591,7 +650,7 @@ public class ComponentClassResolverImpl implements ComponentClassResolver, Inval
     {
         Data data = getData();
 
-        String result = locate(componentType, data.componentToClassName);
+        String result = locate(componentType, data.componentLookup, data.componentToClassName);
 
         if (result == null)
         {
@@ -626,7 +685,7 @@ public class ComponentClassResolverImpl implements ComponentClassResolver, Inval
     {
         Data data = getData();
 
-        String result = locate(mixinType, data.mixinToClassName);
+        String result = locate(mixinType, data.mixinLookup, data.mixinToClassName);
 
         if (result == null)
         {
@@ -637,6 +696,24 @@ public class ComponentClassResolverImpl implements ComponentClassResolver, Inval
         return result;
     }
 
+    /**
+     * Locates a class name, first using the case-sensitive lookup, then the provided (case-insensitive) map.
+     *
+     * @param logicalName
+     *         name to search for
+     * @param exactLookup
+     *         case-sensitive mapping from logical name to class name, checked first
+     * @param logicalNameToClassName
+     *         mapping from logical name to class name
+     * @return the located class name or null
+     */
+    private String locate(String logicalName, Map<String, String> exactLookup, Map<String, String> logicalNameToClassName)
+    {
+        String result = exactLookup.get(logicalName);
+
+        return result != null ? result : locate(logicalName, logicalNameToClassName);
+    }
+
     /**
      * Locates a class name within the provided map, given its logical name. If not found naturally, a search inside the
      * "core" library is included.
@@ -678,7 +755,7 @@ public class ComponentClassResolverImpl implements ComponentClassResolver, Inval
     {
         Data data = getData();
 
-        String result = locate(pageName, data.pageNameToCanonicalPageName);
+        String result = locate(pageName, data.canonicalPageNameLookup, data.pageNameToCanonicalPageName);
 
         if (result == null)
         {
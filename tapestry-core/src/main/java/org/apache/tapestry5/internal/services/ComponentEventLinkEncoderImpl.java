@@ -25,6 +25,8 @@ import org.apache.tapestry5.services.security.ClientWhitelist;
 
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
 
 public class ComponentEventLinkEncoderImpl implements ComponentEventLinkEncoder
 {
@@ -58,6 +60,64 @@ public class ComponentEventLinkEncoderImpl implements ComponentEventLinkEncoder
 
     private static final char SLASH = '/';
 
+    /**
+     * Caches the encoded path of page render and component event links, up to (but not including) the context.
+     * Only the context differs between links for the same page, component, event and locale.
+     */
+    private final Map<LinkPrefixKey, String> linkPrefixes = CollectionFactory.newConcurrentMap();
+
+    private static final class LinkPrefixKey
+    {
+        private final String pageName, nestedComponentId, eventType;
+
+        private final Locale locale;
+
+        private final int hashCode;
+
+        LinkPrefixKey(String pageName, String nestedComponentId, String eventType, Locale locale)
+        {
+            this.pageName = pageName;
+            this.nestedComponentId = nestedComponentId;
+            this.eventType = eventType;
+            this.locale = locale;
+
+            int result = pageName.hashCode();
+            result = 31 * result + (nestedComponentId == null ? 0 : nestedComponentId.hashCode());
+            result = 31 * result + (eventType == null ? 0 : eventType.hashCode());
+            result = 31 * result + (locale == null ? 0 : locale.hashCode());
+
+            hashCode = result;
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return hashCode;
+        }
+
+        @Override
+        public boolean equals(Object obj)
+        {
+            if (this == obj)
+            {
+                return true;
+            }
+
+            if (!(obj instanceof LinkPrefixKey))
+            {
+                return false;
+            }
+
+            LinkPrefixKey other = (LinkPrefixKey) obj;
+
+            return hashCode == other.hashCode
+                    && pageName.equals(other.pageName)
+                    && Objects.equals(nestedComponentId, other.nestedComponentId)
+                    && Objects.equals(eventType, other.eventType)
+                    && Objects.equals(locale, other.locale);
+        }
+    }
+
     public ComponentEventLinkEncoderImpl(ComponentClassResolver componentClassResolver,
                                          ContextPathEncoder contextPathEncoder, LocalizationSetter localizationSetter,
                                          Response response, RequestSecurityManager requestSecurityManager, BaseURLSource baseURLSource,
@@ -90,23 +150,17 @@ public class ComponentEventLinkEncoderImpl implements ComponentEventLinkEncoder
 
     public Link createPageRenderLink(PageRenderRequestParameters parameters)
     {
-        StringBuilder builder = new StringBuilder(BUFFER_SIZE);
-
-        // Build up the absolute URI.
-
         String activePageName = parameters.getLogicalPageName();
 
-        builder.append(contextPath);
-
-        encodeAppFolderAndLocale(builder);
+        String prefix = getPageRenderPrefix(activePageName, currentLocale());
 
-        builder.append(SLASH);
+        StringBuilder builder = new StringBuilder(prefix.length() + BUFFER_SIZE);
 
-        String encodedPageName = encodePageName(activePageName);
+        builder.append(prefix);
 
-        builder.append(encodedPageName);
+        // The prefix ends with a slash for the index page (whose name is omitted from the URL).
 
-        appendContext(encodedPageName.length() > 0, parameters.getActivationContext(), builder);
+        appendContext(prefix.charAt(prefix.length() - 1) != SLASH, parameters.getActivationContext(), builder);
 
         Link link = new LinkImpl(builder.toString(), false, requestSecurityManager.checkPageSecurity(activePageName),
                 response, contextPathEncoder, baseURLSource);
@@ -119,22 +173,50 @@ public class ComponentEventLinkEncoderImpl implements ComponentEventLinkEncoder
         return link;
     }
 
-    private void encodeAppFolderAndLocale(StringBuilder builder)
+    private Locale currentLocale()
+    {
+        return encodeLocaleIntoPath ? persistentLocale.get() : null;
+    }
+
+    private String getPageRenderPrefix(String pageName, Locale locale)
+    {
+        LinkPrefixKey key = new LinkPrefixKey(pageName, null, null, locale);
+
+        String prefix = linkPrefixes.get(key);
+
+        if (prefix == null)
+        {
+            StringBuilder builder = new StringBuilder(BUFFER_SIZE);
+
+            // Build up the absolute URI.
+
+            builder.append(contextPath);
+
+            encodeAppFolderAndLocale(builder, locale);
+
+            builder.append(SLASH);
+
+            builder.append(encodePageName(pageName));
+
+            prefix = builder.toString();
+
+            linkPrefixes.put(key, prefix);
+        }
+
+        return prefix;
+    }
+
+    private void encodeAppFolderAndLocale(StringBuilder builder, Locale locale)
     {
         if (!applicationFolder.equals(""))
         {
             builder.append(SLASH).append(applicationFolder);
         }
 
-        if (encodeLocaleIntoPath)
+        if (locale != null)
         {
-            Locale locale = persistentLocale.get();
-
-            if (locale != null)
-            {
-                builder.append(SLASH);
-                builder.append(locale.toString());
-            }
+            builder.append(SLASH);
+            builder.append(locale.toString());
         }
     }
 
@@ -153,35 +235,15 @@ public class ComponentEventLinkEncoderImpl implements ComponentEventLinkEncoder
 
     public Link createComponentEventLink(ComponentEventRequestParameters parameters, boolean forForm)
     {
-        StringBuilder builder = new StringBuilder(BUFFER_SIZE);
-
-        // Build up the absolute URI.
-
         String activePageName = parameters.getActivePageName();
         String containingPageName = parameters.getContainingPageName();
-        String eventType = parameters.getEventType();
-
-        String nestedComponentId = parameters.getNestedComponentId();
-        boolean hasComponentId = InternalUtils.isNonBlank(nestedComponentId);
-
-        builder.append(contextPath);
-
-        encodeAppFolderAndLocale(builder);
 
-        builder.append(SLASH);
-        builder.append(activePageName.toLowerCase());
+        String prefix = getComponentEventPrefix(activePageName, parameters.getNestedComponentId(),
+                parameters.getEventType(), currentLocale());
 
-        if (hasComponentId)
-        {
-            builder.append('.');
-            builder.append(nestedComponentId);
-        }
+        StringBuilder builder = new StringBuilder(prefix.length() + BUFFER_SIZE);
 
-        if (!hasComponentId || !eventType.equals(EventConstants.ACTION))
-        {
-            builder.append(':');
-            builder.append(encodePageName(eventType));
-        }
+        builder.append(prefix);
 
         appendContext(true, parameters.getEventContext(), builder);
 
@@ -209,6 +271,47 @@ public class ComponentEventLinkEncoderImpl implements ComponentEventLinkEncoder
         return result;
     }
 
+    private String getComponentEventPrefix(String pageName, String nestedComponentId, String eventType, Locale locale)
+    {
+        LinkPrefixKey key = new LinkPrefixKey(pageName, nestedComponentId, eventType, locale);
+
+        String prefix = linkPrefixes.get(key);
+
+        if (prefix == null)
+        {
+            StringBuilder builder = new StringBuilder(BUFFER_SIZE);
+
+            boolean hasComponentId = InternalUtils.isNonBlank(nestedComponentId);
+
+            // Build up the absolute URI.
+
+            builder.append(contextPath);
+
+            encodeAppFolderAndLocale(builder, locale);
+
+            builder.append(SLASH);
+            builder.append(pageName.toLowerCase());
+
+            if (hasComponentId)
+            {
+                builder.append('.');
+                builder.append(nestedComponentId);
+            }
+
+            if (!hasComponentId || !eventType.equals(EventConstants.ACTION))
+            {
+                builder.append(':');
+                builder.append(encodePageName(eventType));
+            }
+
+            prefix = builder.toString();
+
+            linkPrefixes.put(key, prefix);
+        }
+
+        return prefix;
+    }
+
     /**
      * Splits path at slashes into a <em>mutable</em> list of strings. Empty terms, including the
      * expected leading term (paths start with a '/') are dropped.
@@ -87,7 +87,7 @@ public final class ComponentInstantiatorSourceImpl implements ComponentInstantia
      */
     private final Map<String, Instantiator> classToInstantiator = CollectionFactory.newConcurrentMap();
 
-    private final Map<String, ComponentModel> classToModel = CollectionFactory.newMap();
+    private final Map<String, ComponentModel> classToModel = CollectionFactory.newConcurrentMap();
 
     private final MethodDescription GET_COMPONENT_RESOURCES = PlasticUtils.getMethodDescription(
             ComponentResourcesAware.class, "getComponentResources");
@@ -0,0 +1,677 @@
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.apache.tapestry5.internal.services;
+
+import org.apache.tapestry5.internal.parser.*;
+import org.apache.tapestry5.ioc.Location;
+import org.apache.tapestry5.ioc.Resource;
+import org.apache.tapestry5.ioc.internal.util.CollectionFactory;
+import org.apache.tapestry5.ioc.internal.util.LocationImpl;
+import org.slf4j.Logger;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Stores parsed {@linkplain ComponentTemplate templates} as binary files in a directory, so that templates do not
+ * need to be re-parsed after a restart. Each template is stored in a file named for a digest of its URL; the file
+ * records the Tapestry version, a fingerprint of the parser configuration (see {@link #fingerprint(boolean, Map)}),
+ * and a digest of the template content, and is ignored (and replaced) when any of these no longer matches. Files are read, via a memory mapping, only when the template is first needed.
+ *
+ * Templates containing token types other than those produced by {@link SaxTemplateParser} are not stored.
+ *
+ * @see org.apache.tapestry5.SymbolConstants#TEMPLATE_CACHE_DIRECTORY
+ * @since 5.5
+ */
+public class ComponentTemplateCache
+{
+    private static final int MAGIC = 0x54504c43;
+
+    /**
+     * Incremented whenever the format of the file, or of any token, changes.
+     */
+    private static final int FORMAT_VERSION = 2;
+
+    private static final int NULL = -1;
+
+    private static final int NO_LOCATION = Integer.MIN_VALUE;
+
+    private static final TokenType[] TOKEN_TYPES = TokenType.values();
+
+    private final File directory;
+
+    private final String version;
+
+    private final String parserFingerprint;
+
+    private final Logger logger;
+
+    /**
+     * @param directory
+     *         where template files are stored
+     * @param version
+     *         the Tapestry version
+     * @param parserFingerprint
+     *         identifies the configuration of the parser, as computed by {@link #fingerprint(boolean, Map)}
+     * @param logger
+     *         used to report problems reading or writing template files
+     */
+    public ComponentTemplateCache(File directory, String version, String parserFingerprint, Logger logger)
+    {
+        this.directory = directory;
+        this.version = version;
+        this.parserFingerprint = parserFingerprint;
+        this.logger = logger;
+    }
+
+    /**
+     * Computes a fingerprint of the parser configuration that affects the parsed tokens: the default for whitespace
+     * compression and the mapping of DTD identifiers to local URLs. Templates parsed under a different configuration
+     * are not reused.
+     */
+    public static String fingerprint(boolean compressWhitespace, Map<String, URL> dtdURLMappings)
+    {
+        StringBuilder builder = new StringBuilder().append(compressWhitespace);
+
+        for (Map.Entry<String, URL> entry : new TreeMap<String, URL>(dtdURLMappings).entrySet())
+        {
+            builder.append('\n').append(entry.getKey()).append('=').append(entry.getValue());
+        }
+
+        try
+        {
+            return toHex(digest(builder.toString().getBytes(StandardCharsets.UTF_8)));
+        } catch (IOException ex)
+        {
+            // SHA-256 is available in every Java runtime; fall back to the full description regardless.
+            return builder.toString();
+        }
+    }
+
+    /**
+     * Returns the template for the resource, either from its stored file, or by parsing it (and then storing it).
+     * Problems reading or writing the file are logged, and never prevent the template from being parsed.
+     */
+    public ComponentTemplate getTemplate(Resource resource, TemplateParser parser)
+    {
+        URL url = resource.toURL();
+
+        byte[] checksum;
+        File file;
+
+        try
+        {
+            checksum = contentDigest(resource);
+            file = new File(directory, toHex(digest(url.toString().getBytes(StandardCharsets.UTF_8))) + ".tpl");
+        } catch (IOException ex)
+        {
+            logger.warn(String.format("Unable to compute checksum of template %s: %s", resource, ex.getMessage()));
+
+            return parser.parseTemplate(resource);
+        }
+
+        if (file.isFile())
+        {
+            try
+            {
+                ComponentTemplate template = read(file, resource, url, checksum);
+
+                if (template != null)
+                {
+                    return template;
+                }
+            } catch (Exception ex)
+            {
+                logger.warn(String.format("Unable to read cached template %s from %s (it will be parsed again): %s",
+                        resource, file, ex.getMessage()));
+            }
+        }
+
+        ComponentTemplate template = parser.parseTemplate(resource);
+
+        if (template instanceof ComponentTemplateImpl)
+        {
+            try
+            {
+                write((ComponentTemplateImpl) template, url, checksum, file);
+            } catch (IOException ex)
+            {
+                logger.warn(String.format("Unable to store parsed template %s in %s: %s", resource, directory, ex.getMessage()));
+            }
+        }
+
+        return template;
+    }
+
+    /**
+     * Returns the template, or null if the file is for different content, a different version, or a differently
+     * configured parser.
+     */
+    private ComponentTemplate read(File file, Resource resource, URL url, byte[] checksum) throws IOException
+    {
+        ByteBuffer buffer;
+
+        FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+
+        try
+        {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } finally
+        {
+            channel.close();
+        }
+
+        if (buffer.getInt() != MAGIC || buffer.getInt() != FORMAT_VERSION)
+        {
+            return null;
+        }
+
+        Reader reader = new Reader(buffer, resource);
+
+        if (!version.equals(reader.readString()) || !parserFingerprint.equals(reader.readString())
+                || !url.toString().equals(reader.readString()))
+        {
+            return null;
+        }
+
+        byte[] storedChecksum = new byte[buffer.getInt()];
+        buffer.get(storedChecksum);
+
+        if (!Arrays.equals(checksum, storedChecksum))
+        {
+            return null;
+        }
+
+        boolean extension = buffer.get() != 0;
+        boolean strictMixinParameters = buffer.get() != 0;
+
+        List<TemplateToken> tokens = reader.readTokens();
+
+        int count = buffer.getInt();
+
+        Map<String, Location> componentIds = CollectionFactory.newMap();
+
+        for (int i = 0; i < count; i++)
+        {
+            String id = reader.readString();
+
+            componentIds.put(id, reader.readLocation());
+        }
+
+        count = buffer.getInt();
+
+        Map<String, List<TemplateToken>> overrides = null;
+
+        if (count != NULL)
+        {
+            overrides = CollectionFactory.newCaseInsensitiveMap();
+
+            for (int i = 0; i < count; i++)
+            {
+                String id = reader.readString();
+
+                overrides.put(id, reader.readTokens());
+            }
+        }
+
+        return new ComponentTemplateImpl(resource, tokens, componentIds, extension, strictMixinParameters, overrides);
+    }
+
+    /**
+     * Writes the template to a temporary file, which is then renamed, so that a partially written file is never read.
+     */
+    private void write(ComponentTemplateImpl template, URL url, byte[] checksum, File file) throws IOException
+    {
+        if (!directory.isDirectory() && !directory.mkdirs() && !directory.isDirectory())
+        {
+            throw new IOException(String.format("Unable to create directory %s.", directory));
+        }
+
+        File temp = File.createTempFile(file.getName(), ".tmp", directory);
+
+        try
+        {
+            DataOutputStream os = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)));
+
+            try
+            {
+                Writer writer = new Writer(os);
+
+                os.writeInt(MAGIC);
+                os.writeInt(FORMAT_VERSION);
+
+                writer.writeString(version);
+                writer.writeString(parserFingerprint);
+                writer.writeString(url.toString());
+
+                os.writeInt(checksum.length);
+                os.write(checksum);
+
+                os.writeBoolean(template.isExtension());
+                os.writeBoolean(template.usesStrictMixinParameters());
+
+                writer.writeTokens(template.getTokens());
+
+                Map<String, Location> componentIds = template.getComponentIds();
+
+                os.writeInt(componentIds.size());
+
+                for (Map.Entry<String, Location> entry : componentIds.entrySet())
+                {
+                    writer.writeString(entry.getKey());
+                    writer.writeLocation(entry.getValue());
+                }
+
+                Map<String, List<TemplateToken>> overrides = template.getOverrides();
+
+                os.writeInt(overrides == null ? NULL : overrides.size());
+
+                if (overrides != null)
+                {
+                    for (Map.Entry<String, List<TemplateToken>> entry : overrides.entrySet())
+                    {
+                        writer.writeString(entry.getKey());
+                        writer.writeTokens(entry.getValue());
+                    }
+                }
+            } finally
+            {
+                os.close();
+            }
+
+            try
+            {
+                Files.move(temp.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException ex)
+            {
+                Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally
+        {
+            temp.delete();
+        }
+    }
+
+    /**
+     * Writes strings through a table, so that each distinct string (element names, namespace URIs, and so forth)
+     * is written only once.
+     */
+    private static class Writer
+    {
+        private final DataOutputStream os;
+
+        private final Map<String, Integer> strings = CollectionFactory.newMap();
+
+        Writer(DataOutputStream os)
+        {
+            this.os = os;
+        }
+
+        void writeString(String value) throws IOException
+        {
+            if (value == null)
+            {
+                os.writeInt(NULL);
+                return;
+            }
+
+            Integer index = strings.get(value);
+
+            if (index != null)
+            {
+                os.writeInt(index);
+                return;
+            }
+
+            index = strings.size();
+
+            strings.put(value, index);
+
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+
+            os.writeInt(index);
+            os.writeInt(bytes.length);
+            os.write(bytes);
+        }
+
+        void writeLocation(Location location) throws IOException
+        {
+            if (location == null)
+            {
+                os.writeInt(NO_LOCATION);
+                return;
+            }
+
+            os.writeInt(location.getLine());
+            os.writeInt(location.getColumn());
+        }
+
+        void writeTokens(List<TemplateToken> tokens) throws IOException
+        {
+            os.writeInt(tokens.size());
+
+            for (TemplateToken token : tokens)
+            {
+                writeToken(token);
+            }
+        }
+
+        private void writeToken(TemplateToken token) throws IOException
+        {
+            TokenType type = token.getTokenType();
+
+            if (token.getClass() != TOKEN_CLASSES[type.ordinal()])
+            {
+                throw new IOException(String.format("Token %s (%s) can not be stored.", token, token.getClass().getName()));
+            }
+
+            os.writeByte(type.ordinal());
+
+            writeLocation(token.getLocation());
+
+            switch (type)
+            {
+                case ATTRIBUTE:
+                    AttributeToken attribute = (AttributeToken) token;
+                    writeString(attribute.namespaceURI);
+                    writeString(attribute.name);
+                    writeString(attribute.value);
+                    break;
+
+                case CDATA:
+                    writeString(((CDATAToken) token).content);
+                    break;
+
+                case COMMENT:
+                    writeString(((CommentToken) token).comment);
+                    break;
+
+                case START_COMPONENT:
+                    StartComponentToken component = (StartComponentToken) token;
+                    writeString(component.getElementName());
+                    writeString(component.getId());
+                    writeString(component.getComponentType());
+                    writeString(component.getMixins());
+                    break;
+
+                case START_ELEMENT:
+                    StartElementToken element = (StartElementToken) token;
+                    writeString(element.namespaceURI);
+                    writeString(element.name);
+                    break;
+
+                case TEXT:
+                    writeString(((TextToken) token).text);
+                    break;
+
+                case EXPANSION:
+                    writeString(((ExpansionToken) token).getExpression());
+                    break;
+
+                case PARAMETER:
+                    writeString(((ParameterToken) token).name);
+                    break;
+
+                case BLOCK:
+                    writeString(((BlockToken) token).getId());
+                    break;
+
+                case DTD:
+                    DTDToken dtd = (DTDToken) token;
+                    writeString(dtd.name);
+                    writeString(dtd.publicId);
+                    writeString(dtd.systemId);
+                    break;
+
+                case DEFINE_NAMESPACE_PREFIX:
+                    DefineNamespacePrefixToken prefix = (DefineNamespacePrefixToken) token;
+                    writeString(prefix.namespaceURI);
+                    writeString(prefix.namespacePrefix);
+                    break;
+
+                case EXTENSION_POINT:
+                    writeString(((ExtensionPointToken) token).getExtensionPointId());
+                    break;
+
+                default:
+                    // END_ELEMENT and BODY have no content beyond the location.
+                    break;
+            }
+        }
+    }
+
+    /**
+     * The exact token class for each {@link TokenType}, indexed by ordinal.
+     */
+    private static final Class[] TOKEN_CLASSES = new Class[TOKEN_TYPES.length];
+
+    static
+    {
+        TOKEN_CLASSES[TokenType.ATTRIBUTE.ordinal()] = AttributeToken.class;
+        TOKEN_CLASSES[TokenType.CDATA.ordinal()] = CDATAToken.class;
+        TOKEN_CLASSES[TokenType.COMMENT.ordinal()] = CommentToken.class;
+        TOKEN_CLASSES[TokenType.END_ELEMENT.ordinal()] = EndElementToken.class;
+        TOKEN_CLASSES[TokenType.START_COMPONENT.ordinal()] = StartComponentToken.class;
+        TOKEN_CLASSES[TokenType.START_ELEMENT.ordinal()] = StartElementToken.class;
+        TOKEN_CLASSES[TokenType.TEXT.ordinal()] = TextToken.class;
+        TOKEN_CLASSES[TokenType.BODY.ordinal()] = BodyToken.class;
+        TOKEN_CLASSES[TokenType.EXPANSION.ordinal()] = ExpansionToken.class;
+        TOKEN_CLASSES[TokenType.PARAMETER.ordinal()] = ParameterToken.class;
+        TOKEN_CLASSES[TokenType.BLOCK.ordinal()] = BlockToken.class;
+        TOKEN_CLASSES[TokenType.DTD.ordinal()] = DTDToken.class;
+        TOKEN_CLASSES[TokenType.DEFINE_NAMESPACE_PREFIX.ordinal()] = DefineNamespacePrefixToken.class;
+        TOKEN_CLASSES[TokenType.EXTENSION_POINT.ordinal()] = ExtensionPointToken.class;
+    }
+
+    private static class Reader
+    {
+        private final ByteBuffer buffer;
+
+        private final Resource resource;
+
+        private final List<String> strings = CollectionFactory.newList();
+
+        Reader(ByteBuffer buffer, Resource resource)
+        {
+            this.buffer = buffer;
+            this.resource = resource;
+        }
+
+        String readString() throws IOException
+        {
+            int index = buffer.getInt();
+
+            if (index == NULL)
+            {
+                return null;
+            }
+
+            if (index < strings.size())
+            {
+                return strings.get(index);
+            }
+
+            if (index != strings.size())
+            {
+                throw new IOException(String.format("Invalid string index %d.", index));
+            }
+
+            byte[] bytes = new byte[buffer.getInt()];
+            buffer.get(bytes);
+
+            String value = new String(bytes, StandardCharsets.UTF_8);
+
+            strings.add(value);
+
+            return value;
+        }
+
+        Location readLocation()
+        {
+            int line = buffer.getInt();
+
+            if (line == NO_LOCATION)
+            {
+                return null;
+            }
+
+            return new LocationImpl(resource, line, buffer.getInt());
+        }
+
+        List<TemplateToken> readTokens() throws IOException
+        {
+            int count = buffer.getInt();
+
+            List<TemplateToken> result = CollectionFactory.newList();
+
+            for (int i = 0; i < count; i++)
+            {
+                result.add(readToken());
+            }
+
+            return result;
+        }
+
+        private TemplateToken readToken() throws IOException
+        {
+            int ordinal = buffer.get();
+
+            if (ordinal < 0 || ordinal >= TOKEN_TYPES.length)
+            {
+                throw new IOException(String.format("Invalid token type %d.", ordinal));
+            }
+
+            Location location = readLocation();
+
+            switch (TOKEN_TYPES[ordinal])
+            {
+                case ATTRIBUTE:
+                    return new AttributeToken(readString(), readString(), readString(), location);
+
+                case CDATA:
+                    return new CDATAToken(readString(), location);
+
+                case COMMENT:
+                    return new CommentToken(readString(), location);
+
+                case END_ELEMENT:
+                    return new EndElementToken(location);
+
+                case START_COMPONENT:
+                    return new StartComponentToken(readString(), readString(), readString(), readString(), location);
+
+                case START_ELEMENT:
+                    return new StartElementToken(readString(), readString(), location);
+
+                case TEXT:
+                    return new TextToken(readString(), location);
+
+                case BODY:
+                    return new BodyToken(location);
+
+                case EXPANSION:
+                    return new ExpansionToken(readString(), location);
+
+                case PARAMETER:
+                    return new ParameterToken(readString(), location);
+
+                case BLOCK:
+                    return new BlockToken(readString(), location);
+
+                case DTD:
+                    return new DTDToken(readString(), readString(), readString(), location);
+
+                case DEFINE_NAMESPACE_PREFIX:
+                    return new DefineNamespacePrefixToken(readString(), readString(), location);
+
+                default:
+                    return new ExtensionPointToken(readString(), location);
+            }
+        }
+    }
+
+    private static byte[] contentDigest(Resource resource) throws IOException
+    {
+        MessageDigest digest = newDigest();
+
+        InputStream is = resource.openStream();
+
+        try
+        {
+            byte[] buffer = new byte[4096];
+
+            while (true)
+            {
+                int length = is.read(buffer);
+
+                if (length < 0)
+                {
+                    break;
+                }
+
+                digest.update(buffer, 0, length);
+            }
+        } finally
+        {
+            is.close();
+        }
+
+        return digest.digest();
+    }
+
+    private static byte[] digest(byte[] input) throws IOException
+    {
+        return newDigest().digest(input);
+    }
+
+    private static MessageDigest newDigest() throws IOException
+    {
+        try
+        {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException ex)
+        {
+            throw new IOException(ex);
+        }
+    }
+
+    private static String toHex(byte[] bytes)
+    {
+        StringBuilder builder = new StringBuilder();
+
+        for (byte b : bytes)
+        {
+            builder.append(String.format("%02x", b & 0xff));
+        }
+
+        return builder.toString();
+    }
+}
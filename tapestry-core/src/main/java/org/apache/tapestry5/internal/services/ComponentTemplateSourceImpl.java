@@ -24,6 +24,7 @@ import org.apache.tapestry5.ioc.annotations.Inject;
 import org.apache.tapestry5.ioc.annotations.PostInjection;
 import org.apache.tapestry5.ioc.annotations.Symbol;
 import org.apache.tapestry5.ioc.internal.util.CollectionFactory;
+import org.apache.tapestry5.ioc.internal.util.InternalUtils;
 import org.apache.tapestry5.ioc.internal.util.URLChangeTracker;
 import org.apache.tapestry5.ioc.services.ClasspathURLConverter;
 import org.apache.tapestry5.model.ComponentModel;
@@ -33,7 +34,10 @@ import org.apache.tapestry5.services.UpdateListenerHub;
 import org.apache.tapestry5.services.pageload.ComponentResourceLocator;
 import org.apache.tapestry5.services.pageload.ComponentResourceSelector;
 import org.apache.tapestry5.services.templates.ComponentTemplateLocator;
+import org.slf4j.Logger;
 
+import java.io.File;
+import java.net.URL;
 import java.util.Collections;
 import java.util.List;
 import java.util.Locale;
@@ -51,6 +55,11 @@ public final class ComponentTemplateSourceImpl extends InvalidationEventHubImpl
 
     private final ComponentResourceLocator locator;
 
+    /**
+     * Stores parsed templates across restarts; null if not enabled.
+     */
+    private final ComponentTemplateCache cache;
+
     /**
      * Caches from a key (combining component name and locale) to a resource. Often, many different keys will point to
      * the same resource (i.e., "foo:en_US", "foo:en_UK", and "foo:en" may all be parsed from the same "foo.tml"
@@ -104,19 +113,41 @@ public final class ComponentTemplateSourceImpl extends InvalidationEventHubImpl
     public ComponentTemplateSourceImpl(@Inject
                                        @Symbol(SymbolConstants.PRODUCTION_MODE)
                                        boolean productionMode, TemplateParser parser, ComponentResourceLocator locator,
-                                       ClasspathURLConverter classpathURLConverter)
+                                       ClasspathURLConverter classpathURLConverter,
+                                       @Symbol(SymbolConstants.TEMPLATE_CACHE_DIRECTORY)
+                                       String cacheDirectoryName,
+                                       @Symbol(SymbolConstants.TAPESTRY_VERSION)
+                                       String tapestryVersion,
+                                       @Symbol(SymbolConstants.COMPRESS_WHITESPACE)
+                                       boolean compressWhitespace, Logger logger)
+    {
+        this(productionMode, parser, locator, new URLChangeTracker(classpathURLConverter),
+                InternalUtils.isBlank(cacheDirectoryName) ? null
+                        : new ComponentTemplateCache(new File(cacheDirectoryName), tapestryVersion,
+                        ComponentTemplateCache.fingerprint(compressWhitespace, parser.getDTDURLMappings()), logger));
+    }
+
+    ComponentTemplateSourceImpl(boolean productionMode, TemplateParser parser, ComponentResourceLocator locator,
+                                ClasspathURLConverter classpathURLConverter)
     {
-        this(productionMode, parser, locator, new URLChangeTracker(classpathURLConverter));
+        this(productionMode, parser, locator, new URLChangeTracker(classpathURLConverter), null);
     }
 
     ComponentTemplateSourceImpl(boolean productionMode, TemplateParser parser, ComponentResourceLocator locator,
                                 URLChangeTracker tracker)
+    {
+        this(productionMode, parser, locator, tracker, null);
+    }
+
+    ComponentTemplateSourceImpl(boolean productionMode, TemplateParser parser, ComponentResourceLocator locator,
+                                URLChangeTracker tracker, ComponentTemplateCache cache)
     {
         super(productionMode);
 
         this.parser = parser;
         this.locator = locator;
         this.tracker = tracker;
+        this.cache = cache;
     }
 
     @PostInjection
@@ -185,9 +216,19 @@ public final class ComponentTemplateSourceImpl extends InvalidationEventHubImpl
         if (!r.exists())
             return missingTemplate;
 
-        tracker.add(r.toURL());
+        URL url = r.toURL();
+
+        tracker.add(url);
+
+        // The cache checks the content of the template against what it stored; once loaded,
+        // changes are detected by the tracker, which invalidates the in-memory caches.
+
+        if (cache == null || url == null)
+        {
+            return parser.parseTemplate(r);
+        }
 
-        return parser.parseTemplate(r);
+        return cache.getTemplate(r, parser);
     }
 
     private Resource locateTemplateResource(ComponentModel initialModel, ComponentResourceSelector selector)
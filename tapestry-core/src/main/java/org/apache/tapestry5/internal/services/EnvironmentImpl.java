@@ -14,54 +14,68 @@
 
 package org.apache.tapestry5.internal.services;
 
-import org.apache.tapestry5.func.F;
-import org.apache.tapestry5.func.Mapper;
-import org.apache.tapestry5.func.Predicate;
 import org.apache.tapestry5.ioc.internal.util.CollectionFactory;
 import org.apache.tapestry5.ioc.internal.util.OneShotLock;
 import org.apache.tapestry5.ioc.util.AvailableValues;
 import org.apache.tapestry5.ioc.util.UnknownValueException;
 import org.apache.tapestry5.services.Environment;
 
-import java.util.LinkedList;
+import java.util.Arrays;
 import java.util.List;
-import java.util.Map;
-import java.util.Map.Entry;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * A non-threadsafe implementation (expects to use the "perthread" service lifecyle).
+ *
+ * Each environmental type is assigned a small, stable index (shared by all instances); the stack for each type is
+ * a simple array, found by that index, so that peek, push and pop neither hash nor allocate.
  */
 public class EnvironmentImpl implements Environment
 {
+    private static final AtomicInteger nextIndex = new AtomicInteger();
 
-    // My generics mojo breaks down when we talk about the key and the value being related
-    // types.
+    private static final ClassValue<Integer> typeIndex = new ClassValue<Integer>()
+    {
+        @Override
+        protected Integer computeValue(Class<?> type)
+        {
+            return nextIndex.getAndIncrement();
+        }
+    };
 
-    private Map<Class, LinkedList> typeToStack = CollectionFactory.newMap();
+    private static final int INITIAL_STACK_SIZE = 4;
 
     private final OneShotLock lock = new OneShotLock();
 
-    @SuppressWarnings("unchecked")
-    private <T> LinkedList<T> stackFor(Class<T> type)
-    {
-        lock.check();
+    // Indexed by type index; a type's stack is allocated when first pushed.
 
-        LinkedList<T> result = typeToStack.get(type);
+    private Object[][] stacks = new Object[0][];
 
-        if (result == null)
-        {
-            result = CollectionFactory.newLinkedList();
-            typeToStack.put(type, result);
-        }
+    private int[] depths = new int[0];
 
-        return result;
+    private Class[] types = new Class[0];
+
+    private int indexFor(Class type)
+    {
+        lock.check();
+
+        return typeIndex.get(type);
     }
 
+    @SuppressWarnings("unchecked")
     public <T> T peek(Class<T> type)
     {
-        LinkedList<T> stack = stackFor(type);
+        int index = indexFor(type);
 
-        return stack.isEmpty() ? null : stack.getFirst();
+        if (index >= depths.length)
+        {
+            return null;
+        }
+
+        int depth = depths[index];
+
+        return depth == 0 ? null : (T) stacks[index][depth - 1];
     }
 
     public <T> T peekRequired(Class<T> type)
@@ -70,49 +84,77 @@ public class EnvironmentImpl implements Environment
 
         if (result == null)
         {
-            List<Class> types = CollectionFactory.newList();
-            for (Map.Entry<Class, LinkedList> e : typeToStack.entrySet())
-            {
-                LinkedList list = e.getValue();
+            List<String> available = CollectionFactory.newList();
 
-                if (list != null && !list.isEmpty())
-                    types.add(e.getKey());
+            for (int i = 0; i < depths.length; i++)
+            {
+                if (depths[i] > 0)
+                {
+                    available.add(types[i].getName());
+                }
             }
 
             throw new UnknownValueException(String.format("No object of type %s is available from the Environment.", type.getName()),
-                    new AvailableValues("Environmentals",
-                            F.flow(typeToStack.entrySet()).remove(new Predicate<Entry<Class, LinkedList>>()
-                            {
-                                public boolean accept(Entry<Class, LinkedList> element)
-                                {
-                                    return element.getValue().isEmpty();
-                                }
-                            }).map(new Mapper<Entry<Class, LinkedList>, String>()
-                            {
-                                public String map(Entry<Class, LinkedList> element)
-                                {
-                                    return element.getKey().getName();
-                                }
-                            }).toList()));
+                    new AvailableValues("Environmentals", available));
         }
 
         return result;
     }
 
+    @SuppressWarnings("unchecked")
     public <T> T pop(Class<T> type)
     {
-        LinkedList<T> stack = stackFor(type);
+        int index = indexFor(type);
+
+        int depth = index < depths.length ? depths[index] : 0;
+
+        if (depth == 0)
+        {
+            throw new NoSuchElementException();
+        }
+
+        Object[] stack = stacks[index];
+
+        T result = (T) stack[depth - 1];
 
-        return stack.removeFirst();
+        stack[depth - 1] = null;
+        depths[index] = depth - 1;
+
+        return result;
     }
 
+    @SuppressWarnings("unchecked")
     public <T> T push(Class<T> type, T instance)
     {
-        LinkedList<T> stack = stackFor(type);
+        int index = indexFor(type);
+
+        if (index >= depths.length)
+        {
+            int length = Math.max(index + 1, depths.length * 2);
+
+            stacks = Arrays.copyOf(stacks, length);
+            depths = Arrays.copyOf(depths, length);
+            types = Arrays.copyOf(types, length);
+        }
+
+        Object[] stack = stacks[index];
+        int depth = depths[index];
+
+        if (stack == null)
+        {
+            stack = new Object[INITIAL_STACK_SIZE];
+            stacks[index] = stack;
+            types[index] = type;
+        } else if (depth == stack.length)
+        {
+            stack = Arrays.copyOf(stack, depth * 2);
+            stacks[index] = stack;
+        }
 
-        T result = stack.isEmpty() ? null : stack.getFirst();
+        T result = depth == 0 ? null : (T) stack[depth - 1];
 
-        stack.addFirst(instance);
+        stack[depth] = instance;
+        depths[index] = depth + 1;
 
         return result;
     }
@@ -38,7 +38,7 @@ public class FlashPersistentFieldStrategy extends AbstractSessionPersistentField
     protected void didReadChange(Session session, String attributeName)
     {
         // For flash persistence, after reading a value, get rid of it.
-        session.setAttribute(attributeName, null);
+        discardAttribute(session, attributeName);
     }
 
 }
@@ -0,0 +1,47 @@
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.apache.tapestry5.internal.services;
+
+import org.apache.tapestry5.json.JSONWriter;
+import org.apache.tapestry5.services.ComponentEventResultProcessor;
+import org.apache.tapestry5.services.Response;
+import org.apache.tapestry5.util.JSONStreamResponse;
+
+import java.io.IOException;
+
+/**
+ * Streams a {@link JSONStreamResponse} directly to the response output stream. Unlike other
+ * {@link org.apache.tapestry5.StreamResponse}s, the content remains eligible for GZip compression.
+ *
+ * @since 5.5
+ */
+public class JSONStreamResponseResultProcessor implements ComponentEventResultProcessor<JSONStreamResponse>
+{
+    private final Response response;
+
+    public JSONStreamResponseResultProcessor(Response response)
+    {
+        this.response = response;
+    }
+
+    public void processResultValue(JSONStreamResponse streamResponse) throws IOException
+    {
+        streamResponse.prepareResponse(response);
+
+        JSONWriter writer = new JSONWriter(response.getOutputStream(streamResponse.getContentType()));
+
+        streamResponse.write(writer);
+
+        writer.close();
+    }
+}
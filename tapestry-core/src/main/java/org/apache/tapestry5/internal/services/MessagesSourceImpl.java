@@ -14,12 +14,12 @@ package org.apache.tapestry5.internal.services;
 
 import org.apache.tapestry5.func.F;
 import org.apache.tapestry5.internal.event.InvalidationEventHubImpl;
+import org.apache.tapestry5.internal.services.messages.LayeredProperties;
 import org.apache.tapestry5.internal.util.MultiKey;
 import org.apache.tapestry5.ioc.Messages;
 import org.apache.tapestry5.ioc.Resource;
 import org.apache.tapestry5.ioc.internal.util.CollectionFactory;
 import org.apache.tapestry5.ioc.internal.util.URLChangeTracker;
-import org.apache.tapestry5.ioc.util.CaseInsensitiveMap;
 import org.apache.tapestry5.services.messages.PropertiesFileParser;
 import org.apache.tapestry5.services.pageload.ComponentResourceLocator;
 import org.apache.tapestry5.services.pageload.ComponentResourceSelector;
@@ -56,7 +56,8 @@ public class MessagesSourceImpl extends InvalidationEventHubImpl implements Mess
 
     /**
      * Keyed on bundle id and ComponentResourceSelector, the cooked properties include properties inherited from less
-     * locale-specific properties files, or inherited from parent bundles.
+     * locale-specific properties files, or inherited from parent bundles. These are {@link LayeredProperties}, which share
+     * (rather than copy) the inherited properties.
      */
     private final Map<MultiKey, Map<String, String>> cookedProperties = CollectionFactory.newConcurrentMap();
 
@@ -163,23 +164,12 @@ public class MessagesSourceImpl extends InvalidationEventHubImpl implements Mess
     }
 
     /**
-     * Returns a new map consisting of all the properties in previous overlayed with all the properties in
+     * Returns a map consisting of all the properties in previous overlayed with all the properties in
      * rawProperties. If rawProperties is empty, returns just the base map.
      */
     private Map<String, String> extend(Map<String, String> base, Map<String, String> rawProperties)
     {
-        if (rawProperties.isEmpty())
-            return base;
-
-        // Make a copy of the base Map
-
-        Map<String, String> result = new CaseInsensitiveMap<String>(base);
-
-        // Add or overwrite properties to the copy
-
-        result.putAll(rawProperties);
-
-        return result;
+        return LayeredProperties.extend(base, rawProperties);
     }
 
     private Map<String, String> getRawProperties(Resource localization)
@@ -19,6 +19,7 @@ import org.apache.tapestry5.ioc.Resource;
 import org.apache.tapestry5.services.dynamic.DynamicTemplate;
 import org.apache.tapestry5.services.pageload.ComponentRequestSelectorAnalyzer;
 import org.apache.tapestry5.services.pageload.ComponentResourceSelector;
+import org.apache.tapestry5.services.pageload.PageCacheStatistics;
 
 import java.util.Set;
 
@@ -57,4 +58,13 @@ public interface PageSource
      * @since 5.3
      */
     Set<Page> getAllPages();
+
+    /**
+     * Returns a snapshot of the statistics of the page cache: hits, misses, time spent loading pages, and
+     * pages discarded from the cache.
+     *
+     * @see org.apache.tapestry5.corelib.pages.PageCatalog
+     * @since 5.5
+     */
+    PageCacheStatistics getCacheStatistics();
 }
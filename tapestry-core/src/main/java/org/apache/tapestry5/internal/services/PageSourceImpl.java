@@ -14,11 +14,14 @@
 
 package org.apache.tapestry5.internal.services;
 
+import org.apache.tapestry5.SymbolConstants;
 import org.apache.tapestry5.func.F;
 import org.apache.tapestry5.func.Mapper;
+import org.apache.tapestry5.internal.TapestryInternalUtils;
 import org.apache.tapestry5.internal.services.assets.ResourceChangeTracker;
 import org.apache.tapestry5.internal.structure.Page;
 import org.apache.tapestry5.ioc.annotations.PostInjection;
+import org.apache.tapestry5.ioc.annotations.Symbol;
 import org.apache.tapestry5.ioc.internal.util.CollectionFactory;
 import org.apache.tapestry5.services.ComponentClasses;
 import org.apache.tapestry5.services.ComponentMessages;
@@ -26,11 +29,21 @@ import org.apache.tapestry5.services.ComponentTemplates;
 import org.apache.tapestry5.services.InvalidationEventHub;
 import org.apache.tapestry5.services.pageload.ComponentRequestSelectorAnalyzer;
 import org.apache.tapestry5.services.pageload.ComponentResourceSelector;
+import org.apache.tapestry5.services.pageload.PageCacheEvictionPolicy;
+import org.apache.tapestry5.services.pageload.PageCacheStatistics;
 
 import java.lang.ref.SoftReference;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
+/**
+ * Caches page instances, keyed on page name and {@link ComponentResourceSelector}. By default, the cache is
+ * unbounded and pages are held by soft references. When a maximum number of pages, or a maximum total
+ * page weight, is configured, pages are held by hard references instead, and pages are evicted (using the configured
+ * {@link PageCacheEvictionPolicy}) as new pages are loaded. Pinned pages are never evicted.
+ */
 public class PageSourceImpl implements PageSource
 {
     private final ComponentRequestSelectorAnalyzer selectorAnalyzer;
@@ -68,12 +81,112 @@ public class PageSourceImpl implements PageSource
         }
     }
 
-    private final Map<CachedPageKey, SoftReference<Page>> pageCache = CollectionFactory.newConcurrentMap();
+    private final class CachedPage
+    {
+        final CachedPageKey key;
+
+        final int weight;
+
+        final boolean pinned;
+
+        private final Page page;
+
+        private final SoftReference<Page> ref;
+
+        private final AtomicLong useCount = new AtomicLong();
+
+        private volatile long lastUse = System.nanoTime();
+
+        CachedPage(CachedPageKey key, Page page)
+        {
+            this.key = key;
+
+            Page.Stats stats = page.getStats();
+
+            weight = stats == null ? 1 : Math.max(1, stats.weight);
+            pinned = pinnedPageNames.contains(key.pageName.toLowerCase());
+
+            // Hard references are needed when the cache is bounded, as the cache (not the garbage collector)
+            // decides which pages are discarded.
+
+            boolean hard = bounded || pinned;
+
+            this.page = hard ? page : null;
+            ref = hard ? null : new SoftReference<Page>(page);
+        }
+
+        Page get()
+        {
+            return ref == null ? page : ref.get();
+        }
+
+        void touch()
+        {
+            useCount.incrementAndGet();
+            lastUse = System.nanoTime();
+        }
 
-    public PageSourceImpl(PageLoader pageLoader, ComponentRequestSelectorAnalyzer selectorAnalyzer)
+        /**
+         * Returns true if this page should be evicted in preference to the other page.
+         */
+        boolean isPreferredVictim(CachedPage other)
+        {
+            if (evictionPolicy == PageCacheEvictionPolicy.LFU)
+            {
+                long thisCount = useCount.get();
+                long otherCount = other.useCount.get();
+
+                if (thisCount != otherCount)
+                {
+                    return thisCount < otherCount;
+                }
+            }
+
+            return lastUse - other.lastUse < 0;
+        }
+    }
+
+    private final Map<CachedPageKey, CachedPage> pageCache = CollectionFactory.newConcurrentMap();
+
+    private final int maxPages;
+
+    private final int maxWeight;
+
+    private final boolean bounded;
+
+    private final PageCacheEvictionPolicy evictionPolicy;
+
+    private final Set<String> pinnedPageNames = CollectionFactory.newSet();
+
+    private final AtomicLong hits = new AtomicLong(), misses = new AtomicLong(), loadNanos = new AtomicLong(),
+            evictions = new AtomicLong(), reclaimed = new AtomicLong();
+
+    public PageSourceImpl(PageLoader pageLoader, ComponentRequestSelectorAnalyzer selectorAnalyzer,
+
+                          @Symbol(SymbolConstants.PAGE_CACHE_MAX_PAGES)
+                          int maxPages,
+
+                          @Symbol(SymbolConstants.PAGE_CACHE_MAX_WEIGHT)
+                          int maxWeight,
+
+                          @Symbol(SymbolConstants.PAGE_CACHE_EVICTION_POLICY)
+                          PageCacheEvictionPolicy evictionPolicy,
+
+                          @Symbol(SymbolConstants.PAGE_CACHE_PINNED_PAGES)
+                          String pinnedPages)
     {
         this.pageLoader = pageLoader;
         this.selectorAnalyzer = selectorAnalyzer;
+        this.maxPages = maxPages;
+        this.maxWeight = maxWeight;
+        this.evictionPolicy = evictionPolicy;
+
+        bounded = maxPages > 0 || maxWeight > 0;
+
+        for (String name : TapestryInternalUtils.splitAtCommas(pinnedPages))
+        {
+            pinnedPageNames.add(name.toLowerCase());
+        }
     }
 
     public Page getPage(String canonicalPageName)
@@ -86,26 +199,97 @@ public class PageSourceImpl implements PageSource
         // with all of its mutable construction-time state, is properly published to other
         // threads (at least, as I understand Brian Goetz's explanation, it should be).
 
+        boolean loaded = false;
+
         while (true)
         {
-            SoftReference<Page> ref = pageCache.get(key);
+            CachedPage cached = pageCache.get(key);
 
-            Page page = ref == null ? null : ref.get();
+            Page page = cached == null ? null : cached.get();
 
             if (page != null)
             {
+                if (!loaded)
+                {
+                    hits.incrementAndGet();
+                }
+
+                if (bounded)
+                {
+                    cached.touch();
+                }
+
                 return page;
             }
 
+            if (cached != null && pageCache.remove(key, cached))
+            {
+                reclaimed.incrementAndGet();
+            }
+
             // In rare race conditions, we may see the same page loaded multiple times across
             // different threads. The last built one will "evict" the others from the page cache,
             // and the earlier ones will be GCed.
 
+            misses.incrementAndGet();
+
+            long startNanos = System.nanoTime();
+
             page = pageLoader.loadPage(canonicalPageName, selector);
 
-            ref = new SoftReference<Page>(page);
+            loadNanos.addAndGet(System.nanoTime() - startNanos);
+
+            pageCache.put(key, new CachedPage(key, page));
 
-            pageCache.put(key, ref);
+            if (bounded)
+            {
+                evict(key);
+            }
+
+            loaded = true;
+        }
+    }
+
+    /**
+     * Evicts pages until the cache is back within its bounds. The page just loaded, and any pinned pages,
+     * are never selected for eviction. This only occurs after a page is loaded, which is a relatively
+     * rare and expensive operation, so a linear scan of the (bounded) cache is acceptable.
+     */
+    private synchronized void evict(CachedPageKey loadedKey)
+    {
+        while (true)
+        {
+            int count = 0;
+            int weight = 0;
+            CachedPage victim = null;
+
+            for (CachedPage cached : pageCache.values())
+            {
+                count++;
+                weight += cached.weight;
+
+                if (cached.pinned || cached.key.equals(loadedKey))
+                {
+                    continue;
+                }
+
+                if (victim == null || cached.isPreferredVictim(victim))
+                {
+                    victim = cached;
+                }
+            }
+
+            boolean overLimit = (maxPages > 0 && count > maxPages) || (maxWeight > 0 && weight > maxWeight);
+
+            if (!overLimit || victim == null)
+            {
+                return;
+            }
+
+            if (pageCache.remove(victim.key, victim))
+            {
+                evictions.incrementAndGet();
+            }
         }
     }
 
@@ -133,12 +317,31 @@ public class PageSourceImpl implements PageSource
 
     public Set<Page> getAllPages()
     {
-        return F.flow(pageCache.values()).map(new Mapper<SoftReference<Page>, Page>()
+        return F.flow(pageCache.values()).map(new Mapper<CachedPage, Page>()
         {
-            public Page map(SoftReference<Page> element)
+            public Page map(CachedPage element)
             {
                 return element.get();
             }
         }).removeNulls().toSet();
     }
+
+    public PageCacheStatistics getCacheStatistics()
+    {
+        int count = 0;
+        int weight = 0;
+
+        for (CachedPage cached : pageCache.values())
+        {
+            if (cached.get() != null)
+            {
+                count++;
+                weight += cached.weight;
+            }
+        }
+
+        return new PageCacheStatistics(count, weight, hits.get(), misses.get(),
+                loadNanos.get() / (double) TimeUnit.MILLISECONDS.toNanos(1),
+                evictions.get(), reclaimed.get());
+    }
 }
@@ -0,0 +1,115 @@
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.apache.tapestry5.internal.services;
+
+import org.apache.tapestry5.annotations.ImmutableSessionPersistedObject;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Stored in the session by {@link AbstractSessionPersistentFieldStrategy}, one per page, to identify the session
+ * attributes that store the page's persistent fields. This allows the fields to be located without scanning all
+ * session attribute names. Instances are immutable; a new index is stored only when a field is added or removed.
+ *
+ * @since 5.5
+ */
+@ImmutableSessionPersistedObject
+public final class PersistentFieldIndex implements Serializable
+{
+    private static final long serialVersionUID = 6197283745937208143L;
+
+    /**
+     * Sorted attribute names.
+     */
+    private final String[] attributeNames;
+
+    public PersistentFieldIndex(String... attributeNames)
+    {
+        this.attributeNames = attributeNames;
+    }
+
+    public List<String> getAttributeNames()
+    {
+        return Collections.unmodifiableList(Arrays.asList(attributeNames));
+    }
+
+    public boolean isEmpty()
+    {
+        return attributeNames.length == 0;
+    }
+
+    /**
+     * Returns an index that includes the attribute name, or this index if already present.
+     */
+    public PersistentFieldIndex with(String attributeName)
+    {
+        int index = Arrays.binarySearch(attributeNames, attributeName);
+
+        if (index >= 0)
+        {
+            return this;
+        }
+
+        int insertion = -index - 1;
+
+        String[] names = new String[attributeNames.length + 1];
+
+        System.arraycopy(attributeNames, 0, names, 0, insertion);
+        names[insertion] = attributeName;
+        System.arraycopy(attributeNames, insertion, names, insertion + 1, attributeNames.length - insertion);
+
+        return new PersistentFieldIndex(names);
+    }
+
+    /**
+     * Returns an index that excludes the attribute name, or this index if not present.
+     */
+    public PersistentFieldIndex without(String attributeName)
+    {
+        int index = Arrays.binarySearch(attributeNames, attributeName);
+
+        if (index < 0)
+        {
+            return this;
+        }
+
+        String[] names = new String[attributeNames.length - 1];
+
+        System.arraycopy(attributeNames, 0, names, 0, index);
+        System.arraycopy(attributeNames, index + 1, names, index, names.length - index);
+
+        return new PersistentFieldIndex(names);
+    }
+
+    @Override
+    public boolean equals(Object obj)
+    {
+        return obj instanceof PersistentFieldIndex
+                && Arrays.equals(attributeNames, ((PersistentFieldIndex) obj).attributeNames);
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return Arrays.hashCode(attributeNames);
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("PersistentFieldIndex%s", Arrays.toString(attributeNames));
+    }
+}
@@ -52,7 +52,14 @@ public class ResponseImpl implements Response
         assert InternalUtils.isNonBlank(contentType);
         OutputStream os = getOutputStream(contentType);
 
-        Writer w = new OutputStreamWriter(os, response.getCharacterEncoding());
+        String encoding = response.getCharacterEncoding();
+
+        if (encoding.equalsIgnoreCase("UTF-8"))
+        {
+            return new PrintWriter(new Utf8Writer(os));
+        }
+
+        Writer w = new OutputStreamWriter(os, encoding);
 
         return new PrintWriter(new BufferedWriter(w));
     }
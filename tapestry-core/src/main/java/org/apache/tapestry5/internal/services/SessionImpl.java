@@ -47,37 +47,63 @@ public class SessionImpl implements Session
 
     public Object getAttribute(String name)
     {
-        lock.acquireWriteLock();
+        lock.acquireReadLock(name);
+
+        return session.getAttribute(name);
+    }
+
+    @Override
+    public Object getAttributeForUpdate(String name)
+    {
+        lock.acquireWriteLock(name);
 
         return session.getAttribute(name);
     }
 
     public List<String> getAttributeNames()
     {
-        lock.acquireReadLock();
+        while (true)
+        {
+            lock.acquireReadLock();
 
-        return InternalUtils.toList(session.getAttributeNames());
+            List<String> result = InternalUtils.toList(session.getAttributeNames());
+
+            if (lock.validateRead())
+            {
+                return result;
+            }
+        }
     }
 
     public void setAttribute(String name, Object value)
     {
-        lock.acquireWriteLock();
+        lock.acquireWriteLock(name);
 
         session.setAttribute(name, value);
     }
 
     public List<String> getAttributeNames(String prefix)
     {
-        lock.acquireReadLock();
-
         List<String> result = CollectionFactory.newList();
 
-        Enumeration e = session.getAttributeNames();
-        while (e.hasMoreElements())
+        while (true)
         {
-            String name = (String) e.nextElement();
+            lock.acquireReadLock();
+
+            Enumeration e = session.getAttributeNames();
+            while (e.hasMoreElements())
+            {
+                String name = (String) e.nextElement();
+
+                if (name.startsWith(prefix)) result.add(name);
+            }
+
+            if (lock.validateRead())
+            {
+                break;
+            }
 
-            if (name.startsWith(prefix)) result.add(name);
+            result.clear();
         }
 
         Collections.sort(result);
@@ -33,4 +33,32 @@ public interface SessionLock
      * this may block for a while. Does nothing if the write lock is already held by this thread.
      */
     void acquireWriteLock();
+
+    /**
+     * Acquires the exclusive lock needed to get or set the named attribute. For most strategies, this is the same as
+     * {@link #acquireWriteLock()}; with the striped strategy, only the portion of the session containing the
+     * attribute is locked.
+     *
+     * @since 5.5
+     */
+    void acquireWriteLock(String attributeName);
+
+    /**
+     * Acquires the lock needed to get the named attribute. With the default strategy, this is the exclusive
+     * {@linkplain #acquireWriteLock() write lock}: the value is often a mutable object that the request goes on to
+     * change in place, so it is not shared with concurrent requests. The other strategies acquire a shared lock, so
+     * that concurrent requests may read the same attribute.
+     *
+     * @since 5.5
+     */
+    void acquireReadLock(String attributeName);
+
+    /**
+     * Invoked after reading the session following {@link #acquireReadLock()}. Returns true if the read is valid, or false
+     * if it may have overlapped an update to the session; in that case, the read lock is now held, and the read
+     * should be repeated.
+     *
+     * @since 5.5
+     */
+    boolean validateRead();
 }
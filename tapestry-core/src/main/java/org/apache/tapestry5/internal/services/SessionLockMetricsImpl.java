@@ -0,0 +1,98 @@
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.apache.tapestry5.internal.services;
+
+import org.apache.tapestry5.services.SessionLockMetrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Records lock acquisitions for {@link TapestrySessionFactoryImpl}.
+ *
+ * @since 5.5
+ */
+public class SessionLockMetricsImpl implements SessionLockMetrics
+{
+    private final LongAdder acquired = new LongAdder();
+
+    private final LongAdder contended = new LongAdder();
+
+    private final LongAdder totalWaitTime = new LongAdder();
+
+    private final AtomicLong maxWaitTime = new AtomicLong();
+
+    private final LongAdder timeouts = new LongAdder();
+
+    void acquired()
+    {
+        acquired.increment();
+    }
+
+    void contended(long waitTime)
+    {
+        acquired.increment();
+        contended.increment();
+        totalWaitTime.add(waitTime);
+
+        while (true)
+        {
+            long max = maxWaitTime.get();
+
+            if (waitTime <= max || maxWaitTime.compareAndSet(max, waitTime))
+            {
+                return;
+            }
+        }
+    }
+
+    void timedOut(long waitTime)
+    {
+        contended.increment();
+        timeouts.increment();
+        totalWaitTime.add(waitTime);
+    }
+
+    public long getAcquiredCount()
+    {
+        return acquired.sum();
+    }
+
+    public long getContendedCount()
+    {
+        return contended.sum();
+    }
+
+    public long getTotalWaitTime()
+    {
+        return totalWaitTime.sum();
+    }
+
+    public long getMaxWaitTime()
+    {
+        return maxWaitTime.get();
+    }
+
+    public long getTimeoutCount()
+    {
+        return timeouts.sum();
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("SessionLockMetrics[acquired=%d contended=%d timeouts=%d totalWait=%dms maxWait=%dms]",
+                getAcquiredCount(), getContendedCount(), getTimeoutCount(),
+                getTotalWaitTime() / 1000000, getMaxWaitTime() / 1000000);
+    }
+}
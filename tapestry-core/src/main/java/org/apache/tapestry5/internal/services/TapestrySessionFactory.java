@@ -15,6 +15,7 @@
 package org.apache.tapestry5.internal.services;
 
 import org.apache.tapestry5.services.Session;
+import org.apache.tapestry5.services.SessionLockMetrics;
 
 /**
  * Encapsulates logic for accessing the Tapestry {@link Session} (a wrapper around the {@link javax.servlet.http.HttpSession}).
@@ -26,4 +27,11 @@ import org.apache.tapestry5.services.Session;
 public interface TapestrySessionFactory
 {
     Session getSession(boolean create);
+
+    /**
+     * Returns statistics about the locks acquired for sessions.
+     *
+     * @since 5.5
+     */
+    SessionLockMetrics getLockMetrics();
 }
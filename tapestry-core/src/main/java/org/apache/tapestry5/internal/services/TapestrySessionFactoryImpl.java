@@ -15,21 +15,48 @@
 package org.apache.tapestry5.internal.services;
 
 import org.apache.tapestry5.SymbolConstants;
+import org.apache.tapestry5.ioc.annotations.IntermediateType;
 import org.apache.tapestry5.ioc.annotations.Symbol;
+import org.apache.tapestry5.ioc.services.PerThreadValue;
 import org.apache.tapestry5.ioc.services.PerthreadManager;
+import org.apache.tapestry5.ioc.util.TimeInterval;
 import org.apache.tapestry5.services.Session;
+import org.apache.tapestry5.services.SessionLockMetrics;
 import org.apache.tapestry5.services.SessionPersistedObjectAnalyzer;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpSession;
+import java.util.IdentityHashMap;
 import java.util.Map;
 import java.util.WeakHashMap;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.concurrent.locks.StampedLock;
 
 public class TapestrySessionFactoryImpl implements TapestrySessionFactory
 {
+    /**
+     * Value for {@link SymbolConstants#SESSION_LOCKING_STRATEGY}: a single read/write lock for each session.
+     */
+    public static final String READ_WRITE_STRATEGY = "read-write";
+
+    /**
+     * Value for {@link SymbolConstants#SESSION_LOCKING_STRATEGY}: a {@link StampedLock} for each session; attribute
+     * names are read optimistically (and read again, under the read lock, if an update overlapped the read), attributes
+     * are read under a shared lock.
+     */
+    public static final String OPTIMISTIC_STRATEGY = "optimistic";
+
+    /**
+     * Value for {@link SymbolConstants#SESSION_LOCKING_STRATEGY}: attributes are locked in stripes, by name, with
+     * shared locks for reading.
+     */
+    public static final String STRIPED_STRATEGY = "striped";
+
+    private static final int STRIPES = 16;
+
     private boolean clustered;
 
     private final SessionPersistedObjectAnalyzer analyzer;
@@ -40,10 +67,21 @@ public class TapestrySessionFactoryImpl implements TapestrySessionFactory
 
     private final boolean sessionLockingEnabled;
 
+    private final String strategy;
+
+    private final long lockTimeout;
+
+    private final SessionLockMetricsImpl metrics = new SessionLockMetricsImpl();
+
     private final Lock mapLock = new ReentrantLock();
 
     private final Map<HttpSession, SessionLock> sessionToLock = new WeakHashMap<HttpSession, SessionLock>();
 
+    /**
+     * The stamps held by the current thread, for each {@link OptimisticSessionLock} it has used.
+     */
+    private final PerThreadValue<Map<OptimisticSessionLock, HeldStamps>> heldStamps;
+
     private final SessionLock NO_OP_LOCK = new SessionLock()
     {
         public void acquireReadLock()
@@ -53,8 +91,39 @@ public class TapestrySessionFactoryImpl implements TapestrySessionFactory
         public void acquireWriteLock()
         {
         }
+
+        public void acquireWriteLock(String attributeName)
+        {
+        }
+
+        public void acquireReadLock(String attributeName)
+        {
+        }
+
+        public boolean validateRead()
+        {
+            return true;
+        }
     };
 
+    /**
+     * Acquires the lock, recording whether the thread had to wait for it.
+     */
+    private void lock(Lock lock)
+    {
+        if (lock.tryLock())
+        {
+            metrics.acquired();
+            return;
+        }
+
+        long start = System.nanoTime();
+
+        lock.lock();
+
+        metrics.contended(System.nanoTime() - start);
+    }
+
     private class SessionLockImpl implements SessionLock
     {
 
@@ -77,7 +146,7 @@ public class TapestrySessionFactoryImpl implements TapestrySessionFactory
                 return;
             }
 
-            lock.readLock().lock();
+            lock(lock.readLock());
 
             perthreadManager.addThreadCleanupCallback(new Runnable()
             {
@@ -106,7 +175,7 @@ public class TapestrySessionFactoryImpl implements TapestrySessionFactory
 
             // During this window, no lock is held, and the next call may block.
 
-            lock.writeLock().lock();
+            lock(lock.writeLock());
 
             perthreadManager.addThreadCleanupCallback(new Runnable()
             {
@@ -117,6 +186,365 @@ public class TapestrySessionFactoryImpl implements TapestrySessionFactory
                 }
             });
         }
+
+        public void acquireWriteLock(String attributeName)
+        {
+            acquireWriteLock();
+        }
+
+        public void acquireReadLock(String attributeName)
+        {
+            acquireWriteLock();
+        }
+
+        public boolean validateRead()
+        {
+            return true;
+        }
+    }
+
+    /**
+     * The stamps of the locks held by the current thread, since a StampedLock is not reentrant.
+     */
+    private static class HeldStamps
+    {
+        long optimisticStamp, readStamp, writeStamp;
+    }
+
+    private class OptimisticSessionLock implements SessionLock
+    {
+        private final StampedLock lock = new StampedLock();
+
+        private HeldStamps held()
+        {
+            Map<OptimisticSessionLock, HeldStamps> map = heldStamps.get();
+
+            if (map == null)
+            {
+                map = new IdentityHashMap<OptimisticSessionLock, HeldStamps>();
+
+                heldStamps.set(map);
+            }
+
+            HeldStamps result = map.get(this);
+
+            if (result == null)
+            {
+                final HeldStamps stamps = new HeldStamps();
+
+                map.put(this, stamps);
+
+                perthreadManager.addThreadCleanupCallback(new Runnable()
+                {
+                    public void run()
+                    {
+                        if (stamps.writeStamp != 0)
+                        {
+                            lock.unlockWrite(stamps.writeStamp);
+                        }
+
+                        if (stamps.readStamp != 0)
+                        {
+                            lock.unlockRead(stamps.readStamp);
+                        }
+                    }
+                });
+
+                result = stamps;
+            }
+
+            return result;
+        }
+
+        public void acquireReadLock()
+        {
+            HeldStamps stamps = held();
+
+            if (stamps.readStamp != 0 || stamps.writeStamp != 0)
+            {
+                return;
+            }
+
+            // When no other request is updating the session, read without locking; validateRead() checks
+            // that no update started while reading.
+
+            long stamp = lock.tryOptimisticRead();
+
+            if (stamp != 0)
+            {
+                stamps.optimisticStamp = stamp;
+
+                return;
+            }
+
+            lockForRead(stamps);
+        }
+
+        public boolean validateRead()
+        {
+            HeldStamps stamps = held();
+
+            long stamp = stamps.optimisticStamp;
+
+            stamps.optimisticStamp = 0;
+
+            if (stamp == 0 || lock.validate(stamp))
+            {
+                return true;
+            }
+
+            // An update overlapped the read, so hold the read lock while the read is repeated.
+
+            lockForRead(stamps);
+
+            return false;
+        }
+
+        public void acquireReadLock(String attributeName)
+        {
+            HeldStamps stamps = held();
+
+            if (stamps.readStamp != 0 || stamps.writeStamp != 0)
+            {
+                return;
+            }
+
+            // The value is used for the rest of the request, so an optimistic read is not enough.
+
+            lockForRead(stamps);
+        }
+
+        private void lockForRead(HeldStamps stamps)
+        {
+            long stamp = lock.tryReadLock();
+
+            if (stamp != 0)
+            {
+                metrics.acquired();
+            } else
+            {
+                long start = System.nanoTime();
+
+                stamp = lock.readLock();
+
+                metrics.contended(System.nanoTime() - start);
+            }
+
+            stamps.readStamp = stamp;
+        }
+
+        public void acquireWriteLock()
+        {
+            HeldStamps stamps = held();
+
+            if (stamps.writeStamp != 0)
+            {
+                return;
+            }
+
+            if (stamps.readStamp != 0)
+            {
+                long stamp = lock.tryConvertToWriteLock(stamps.readStamp);
+
+                if (stamp != 0)
+                {
+                    metrics.acquired();
+
+                    stamps.readStamp = 0;
+                    stamps.writeStamp = stamp;
+
+                    return;
+                }
+
+                lock.unlockRead(stamps.readStamp);
+
+                stamps.readStamp = 0;
+            }
+
+            long stamp = lock.tryWriteLock();
+
+            if (stamp != 0)
+            {
+                metrics.acquired();
+            } else
+            {
+                long start = System.nanoTime();
+
+                stamp = lock.writeLock();
+
+                metrics.contended(System.nanoTime() - start);
+            }
+
+            stamps.writeStamp = stamp;
+        }
+
+        public void acquireWriteLock(String attributeName)
+        {
+            acquireWriteLock();
+        }
+    }
+
+    /**
+     * Locks attributes in stripes (by the hash of the attribute name), so that requests using different attributes do
+     * not wait for each other; getting an attribute takes a stripe's shared read lock, setting it takes the exclusive
+     * write lock. Locks are held until the end of the request, and are acquired as attributes are used, so they can't
+     * be taken in a fixed order. Instead, a request that already holds a stripe only waits for another stripe up to
+     * the {@linkplain SymbolConstants#SESSION_LOCK_TIMEOUT lock timeout}, then fails, which turns a potential deadlock
+     * between two requests into an exception. Attribute names are read without locking.
+     */
+    private class StripedSessionLock implements SessionLock
+    {
+        private final ReentrantReadWriteLock[] stripes = new ReentrantReadWriteLock[STRIPES];
+
+        StripedSessionLock()
+        {
+            for (int i = 0; i < STRIPES; i++)
+            {
+                stripes[i] = new ReentrantReadWriteLock();
+            }
+        }
+
+        public void acquireReadLock()
+        {
+        }
+
+        public boolean validateRead()
+        {
+            return true;
+        }
+
+        public void acquireWriteLock()
+        {
+            for (ReentrantReadWriteLock stripe : stripes)
+            {
+                acquireWrite(stripe, null);
+            }
+        }
+
+        public void acquireWriteLock(String attributeName)
+        {
+            acquireWrite(stripeFor(attributeName), attributeName);
+        }
+
+        public void acquireReadLock(String attributeName)
+        {
+            ReentrantReadWriteLock stripe = stripeFor(attributeName);
+
+            if (holds(stripe))
+            {
+                return;
+            }
+
+            acquire(stripe, stripe.readLock(), attributeName);
+        }
+
+        private ReentrantReadWriteLock stripeFor(String attributeName)
+        {
+            return stripes[(attributeName.hashCode() & 0x7fffffff) % STRIPES];
+        }
+
+        private boolean holds(ReentrantReadWriteLock stripe)
+        {
+            return stripe.isWriteLockedByCurrentThread() || stripe.getReadHoldCount() != 0;
+        }
+
+        private boolean holdsAnyStripe()
+        {
+            for (ReentrantReadWriteLock stripe : stripes)
+            {
+                if (holds(stripe))
+                {
+                    return true;
+                }
+            }
+
+            return false;
+        }
+
+        private void acquireWrite(ReentrantReadWriteLock stripe, String attributeName)
+        {
+            if (stripe.isWriteLockedByCurrentThread())
+            {
+                return;
+            }
+
+            // A read lock can't be upgraded, so it is released first.
+
+            if (stripe.getReadHoldCount() != 0)
+            {
+                stripe.readLock().unlock();
+            }
+
+            acquire(stripe, stripe.writeLock(), attributeName);
+        }
+
+        private void acquire(final ReentrantReadWriteLock stripe, Lock lock, String attributeName)
+        {
+            if (lock.tryLock())
+            {
+                metrics.acquired();
+            } else if (!holdsAnyStripe())
+            {
+                long start = System.nanoTime();
+
+                lock.lock();
+
+                metrics.contended(System.nanoTime() - start);
+            } else
+            {
+                lockWithTimeout(lock, attributeName);
+            }
+
+            perthreadManager.addThreadCleanupCallback(new Runnable()
+            {
+                public void run()
+                {
+                    // The read lock may have been released when upgrading, in which case another callback
+                    // will find no lock held.
+
+                    if (stripe.isWriteLockedByCurrentThread())
+                    {
+                        stripe.writeLock().unlock();
+                    }
+
+                    if (stripe.getReadHoldCount() != 0)
+                    {
+                        stripe.readLock().unlock();
+                    }
+                }
+            });
+        }
+
+        private void lockWithTimeout(Lock lock, String attributeName)
+        {
+            long start = System.nanoTime();
+
+            boolean locked = false;
+
+            try
+            {
+                locked = lock.tryLock(lockTimeout, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException ex)
+            {
+                Thread.currentThread().interrupt();
+            }
+
+            long waitTime = System.nanoTime() - start;
+
+            if (locked)
+            {
+                metrics.contended(waitTime);
+
+                return;
+            }
+
+            metrics.timedOut(waitTime);
+
+            throw new IllegalStateException(String.format(
+                    "Unable to lock %s within %d ms. This request already holds locks on other session attributes, and waiting longer could deadlock with another request for the same session.",
+                    attributeName == null ? "the session" : String.format("session attribute '%s'", attributeName),
+                    lockTimeout));
+        }
     }
 
     public TapestrySessionFactoryImpl(
@@ -126,13 +554,32 @@ public class TapestrySessionFactoryImpl implements TapestrySessionFactory
             HttpServletRequest request,
             PerthreadManager perthreadManager,
             @Symbol(SymbolConstants.SESSION_LOCKING_ENABLED)
-            boolean sessionLockingEnabled)
+            boolean sessionLockingEnabled,
+            @Symbol(SymbolConstants.SESSION_LOCKING_STRATEGY)
+            String strategy,
+            @Symbol(SymbolConstants.SESSION_LOCK_TIMEOUT)
+            @IntermediateType(TimeInterval.class)
+            long lockTimeout)
     {
+        if (!(strategy.equals(READ_WRITE_STRATEGY) || strategy.equals(OPTIMISTIC_STRATEGY) || strategy.equals(STRIPED_STRATEGY)))
+        {
+            throw new IllegalArgumentException(String.format("Unknown session locking strategy '%s' (expected '%s', '%s' or '%s').",
+                    strategy, READ_WRITE_STRATEGY, OPTIMISTIC_STRATEGY, STRIPED_STRATEGY));
+        }
+
         this.clustered = clustered;
         this.analyzer = analyzer;
         this.request = request;
         this.perthreadManager = perthreadManager;
         this.sessionLockingEnabled = sessionLockingEnabled;
+        this.strategy = strategy;
+        this.lockTimeout = lockTimeout;
+        this.heldStamps = perthreadManager.createValue();
+    }
+
+    public SessionLockMetrics getLockMetrics()
+    {
+        return metrics;
     }
 
     public Session getSession(boolean create)
@@ -154,7 +601,7 @@ public class TapestrySessionFactoryImpl implements TapestrySessionFactory
         return new SessionImpl(request, httpSession, lock);
     }
 
-    private SessionLock lockForSession(HttpSession session)
+    SessionLock lockForSession(HttpSession session)
     {
         if (!sessionLockingEnabled)
         {
@@ -171,7 +618,7 @@ public class TapestrySessionFactoryImpl implements TapestrySessionFactory
 
             if (result == null)
             {
-                result = new SessionLockImpl();
+                result = newSessionLock();
                 sessionToLock.put(session, result);
             }
 
@@ -181,4 +628,19 @@ public class TapestrySessionFactoryImpl implements TapestrySessionFactory
             mapLock.unlock();
         }
     }
+
+    private SessionLock newSessionLock()
+    {
+        if (strategy.equals(OPTIMISTIC_STRATEGY))
+        {
+            return new OptimisticSessionLock();
+        }
+
+        if (strategy.equals(STRIPED_STRATEGY))
+        {
+            return new StripedSessionLock();
+        }
+
+        return new SessionLockImpl();
+    }
 }
@@ -14,8 +14,6 @@
 
 package org.apache.tapestry5.internal.services;
 
-import java.util.BitSet;
-
 import org.apache.tapestry5.services.URLEncoder;
 
 public class URLEncoderImpl implements URLEncoder
@@ -23,64 +21,84 @@ public class URLEncoderImpl implements URLEncoder
     static final String ENCODED_NULL = "$N";
     static final String ENCODED_BLANK = "$B";
 
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
     /**
-     * Bit set indicating which character are safe to pass through (when encoding or decoding) as-is. All other
+     * Indicates which (ASCII) characters are safe to pass through (when encoding or decoding) as-is. All other
      * characters are encoded as a kind of unicode escape.
      */
-    private final BitSet safe = new BitSet(128);
+    private static final boolean[] SAFE = new boolean[128];
 
+    static
     {
         markSafe("abcdefghijklmnopqrstuvwxyz");
         markSafe("ABCDEFGHIJKLMNOPQRSTUVWXYZ");
         markSafe("01234567890-_.:");
     }
 
-    private void markSafe(String s)
+    private static void markSafe(String s)
     {
         for (char ch : s.toCharArray())
         {
-            safe.set((int) ch);
+            SAFE[ch] = true;
         }
     }
 
+    private static boolean isSafe(char ch)
+    {
+        return ch < 128 && SAFE[ch];
+    }
+
     public String encode(String input)
     {
         if (input == null)
             return ENCODED_NULL;
 
-        if (input.equals(""))
+        int length = input.length();
+
+        if (length == 0)
             return ENCODED_BLANK;
 
-        boolean dirty = false;
+        int i = 0;
 
-        int length = input.length();
+        // Fast path: most inputs need no encoding at all, and are returned as-is.
+
+        while (i < length && isSafe(input.charAt(i)))
+        {
+            i++;
+        }
+
+        if (i == length)
+            return input;
 
-        StringBuilder output = new StringBuilder(length * 2);
+        StringBuilder output = new StringBuilder(length + 16);
 
-        for (int i = 0; i < length; i++)
+        output.append(input, 0, i);
+
+        for (; i < length; i++)
         {
             char ch = input.charAt(i);
 
             if (ch == '$')
             {
                 output.append("$$");
-                dirty = true;
                 continue;
             }
 
-            int chAsInt = (int) ch;
-
-            if (safe.get(chAsInt))
+            if (isSafe(ch))
             {
                 output.append(ch);
                 continue;
             }
 
-            output.append(String.format("$%04x", chAsInt));
-            dirty = true;
+            output.append('$')
+                    .append(HEX[(ch >> 12) & 0xf])
+                    .append(HEX[(ch >> 8) & 0xf])
+                    .append(HEX[(ch >> 4) & 0xf])
+                    .append(HEX[ch & 0xf]);
         }
 
-        return dirty ? output.toString() : input;
+        return output.toString();
     }
 
     public String decode(String input)
@@ -93,13 +111,27 @@ public class URLEncoderImpl implements URLEncoder
         if (input.equals(ENCODED_BLANK))
             return "";
 
+        int length = input.length();
+
+        int i = 0;
+
+        // Fast path: an input without escapes decodes to itself.
+
+        while (i < length && isSafe(input.charAt(i)))
+        {
+            i++;
+        }
+
+        if (i == length)
+            return input;
+
         boolean dirty = false;
 
-        int length = input.length();
+        StringBuilder output = new StringBuilder(length);
 
-        StringBuilder output = new StringBuilder(length * 2);
+        output.append(input, 0, i);
 
-        for (int i = 0; i < length; i++)
+        for (; i < length; i++)
         {
             char ch = input.charAt(i);
 
@@ -141,7 +173,7 @@ public class URLEncoderImpl implements URLEncoder
                                 input, i + 1));
             }
 
-            if (!safe.get((int) ch)) { throw new IllegalArgumentException(
+            if (!isSafe(ch)) { throw new IllegalArgumentException(
                     String.format("Input string '%s' is not valid; the character '%s' at position %d is not valid.",
                             input, ch, i + 1)); }
 
@@ -0,0 +1,230 @@
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.apache.tapestry5.internal.services;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * A buffered Writer that encodes characters directly to UTF-8, writing the encoded bytes to an output stream whenever
+ * its buffer fills. This replaces an {@link java.io.OutputStreamWriter} wrapped in a {@link java.io.BufferedWriter}
+ * (which buffers the characters and then encodes them into a second buffer) for UTF-8 responses. Buffers are pooled,
+ * and returned to the pool when the writer is closed.
+ *
+ * Unpaired surrogate characters are written as '?', as with {@link java.io.OutputStreamWriter}.
+ *
+ * @since 5.5
+ */
+public class Utf8Writer extends Writer
+{
+    static final int BUFFER_SIZE = 8192;
+
+    private static final BlockingQueue<byte[]> pool = new ArrayBlockingQueue<byte[]>(64);
+
+    private final OutputStream out;
+
+    private byte[] buffer;
+
+    private int count;
+
+    /**
+     * A high surrogate waiting for its low surrogate (from a subsequent write), or 0.
+     */
+    private char pendingSurrogate;
+
+    public Utf8Writer(OutputStream out)
+    {
+        this.out = out;
+
+        byte[] pooled = pool.poll();
+
+        buffer = pooled == null ? new byte[BUFFER_SIZE] : pooled;
+    }
+
+    @Override
+    public void write(int c) throws IOException
+    {
+        ensureOpen();
+
+        encode((char) c);
+    }
+
+    @Override
+    public void write(char[] chars, int offset, int length) throws IOException
+    {
+        ensureOpen();
+
+        int end = offset + length;
+
+        for (int i = offset; i < end; i++)
+        {
+            char ch = chars[i];
+
+            // The common case: ASCII, with room in the buffer.
+
+            if (ch < 0x80 && pendingSurrogate == 0 && count < BUFFER_SIZE)
+            {
+                buffer[count++] = (byte) ch;
+                continue;
+            }
+
+            encode(ch);
+        }
+    }
+
+    @Override
+    public void write(String s, int offset, int length) throws IOException
+    {
+        ensureOpen();
+
+        int end = offset + length;
+
+        for (int i = offset; i < end; i++)
+        {
+            char ch = s.charAt(i);
+
+            if (ch < 0x80 && pendingSurrogate == 0 && count < BUFFER_SIZE)
+            {
+                buffer[count++] = (byte) ch;
+                continue;
+            }
+
+            encode(ch);
+        }
+    }
+
+    private void encode(char ch) throws IOException
+    {
+        if (pendingSurrogate != 0)
+        {
+            char high = pendingSurrogate;
+
+            pendingSurrogate = 0;
+
+            if (Character.isLowSurrogate(ch))
+            {
+                int codePoint = Character.toCodePoint(high, ch);
+
+                reserve(4);
+
+                buffer[count++] = (byte) (0xf0 | (codePoint >> 18));
+                buffer[count++] = (byte) (0x80 | ((codePoint >> 12) & 0x3f));
+                buffer[count++] = (byte) (0x80 | ((codePoint >> 6) & 0x3f));
+                buffer[count++] = (byte) (0x80 | (codePoint & 0x3f));
+
+                return;
+            }
+
+            reserve(1);
+
+            buffer[count++] = '?';
+        }
+
+        if (ch < 0x80)
+        {
+            reserve(1);
+
+            buffer[count++] = (byte) ch;
+        } else if (ch < 0x800)
+        {
+            reserve(2);
+
+            buffer[count++] = (byte) (0xc0 | (ch >> 6));
+            buffer[count++] = (byte) (0x80 | (ch & 0x3f));
+        } else if (Character.isHighSurrogate(ch))
+        {
+            pendingSurrogate = ch;
+        } else if (Character.isLowSurrogate(ch))
+        {
+            reserve(1);
+
+            buffer[count++] = '?';
+        } else
+        {
+            reserve(3);
+
+            buffer[count++] = (byte) (0xe0 | (ch >> 12));
+            buffer[count++] = (byte) (0x80 | ((ch >> 6) & 0x3f));
+            buffer[count++] = (byte) (0x80 | (ch & 0x3f));
+        }
+    }
+
+    private void reserve(int length) throws IOException
+    {
+        if (count + length > BUFFER_SIZE)
+        {
+            flushBuffer();
+        }
+    }
+
+    private void flushBuffer() throws IOException
+    {
+        if (count > 0)
+        {
+            out.write(buffer, 0, count);
+
+            count = 0;
+        }
+    }
+
+    private void ensureOpen() throws IOException
+    {
+        if (buffer == null)
+        {
+            throw new IOException("Writer has been closed.");
+        }
+    }
+
+    @Override
+    public void flush() throws IOException
+    {
+        ensureOpen();
+
+        flushBuffer();
+
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        if (buffer == null)
+        {
+            return;
+        }
+
+        try
+        {
+            if (pendingSurrogate != 0)
+            {
+                pendingSurrogate = 0;
+
+                reserve(1);
+
+                buffer[count++] = '?';
+            }
+
+            flushBuffer();
+
+            out.close();
+        } finally
+        {
+            pool.offer(buffer);
+
+            buffer = null;
+        }
+    }
+}
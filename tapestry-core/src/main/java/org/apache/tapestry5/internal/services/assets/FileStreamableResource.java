@@ -0,0 +1,171 @@
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.apache.tapestry5.internal.services.assets;
+
+import org.apache.tapestry5.ContentType;
+import org.apache.tapestry5.services.Response;
+import org.apache.tapestry5.services.assets.CompressionStatus;
+import org.apache.tapestry5.services.assets.ResponseCustomizer;
+import org.apache.tapestry5.services.assets.StreamableResource;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * A {@link StreamableResource} whose content is stored in a file, rather than on the heap. Content is
+ * streamed using {@link FileChannel#transferTo(long, long, WritableByteChannel)}.
+ *
+ * @see ResourceCompressor
+ * @since 5.5
+ */
+public class FileStreamableResource implements StreamableResource
+{
+    private final String description;
+
+    private final ContentType contentType;
+
+    private final CompressionStatus compression;
+
+    private final long lastModified;
+
+    private final File file;
+
+    private final int size;
+
+    private final String checksum;
+
+    private final ResponseCustomizer responseCustomizer;
+
+    /**
+     * @param checksum
+     *         checksum of the uncompressed content
+     */
+    public FileStreamableResource(String description, ContentType contentType, CompressionStatus compression,
+                                  long lastModified, File file, String checksum, ResponseCustomizer responseCustomizer)
+    {
+        this.description = description;
+        this.contentType = contentType;
+        this.compression = compression;
+        this.lastModified = lastModified;
+        this.file = file;
+        this.checksum = checksum;
+        this.responseCustomizer = responseCustomizer;
+
+        size = (int) file.length();
+    }
+
+    public String getDescription()
+    {
+        return description;
+    }
+
+    public CompressionStatus getCompression()
+    {
+        return compression;
+    }
+
+    public ContentType getContentType()
+    {
+        return contentType;
+    }
+
+    public int getSize()
+    {
+        return size;
+    }
+
+    public void streamTo(OutputStream os) throws IOException
+    {
+        FileInputStream fis = new FileInputStream(file);
+
+        try
+        {
+            FileChannel channel = fis.getChannel();
+
+            // Not closed, as that would close the output stream.
+            WritableByteChannel target = Channels.newChannel(os);
+
+            long position = 0;
+
+            while (position < size)
+            {
+                position += channel.transferTo(position, size - position, target);
+            }
+        } finally
+        {
+            fis.close();
+        }
+    }
+
+    public InputStream openStream() throws IOException
+    {
+        return new BufferedInputStream(new FileInputStream(file));
+    }
+
+    public long getLastModified()
+    {
+        return lastModified;
+    }
+
+    public String getChecksum()
+    {
+        return checksum;
+    }
+
+    @Override
+    public StreamableResource addResponseCustomizer(final ResponseCustomizer customizer)
+    {
+        final ResponseCustomizer oldCustomizer = responseCustomizer;
+
+        if (oldCustomizer == null)
+        {
+            return new FileStreamableResource(description, contentType, compression, lastModified, file, checksum, customizer);
+        }
+
+        return new FileStreamableResource(description, contentType, compression, lastModified, file, checksum, new ResponseCustomizer()
+        {
+            @Override
+            public void customizeResponse(StreamableResource resource, Response response) throws IOException
+            {
+                oldCustomizer.customizeResponse(resource, response);
+                customizer.customizeResponse(resource, response);
+            }
+        });
+    }
+
+    @Override
+    public ResponseCustomizer getResponseCustomizer()
+    {
+        return responseCustomizer;
+    }
+
+    @Override
+    public StreamableResource withContentType(ContentType newContentType)
+    {
+        return new FileStreamableResource(description, newContentType, compression, lastModified, file, checksum, responseCustomizer);
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("StreamableResource<%s %s %s lastModified: %tc size: %d file: %s>", contentType, description, compression.name(),
+                lastModified, size, file);
+    }
+}
@@ -15,9 +15,11 @@ package org.apache.tapestry5.internal.services.assets;
 import org.apache.tapestry5.Asset;
 import org.apache.tapestry5.ContentType;
 import org.apache.tapestry5.SymbolConstants;
+import org.apache.tapestry5.ioc.Invokable;
 import org.apache.tapestry5.ioc.Resource;
 import org.apache.tapestry5.ioc.annotations.Symbol;
 import org.apache.tapestry5.ioc.internal.util.CollectionFactory;
+import org.apache.tapestry5.ioc.services.ParallelExecutor;
 import org.apache.tapestry5.ioc.services.ThreadLocale;
 import org.apache.tapestry5.services.assets.*;
 import org.apache.tapestry5.services.javascript.JavaScriptStack;
@@ -26,12 +28,25 @@ import org.apache.tapestry5.services.javascript.JavaScriptAggregationStrategy;
 import org.apache.tapestry5.services.javascript.ModuleManager;
 
 import java.io.*;
-import java.util.Collections;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
 import java.util.regex.Pattern;
 
+/**
+ * Assembles JavaScript stacks. Concurrent requests for the same stack (and locale) share a single assembly.
+ * When minimization is enabled, each library and module is minimized individually, in parallel (using the
+ * {@link ParallelExecutor}); the minimized content of each file is cached and reused by later assemblies for as
+ * long as the file's content does not change.
+ */
 public class JavaScriptStackAssemblerImpl implements JavaScriptStackAssembler
 {
     private static final ContentType JAVASCRIPT_CONTENT_TYPE = new ContentType("text/javascript;charset=utf-8");
@@ -52,7 +67,30 @@ public class JavaScriptStackAssemblerImpl implements JavaScriptStackAssembler
 
     private final boolean minificationEnabled;
 
-    private final Map<String, StreamableResource> cache = Collections.synchronizedMap(CollectionFactory.<StreamableResource>newCaseInsensitiveMap());
+    private final ResourceCompressor compressor;
+
+    private final ParallelExecutor parallelExecutor;
+
+    private final ConcurrentMap<String, Future<StreamableResource>> cache = CollectionFactory.newConcurrentMap();
+
+    /**
+     * Keyed on resource (and module name); not cleared on invalidation, as each entry identifies the exact
+     * content that was minimized.
+     */
+    private final Map<String, MinimizedContent> minimizedCache = CollectionFactory.newConcurrentMap();
+
+    private static final class MinimizedContent
+    {
+        final byte[] sourceDigest;
+
+        final String content;
+
+        MinimizedContent(byte[] sourceDigest, String content)
+        {
+            this.sourceDigest = sourceDigest;
+            this.content = content;
+        }
+    }
 
     private class Parameters
     {
@@ -84,7 +122,9 @@ public class JavaScriptStackAssemblerImpl implements JavaScriptStackAssembler
                                         JavaScriptStackSource stackSource, AssetChecksumGenerator checksumGenerator, ModuleManager moduleManager,
                                         ResourceMinimizer resourceMinimizer,
                                         @Symbol(SymbolConstants.MINIFICATION_ENABLED)
-                                        boolean minificationEnabled)
+                                        boolean minificationEnabled,
+                                        ResourceCompressor compressor,
+                                        ParallelExecutor parallelExecutor)
     {
         this.threadLocale = threadLocale;
         this.resourceChangeTracker = resourceChangeTracker;
@@ -94,6 +134,8 @@ public class JavaScriptStackAssemblerImpl implements JavaScriptStackAssembler
         this.moduleManager = moduleManager;
         this.resourceMinimizer = resourceMinimizer;
         this.minificationEnabled = minificationEnabled;
+        this.compressor = compressor;
+        this.parallelExecutor = parallelExecutor;
 
         resourceChangeTracker.clearOnInvalidation(cache);
     }
@@ -105,23 +147,90 @@ public class JavaScriptStackAssemblerImpl implements JavaScriptStackAssembler
         return assembleJavascriptResourceForStack(new Parameters(locale, stackName, compress, javascriptAggregationStrategy));
     }
 
-    private StreamableResource assembleJavascriptResourceForStack(Parameters parameters) throws IOException
+    private StreamableResource assembleJavascriptResourceForStack(final Parameters parameters) throws IOException
     {
+        // Stack names are case insensitive.
         String key =
                 String.format("%s[%s] %s",
-                        parameters.stackName,
+                        parameters.stackName.toLowerCase(),
                         parameters.compress ? "COMPRESS" : "UNCOMPRESSED",
                         parameters.locale.toString());
 
-        StreamableResource result = cache.get(key);
+        Future<StreamableResource> future = cache.get(key);
 
-        if (result == null)
+        if (future == null)
         {
-            result = assemble(parameters);
-            cache.put(key, result);
+            FutureTask<StreamableResource> task = new FutureTask<StreamableResource>(new Callable<StreamableResource>()
+            {
+                public StreamableResource call() throws Exception
+                {
+                    return assemble(parameters);
+                }
+            });
+
+            future = cache.putIfAbsent(key, task);
+
+            // Only the thread that stored the task performs the assembly; any other threads
+            // requesting the same stack wait for the result.
+
+            if (future == null)
+            {
+                future = task;
+                task.run();
+            }
         }
 
-        return result;
+        try
+        {
+            return get(future);
+        } catch (IOException ex)
+        {
+            // Don't cache the failure; a later request will try again.
+            cache.remove(key, future);
+
+            throw ex;
+        } catch (RuntimeException ex)
+        {
+            cache.remove(key, future);
+
+            throw ex;
+        }
+    }
+
+    /**
+     * Gets the result of the future, unwrapping any exception thrown by the computation.
+     */
+    private static <T> T get(Future<T> future) throws IOException
+    {
+        try
+        {
+            return future.get();
+        } catch (InterruptedException ex)
+        {
+            Thread.currentThread().interrupt();
+
+            throw new InterruptedIOException("Interrupted waiting for JavaScript stack assembly.");
+        } catch (ExecutionException ex)
+        {
+            Throwable cause = ex.getCause();
+
+            if (cause instanceof IOException)
+            {
+                throw (IOException) cause;
+            }
+
+            if (cause instanceof RuntimeException)
+            {
+                throw (RuntimeException) cause;
+            }
+
+            if (cause instanceof Error)
+            {
+                throw (Error) cause;
+            }
+
+            throw new RuntimeException(cause);
+        }
     }
 
     private StreamableResource assemble(Parameters parameters) throws IOException
@@ -130,7 +239,7 @@ public class JavaScriptStackAssemblerImpl implements JavaScriptStackAssembler
         {
             StreamableResource uncompressed = assembleJavascriptResourceForStack(parameters.disableCompress());
 
-            return new CompressedStreamableResource(uncompressed, checksumGenerator);
+            return compressor.compress(uncompressed);
         }
 
         JavaScriptStack stack = stackSource.getStack(parameters.stackName);
@@ -188,6 +297,42 @@ public class JavaScriptStackAssemblerImpl implements JavaScriptStackAssembler
     }
 
 
+    /**
+     * The content of a single library or module within a stack. When minimizing, parts are computed
+     * in parallel.
+     */
+    private class Part implements Callable<String>
+    {
+        final Resource resource;
+
+        final StreamableReader reader;
+
+        final boolean minimize;
+
+        final FutureTask<String> task = new FutureTask<String>(this);
+
+        long lastModified;
+
+        Part(Resource resource, StreamableReader reader, boolean minimize)
+        {
+            this.resource = resource;
+            this.reader = reader;
+            this.minimize = minimize;
+        }
+
+        public String call() throws Exception
+        {
+            StreamableResource streamable = streamableResourceSource.getStreamableResource(resource,
+                    StreamableResourceProcessing.FOR_AGGREGATION, resourceChangeTracker);
+
+            lastModified = streamable.getLastModified();
+
+            String content = reader.read(streamable);
+
+            return minimize ? minimize(resource, reader, content, lastModified) : content;
+        }
+    }
+
     private class Assembly
     {
         final ByteArrayOutputStream outputStream = new ByteArrayOutputStream(2000);
@@ -195,31 +340,58 @@ public class JavaScriptStackAssemblerImpl implements JavaScriptStackAssembler
         long lastModified = 0;
         final StringBuilder description;
         private String sep = "";
+        private final boolean minimize;
+        private final List<Part> parts = CollectionFactory.newList();
 
-        private Assembly(String description) throws UnsupportedEncodingException
+        private Assembly(String description, boolean minimize) throws UnsupportedEncodingException
         {
             writer = new PrintWriter(new OutputStreamWriter(outputStream, "UTF-8"));
 
             this.description = new StringBuilder(description);
+            this.minimize = minimize;
         }
 
-        void add(Resource resource, StreamableReader reader) throws IOException
+        void add(Resource resource, StreamableReader reader)
         {
-            writer.format("\n/* %s */;\n", resource.toString());
-
             description.append(sep).append(resource.toString());
             sep = ", ";
 
-            StreamableResource streamable = streamableResourceSource.getStreamableResource(resource,
-                    StreamableResourceProcessing.FOR_AGGREGATION, resourceChangeTracker);
+            final Part part = new Part(resource, reader, minimize);
 
-            writer.print(reader.read(streamable));
+            parts.add(part);
 
-            lastModified = Math.max(lastModified, streamable.getLastModified());
+            if (minimize)
+            {
+                parallelExecutor.invoke(new Invokable<Void>()
+                {
+                    public Void invoke()
+                    {
+                        part.task.run();
+
+                        return null;
+                    }
+                });
+            }
         }
 
-        StreamableResource finish()
+        StreamableResource finish() throws IOException
         {
+            for (Part part : parts)
+            {
+                // If the part hasn't been started by a pooled thread (or if the assembly is not minimized),
+                // it is computed in this thread. This ensures that the assembly can't deadlock waiting
+                // for an exhausted thread pool.
+                part.task.run();
+
+                String content = get(part.task);
+
+                writer.format("\n/* %s */;\n", part.resource.toString());
+
+                writer.print(content);
+
+                lastModified = Math.max(lastModified, part.lastModified);
+            }
+
             writer.close();
 
             return new StreamableResourceImpl(
@@ -229,10 +401,53 @@ public class JavaScriptStackAssemblerImpl implements JavaScriptStackAssembler
         }
     }
 
+    /**
+     * Minimizes the content of a single file, reusing the result of a prior minimization of the same content.
+     */
+    private String minimize(Resource resource, StreamableReader reader, String content, long lastModified) throws IOException
+    {
+        String key = reader instanceof ModuleReader
+                ? resource.toString() + " " + ((ModuleReader) reader).moduleName
+                : resource.toString();
+
+        byte[] bytes = content.getBytes("UTF-8");
+        byte[] digest = digest(bytes);
+
+        MinimizedContent cached = minimizedCache.get(key);
+
+        if (cached != null && Arrays.equals(cached.sourceDigest, digest))
+        {
+            return cached.content;
+        }
+
+        StreamableResource streamable = new StreamableResourceImpl(resource.toString(), JAVASCRIPT_CONTENT_TYPE,
+                CompressionStatus.COMPRESSABLE, lastModified, new BytestreamCache(bytes), checksumGenerator, null);
+
+        String minimized = getContent(resourceMinimizer.minimize(streamable));
+
+        minimizedCache.put(key, new MinimizedContent(digest, minimized));
+
+        return minimized;
+    }
+
+    private static byte[] digest(byte[] content)
+    {
+        try
+        {
+            return MessageDigest.getInstance("SHA-256").digest(content);
+        } catch (NoSuchAlgorithmException ex)
+        {
+            throw new RuntimeException(ex);
+        }
+    }
+
     private StreamableResource assembleStreamableForStack(String localeName, Parameters parameters,
                                                           List<Asset> libraries, List<String> moduleNames) throws IOException
     {
-        Assembly assembly = new Assembly(String.format("'%s' JavaScript stack, for locale %s, resources=", parameters.stackName, localeName));
+        boolean minimize = minificationEnabled && parameters.javascriptAggregationStrategy.enablesMinimize();
+
+        Assembly assembly = new Assembly(String.format("'%s' JavaScript stack, for locale %s, resources=", parameters.stackName, localeName),
+                minimize);
 
         for (Asset library : libraries)
         {
@@ -253,13 +468,6 @@ public class JavaScriptStackAssemblerImpl implements JavaScriptStackAssembler
             assembly.add(resource, new ModuleReader(moduleName));
         }
 
-        StreamableResource streamable = assembly.finish();
-
-        if (minificationEnabled && parameters.javascriptAggregationStrategy.enablesMinimize())
-        {
-            return resourceMinimizer.minimize(streamable);
-        }
-
-        return streamable;
+        return assembly.finish();
     }
 }
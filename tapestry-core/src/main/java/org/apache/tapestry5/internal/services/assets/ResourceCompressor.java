@@ -0,0 +1,38 @@
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.apache.tapestry5.internal.services.assets;
+
+import org.apache.tapestry5.services.assets.StreamableResource;
+
+import java.io.IOException;
+
+/**
+ * Produces the GZip compressed version of a {@link StreamableResource}. When
+ * {@link org.apache.tapestry5.SymbolConstants#COMPRESSED_ASSET_DIRECTORY} is configured, compressed content
+ * is stored on disk (once per distinct content, so it survives restarts) and streamed from the file; otherwise it
+ * is compressed into memory.
+ *
+ * @since 5.5
+ */
+public interface ResourceCompressor
+{
+    /**
+     * Returns a compressed version of the resource.
+     *
+     * @param uncompressed
+     *         resource whose {@linkplain StreamableResource#getCompression() compression} is
+     *         {@link org.apache.tapestry5.services.assets.CompressionStatus#COMPRESSABLE}
+     * @return resource whose compression is {@link org.apache.tapestry5.services.assets.CompressionStatus#COMPRESSED}
+     */
+    StreamableResource compress(StreamableResource uncompressed) throws IOException;
+}
@@ -0,0 +1,174 @@
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.apache.tapestry5.internal.services.assets;
+
+import org.apache.tapestry5.SymbolConstants;
+import org.apache.tapestry5.ioc.annotations.Symbol;
+import org.apache.tapestry5.ioc.internal.util.InternalUtils;
+import org.apache.tapestry5.services.assets.AssetChecksumGenerator;
+import org.apache.tapestry5.services.assets.CompressionStatus;
+import org.apache.tapestry5.services.assets.StreamableResource;
+import org.slf4j.Logger;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.zip.GZIPOutputStream;
+
+public class ResourceCompressorImpl implements ResourceCompressor
+{
+    private final Logger logger;
+
+    private final AssetChecksumGenerator checksumGenerator;
+
+    private final File directory;
+
+    public ResourceCompressorImpl(Logger logger, AssetChecksumGenerator checksumGenerator,
+                                  @Symbol(SymbolConstants.COMPRESSED_ASSET_DIRECTORY)
+                                  String directoryName)
+    {
+        this.logger = logger;
+        this.checksumGenerator = checksumGenerator;
+
+        directory = InternalUtils.isBlank(directoryName) ? null : new File(directoryName);
+
+        if (directory != null)
+        {
+            logger.info(String.format("Compressed assets will be stored in %s.", directory.getAbsolutePath()));
+        }
+    }
+
+    public StreamableResource compress(StreamableResource uncompressed) throws IOException
+    {
+        assert uncompressed.getCompression() == CompressionStatus.COMPRESSABLE;
+
+        if (directory == null)
+        {
+            return new CompressedStreamableResource(uncompressed, checksumGenerator);
+        }
+
+        try
+        {
+            File file = new File(directory, contentDigest(uncompressed) + ".gz");
+
+            if (!file.isFile())
+            {
+                write(uncompressed, file);
+            }
+
+            return new FileStreamableResource(uncompressed.getDescription(), uncompressed.getContentType(),
+                    CompressionStatus.COMPRESSED, uncompressed.getLastModified(), file,
+                    uncompressed.getChecksum(), uncompressed.getResponseCustomizer());
+        } catch (IOException ex)
+        {
+            logger.warn(String.format("Unable to store compressed content for %s in %s (the content will be compressed in memory instead): %s",
+                    uncompressed.getDescription(), directory, ex.getMessage()));
+
+            return new CompressedStreamableResource(uncompressed, checksumGenerator);
+        }
+    }
+
+    /**
+     * Writes the compressed content to a temporary file, which is then renamed, so that a partially written
+     * file (for example, from a crash, or another server sharing the same directory) is never served.
+     */
+    private void write(StreamableResource uncompressed, File file) throws IOException
+    {
+        if (!directory.isDirectory() && !directory.mkdirs() && !directory.isDirectory())
+        {
+            throw new IOException(String.format("Unable to create directory %s.", directory));
+        }
+
+        File temp = File.createTempFile(file.getName(), ".tmp", directory);
+
+        try
+        {
+            OutputStream os = new BufferedOutputStream(new GZIPOutputStream(new FileOutputStream(temp)));
+
+            try
+            {
+                uncompressed.streamTo(os);
+            } finally
+            {
+                os.close();
+            }
+
+            try
+            {
+                Files.move(temp.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException ex)
+            {
+                Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally
+        {
+            temp.delete();
+        }
+    }
+
+    /**
+     * The asset checksum (a 32 bit Adler32 value) is too weak to identify content shared across
+     * all the assets of all the deployments that may use the directory, so a SHA-256 digest is used instead.
+     */
+    private static String contentDigest(StreamableResource resource) throws IOException
+    {
+        MessageDigest digest;
+
+        try
+        {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException ex)
+        {
+            throw new IOException(ex);
+        }
+
+        InputStream is = resource.openStream();
+
+        try
+        {
+            byte[] buffer = new byte[4096];
+
+            while (true)
+            {
+                int length = is.read(buffer);
+
+                if (length < 0)
+                {
+                    break;
+                }
+
+                digest.update(buffer, 0, length);
+            }
+        } finally
+        {
+            is.close();
+        }
+
+        StringBuilder builder = new StringBuilder();
+
+        for (byte b : digest.digest())
+        {
+            builder.append(String.format("%02x", b & 0xff));
+        }
+
+        return builder.toString();
+    }
+}
@@ -23,13 +23,13 @@ public class SRSCompressingInterceptor extends DelegatingSRS
 {
     private final int compressionCutoff;
 
-    private final AssetChecksumGenerator checksumGenerator;
+    private final ResourceCompressor compressor;
 
-    public SRSCompressingInterceptor(StreamableResourceSource delegate, int compressionCutoff, AssetChecksumGenerator checksumGenerator)
+    public SRSCompressingInterceptor(StreamableResourceSource delegate, int compressionCutoff, ResourceCompressor compressor)
     {
         super(delegate);
         this.compressionCutoff = compressionCutoff;
-        this.checksumGenerator = checksumGenerator;
+        this.compressor = compressor;
     }
 
     public StreamableResource getStreamableResource(Resource baseResource, StreamableResourceProcessing processing, ResourceDependencies dependencies)
@@ -57,6 +57,6 @@ public class SRSCompressingInterceptor extends DelegatingSRS
             return uncompressed;
         }
 
-        return new CompressedStreamableResource(uncompressed, checksumGenerator);
+        return compressor.compress(uncompressed);
     }
 }
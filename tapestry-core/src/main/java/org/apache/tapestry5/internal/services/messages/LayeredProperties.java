@@ -0,0 +1,179 @@
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.apache.tapestry5.internal.services.messages;
+
+import org.apache.tapestry5.ioc.util.CaseInsensitiveMap;
+
+import java.util.AbstractMap;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * An immutable, case-insensitive map of message catalog properties, consisting of properties read from one properties
+ * file, overlaying a parent map (for a less specific locale, or a parent bundle). The parent is shared, rather than
+ * copied, so each locale and bundle only stores the properties it defines. To keep lookups fast, the chain of maps is
+ * flattened into a single copy once it becomes too deep.
+ *
+ * @since 5.5
+ */
+public class LayeredProperties extends AbstractMap<String, String>
+{
+    /**
+     * The maximum number of layers searched for a key.
+     */
+    static final int MAX_DEPTH = 6;
+
+    private final Map<String, String> parent;
+
+    private final Map<String, String> layer;
+
+    private final int depth;
+
+    private volatile Map<String, String> merged;
+
+    /**
+     * Returns a map of the properties of the layer overlaying those of the parent.
+     *
+     * @param parent
+     *         properties to extend (case insensitive)
+     * @param layer
+     *         properties to add or override (case insensitive, and not modified after this call)
+     */
+    public static Map<String, String> extend(Map<String, String> parent, Map<String, String> layer)
+    {
+        if (layer.isEmpty())
+        {
+            return parent;
+        }
+
+        if (parent.isEmpty())
+        {
+            return new LayeredProperties(null, layer, 1);
+        }
+
+        int parentDepth = parent instanceof LayeredProperties ? ((LayeredProperties) parent).depth : 1;
+
+        if (parentDepth < MAX_DEPTH)
+        {
+            return new LayeredProperties(parent, layer, parentDepth + 1);
+        }
+
+        Map<String, String> flattened = new CaseInsensitiveMap<String>(parent);
+
+        flattened.putAll(layer);
+
+        return new LayeredProperties(null, flattened, 1);
+    }
+
+    private LayeredProperties(Map<String, String> parent, Map<String, String> layer, int depth)
+    {
+        this.parent = parent;
+        this.layer = layer;
+        this.depth = depth;
+    }
+
+    @Override
+    public String get(Object key)
+    {
+        String result = layer.get(key);
+
+        if (result == null && parent != null)
+        {
+            result = parent.get(key);
+        }
+
+        return result;
+    }
+
+    @Override
+    public boolean containsKey(Object key)
+    {
+        return get(key) != null;
+    }
+
+    @Override
+    public boolean isEmpty()
+    {
+        return layer.isEmpty() && (parent == null || parent.isEmpty());
+    }
+
+    /**
+     * Counts the keys without merging the layers: each key of the layer is counted unless the parent also has it.
+     */
+    @Override
+    public int size()
+    {
+        Map<String, String> result = merged;
+
+        if (result != null)
+        {
+            return result.size();
+        }
+
+        if (parent == null)
+        {
+            return layer.size();
+        }
+
+        int size = parent.size();
+
+        for (String key : layer.keySet())
+        {
+            if (!parent.containsKey(key))
+            {
+                size++;
+            }
+        }
+
+        return size;
+    }
+
+    @Override
+    public Set<Entry<String, String>> entrySet()
+    {
+        return merged().entrySet();
+    }
+
+    boolean isMerged()
+    {
+        return merged != null;
+    }
+
+    /**
+     * Iteration (which is rare) uses a merged copy of all the layers.
+     */
+    private Map<String, String> merged()
+    {
+        Map<String, String> result = merged;
+
+        if (result == null)
+        {
+            if (parent == null)
+            {
+                result = Collections.unmodifiableMap(layer);
+            } else
+            {
+                Map<String, String> copy = new CaseInsensitiveMap<String>(parent);
+
+                copy.putAll(layer);
+
+                result = Collections.unmodifiableMap(copy);
+            }
+
+            merged = result;
+        }
+
+        return result;
+    }
+}
@@ -70,7 +70,9 @@ public class PropertiesFileParserImpl implements PropertiesFileParser
 
             String value = p.getProperty(key);
 
-            result.put(key, value);
+            // The same keys usually appear in the properties files for each locale.
+
+            result.put(key.intern(), value);
         }
 
         return result;
@@ -164,6 +164,16 @@ public class ComponentPageElementResourcesImpl implements ComponentPageElementRe
         tracker.run(description, operation);
     }
 
+    public Object beginOperation(String description)
+    {
+        return tracker.beginOperation(description);
+    }
+
+    public void endOperation(Object operation, Throwable failure)
+    {
+        tracker.endOperation(operation, failure);
+    }
+
     public <T> PerThreadValue<T> createPerThreadValue()
     {
         return perThreadManager.createValue();
@@ -51,6 +51,7 @@ public class AssetsModule
         binder.bind(ResourceMinimizer.class, MasterResourceMinimizer.class);
         binder.bind(AssetChecksumGenerator.class, AssetChecksumGeneratorImpl.class);
         binder.bind(JavaScriptStackAssembler.class, JavaScriptStackAssemblerImpl.class);
+        binder.bind(ResourceCompressor.class, ResourceCompressorImpl.class);
     }
 
     @Contribute(AssetSource.class)
@@ -88,6 +89,7 @@ public class AssetsModule
 
         configuration.add("tapestry.asset.root", "classpath:META-INF/assets/tapestry5");
         configuration.add(SymbolConstants.OMIT_EXPIRATION_CACHE_CONTROL_HEADER, "max-age=60,must-revalidate");
+        configuration.add(SymbolConstants.COMPRESSED_ASSET_DIRECTORY, "");
     }
 
     // The use of decorators is to allow third-parties to get their own extensions
@@ -98,10 +100,10 @@ public class AssetsModule
                                                       @Symbol(SymbolConstants.GZIP_COMPRESSION_ENABLED)
                                                       boolean gzipEnabled, @Symbol(SymbolConstants.MIN_GZIP_SIZE)
                                                       int compressionCutoff,
-                                                      AssetChecksumGenerator checksumGenerator)
+                                                      ResourceCompressor compressor)
     {
         return gzipEnabled
-                ? new SRSCompressingInterceptor(delegate, compressionCutoff, checksumGenerator)
+                ? new SRSCompressingInterceptor(delegate, compressionCutoff, compressor)
                 : null;
     }
 
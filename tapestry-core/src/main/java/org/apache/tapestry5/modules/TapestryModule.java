@@ -88,12 +88,14 @@ import org.apache.tapestry5.services.messages.PropertiesFileParser;
 import org.apache.tapestry5.services.meta.FixedExtractor;
 import org.apache.tapestry5.services.meta.MetaDataExtractor;
 import org.apache.tapestry5.services.meta.MetaWorker;
+import org.apache.tapestry5.services.pageload.PageCacheEvictionPolicy;
 import org.apache.tapestry5.services.pageload.PreloaderMode;
 import org.apache.tapestry5.services.security.ClientWhitelist;
 import org.apache.tapestry5.services.security.WhitelistAnalyzer;
 import org.apache.tapestry5.services.templates.ComponentTemplateLocator;
 import org.apache.tapestry5.services.transform.ComponentClassTransformWorker2;
 import org.apache.tapestry5.services.transform.InjectionProvider2;
+import org.apache.tapestry5.util.JSONStreamResponse;
 import org.apache.tapestry5.validator.*;
 import org.slf4j.Logger;
 
@@ -1542,6 +1544,8 @@ public final class TapestryModule
      * containing page is sent.</dd>
      * <dt>{@link org.apache.tapestry5.StreamResponse}</dt>
      * <dd>The stream response is sent as the actual reply.</dd>
+     * <dt>{@link org.apache.tapestry5.util.JSONStreamResponse}</dt>
+     * <dd>The JSON content is streamed as the actual reply (since 5.5).</dd>
      * <dt>URL</dt>
      * <dd>Sends a redirect to a (presumably) external URL</dd>
      * </dl>
@@ -1578,6 +1582,8 @@ public final class TapestryModule
 
         configuration.addInstance(StreamResponse.class, StreamResponseResultProcessor.class);
 
+        configuration.addInstance(JSONStreamResponse.class, JSONStreamResponseResultProcessor.class);
+
         configuration.addInstance(StreamPageContent.class, StreamPageContentResultProcessor.class);
     }
 
@@ -1594,6 +1600,8 @@ public final class TapestryModule
      * <dd>The JSONObject is returned as a text/javascript response</dd>
      * <dt>{@link org.apache.tapestry5.StreamResponse}</dt>
      * <dd>The stream response is sent as the actual response</dd>
+     * <dt>{@link org.apache.tapestry5.util.JSONStreamResponse}</dt>
+     * <dd>The JSON content is streamed as the actual response (since 5.5)</dd>
      * <dt>String</dt>
      * <dd>Interprets the value as a logical page name and sends a client response to redirect to that page</dd>
      * <dt>{@link org.apache.tapestry5.Link}</dt>
@@ -1618,6 +1626,7 @@ public final class TapestryModule
         configuration.addInstance(JSONObject.class, JSONObjectEventResultProcessor.class);
         configuration.addInstance(JSONArray.class, JSONArrayEventResultProcessor.class);
         configuration.addInstance(StreamResponse.class, StreamResponseResultProcessor.class);
+        configuration.addInstance(JSONStreamResponse.class, JSONStreamResponseResultProcessor.class);
         configuration.addInstance(String.class, AjaxPageNameComponentEventResultProcessor.class);
         configuration.addInstance(Link.class, AjaxLinkComponentEventResultProcessor.class);
         configuration.addInstance(URL.class, AjaxURLComponentEventResultProcessor.class);
@@ -2113,6 +2122,8 @@ public final class TapestryModule
         configuration.add(SymbolConstants.HMAC_PASSPHRASE, "");
 
         configuration.add(SymbolConstants.SESSION_LOCKING_ENABLED, true);
+        configuration.add(SymbolConstants.SESSION_LOCKING_STRATEGY, TapestrySessionFactoryImpl.READ_WRITE_STRATEGY);
+        configuration.add(SymbolConstants.SESSION_LOCK_TIMEOUT, "5 s");
 
         // TAP5-2070 keep the old behavior, defaults to false
         configuration.add(MetaDataConstants.UNKNOWN_ACTIVATION_CONTEXT_CHECK, false);
@@ -2151,6 +2162,24 @@ public final class TapestryModule
 
         configuration.add(SymbolConstants.ENABLE_PAGELOADING_MASK, true);
         configuration.add(SymbolConstants.PRELOADER_MODE, PreloaderMode.PRODUCTION);
+
+        configuration.add(SymbolConstants.PAGE_CACHE_MAX_PAGES, 0);
+        configuration.add(SymbolConstants.PAGE_CACHE_MAX_WEIGHT, 0);
+        configuration.add(SymbolConstants.PAGE_CACHE_EVICTION_POLICY, PageCacheEvictionPolicy.LRU);
+        configuration.add(SymbolConstants.PAGE_CACHE_PINNED_PAGES, "");
+
+        configuration.add(SymbolConstants.PRELOADER_CONCURRENCY, 1);
+        configuration.add(SymbolConstants.PRELOADER_LOCALES, "");
+        configuration.add(SymbolConstants.PRELOADER_BACKGROUND, false);
+
+        configuration.add(SymbolConstants.GZIP_COMPRESSION_LEVEL, -1);
+        configuration.add(SymbolConstants.GZIP_COMPRESSION_LEVELS, "");
+        configuration.add(SymbolConstants.GZIP_ADAPTIVE_CUTOVER, false);
+        configuration.add(SymbolConstants.GZIP_DEFLATER_POOL_SIZE, 32);
+
+        configuration.add(SymbolConstants.CLIENT_DATA_COMPACT_FORMAT, false);
+
+        configuration.add(SymbolConstants.TEMPLATE_CACHE_DIRECTORY, "");
     }
 
     /**
@@ -2322,6 +2351,14 @@ public final class TapestryModule
         return messagesSource.getInvalidationEventHub();
     }
 
+    /**
+     * @since 5.5
+     */
+    public static SessionLockMetrics buildSessionLockMetrics(TapestrySessionFactory sessionFactory)
+    {
+        return sessionFactory.getLockMetrics();
+    }
+
     @Scope(ScopeConstants.PERTHREAD)
     public Environment buildEnvironment(PerthreadManager perthreadManager)
     {
@@ -2378,6 +2415,43 @@ public final class TapestryModule
         configuration.add(OptimizedSessionPersistedObject.class, new OptimizedSessionPersistedObjectAnalyzer());
     }
 
+    /**
+     * Identifies the classes most often stored as client data (by {@link org.apache.tapestry5.corelib.components.Form}
+     * and the components it encloses), so that they are written compactly.
+     *
+     * @since 5.5
+     */
+    public static void contributeClientDataEncoder(Configuration<String> configuration)
+    {
+        for (Class type : new Class[]{Boolean.class, Integer.class, Long.class, Number.class, Date.class})
+        {
+            configuration.add(type.getName());
+        }
+
+        String corelib = "org.apache.tapestry5.corelib.";
+
+        for (String name : new String[]{
+                "base.AbstractField$Setup",
+                "base.AbstractField$ProcessSubmission",
+                "components.AjaxFormLoop$SyncValue",
+                "components.BeanEditor$CleanupEnvironment",
+                "components.BeanEditor$Prepare",
+                "components.GridRows$SetupForRowByIndex",
+                "components.GridRows$SetupForRowWithClientValue",
+                "components.Hidden$ProcessSubmission",
+                "components.LinkSubmit$ProcessSubmission",
+                "components.Loop$RestoreState",
+                "components.Loop$RestoreStateFromStoredClientValue",
+                "components.PropertyEditor$CleanupEnvironment",
+                "components.PropertyEditor$SetupEnvironment",
+                "components.RadioGroup$Setup",
+                "components.Submit$ProcessSubmission",
+                "components.SubmitNotifier$TriggerEvent"})
+        {
+            configuration.add(corelib + name);
+        }
+    }
+
     /**
      * @since 5.1.1.0
      */
@@ -12,6 +12,8 @@
 
 package org.apache.tapestry5.services;
 
+import org.apache.tapestry5.ioc.annotations.UsesConfiguration;
+
 import java.io.IOException;
 import java.io.ObjectInputStream;
 
@@ -24,8 +26,15 @@ import java.io.ObjectInputStream;
  * as a prefix. HMAC requires a secret key, configured using the
  * {@link org.apache.tapestry5.SymbolConstants#HMAC_PASSPHRASE} symbol.
  *
+ * Starting in release 5.5, data may be written in a more compact format, by setting
+ * {@link org.apache.tapestry5.SymbolConstants#CLIENT_DATA_COMPACT_FORMAT} to true. The service's configuration
+ * is a set of class names that are frequently stored as client data; these are identified by a short id, rather
+ * than by name, in the compact format. The configuration must be identical on all servers that may decode the data;
+ * compact data written with a different configuration is rejected.
+ *
  * @since 5.1.0.1
  */
+@UsesConfiguration(String.class)
 public interface ClientDataEncoder
 {
     /**
@@ -44,6 +44,19 @@ public interface Session
      */
     Object getAttribute(String name);
 
+    /**
+     * Returns the value previously stored in the session, for a request that will replace it with a value derived
+     * from it. The session lock needed to update the attribute is acquired first (and held until the end of the
+     * request), so concurrent requests can't interleave updates to the same attribute. The default implementation
+     * simply invokes {@link #getAttribute(String)}.
+     *
+     * @since 5.5
+     */
+    default Object getAttributeForUpdate(String name)
+    {
+        return getAttribute(name);
+    }
+
     /**
      * Sets the value of an attribute. If the value is null, then the attribute is deleted.
      */
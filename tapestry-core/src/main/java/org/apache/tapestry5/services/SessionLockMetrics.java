@@ -0,0 +1,49 @@
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.apache.tapestry5.services;
+
+/**
+ * Statistics about the locks used to coordinate access to the {@link Session} by concurrent requests from the same
+ * client. Times are in nanoseconds.
+ *
+ * @see org.apache.tapestry5.SymbolConstants#SESSION_LOCKING_ENABLED
+ * @see org.apache.tapestry5.SymbolConstants#SESSION_LOCKING_STRATEGY
+ * @since 5.5
+ */
+public interface SessionLockMetrics
+{
+    /**
+     * Number of locks acquired (including those that required waiting).
+     */
+    long getAcquiredCount();
+
+    /**
+     * Number of locks that could not be acquired immediately, because another request held the lock.
+     */
+    long getContendedCount();
+
+    /**
+     * Total time spent waiting for contended locks.
+     */
+    long getTotalWaitTime();
+
+    /**
+     * Longest time spent waiting for a single lock.
+     */
+    long getMaxWaitTime();
+
+    /**
+     * Number of times a request gave up waiting for a lock, and continued without it (only with the striped strategy).
+     */
+    long getTimeoutCount();
+}
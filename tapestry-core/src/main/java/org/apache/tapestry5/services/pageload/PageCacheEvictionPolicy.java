@@ -0,0 +1,34 @@
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.apache.tapestry5.services.pageload;
+
+/**
+ * Identifies how the page cache selects a page to discard, when the cache is bounded (by
+ * {@link org.apache.tapestry5.SymbolConstants#PAGE_CACHE_MAX_PAGES} or
+ * {@link org.apache.tapestry5.SymbolConstants#PAGE_CACHE_MAX_WEIGHT}) and a newly loaded page exceeds the bounds.
+ *
+ * @since 5.5
+ */
+public enum PageCacheEvictionPolicy
+{
+    /**
+     * Discard the least recently used page.
+     */
+    LRU,
+
+    /**
+     * Discard the least frequently used page (with the least recently used page being discarded when
+     * the use counts are equal).
+     */
+    LFU
+}
@@ -0,0 +1,115 @@
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.apache.tapestry5.services.pageload;
+
+import org.apache.tapestry5.beaneditor.ReorderProperties;
+
+/**
+ * An immutable snapshot of the statistics for the cache of loaded page instances.
+ *
+ * @see org.apache.tapestry5.corelib.pages.PageCatalog
+ * @since 5.5
+ */
+@ReorderProperties("cachedPages,cachedWeight,hits,misses,loadTime,evictions,reclaimed")
+public final class PageCacheStatistics
+{
+    private final int cachedPages;
+
+    private final int cachedWeight;
+
+    private final long hits;
+
+    private final long misses;
+
+    private final double loadTime;
+
+    private final long evictions;
+
+    private final long reclaimed;
+
+    public PageCacheStatistics(int cachedPages, int cachedWeight, long hits, long misses, double loadTime,
+                               long evictions, long reclaimed)
+    {
+        this.cachedPages = cachedPages;
+        this.cachedWeight = cachedWeight;
+        this.hits = hits;
+        this.misses = misses;
+        this.loadTime = loadTime;
+        this.evictions = evictions;
+        this.reclaimed = reclaimed;
+    }
+
+    /**
+     * Number of page instances currently in the cache.
+     */
+    public int getCachedPages()
+    {
+        return cachedPages;
+    }
+
+    /**
+     * Sum of the weights of the page instances currently in the cache.
+     */
+    public int getCachedWeight()
+    {
+        return cachedWeight;
+    }
+
+    /**
+     * Number of times a page was found in the cache.
+     */
+    public long getHits()
+    {
+        return hits;
+    }
+
+    /**
+     * Number of times a page was not found in the cache, and had to be loaded.
+     */
+    public long getMisses()
+    {
+        return misses;
+    }
+
+    /**
+     * Total time, in milliseconds, spent loading pages on a cache miss.
+     */
+    public double getLoadTime()
+    {
+        return loadTime;
+    }
+
+    /**
+     * Number of pages discarded from the cache to keep it within its configured bounds.
+     */
+    public long getEvictions()
+    {
+        return evictions;
+    }
+
+    /**
+     * Number of pages discarded from the cache by the garbage collector (possible only when the cache
+     * is not bounded).
+     */
+    public long getReclaimed()
+    {
+        return reclaimed;
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("PageCacheStatistics[pages=%d weight=%d hits=%d misses=%d loadTime=%.3f ms evictions=%d reclaimed=%d]",
+                cachedPages, cachedWeight, hits, misses, loadTime, evictions, reclaimed);
+    }
+}
@@ -24,7 +24,14 @@ import org.apache.tapestry5.ioc.annotations.UsesConfiguration;
  * {@link org.apache.tapestry5.SymbolConstants#SUPPORTED_LOCALES}). This ensures that the majority
  * of class loading and transformation, template parsing, and so forth occurs immediately (loading
  * an existing page in a different locale is a relatively inexpensive operation compared to the
- * first load of the page).
+ * first load of the page). Additional locales may be preloaded using
+ * {@link org.apache.tapestry5.SymbolConstants#PRELOADER_LOCALES}.
+ *
+ * Starting in 5.5, pages may be loaded in parallel (see {@link org.apache.tapestry5.SymbolConstants#PRELOADER_CONCURRENCY}),
+ * and the preload may occur in the background (see {@link org.apache.tapestry5.SymbolConstants#PRELOADER_BACKGROUND}),
+ * in which case a health check should poll both {@link #isPreloadComplete()} and {@link #isPreloadSuccessful()}: the
+ * application is fully warmed up only once both return true. A preload that completes unsuccessfully will not be
+ * retried.
  *
  * @since 5.4
  */
@@ -35,4 +42,27 @@ public interface PagePreloader
      * Loads any pages, subject to the {@linkplain org.apache.tapestry5.SymbolConstants#PRELOADER_MODE preloader mode}.
      */
     void preloadPages();
+
+    /**
+     * Returns true once preloading has finished (successfully or not), or if there are no pages to preload, or
+     * if the {@linkplain org.apache.tapestry5.SymbolConstants#PRELOADER_MODE preloader mode} disables preloading.
+     *
+     * @since 5.5
+     */
+    boolean isPreloadComplete();
+
+    /**
+     * Returns true if every page was preloaded (or there was nothing to preload); false while the preload is still in
+     * progress, or once a page has failed to load (the failure is logged, and the remaining pages are not preloaded).
+     *
+     * @since 5.5
+     */
+    boolean isPreloadSuccessful();
+
+    /**
+     * Returns the number of pages (for all preloaded locales) preloaded so far.
+     *
+     * @since 5.5
+     */
+    int getPreloadedPageCount();
 }
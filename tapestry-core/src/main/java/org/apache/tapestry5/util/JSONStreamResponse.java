@@ -0,0 +1,107 @@
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.apache.tapestry5.util;
+
+import org.apache.tapestry5.ContentType;
+import org.apache.tapestry5.StreamResponse;
+import org.apache.tapestry5.json.JSONWriter;
+import org.apache.tapestry5.services.Response;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * A response from a component event handler method that streams JSON content to the client, using a
+ * {@link JSONWriter}, rather than building a {@link org.apache.tapestry5.json.JSONObject} or
+ * {@link org.apache.tapestry5.json.JSONArray} in memory. Subclasses implement {@link #write(JSONWriter)}.
+ *
+ * Tapestry writes the content directly to the response output stream; {@link #getStream()} is only provided
+ * for compatibility with code that treats this as an ordinary {@link StreamResponse}.
+ *
+ * @since 5.5
+ */
+public abstract class JSONStreamResponse implements StreamResponse
+{
+    private final ContentType contentType;
+
+    /**
+     * Constructor that defaults the content type to "application/json", with the "UTF-8" character set.
+     */
+    public JSONStreamResponse()
+    {
+        this(new ContentType("application/json").withCharset("UTF-8"));
+    }
+
+    /**
+     * @param contentType
+     *         content type; the "UTF-8" character set is added if no character set is specified
+     * @throws IllegalArgumentException
+     *         if the content type specifies a character set other than "UTF-8" (the {@link JSONWriter} always
+     *         writes UTF-8)
+     */
+    public JSONStreamResponse(ContentType contentType)
+    {
+        assert contentType != null;
+
+        String charset = contentType.getCharset();
+
+        if (charset == null)
+        {
+            this.contentType = contentType.withCharset("UTF-8");
+        } else if (charset.equalsIgnoreCase("UTF-8"))
+        {
+            this.contentType = contentType;
+        } else
+        {
+            throw new IllegalArgumentException(String.format(
+                    "Content type '%s' is not supported: JSON content is always streamed using the UTF-8 character set.",
+                    contentType));
+        }
+    }
+
+    public String getContentType()
+    {
+        return contentType.toString();
+    }
+
+    /**
+     * Writes the JSON content. The writer is closed by the caller.
+     */
+    public abstract void write(JSONWriter writer) throws IOException;
+
+    /**
+     * Writes the content to a byte array, and returns a stream for that byte array.
+     */
+    public InputStream getStream() throws IOException
+    {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+        JSONWriter writer = new JSONWriter(bytes);
+
+        write(writer);
+
+        writer.close();
+
+        return new ByteArrayInputStream(bytes.toByteArray());
+    }
+
+    /**
+     * Does nothing; subclasses may override.
+     */
+    public void prepareResponse(Response response)
+    {
+
+    }
+}
@@ -1,6 +1,7 @@
 package org.apache.tapestry5.internal.services
 
 import org.apache.tapestry5.alerts.AlertManager
+import org.apache.tapestry5.ioc.services.RegistryShutdownHub
 import org.apache.tapestry5.ioc.test.TestBase
 import org.apache.tapestry5.services.ClientDataEncoder
 import org.easymock.EasyMock
@@ -9,6 +10,16 @@ import org.testng.annotations.Test
 
 class ClientDataEncoderImplTest extends TestBase {
 
+    def newEncoder(String passphrase, boolean compactFormat = true, Logger logger = null, AlertManager alertManager = null,
+                   List<String> compactClassNames = ["java.lang.Integer", "java.lang.Number"],
+                   Closure forName = { String name -> Class.forName(name) }) {
+        def hub = [addRegistryShutdownListener: { listener -> }] as RegistryShutdownHub
+        def classCache = [forName: forName] as ComponentClassCache
+
+        new ClientDataEncoderImpl(null, passphrase, logger, "foo.bar", alertManager, compactFormat,
+            compactClassNames, classCache, hub)
+    }
+
     def tryEncodeAndDecode(ClientDataEncoder cde) {
         def now = new Date()
         def input = "The current time is $now"
@@ -48,10 +59,11 @@ class ClientDataEncoderImplTest extends TestBase {
 
         logger.error(EasyMock.isA(String))
         alertManager.error(EasyMock.isA(String))
+        EasyMock.expect(logger.isDebugEnabled()).andReturn(false)
 
         replay()
 
-        ClientDataEncoder cde = new ClientDataEncoderImpl(null, "", logger, "foo.bar", alertManager)
+        ClientDataEncoder cde = newEncoder("", true, logger, alertManager)
 
         tryEncodeAndDecode cde
 
@@ -60,15 +72,15 @@ class ClientDataEncoderImplTest extends TestBase {
 
     @Test
     void no_logged_error_with_non_blank_passphrase() {
-        ClientDataEncoder cde = new ClientDataEncoderImpl(null, "Testing, Testing, 1.., 2.., 3...", null, "foo.bar", null)
+        ClientDataEncoder cde = newEncoder("Testing, Testing, 1.., 2.., 3...")
 
         tryEncodeAndDecode cde
     }
 
     @Test
     void passphrase_affects_encoded_output() {
-        ClientDataEncoder first = new ClientDataEncoderImpl(null, "first passphrase", null, "foo.bar", null)
-        ClientDataEncoder second = new ClientDataEncoderImpl(null, " different passphrase ", null, "foo.bar", null)
+        ClientDataEncoder first = newEncoder("first passphrase")
+        ClientDataEncoder second = newEncoder(" different passphrase ")
 
         def input = "current time millis is ${System.currentTimeMillis()} ms"
 
@@ -82,7 +94,7 @@ class ClientDataEncoderImplTest extends TestBase {
 
     @Test(expectedExceptions = IllegalArgumentException)
     void decode_with_missing_hmac_prefix_is_a_failure() {
-        ClientDataEncoder cde = new ClientDataEncoderImpl(null, "a passphrase", null, "foo.bar", null)
+        ClientDataEncoder cde = newEncoder("a passphrase")
 
         cde.decodeClientData("so completely invalid")
     }
@@ -92,8 +104,8 @@ class ClientDataEncoderImplTest extends TestBase {
 
         // Simulate tampering by encoding with one passphrase and attempting to decode with a different
         // passphrase.
-        ClientDataEncoder first = new ClientDataEncoderImpl(null, "first passphrase", null, "foo.bar", null)
-        ClientDataEncoder second = new ClientDataEncoderImpl(null, " different passphrase ", null, "foo.bar", null)
+        ClientDataEncoder first = newEncoder("first passphrase")
+        ClientDataEncoder second = newEncoder(" different passphrase ")
 
         def input = "current time millis is ${System.currentTimeMillis()} ms"
 
@@ -110,7 +122,7 @@ class ClientDataEncoderImplTest extends TestBase {
 
     @Test(expectedExceptions = EOFException)
     void check_for_eof() {
-        ClientDataEncoder cde = new ClientDataEncoderImpl(null, "hmac passphrase", null, "foo.bar", null)
+        ClientDataEncoder cde = newEncoder("hmac passphrase")
 
         def sink = cde.createSink()
 
@@ -133,4 +145,102 @@ class ClientDataEncoderImplTest extends TestBase {
         unreachable()
     }
 
+    @Test
+    void legacy_format_can_be_decoded() {
+        ClientDataEncoder legacy = newEncoder("hmac passphrase", false)
+        ClientDataEncoder compact = newEncoder("hmac passphrase")
+
+        def input = [fred: 1, barney: 2L, wilma: new Date()]
+
+        def output = convertToClientData legacy, input
+
+        // GZip magic number
+        assert extractData(output).startsWith("H4sI")
+
+        assert compact.decodeClientData(output).readObject() == input
+    }
+
+    @Test
+    void compact_format_round_trip() {
+        ClientDataEncoder cde = newEncoder("hmac passphrase")
+
+        def sink = cde.createSink()
+
+        def os = sink.objectOutputStream
+
+        def values = [97, 98L, "wilma", [1, 2, 3] as int[], Thread.State.RUNNABLE, [a: 1]]
+
+        values.each { os.writeObject it }
+
+        os.close()
+
+        def ois = cde.decodeClientData(sink.clientData)
+
+        values.each { value ->
+            def read = ois.readObject()
+
+            assert value instanceof int[] ? Arrays.equals(value, read) : value == read
+        }
+
+        ois.close()
+    }
+
+    @Test
+    void compact_format_is_smaller() {
+        def input = (1..20).collect { new Integer(it) }
+
+        def legacy = extractData(convertToClientData(newEncoder("hmac passphrase", false), input))
+        def compact = extractData(convertToClientData(newEncoder("hmac passphrase"), input))
+
+        assert compact.length() < legacy.length()
+    }
+
+    @Test
+    void compact_format_written_with_different_class_names_is_rejected() {
+        ClientDataEncoder writer = newEncoder("hmac passphrase", true, null, null, ["java.lang.Integer"])
+        ClientDataEncoder reader = newEncoder("hmac passphrase")
+
+        def output = convertToClientData writer, 97
+
+        try {
+            reader.decodeClientData(output)
+            unreachable()
+        }
+        catch (RuntimeException e) {
+            assert e.cause instanceof InvalidClassException
+            assert e.cause.message.contains("different set of compact client data class names")
+        }
+    }
+
+    @Test
+    void compact_format_with_different_fields_is_rejected() {
+        ClientDataEncoder writer = newEncoder("hmac passphrase")
+
+        // Simulates a change to the fields of a class, without a change to its serialVersionUID.
+        ClientDataEncoder reader = newEncoder("hmac passphrase", true, null, null,
+            ["java.lang.Integer", "java.lang.Number"],
+            { String name -> name == LayoutBefore.name ? LayoutAfter : Class.forName(name) })
+
+        def output = convertToClientData writer, new LayoutBefore(count: 3)
+
+        try {
+            reader.decodeClientData(output).readObject()
+            unreachable()
+        }
+        catch (InvalidClassException e) {
+            assert e.message.contains("serializable fields differ")
+        }
+    }
+}
+
+class LayoutBefore implements Serializable {
+    private static final long serialVersionUID = 1L
+
+    int count
+}
+
+class LayoutAfter implements Serializable {
+    private static final long serialVersionUID = 1L
+
+    String count
 }
@@ -780,4 +780,135 @@ class ComponentClassResolverImplTest extends InternalBaseTestCase {
 
         verify()
     }
+
+    @Test
+    void lookups_in_any_case_match_natural_case() {
+        String pageClassName = "${APP_ROOT_PACKAGE}.pages.SimplePage"
+        String componentClassName = "${APP_ROOT_PACKAGE}.components.MyComponent"
+        String mixinClassName = "${APP_ROOT_PACKAGE}.mixins.MyMixin"
+
+        ClassNameLocator locator = newClassNameLocator()
+        Logger logger = compliantLogger()
+
+        train_locateComponentClassNames(locator, "${APP_ROOT_PACKAGE}.pages", pageClassName)
+        train_locateComponentClassNames(locator, "${APP_ROOT_PACKAGE}.components", componentClassName)
+        train_locateComponentClassNames(locator, "${APP_ROOT_PACKAGE}.mixins", mixinClassName)
+
+        replay()
+
+        ComponentClassResolver resolver = create(logger, locator, [])
+
+        ["Simple", "simple", "SIMPLE", "SimplePage", "simplePAGE"].each { name ->
+            assertEquals(resolver.resolvePageNameToClassName(name), pageClassName)
+            assertEquals(resolver.canonicalizePageName(name), "Simple")
+        }
+
+        ["MyComponent", "mycomponent", "MYCOMPONENT"].each { name ->
+            assertEquals(resolver.resolveComponentTypeToClassName(name), componentClassName)
+        }
+
+        ["MyMixin", "mymixin", "myMIXIN"].each { name ->
+            assertEquals(resolver.resolveMixinTypeToClassName(name), mixinClassName)
+        }
+
+        verify()
+    }
+
+    @Test
+    void core_library_names_are_inherited_unless_overridden() {
+        String appPageClassName = "${APP_ROOT_PACKAGE}.pages.Shared"
+        String corePageClassName = "${CORE_ROOT_PACKAGE}.pages.Shared"
+        String standalonePageClassName = "${CORE_ROOT_PACKAGE}.pages.Standalone"
+        String coreComponentClassName = "${CORE_ROOT_PACKAGE}.components.CoreComponent"
+        String coreMixinClassName = "${CORE_ROOT_PACKAGE}.mixins.CoreMixin"
+
+        ClassNameLocator locator = newClassNameLocator()
+        Logger logger = compliantLogger()
+
+        train_locateComponentClassNames(locator, "${APP_ROOT_PACKAGE}.pages", appPageClassName)
+        train_locateComponentClassNames(locator, "${CORE_ROOT_PACKAGE}.pages", corePageClassName, standalonePageClassName)
+        train_locateComponentClassNames(locator, "${CORE_ROOT_PACKAGE}.components", coreComponentClassName)
+        train_locateComponentClassNames(locator, "${CORE_ROOT_PACKAGE}.mixins", coreMixinClassName)
+
+        replay()
+
+        ComponentClassResolver resolver = create(logger, locator, new LibraryMapping(CORE_PREFIX, CORE_ROOT_PACKAGE))
+
+        // The application's page overrides the core page of the same name, in any case.
+
+        assertEquals(resolver.resolvePageNameToClassName("Shared"), appPageClassName)
+        assertEquals(resolver.resolvePageNameToClassName("shared"), appPageClassName)
+        assertEquals(resolver.canonicalizePageName("SHARED"), "Shared")
+
+        // The core page is still available under its full name.
+
+        assertEquals(resolver.resolvePageNameToClassName("core/Shared"), corePageClassName)
+        assertEquals(resolver.resolvePageNameToClassName("Core/shared"), corePageClassName)
+
+        // Anything else in the core library is inherited.
+
+        assertEquals(resolver.resolvePageNameToClassName("Standalone"), standalonePageClassName)
+        assertEquals(resolver.resolvePageNameToClassName("standalone"), standalonePageClassName)
+        assertEquals(resolver.canonicalizePageName("standalone"), "core/Standalone")
+        assertEquals(resolver.resolveComponentTypeToClassName("CoreComponent"), coreComponentClassName)
+        assertEquals(resolver.resolveComponentTypeToClassName("corecomponent"), coreComponentClassName)
+        assertEquals(resolver.resolveMixinTypeToClassName("CoreMixin"), coreMixinClassName)
+        assertEquals(resolver.resolveMixinTypeToClassName("COREMIXIN"), coreMixinClassName)
+
+        verify()
+    }
+
+    @Test
+    void lookups_reflect_rebuild_after_invalidation() {
+        String oldPageClassName = "${APP_ROOT_PACKAGE}.pages.OldPage"
+        String newPageClassName = "${APP_ROOT_PACKAGE}.pages.NewPage"
+        String oldComponentClassName = "${APP_ROOT_PACKAGE}.components.OldComponent"
+        String newComponentClassName = "${APP_ROOT_PACKAGE}.components.NewComponent"
+
+        ClassNameLocator locator = newClassNameLocator()
+        Logger logger = compliantLogger()
+
+        train_locateComponentClassNames(locator, "${APP_ROOT_PACKAGE}.pages", oldPageClassName)
+        train_locateComponentClassNames(locator, "${APP_ROOT_PACKAGE}.components", oldComponentClassName)
+
+        replay()
+
+        ComponentClassResolverImpl resolver = create(logger, locator, [])
+
+        assertEquals(resolver.resolvePageNameToClassName("Old"), oldPageClassName)
+        assertEquals(resolver.resolveComponentTypeToClassName("OldComponent"), oldComponentClassName)
+
+        verify()
+
+        train_locateComponentClassNames(locator, "${APP_ROOT_PACKAGE}.pages", newPageClassName)
+        train_locateComponentClassNames(locator, "${APP_ROOT_PACKAGE}.components", newComponentClassName)
+        stub_locateComponentClassNames(locator)
+
+        // The changes are logged
+
+        expect(logger.isInfoEnabled()).andReturn(true).atLeastOnce()
+        logger.info(isA(String.class))
+        EasyMock.expectLastCall().atLeastOnce()
+
+        replay()
+
+        resolver.objectWasInvalidated()
+
+        assertFalse(resolver.isPageName("Old"))
+        assertFalse(resolver.isPageName("old"))
+        assertEquals(resolver.resolvePageNameToClassName("New"), newPageClassName)
+        assertEquals(resolver.resolvePageNameToClassName("newpage"), newPageClassName)
+        assertEquals(resolver.canonicalizePageName("NEW"), "New")
+        assertEquals(resolver.resolveComponentTypeToClassName("NewComponent"), newComponentClassName)
+
+        try {
+            resolver.resolveComponentTypeToClassName("OldComponent")
+            unreachable()
+        }
+        catch (UnknownValueException ex) {
+            // Expected
+        }
+
+        verify()
+    }
 }
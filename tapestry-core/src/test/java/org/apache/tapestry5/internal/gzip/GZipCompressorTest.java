@@ -0,0 +1,193 @@
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.apache.tapestry5.internal.gzip;
+
+import org.apache.tapestry5.ioc.services.RegistryShutdownHub;
+import org.apache.tapestry5.ioc.test.TestBase;
+import org.easymock.EasyMock;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Random;
+import java.util.zip.GZIPInputStream;
+
+public class GZipCompressorTest extends TestBase
+{
+    private static final String CONTENT = "<p>The quick brown fox jumps over the lazy dog.</p>\n";
+
+    private GZipCompressor newCompressor(int cutover, boolean adaptive)
+    {
+        RegistryShutdownHub hub = newMock(RegistryShutdownHub.class);
+
+        hub.addRegistryShutdownListener(EasyMock.isA(Runnable.class));
+
+        replay();
+
+        GZipCompressor compressor = new GZipCompressor(cutover, -1, "text/html=9, application/json=1", adaptive, 2, hub);
+
+        verify();
+
+        return compressor;
+    }
+
+    private byte[] compress(GZipCompressor compressor, String contentType, byte[] content) throws IOException
+    {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+
+        OutputStream os = compressor.compress(compressed, contentType);
+
+        os.write(content);
+        os.close();
+
+        // A second close must not release the Deflater again
+        os.close();
+
+        return compressed.toByteArray();
+    }
+
+    private byte[] uncompress(byte[] compressed) throws IOException
+    {
+        InputStream is = new GZIPInputStream(new ByteArrayInputStream(compressed));
+        ByteArrayOutputStream result = new ByteArrayOutputStream();
+
+        byte[] buffer = new byte[100];
+
+        while (true)
+        {
+            int length = is.read(buffer);
+
+            if (length < 0)
+            {
+                break;
+            }
+
+            result.write(buffer, 0, length);
+        }
+
+        return result.toByteArray();
+    }
+
+    private String repeat(int count)
+    {
+        StringBuilder builder = new StringBuilder();
+
+        for (int i = 0; i < count; i++)
+        {
+            builder.append(CONTENT);
+        }
+
+        return builder.toString();
+    }
+
+    @Test
+    public void compressed_content_round_trips() throws IOException
+    {
+        GZipCompressor compressor = newCompressor(100, false);
+
+        String content = repeat(500);
+
+        // Repeated use exercises Deflaters returned to the pool.
+
+        for (String contentType : new String[]{"text/html;charset=UTF-8", "application/json", "text/plain", "text/html"})
+        {
+            byte[] compressed = compress(compressor, contentType, content.getBytes());
+
+            assertTrue(compressed.length < content.length());
+            assertEquals(new String(uncompress(compressed)), content);
+        }
+    }
+
+    @Test
+    public void fixed_cutover() throws IOException
+    {
+        GZipCompressor compressor = newCompressor(100, false);
+
+        byte[] random = new byte[10000];
+
+        new Random(0).nextBytes(random);
+
+        compress(compressor, "application/octet-stream", random);
+
+        assertEquals(compressor.getCutover("application/octet-stream"), 100);
+        assertEquals(compressor.getCutover("text/html"), 100);
+    }
+
+    @Test
+    public void adaptive_cutover() throws IOException
+    {
+        GZipCompressor compressor = newCompressor(100, true);
+
+        assertEquals(compressor.getCutover("text/html"), 100);
+
+        compress(compressor, "text/html; charset=UTF-8", repeat(500).getBytes());
+
+        int htmlCutover = compressor.getCutover("text/html");
+
+        assertTrue(htmlCutover >= 100 && htmlCutover < 200);
+
+        byte[] random = new byte[10000];
+
+        new Random(0).nextBytes(random);
+
+        compress(compressor, "application/octet-stream", random);
+
+        // Incompressible content is only compressed when it is very large
+
+        assertEquals(compressor.getCutover("application/octet-stream"), GZipCompressor.MAX_ADAPTIVE_CUTOVER);
+    }
+
+    @Test
+    public void stream_is_unusable_once_closed() throws IOException
+    {
+        GZipCompressor compressor = newCompressor(100, false);
+
+        OutputStream closed = compressor.compress(new ByteArrayOutputStream(), "text/html");
+
+        closed.write(CONTENT.getBytes());
+        closed.close();
+
+        // The next response reuses the Deflater that was returned to the pool.
+
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+
+        OutputStream os = compressor.compress(compressed, "text/html");
+
+        os.write(CONTENT.getBytes());
+
+        try
+        {
+            closed.write("leaked".getBytes());
+            unreachable();
+        } catch (IOException ex)
+        {
+            assertEquals(ex.getMessage(), "Stream closed");
+        }
+
+        try
+        {
+            closed.flush();
+            unreachable();
+        } catch (IOException ex)
+        {
+            assertEquals(ex.getMessage(), "Stream closed");
+        }
+
+        os.close();
+
+        assertEquals(new String(uncompress(compressed.toByteArray())), CONTENT);
+    }
+}
@@ -0,0 +1,83 @@
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.apache.tapestry5.internal.gzip;
+
+import org.apache.tapestry5.ioc.test.TestBase;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.Deflater;
+
+public class PooledDeflaterOutputStreamTest extends TestBase
+{
+    private static final String CONTENT = "The quick brown fox jumps over the lazy dog.";
+
+    @Test
+    public void stream_is_unusable_once_closed() throws IOException
+    {
+        DeflaterPool deflaters = new DeflaterPool(1);
+
+        PooledDeflaterOutputStream closed = new PooledDeflaterOutputStream(new ByteArrayOutputStream(), deflaters,
+                Deflater.BEST_SPEED);
+
+        closed.write(CONTENT.getBytes());
+        closed.close();
+
+        // This stream reuses the Deflater that was returned to the pool.
+
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+
+        PooledDeflaterOutputStream os = new PooledDeflaterOutputStream(compressed, deflaters, Deflater.BEST_SPEED);
+
+        os.write(CONTENT.getBytes());
+
+        try
+        {
+            closed.write("leaked".getBytes());
+            unreachable();
+        } catch (IOException ex)
+        {
+            assertEquals(ex.getMessage(), "Stream closed");
+        }
+
+        try
+        {
+            closed.finish();
+            unreachable();
+        } catch (IOException ex)
+        {
+            assertEquals(ex.getMessage(), "Stream closed");
+        }
+
+        os.close();
+
+        InputStream is = new PooledInflaterInputStream(new ByteArrayInputStream(compressed.toByteArray()),
+                new InflaterPool(1));
+
+        ByteArrayOutputStream uncompressed = new ByteArrayOutputStream();
+
+        byte[] buffer = new byte[100];
+
+        for (int length = is.read(buffer); length >= 0; length = is.read(buffer))
+        {
+            uncompressed.write(buffer, 0, length);
+        }
+
+        is.close();
+
+        assertEquals(new String(uncompressed.toByteArray()), CONTENT);
+    }
+}
@@ -0,0 +1,392 @@
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+
+package org.apache.tapestry5.internal.pageload;
+
+import org.apache.tapestry5.internal.test.InternalBaseTestCase;
+import org.apache.tapestry5.ioc.internal.QuietOperationTracker;
+import org.apache.tapestry5.ioc.internal.services.ParallelExecutorImpl;
+import org.apache.tapestry5.ioc.internal.services.PerthreadManagerImpl;
+import org.apache.tapestry5.ioc.internal.util.CollectionFactory;
+import org.apache.tapestry5.ioc.services.PerthreadManager;
+import org.apache.tapestry5.ioc.services.ThreadLocale;
+import org.apache.tapestry5.runtime.Component;
+import org.apache.tapestry5.services.ComponentSource;
+import org.apache.tapestry5.services.LocalizationSetter;
+import org.apache.tapestry5.services.pageload.PagePreloader;
+import org.apache.tapestry5.services.pageload.PreloaderMode;
+import org.easymock.EasyMock;
+import org.slf4j.helpers.NOPLogger;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+public class PagePreloaderImplTest extends InternalBaseTestCase
+{
+    private static final List<String> PAGES = Arrays.asList("Index", "Login", "Search", "Admin");
+
+    private final PerthreadManager perthreadManager = new PerthreadManagerImpl(NOPLogger.NOP_LOGGER);
+
+    private final ThreadLocale threadLocale = new ThreadLocale()
+    {
+        private final ThreadLocal<Locale> locale = new ThreadLocal<Locale>();
+
+        public void setLocale(Locale locale)
+        {
+            this.locale.set(locale);
+        }
+
+        public Locale getLocale()
+        {
+            return locale.get();
+        }
+    };
+
+    private ExecutorService executor;
+
+    /**
+     * Records each page loaded, along with the locale in effect on the loading thread.
+     */
+    private class PageLoads implements ComponentSource
+    {
+        final List<String> loads = Collections.synchronizedList(CollectionFactory.<String>newList());
+
+        final Set<Thread> threads = Collections.synchronizedSet(CollectionFactory.<Thread>newSet());
+
+        public Component getPage(String pageName)
+        {
+            threads.add(Thread.currentThread());
+
+            load(pageName);
+
+            loads.add(pageName + ":" + threadLocale.getLocale());
+
+            return null;
+        }
+
+        void load(String pageName)
+        {
+        }
+
+        public Component getComponent(String completeId)
+        {
+            throw new UnsupportedOperationException();
+        }
+
+        public Component getPage(Class pageClass)
+        {
+            throw new UnsupportedOperationException();
+        }
+
+        public Component getActivePage()
+        {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    @AfterMethod
+    public void shutdownExecutor()
+    {
+        if (executor != null)
+        {
+            executor.shutdownNow();
+            executor = null;
+        }
+    }
+
+    private LocalizationSetter newLocalizationSetter(String... supported)
+    {
+        LocalizationSetter setter = newMock(LocalizationSetter.class);
+
+        List<Locale> locales = CollectionFactory.newList();
+
+        for (String name : supported)
+        {
+            Locale locale = new Locale(name);
+
+            locales.add(locale);
+
+            expect(setter.isSupportedLocaleName(name)).andReturn(true).anyTimes();
+            expect(setter.toLocale(name)).andReturn(locale).anyTimes();
+        }
+
+        expect(setter.getSupportedLocales()).andReturn(locales).anyTimes();
+        expect(setter.isSupportedLocaleName(EasyMock.<String>anyObject())).andReturn(false).anyTimes();
+
+        return setter;
+    }
+
+    private PagePreloader newPreloader(ComponentSource source, LocalizationSetter setter, int threads, int concurrency,
+                                       String locales, boolean background, PreloaderMode mode)
+    {
+        executor = Executors.newFixedThreadPool(threads);
+
+        return new PagePreloaderImpl(NOPLogger.NOP_LOGGER, new QuietOperationTracker(), source, PAGES, threadLocale,
+                setter, new ParallelExecutorImpl(executor, null, perthreadManager), perthreadManager, concurrency,
+                locales, background, mode, true);
+    }
+
+    @Test
+    public void pages_are_loaded_for_each_configured_locale()
+    {
+        PageLoads source = new PageLoads();
+        LocalizationSetter setter = newLocalizationSetter("en", "fr", "de");
+
+        replay();
+
+        PagePreloader preloader = newPreloader(source, setter, 1, 1, "fr, xx, en", false, PreloaderMode.ALWAYS);
+
+        preloader.preloadPages();
+
+        assertTrue(preloader.isPreloadComplete());
+        assertTrue(preloader.isPreloadSuccessful());
+        assertEquals(preloader.getPreloadedPageCount(), 8);
+
+        // The unsupported locale is ignored, and the order of the configured locales is kept.
+
+        assertEquals(source.loads, Arrays.asList("Index:fr", "Login:fr", "Search:fr", "Admin:fr",
+                "Index:en", "Login:en", "Search:en", "Admin:en"));
+
+        verify();
+    }
+
+    @Test
+    public void pages_are_loaded_for_the_first_supported_locale_by_default()
+    {
+        PageLoads source = new PageLoads();
+        LocalizationSetter setter = newLocalizationSetter("de", "en");
+
+        replay();
+
+        newPreloader(source, setter, 1, 1, "", false, PreloaderMode.ALWAYS).preloadPages();
+
+        assertEquals(source.loads, Arrays.asList("Index:de", "Login:de", "Search:de", "Admin:de"));
+
+        verify();
+    }
+
+    @Test
+    public void pages_are_loaded_for_all_supported_locales()
+    {
+        PageLoads source = new PageLoads();
+        LocalizationSetter setter = newLocalizationSetter("de", "en");
+
+        replay();
+
+        newPreloader(source, setter, 1, 1, "*", false, PreloaderMode.ALWAYS).preloadPages();
+
+        assertEquals(source.loads.size(), 8);
+        assertTrue(source.loads.contains("Admin:en"));
+
+        verify();
+    }
+
+    @Test
+    public void pages_are_loaded_concurrently() throws Exception
+    {
+        // Each of the first three loads waits for the other two, so this only completes if three threads load pages
+        // at the same time: the preloading thread, and two helpers.
+
+        final CyclicBarrier barrier = new CyclicBarrier(3);
+
+        PageLoads source = new PageLoads()
+        {
+            @Override
+            void load(String pageName)
+            {
+                if (!pageName.equals("Admin"))
+                {
+                    try
+                    {
+                        barrier.await(10, TimeUnit.SECONDS);
+                    } catch (Exception ex)
+                    {
+                        throw new RuntimeException(ex);
+                    }
+                }
+            }
+        };
+
+        LocalizationSetter setter = newLocalizationSetter("en");
+
+        replay();
+
+        PagePreloader preloader = newPreloader(source, setter, 2, 3, "", false, PreloaderMode.ALWAYS);
+
+        preloader.preloadPages();
+
+        assertEquals(preloader.getPreloadedPageCount(), 4);
+        assertEquals(source.threads.size(), 3);
+        assertTrue(source.threads.contains(Thread.currentThread()));
+
+        verify();
+    }
+
+    @Test
+    public void concurrency_beyond_available_threads_does_not_block()
+    {
+        PageLoads source = new PageLoads();
+        LocalizationSetter setter = newLocalizationSetter("en");
+
+        replay();
+
+        // Occupy the only pool thread, so that no helper can start.
+
+        final CountDownLatch release = new CountDownLatch(1);
+
+        PagePreloader preloader = newPreloader(source, setter, 1, 4, "", false, PreloaderMode.ALWAYS);
+
+        executor.submit(new Runnable()
+        {
+            public void run()
+            {
+                try
+                {
+                    release.await();
+                } catch (InterruptedException ex)
+                {
+                    // Shut down.
+                }
+            }
+        });
+
+        try
+        {
+            preloader.preloadPages();
+        } finally
+        {
+            release.countDown();
+        }
+
+        assertTrue(preloader.isPreloadComplete());
+        assertEquals(preloader.getPreloadedPageCount(), 4);
+        assertEquals(source.threads, Collections.singleton(Thread.currentThread()));
+
+        verify();
+    }
+
+    @Test
+    public void background_preload_signals_completion() throws Exception
+    {
+        final CountDownLatch release = new CountDownLatch(1);
+
+        PageLoads source = new PageLoads()
+        {
+            @Override
+            void load(String pageName)
+            {
+                try
+                {
+                    release.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException ex)
+                {
+                    throw new RuntimeException(ex);
+                }
+            }
+        };
+
+        LocalizationSetter setter = newLocalizationSetter("en");
+
+        replay();
+
+        // The pool has a single thread, which the background preload must not depend on.
+
+        PagePreloader preloader = newPreloader(source, setter, 1, 2, "", true, PreloaderMode.ALWAYS);
+
+        preloader.preloadPages();
+
+        assertFalse(preloader.isPreloadComplete());
+        assertFalse(preloader.isPreloadSuccessful());
+        assertEquals(preloader.getPreloadedPageCount(), 0);
+
+        release.countDown();
+
+        waitForCompletion(preloader);
+
+        assertTrue(preloader.isPreloadSuccessful());
+        assertEquals(preloader.getPreloadedPageCount(), 4);
+        assertFalse(source.threads.contains(Thread.currentThread()));
+
+        verify();
+    }
+
+    @Test
+    public void failed_preload_is_complete() throws Exception
+    {
+        PageLoads source = new PageLoads()
+        {
+            @Override
+            void load(String pageName)
+            {
+                if (pageName.equals("Login"))
+                {
+                    throw new RuntimeException("Failure loading Login.");
+                }
+            }
+        };
+
+        LocalizationSetter setter = newLocalizationSetter("en");
+
+        replay();
+
+        PagePreloader preloader = newPreloader(source, setter, 2, 2, "", true, PreloaderMode.ALWAYS);
+
+        preloader.preloadPages();
+
+        waitForCompletion(preloader);
+
+        assertFalse(preloader.isPreloadSuccessful());
+        assertTrue(preloader.getPreloadedPageCount() < 4);
+
+        verify();
+    }
+
+    @Test
+    public void disabled_preload_is_complete()
+    {
+        PageLoads source = new PageLoads();
+        LocalizationSetter setter = newLocalizationSetter("en");
+
+        replay();
+
+        PagePreloader preloader = newPreloader(source, setter, 1, 1, "", true, PreloaderMode.DEVELOPMENT);
+
+        assertTrue(preloader.isPreloadComplete());
+        assertTrue(preloader.isPreloadSuccessful());
+        assertEquals(preloader.getPreloadedPageCount(), 0);
+
+        verify();
+    }
+
+    private static void waitForCompletion(PagePreloader preloader) throws InterruptedException
+    {
+        long deadline = System.currentTimeMillis() + 10000;
+
+        while (!preloader.isPreloadComplete())
+        {
+            assertTrue(System.currentTimeMillis() < deadline, "Preload did not complete.");
+
+            Thread.sleep(10);
+        }
+    }
+}
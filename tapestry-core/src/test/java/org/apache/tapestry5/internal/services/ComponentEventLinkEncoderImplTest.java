@@ -123,6 +123,52 @@ public class ComponentEventLinkEncoderImplTest extends InternalBaseTestCase
         verify();
     }
 
+    @Test
+    public void cached_link_prefixes_vary_by_locale_and_context()
+    {
+        RequestSecurityManager manager = mockRequestSecurityManager();
+        Response response = mockResponse();
+        PersistentLocale persistentLocale = newMock(PersistentLocale.class);
+
+        expect(manager.checkPageSecurity("Index")).andReturn(LinkSecurity.INSECURE).times(3);
+        expect(manager.checkPageSecurity("admin/Users")).andReturn(LinkSecurity.INSECURE).times(3);
+
+        expect(persistentLocale.get()).andReturn(Locale.FRENCH).times(4);
+        expect(persistentLocale.get()).andReturn(Locale.GERMAN).times(2);
+
+        for (String url : new String[]{"/app/fr/", "/app/fr/abc", "/app/fr/admin/users.grid.row:sort/name",
+                "/app/fr/admin/users.grid.row:sort/age", "/app/de/abc", "/app/de/admin/users.grid.row:sort/name"})
+        {
+            train_encodeURL(response, url, url);
+        }
+
+        replay();
+
+        ComponentEventLinkEncoder encoder = new ComponentEventLinkEncoderImpl(null, contextPathEncoder, null,
+                response, manager, null, persistentLocale, true, "/app", "", null, null);
+
+        assertEquals(encoder.createPageRenderLink(new PageRenderRequestParameters("Index", new EmptyEventContext())).toURI(),
+                "/app/fr/");
+        assertEquals(encoder.createPageRenderLink(new PageRenderRequestParameters("Index",
+                new ArrayEventContext(typeCoercer, "abc"))).toURI(), "/app/fr/abc");
+
+        for (String sort : new String[]{"name", "age"})
+        {
+            assertEquals(encoder.createComponentEventLink(new ComponentEventRequestParameters("admin/Users", "admin/Users",
+                    "grid.row", "sort", new EmptyEventContext(), new ArrayEventContext(typeCoercer, sort)), false).toURI(),
+                    "/app/fr/admin/users.grid.row:sort/" + sort);
+        }
+
+        assertEquals(encoder.createPageRenderLink(new PageRenderRequestParameters("Index",
+                new ArrayEventContext(typeCoercer, "abc"))).toURI(), "/app/de/abc");
+
+        assertEquals(encoder.createComponentEventLink(new ComponentEventRequestParameters("admin/Users", "admin/Users",
+                "grid.row", "sort", new EmptyEventContext(), new ArrayEventContext(typeCoercer, "name")), false).toURI(),
+                "/app/de/admin/users.grid.row:sort/name");
+
+        verify();
+    }
+
     @Test
     public void empty_path() throws Exception
     {
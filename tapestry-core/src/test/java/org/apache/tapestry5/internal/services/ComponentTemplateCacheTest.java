@@ -0,0 +1,244 @@
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.apache.tapestry5.internal.services;
+
+import org.apache.tapestry5.internal.parser.BodyToken;
+import org.apache.tapestry5.internal.parser.ComponentTemplate;
+import org.apache.tapestry5.internal.parser.ComponentTemplateImpl;
+import org.apache.tapestry5.internal.parser.ExtensionPointToken;
+import org.apache.tapestry5.internal.parser.TemplateToken;
+import org.apache.tapestry5.internal.test.InternalBaseTestCase;
+import org.apache.tapestry5.ioc.Location;
+import org.apache.tapestry5.ioc.Resource;
+import org.apache.tapestry5.ioc.internal.util.ClasspathResource;
+import org.apache.tapestry5.ioc.internal.util.CollectionFactory;
+import org.slf4j.Logger;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.net.URL;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+public class ComponentTemplateCacheTest extends InternalBaseTestCase
+{
+    private static final String FINGERPRINT = ComponentTemplateCache.fingerprint(false,
+            Collections.<String, URL>emptyMap());
+
+    private File directory;
+
+    @BeforeMethod
+    public void setup()
+    {
+        directory = new File(System.getProperty("java.io.tmpdir"), UUID.randomUUID().toString());
+    }
+
+    @AfterMethod
+    public void cleanup()
+    {
+        File[] files = directory.listFiles();
+
+        if (files != null)
+        {
+            for (File file : files)
+            {
+                file.delete();
+            }
+        }
+
+        directory.delete();
+    }
+
+    private Resource getResource(String file)
+    {
+        String path = getClass().getPackage().getName().replace('.', '/') + "/" + file;
+
+        return new ClasspathResource(getClass().getClassLoader(), path);
+    }
+
+    @DataProvider
+    public Object[][] templates()
+    {
+        return new Object[][]
+                {
+                        {"componentWithParameters.tml"},
+                        {"expansions_in_normal_text.tml"},
+                        {"extension_point.tml"},
+                        {"block_element.tml"},
+                        {"body_element.tml"},
+                        {"overrides.tml"},
+                        {"component_ids.tml"},
+                        {"xhtml1_strict_doctype.tml"},
+                        {"chinese_utf-8.tml"},
+                        {"parameter_namespace_element.tml"},
+                        {"cdata.tml"},
+                        {"comment.tml"}
+                };
+    }
+
+    @Test(dataProvider = "templates")
+    public void stored_template_matches_parsed_template(String file)
+    {
+        Resource resource = getResource(file);
+        TemplateParser parser = getService(TemplateParser.class);
+        TemplateParser unused = newMock(TemplateParser.class);
+        Logger logger = mockLogger();
+
+        replay();
+
+        ComponentTemplateCache cache = new ComponentTemplateCache(directory, "5.5", FINGERPRINT, logger);
+
+        ComponentTemplateImpl parsed = (ComponentTemplateImpl) cache.getTemplate(resource, parser);
+
+        // The stored template is now used instead of the parser.
+
+        ComponentTemplateImpl loaded = (ComponentTemplateImpl) new ComponentTemplateCache(directory, "5.5", FINGERPRINT, logger)
+                .getTemplate(resource, unused);
+
+        assertNotSame(loaded, parsed);
+        assertSame(loaded.getResource(), resource);
+        assertEquals(loaded.isExtension(), parsed.isExtension());
+        assertEquals(loaded.usesStrictMixinParameters(), parsed.usesStrictMixinParameters());
+
+        assertTokensEqual(loaded.getTokens(), parsed.getTokens());
+
+        assertEquals(describe(loaded.getComponentIds()), describe(parsed.getComponentIds()));
+
+        Map<String, List<TemplateToken>> overrides = parsed.getOverrides();
+
+        if (overrides == null)
+        {
+            assertNull(loaded.getOverrides());
+        } else
+        {
+            assertEquals(loaded.getOverrides().keySet(), overrides.keySet());
+
+            for (String id : overrides.keySet())
+            {
+                assertTokensEqual(loaded.getExtensionPointTokens(id), overrides.get(id));
+            }
+        }
+
+        verify();
+    }
+
+    @Test
+    public void stored_template_for_different_version_is_ignored()
+    {
+        Resource resource = getResource("basic.tml");
+        TemplateParser parser = mockTemplateParser();
+        ComponentTemplate template = mockComponentTemplate();
+        Logger logger = mockLogger();
+
+        expect(parser.parseTemplate(resource)).andReturn(template);
+
+        replay();
+
+        new ComponentTemplateCache(directory, "5.4", FINGERPRINT, logger).getTemplate(resource, getService(TemplateParser.class));
+
+        assertSame(new ComponentTemplateCache(directory, "5.5", FINGERPRINT, logger).getTemplate(resource, parser), template);
+
+        verify();
+    }
+
+    @Test
+    public void stored_template_for_different_parser_configuration_is_ignored()
+    {
+        Resource resource = getResource("basic.tml");
+        TemplateParser parser = mockTemplateParser();
+        ComponentTemplate template = mockComponentTemplate();
+        Logger logger = mockLogger();
+
+        expect(parser.parseTemplate(resource)).andReturn(template);
+
+        replay();
+
+        new ComponentTemplateCache(directory, "5.5", FINGERPRINT, logger).getTemplate(resource,
+                getService(TemplateParser.class));
+
+        String compressing = ComponentTemplateCache.fingerprint(true, Collections.<String, URL>emptyMap());
+
+        assertSame(new ComponentTemplateCache(directory, "5.5", compressing, logger).getTemplate(resource, parser),
+                template);
+
+        verify();
+    }
+
+    @Test
+    public void fingerprint_reflects_parser_configuration() throws Exception
+    {
+        Map<String, URL> mappings = CollectionFactory.newMap();
+
+        mappings.put("-//W3C//DTD XHTML 1.0 Strict//EN", new URL("file:/dtd/xhtml1-strict.dtd"));
+
+        String mapped = ComponentTemplateCache.fingerprint(false, mappings);
+
+        assertEquals(ComponentTemplateCache.fingerprint(false, mappings), mapped);
+        assertFalse(mapped.equals(FINGERPRINT));
+        assertFalse(mapped.equals(ComponentTemplateCache.fingerprint(true, mappings)));
+
+        mappings.put("-//W3C//DTD XHTML 1.0 Strict//EN", new URL("file:/other/xhtml1-strict.dtd"));
+
+        assertFalse(mapped.equals(ComponentTemplateCache.fingerprint(false, mappings)));
+    }
+
+    private void assertTokensEqual(List<TemplateToken> actual, List<TemplateToken> expected)
+    {
+        assertEquals(actual.size(), expected.size());
+
+        for (int i = 0; i < expected.size(); i++)
+        {
+            TemplateToken a = actual.get(i);
+            TemplateToken e = expected.get(i);
+
+            assertSame(a.getClass(), e.getClass());
+            assertEquals(describe(a), describe(e));
+            assertEquals(describe(a.getLocation()), describe(e.getLocation()));
+        }
+    }
+
+    /**
+     * Not every token type implements toString().
+     */
+    private static String describe(TemplateToken token)
+    {
+        if (token instanceof ExtensionPointToken)
+        {
+            return ((ExtensionPointToken) token).getExtensionPointId();
+        }
+
+        return token instanceof BodyToken ? "Body" : token.toString();
+    }
+
+    private static String describe(Location location)
+    {
+        return location == null ? null : location.toString();
+    }
+
+    private static Map<String, String> describe(Map<String, Location> componentIds)
+    {
+        Map<String, String> result = CollectionFactory.newMap();
+
+        for (Map.Entry<String, Location> entry : componentIds.entrySet())
+        {
+            result.put(entry.getKey(), describe(entry.getValue()));
+        }
+
+        return result;
+    }
+}
@@ -59,6 +59,28 @@ public class EnvironmentImplTest extends TapestryTestCase
         verify();
     }
 
+    @Test
+    public void deeply_nested_values_of_several_types()
+    {
+        Environment e = new EnvironmentImpl();
+
+        for (int i = 0; i < 20; i++)
+        {
+            e.push(Integer.class, i);
+            e.push(String.class, "s" + i);
+        }
+
+        assertEquals(e.peek(Integer.class), (Integer) 19);
+
+        for (int i = 19; i >= 0; i--)
+        {
+            assertEquals(e.pop(String.class), "s" + i);
+            assertEquals(e.pop(Integer.class), (Integer) i);
+        }
+
+        assertNull(e.peek(Integer.class));
+        assertNull(e.peek(String.class));
+    }
 
     @Test
     public void pop_when_empty_is_error()
@@ -39,6 +39,9 @@ public class FlashPersistentFieldStrategyTest extends InternalBaseTestCase
         train_getSession(request, true, session);
 
         session.setAttribute("flash:foo.Bar::field", value);
+        expect(session.getAttributeForUpdate("flash:foo.Bar")).andReturn(null);
+        train_getAttribute(session, "flash:@indexed", true);
+        session.setAttribute("flash:foo.Bar", new PersistentFieldIndex("flash:foo.Bar::field"));
 
         replay();
 
@@ -56,17 +59,20 @@ public class FlashPersistentFieldStrategyTest extends InternalBaseTestCase
         Request request = mockRequest();
 
         train_getSession(request, false, session);
-        train_getAttributeNames(
-                session,
-                "flash:foo.Bar:",
-                "flash:foo.Bar::root",
-                "flash:foo.Bar:nested:down");
+        PersistentFieldIndex index = new PersistentFieldIndex("flash:foo.Bar::root", "flash:foo.Bar:nested:down");
+        PersistentFieldIndex reduced = new PersistentFieldIndex("flash:foo.Bar:nested:down");
+
+        train_getAttribute(session, "flash:foo.Bar", index);
 
         train_getAttribute(session, "flash:foo.Bar::root", "ROOT");
         session.setAttribute("flash:foo.Bar::root", null);
+        expect(session.getAttributeForUpdate("flash:foo.Bar")).andReturn(index);
+        session.setAttribute("flash:foo.Bar", reduced);
 
         train_getAttribute(session, "flash:foo.Bar:nested:down", "DOWN");
         session.setAttribute("flash:foo.Bar:nested:down", null);
+        expect(session.getAttributeForUpdate("flash:foo.Bar")).andReturn(reduced);
+        session.setAttribute("flash:foo.Bar", null);
 
         replay();
 
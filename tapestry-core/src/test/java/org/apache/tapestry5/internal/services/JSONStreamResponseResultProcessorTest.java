@@ -0,0 +1,95 @@
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.apache.tapestry5.internal.services;
+
+import org.apache.tapestry5.ContentType;
+import org.apache.tapestry5.internal.test.InternalBaseTestCase;
+import org.apache.tapestry5.json.JSONWriter;
+import org.apache.tapestry5.services.Response;
+import org.apache.tapestry5.util.JSONStreamResponse;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+public class JSONStreamResponseResultProcessorTest extends InternalBaseTestCase
+{
+    @Test
+    public void content_streamed_to_response() throws IOException
+    {
+        Response response = mockResponse();
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+        expect(response.getOutputStream("application/json;charset=UTF-8")).andReturn(bytes);
+
+        replay();
+
+        JSONStreamResponse streamResponse = new JSONStreamResponse()
+        {
+            @Override
+            public void write(JSONWriter writer) throws IOException
+            {
+                writer.array();
+
+                for (int i = 0; i < 3; i++)
+                {
+                    writer.object().key("row").value(i).endObject();
+                }
+
+                writer.endArray();
+            }
+        };
+
+        new JSONStreamResponseResultProcessor(response).processResultValue(streamResponse);
+
+        verify();
+
+        assertEquals(bytes.toString("UTF-8"), "[{\"row\":0},{\"row\":1},{\"row\":2}]");
+    }
+
+    @Test
+    public void utf8_charset_added_to_content_type()
+    {
+        JSONStreamResponse streamResponse = new EmptyResponse(new ContentType("application/vnd.example+json"));
+
+        assertEquals(streamResponse.getContentType(), "application/vnd.example+json;charset=UTF-8");
+    }
+
+    @Test
+    public void other_charsets_are_rejected()
+    {
+        try
+        {
+            new EmptyResponse(new ContentType("application/json").withCharset("ISO-8859-1"));
+            unreachable();
+        } catch (IllegalArgumentException ex)
+        {
+            assertMessageContains(ex, "application/json;charset=ISO-8859-1", "UTF-8");
+        }
+    }
+
+    private static class EmptyResponse extends JSONStreamResponse
+    {
+        EmptyResponse(ContentType contentType)
+        {
+            super(contentType);
+        }
+
+        @Override
+        public void write(JSONWriter writer) throws IOException
+        {
+            writer.object().endObject();
+        }
+    }
+}
@@ -0,0 +1,211 @@
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.apache.tapestry5.internal.services;
+
+import org.apache.tapestry5.internal.structure.Page;
+import org.apache.tapestry5.internal.test.InternalBaseTestCase;
+import org.apache.tapestry5.services.pageload.ComponentRequestSelectorAnalyzer;
+import org.apache.tapestry5.services.pageload.ComponentResourceSelector;
+import org.apache.tapestry5.services.pageload.PageCacheEvictionPolicy;
+import org.apache.tapestry5.services.pageload.PageCacheStatistics;
+import org.testng.annotations.Test;
+
+import java.util.Locale;
+
+public class PageSourceImplTest extends InternalBaseTestCase
+{
+    private final ComponentResourceSelector selector = new ComponentResourceSelector(Locale.ENGLISH);
+
+    private ComponentRequestSelectorAnalyzer mockAnalyzer()
+    {
+        ComponentRequestSelectorAnalyzer analyzer = newMock(ComponentRequestSelectorAnalyzer.class);
+
+        expect(analyzer.buildSelectorForRequest()).andReturn(selector).anyTimes();
+
+        return analyzer;
+    }
+
+    private Page mockPage(int weight)
+    {
+        Page page = mockPage();
+
+        expect(page.getStats()).andReturn(new Page.Stats(1.0, weight, weight)).anyTimes();
+
+        return page;
+    }
+
+    private void train_loadPage(PageLoader loader, String pageName, Page page)
+    {
+        expect(loader.loadPage(pageName, selector)).andReturn(page);
+    }
+
+    @Test
+    public void unbounded_cache_counts_hits_and_misses()
+    {
+        PageLoader loader = newMock(PageLoader.class);
+        ComponentRequestSelectorAnalyzer analyzer = mockAnalyzer();
+        Page page = mockPage(5);
+
+        train_loadPage(loader, "Index", page);
+
+        replay();
+
+        PageSourceImpl source = new PageSourceImpl(loader, analyzer, 0, 0, PageCacheEvictionPolicy.LRU, "");
+
+        assertSame(source.getPage("Index"), page);
+        assertSame(source.getPage("Index"), page);
+        assertSame(source.getPage("Index"), page);
+
+        PageCacheStatistics stats = source.getCacheStatistics();
+
+        assertEquals(stats.getCachedPages(), 1);
+        assertEquals(stats.getCachedWeight(), 5);
+        assertEquals(stats.getHits(), 2L);
+        assertEquals(stats.getMisses(), 1L);
+        assertEquals(stats.getEvictions(), 0L);
+
+        verify();
+    }
+
+    @Test
+    public void least_recently_used_page_is_evicted()
+    {
+        PageLoader loader = newMock(PageLoader.class);
+        ComponentRequestSelectorAnalyzer analyzer = mockAnalyzer();
+        Page a = mockPage(1), b = mockPage(1), c = mockPage(1), a2 = mockPage(1);
+
+        train_loadPage(loader, "A", a);
+        train_loadPage(loader, "B", b);
+        train_loadPage(loader, "C", c);
+        train_loadPage(loader, "A", a2);
+
+        replay();
+
+        PageSourceImpl source = new PageSourceImpl(loader, analyzer, 2, 0, PageCacheEvictionPolicy.LRU, "");
+
+        source.getPage("A");
+        source.getPage("B");
+
+        // Touch B, so A is the least recently used
+
+        source.getPage("B");
+
+        source.getPage("C");
+
+        assertSame(source.getPage("B"), b);
+        assertSame(source.getPage("C"), c);
+
+        // A was evicted, and must be reloaded (which in turn evicts B).
+
+        assertSame(source.getPage("A"), a2);
+
+        PageCacheStatistics stats = source.getCacheStatistics();
+
+        assertEquals(stats.getCachedPages(), 2);
+        assertEquals(stats.getMisses(), 4L);
+        assertEquals(stats.getEvictions(), 2L);
+
+        verify();
+    }
+
+    @Test
+    public void least_frequently_used_page_is_evicted()
+    {
+        PageLoader loader = newMock(PageLoader.class);
+        ComponentRequestSelectorAnalyzer analyzer = mockAnalyzer();
+        Page a = mockPage(1), b = mockPage(1), c = mockPage(1);
+
+        train_loadPage(loader, "A", a);
+        train_loadPage(loader, "B", b);
+        train_loadPage(loader, "C", c);
+
+        replay();
+
+        PageSourceImpl source = new PageSourceImpl(loader, analyzer, 2, 0, PageCacheEvictionPolicy.LFU, "");
+
+        source.getPage("A");
+        source.getPage("A");
+        source.getPage("A");
+        source.getPage("B");
+
+        // B is more recently used, but A is more frequently used.
+
+        source.getPage("C");
+
+        assertSame(source.getPage("A"), a);
+        assertSame(source.getPage("C"), c);
+
+        assertEquals(source.getCacheStatistics().getEvictions(), 1L);
+
+        verify();
+    }
+
+    @Test
+    public void cache_bounded_by_weight_keeps_pinned_pages()
+    {
+        PageLoader loader = newMock(PageLoader.class);
+        ComponentRequestSelectorAnalyzer analyzer = mockAnalyzer();
+        Page index = mockPage(10), b = mockPage(6), c = mockPage(6);
+
+        train_loadPage(loader, "Index", index);
+        train_loadPage(loader, "B", b);
+        train_loadPage(loader, "C", c);
+
+        replay();
+
+        PageSourceImpl source = new PageSourceImpl(loader, analyzer, 0, 20, PageCacheEvictionPolicy.LRU,
+                "index, other");
+
+        source.getPage("Index");
+        source.getPage("B");
+        source.getPage("C");
+
+        // Index is the least recently used, but is pinned; B is evicted instead.
+
+        assertSame(source.getPage("Index"), index);
+        assertSame(source.getPage("C"), c);
+
+        PageCacheStatistics stats = source.getCacheStatistics();
+
+        assertEquals(stats.getCachedPages(), 2);
+        assertEquals(stats.getCachedWeight(), 16);
+        assertEquals(stats.getEvictions(), 1L);
+
+        verify();
+    }
+
+    @Test
+    public void clear_cache_forces_reload()
+    {
+        PageLoader loader = newMock(PageLoader.class);
+        ComponentRequestSelectorAnalyzer analyzer = mockAnalyzer();
+        Page first = mockPage(1), second = mockPage(1);
+
+        train_loadPage(loader, "Index", first);
+        train_loadPage(loader, "Index", second);
+
+        replay();
+
+        PageSourceImpl source = new PageSourceImpl(loader, analyzer, 10, 0, PageCacheEvictionPolicy.LRU, "");
+
+        assertSame(source.getPage("Index"), first);
+
+        source.clearCache();
+
+        assertTrue(source.getAllPages().isEmpty());
+
+        assertSame(source.getPage("Index"), second);
+
+        verify();
+    }
+}
@@ -42,6 +42,7 @@ public class SessionImplTest extends InternalBaseTestCase
 
         lock.acquireReadLock();
         expect(hs.getAttributeNames()).andReturn(e);
+        expect(lock.validateRead()).andReturn(true);
 
         replay();
 
@@ -52,6 +53,29 @@ public class SessionImplTest extends InternalBaseTestCase
         verify();
     }
 
+    @Test
+    public void attribute_names_are_read_again_when_read_is_not_valid()
+    {
+        HttpSession hs = mockHttpSession();
+        SessionLock lock = mockLock();
+
+        lock.acquireReadLock();
+        expect(hs.getAttributeNames()).andReturn(Collections.enumeration(Arrays.asList("fred", "barney")));
+        expect(lock.validateRead()).andReturn(false);
+
+        lock.acquireReadLock();
+        expect(hs.getAttributeNames()).andReturn(Collections.enumeration(Arrays.asList("fred", "fanny")));
+        expect(lock.validateRead()).andReturn(true);
+
+        replay();
+
+        Session session = new SessionImpl(null, hs, lock);
+
+        assertEquals(session.getAttributeNames("f"), Arrays.asList("fanny", "fred"));
+
+        verify();
+    }
+
     @Test
     public void get_attribute_names_by_prefix()
     {
@@ -62,6 +86,7 @@ public class SessionImplTest extends InternalBaseTestCase
         lock.acquireReadLock();
 
         expect(hs.getAttributeNames()).andReturn(e);
+        expect(lock.validateRead()).andReturn(true);
 
         replay();
 
@@ -166,7 +191,7 @@ public class SessionImplTest extends InternalBaseTestCase
         Object dirty = new Object();
         SessionLock lock = mockLock();
 
-        lock.acquireWriteLock();
+        lock.acquireReadLock("dirty");
 
         train_getAttribute(hs, "dirty", dirty);
 
@@ -182,7 +207,7 @@ public class SessionImplTest extends InternalBaseTestCase
 
         train_getSession(hsr, false, hs);
 
-        lock.acquireWriteLock();
+        lock.acquireWriteLock("dirty");
 
         hs.setAttribute("dirty", dirty);
 
@@ -35,6 +35,9 @@ public class SessionPersistentFieldStrategyTest extends InternalBaseTestCase
         train_getSession(request, true, session);
 
         session.setAttribute("state:foo.Bar::field", value);
+        expect(session.getAttributeForUpdate("state:foo.Bar")).andReturn(null);
+        train_getAttribute(session, "state:@indexed", true);
+        session.setAttribute("state:foo.Bar", new PersistentFieldIndex("state:foo.Bar::field"));
 
         replay();
 
@@ -55,6 +58,7 @@ public class SessionPersistentFieldStrategyTest extends InternalBaseTestCase
         train_getSession(request, true, session);
 
         session.setAttribute("state:foo.Bar:fee.fum:field", value);
+        expect(session.getAttributeForUpdate("state:foo.Bar")).andReturn(new PersistentFieldIndex("state:foo.Bar::field", "state:foo.Bar:fee.fum:field"));
 
         replay();
 
@@ -95,9 +99,10 @@ public class SessionPersistentFieldStrategyTest extends InternalBaseTestCase
 
         train_getSession(request, false, session);
 
-        train_getAttributeNames(session, "state:foo.Bar:", "state:foo.Bar:baz:field");
+        expect(session.getAttributeForUpdate("state:foo.Bar")).andReturn(new PersistentFieldIndex("state:foo.Bar:baz:field"));
 
         session.setAttribute("state:foo.Bar:baz:field", null);
+        session.setAttribute("state:foo.Bar", null);
 
         replay();
 
@@ -133,11 +138,8 @@ public class SessionPersistentFieldStrategyTest extends InternalBaseTestCase
         Request request = mockRequest();
 
         train_getSession(request, false, session);
-        train_getAttributeNames(
-                session,
-                "state:foo.Bar:",
-                "state:foo.Bar::root",
-                "state:foo.Bar:nested:down");
+        train_getAttribute(session, "state:foo.Bar",
+                new PersistentFieldIndex("state:foo.Bar::root", "state:foo.Bar:nested:down"));
 
         train_getAttribute(session, "state:foo.Bar::root", "ROOT");
         train_getAttribute(session, "state:foo.Bar:nested:down", "DOWN");
@@ -166,4 +168,151 @@ public class SessionPersistentFieldStrategyTest extends InternalBaseTestCase
 
         verify();
     }
+
+    @Test
+    public void post_change_of_indexed_field_does_not_update_index()
+    {
+        Session session = mockSession();
+        Request request = mockRequest();
+        Object value = new Object();
+
+        train_getSession(request, true, session);
+
+        session.setAttribute("state:foo.Bar::field", value);
+        expect(session.getAttributeForUpdate("state:foo.Bar")).andReturn(new PersistentFieldIndex("state:foo.Bar::field"));
+
+        replay();
+
+        SessionPersistentFieldStrategy strategy = new SessionPersistentFieldStrategy(request);
+
+        strategy.postChange("foo.Bar", null, "field", value);
+
+        verify();
+    }
+
+    @Test
+    public void post_null_change_removes_from_index()
+    {
+        Session session = mockSession();
+        Request request = mockRequest();
+
+        train_getSession(request, false, session);
+
+        session.setAttribute("state:foo.Bar::field", null);
+        expect(session.getAttributeForUpdate("state:foo.Bar")).andReturn(new PersistentFieldIndex("state:foo.Bar::field", "state:foo.Bar::other"));
+        session.setAttribute("state:foo.Bar", new PersistentFieldIndex("state:foo.Bar::other"));
+
+        replay();
+
+        SessionPersistentFieldStrategy strategy = new SessionPersistentFieldStrategy(request);
+
+        strategy.postChange("foo.Bar", null, "field", null);
+
+        verify();
+    }
+
+    @Test
+    public void gather_changes_without_index()
+    {
+        Session session = mockSession();
+        Request request = mockRequest();
+
+        train_getSession(request, false, session);
+        train_getAttribute(session, "state:foo.Bar", null);
+        train_getAttribute(session, "state:@indexed", true);
+
+        replay();
+
+        SessionPersistentFieldStrategy strategy = new SessionPersistentFieldStrategy(request);
+
+        assertTrue(strategy.gatherFieldChanges("foo.Bar").isEmpty());
+
+        verify();
+    }
+
+    @Test
+    public void gather_changes_indexes_session_persisted_without_index()
+    {
+        Session session = mockSession();
+        Request request = mockRequest();
+
+        train_getSession(request, false, session);
+        expect(session.getAttribute("state:foo.Bar")).andReturn(null).andReturn(new PersistentFieldIndex("state:foo.Bar::root"));
+        train_getAttribute(session, "state:@indexed", null);
+
+        train_getAttributeNames(session, "state:", "state:foo.Bar::root", "state:other.Page", "state:other.Page:nested:down");
+        expect(session.getAttributeForUpdate("state:foo.Bar")).andReturn(null);
+        expect(session.getAttributeForUpdate("state:other.Page")).andReturn(new PersistentFieldIndex("state:other.Page::later"));
+        session.setAttribute("state:foo.Bar", new PersistentFieldIndex("state:foo.Bar::root"));
+        session.setAttribute("state:other.Page", new PersistentFieldIndex("state:other.Page::later", "state:other.Page:nested:down"));
+        session.setAttribute("state:@indexed", true);
+
+        train_getAttribute(session, "state:foo.Bar::root", "ROOT");
+
+        replay();
+
+        SessionPersistentFieldStrategy strategy = new SessionPersistentFieldStrategy(request);
+
+        Collection<PersistentFieldChange> changes = strategy.gatherFieldChanges("foo.Bar");
+
+        assertEquals(changes.size(), 1);
+        assertEquals(changes.iterator().next().getValue(), "ROOT");
+
+        verify();
+    }
+
+    @Test
+    public void discard_changes_indexes_session_persisted_without_index()
+    {
+        Session session = mockSession();
+        Request request = mockRequest();
+
+        train_getSession(request, false, session);
+        expect(session.getAttributeForUpdate("state:foo.Bar")).andReturn(null).times(2).andReturn(new PersistentFieldIndex("state:foo.Bar::root"));
+        train_getAttribute(session, "state:@indexed", null);
+
+        train_getAttributeNames(session, "state:", "state:foo.Bar::root");
+        session.setAttribute("state:foo.Bar", new PersistentFieldIndex("state:foo.Bar::root"));
+        session.setAttribute("state:@indexed", true);
+
+        session.setAttribute("state:foo.Bar::root", null);
+        session.setAttribute("state:foo.Bar", null);
+
+        replay();
+
+        SessionPersistentFieldStrategy strategy = new SessionPersistentFieldStrategy(request);
+
+        strategy.discardChanges("foo.Bar");
+
+        verify();
+    }
+
+    @Test
+    public void gather_changes_prunes_missing_attributes()
+    {
+        Session session = mockSession();
+        Request request = mockRequest();
+        PersistentFieldIndex index = new PersistentFieldIndex("state:foo.Bar::gone", "state:foo.Bar::root");
+
+        train_getSession(request, false, session);
+        train_getAttribute(session, "state:foo.Bar", index);
+
+        train_getAttribute(session, "state:foo.Bar::gone", null);
+        session.setAttribute("state:foo.Bar::gone", null);
+        expect(session.getAttributeForUpdate("state:foo.Bar")).andReturn(index);
+        session.setAttribute("state:foo.Bar", new PersistentFieldIndex("state:foo.Bar::root"));
+
+        train_getAttribute(session, "state:foo.Bar::root", "ROOT");
+
+        replay();
+
+        SessionPersistentFieldStrategy strategy = new SessionPersistentFieldStrategy(request);
+
+        Collection<PersistentFieldChange> changes = strategy.gatherFieldChanges("foo.Bar");
+
+        assertEquals(changes.size(), 1);
+        assertEquals(changes.iterator().next().getValue(), "ROOT");
+
+        verify();
+    }
 }
@@ -0,0 +1,316 @@
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.apache.tapestry5.internal.services;
+
+import org.apache.tapestry5.internal.test.InternalBaseTestCase;
+import org.apache.tapestry5.ioc.services.PerthreadManager;
+import org.apache.tapestry5.services.SessionLockMetrics;
+import org.testng.annotations.Test;
+
+import javax.servlet.http.HttpSession;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+public class TapestrySessionFactoryImplTest extends InternalBaseTestCase
+{
+    private TapestrySessionFactoryImpl newFactory(String strategy)
+    {
+        return new TapestrySessionFactoryImpl(false, null, null, getService(PerthreadManager.class), true, strategy, 50);
+    }
+
+    /**
+     * Starts a thread that acquires the write lock on the named attribute, and holds it until the returned latch is
+     * released.
+     */
+    private CountDownLatch holdWriteLock(final SessionLock lock, final String attributeName) throws InterruptedException
+    {
+        return holdLock(lock, attributeName, true);
+    }
+
+    private CountDownLatch holdLock(final SessionLock lock, final String attributeName, final boolean write) throws InterruptedException
+    {
+        final CountDownLatch acquired = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final PerthreadManager perthreadManager = getService(PerthreadManager.class);
+
+        new Thread(new Runnable()
+        {
+            public void run()
+            {
+                if (write)
+                {
+                    lock.acquireWriteLock(attributeName);
+                } else
+                {
+                    lock.acquireReadLock(attributeName);
+                }
+
+                acquired.countDown();
+
+                try
+                {
+                    release.await();
+                } catch (InterruptedException ex)
+                {
+                    // Fall through.
+                }
+
+                perthreadManager.cleanup();
+            }
+        }).start();
+
+        assertTrue(acquired.await(5, TimeUnit.SECONDS));
+
+        return release;
+    }
+
+    private void releaseLater(final CountDownLatch release)
+    {
+        new Thread(new Runnable()
+        {
+            public void run()
+            {
+                try
+                {
+                    Thread.sleep(50);
+                } catch (InterruptedException ex)
+                {
+                    // Fall through.
+                }
+
+                release.countDown();
+            }
+        }).start();
+    }
+
+    @Test
+    public void striped_locks_do_not_block_other_attributes() throws Exception
+    {
+        HttpSession hs = mockHttpSession();
+
+        replay();
+
+        TapestrySessionFactoryImpl factory = newFactory(TapestrySessionFactoryImpl.STRIPED_STRATEGY);
+        SessionLock lock = factory.lockForSession(hs);
+        SessionLockMetrics metrics = factory.getLockMetrics();
+
+        CountDownLatch release = holdWriteLock(lock, "a");
+
+        // "a" and "b" are in different stripes.
+
+        lock.acquireWriteLock("b");
+        lock.acquireReadLock();
+
+        assertEquals(metrics.getContendedCount(), 0L);
+
+        // Already holding "b", so this thread gives up on "a" after the timeout, rather than risk a deadlock.
+
+        try
+        {
+            lock.acquireWriteLock("a");
+            unreachable();
+        } catch (IllegalStateException ex)
+        {
+            assertEquals(ex.getMessage(),
+                    "Unable to lock session attribute 'a' within 50 ms. This request already holds locks on other session attributes, and waiting longer could deadlock with another request for the same session.");
+        }
+
+        assertEquals(metrics.getTimeoutCount(), 1L);
+        assertEquals(metrics.getAcquiredCount(), 2L);
+
+        release.countDown();
+
+        getService(PerthreadManager.class).cleanup();
+
+        verify();
+    }
+
+    @Test
+    public void striped_lock_waits_when_no_other_stripe_is_held() throws Exception
+    {
+        HttpSession hs = mockHttpSession();
+
+        replay();
+
+        TapestrySessionFactoryImpl factory = newFactory(TapestrySessionFactoryImpl.STRIPED_STRATEGY);
+        SessionLock lock = factory.lockForSession(hs);
+
+        releaseLater(holdWriteLock(lock, "a"));
+
+        lock.acquireWriteLock("a");
+
+        SessionLockMetrics metrics = factory.getLockMetrics();
+
+        assertEquals(metrics.getContendedCount(), 1L);
+        assertEquals(metrics.getTimeoutCount(), 0L);
+        assertTrue(metrics.getMaxWaitTime() > 0);
+
+        getService(PerthreadManager.class).cleanup();
+
+        verify();
+    }
+
+    @Test
+    public void striped_reads_of_an_attribute_are_shared() throws Exception
+    {
+        HttpSession hs = mockHttpSession();
+
+        replay();
+
+        TapestrySessionFactoryImpl factory = newFactory(TapestrySessionFactoryImpl.STRIPED_STRATEGY);
+        SessionLock lock = factory.lockForSession(hs);
+        SessionLockMetrics metrics = factory.getLockMetrics();
+
+        CountDownLatch release = holdLock(lock, "a", false);
+
+        lock.acquireReadLock("a");
+
+        assertEquals(metrics.getContendedCount(), 0L);
+
+        getService(PerthreadManager.class).cleanup();
+
+        // Writing waits for the other reader.
+
+        releaseLater(release);
+
+        lock.acquireWriteLock("a");
+
+        assertEquals(metrics.getContendedCount(), 1L);
+
+        getService(PerthreadManager.class).cleanup();
+
+        verify();
+    }
+
+    @Test
+    public void optimistic_read_is_repeated_when_overlapping_a_writer() throws Exception
+    {
+        HttpSession hs = mockHttpSession();
+
+        replay();
+
+        TapestrySessionFactoryImpl factory = newFactory(TapestrySessionFactoryImpl.OPTIMISTIC_STRATEGY);
+        final SessionLock lock = factory.lockForSession(hs);
+        SessionLockMetrics metrics = factory.getLockMetrics();
+        final PerthreadManager perthreadManager = getService(PerthreadManager.class);
+
+        lock.acquireReadLock();
+
+        assertTrue(lock.validateRead());
+
+        lock.acquireReadLock();
+
+        // Another request updates the session while this one reads.
+
+        Thread writer = new Thread(new Runnable()
+        {
+            public void run()
+            {
+                lock.acquireWriteLock("a");
+
+                perthreadManager.cleanup();
+            }
+        });
+
+        writer.start();
+        writer.join();
+
+        assertFalse(lock.validateRead());
+
+        // The read lock is now held, so the repeated read is valid.
+
+        assertEquals(metrics.getAcquiredCount(), 2L);
+
+        lock.acquireReadLock();
+
+        assertTrue(lock.validateRead());
+
+        getService(PerthreadManager.class).cleanup();
+
+        verify();
+    }
+
+    @Test
+    public void optimistic_attribute_reads_are_shared() throws Exception
+    {
+        HttpSession hs = mockHttpSession();
+
+        replay();
+
+        TapestrySessionFactoryImpl factory = newFactory(TapestrySessionFactoryImpl.OPTIMISTIC_STRATEGY);
+        SessionLock lock = factory.lockForSession(hs);
+        SessionLockMetrics metrics = factory.getLockMetrics();
+
+        CountDownLatch release = holdLock(lock, "a", false);
+
+        lock.acquireReadLock("a");
+
+        assertEquals(metrics.getAcquiredCount(), 2L);
+        assertEquals(metrics.getContendedCount(), 0L);
+
+        release.countDown();
+
+        getService(PerthreadManager.class).cleanup();
+
+        verify();
+    }
+
+    @Test
+    public void optimistic_read_waits_only_for_writer() throws Exception
+    {
+        HttpSession hs = mockHttpSession();
+
+        replay();
+
+        TapestrySessionFactoryImpl factory = newFactory(TapestrySessionFactoryImpl.OPTIMISTIC_STRATEGY);
+        SessionLock lock = factory.lockForSession(hs);
+        SessionLockMetrics metrics = factory.getLockMetrics();
+
+        // No writer, so no lock is acquired.
+
+        lock.acquireReadLock();
+
+        assertEquals(metrics.getAcquiredCount(), 0L);
+
+        getService(PerthreadManager.class).cleanup();
+
+        releaseLater(holdWriteLock(lock, "a"));
+
+        lock.acquireReadLock();
+
+        assertEquals(metrics.getContendedCount(), 1L);
+
+        // Upgrade the held read lock.
+
+        lock.acquireWriteLock("a");
+
+        assertEquals(metrics.getAcquiredCount(), 3L);
+
+        getService(PerthreadManager.class).cleanup();
+
+        verify();
+    }
+
+    @Test
+    public void unknown_strategy_is_an_error()
+    {
+        try
+        {
+            newFactory("exclusive");
+            unreachable();
+        } catch (IllegalArgumentException ex)
+        {
+            assertEquals(ex.getMessage(), "Unknown session locking strategy 'exclusive' (expected 'read-write', 'optimistic' or 'striped').");
+        }
+    }
+}
@@ -0,0 +1,127 @@
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.apache.tapestry5.internal.services;
+
+import org.apache.tapestry5.ioc.test.TestBase;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+public class Utf8WriterTest extends TestBase
+{
+    private static String repeat(String s, int count)
+    {
+        StringBuilder builder = new StringBuilder();
+
+        for (int i = 0; i < count; i++)
+        {
+            builder.append(s);
+        }
+
+        return builder.toString();
+    }
+
+    @DataProvider
+    public Object[][] content()
+    {
+        return new Object[][]{
+                {"plain ascii <markup/>"},
+                {"café € タペストリー"},
+                {"emoji 😀 and 𝄞"},
+                {repeat("aé€😀", 5000)},
+                {"unpaired \ud83d high, \ude00 low, and trailing \ud83d"}
+        };
+    }
+
+    private static byte[] expected(String content) throws IOException
+    {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+        Writer writer = new OutputStreamWriter(bytes, StandardCharsets.UTF_8);
+
+        writer.write(content);
+        writer.close();
+
+        return bytes.toByteArray();
+    }
+
+    @Test(dataProvider = "content")
+    public void same_bytes_as_output_stream_writer(String content) throws IOException
+    {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+        Writer writer = new Utf8Writer(bytes);
+
+        writer.write(content);
+        writer.close();
+
+        assertEquals(bytes.toByteArray(), expected(content));
+    }
+
+    @Test(dataProvider = "content")
+    public void content_written_one_character_at_a_time(String content) throws IOException
+    {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+        Writer writer = new Utf8Writer(bytes);
+
+        char[] chars = content.toCharArray();
+
+        for (int i = 0; i < chars.length; i++)
+        {
+            if (i % 2 == 0)
+            {
+                writer.write(chars[i]);
+            } else
+            {
+                writer.write(chars, i, 1);
+            }
+        }
+
+        writer.close();
+
+        assertEquals(bytes.toByteArray(), expected(content));
+    }
+
+    @Test
+    public void flush_writes_buffered_content() throws IOException
+    {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+        Writer writer = new Utf8Writer(bytes);
+
+        writer.write("<html>");
+
+        assertEquals(bytes.size(), 0);
+
+        writer.flush();
+
+        assertEquals(new String(bytes.toByteArray(), StandardCharsets.UTF_8), "<html>");
+    }
+
+    @Test(expectedExceptions = IOException.class)
+    public void write_after_close_is_an_error() throws IOException
+    {
+        Writer writer = new Utf8Writer(new ByteArrayOutputStream());
+
+        writer.close();
+        writer.close();
+
+        writer.write("late");
+    }
+}
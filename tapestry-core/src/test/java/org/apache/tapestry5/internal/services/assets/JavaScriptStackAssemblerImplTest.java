@@ -0,0 +1,137 @@
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.apache.tapestry5.internal.services.assets;
+
+import org.apache.tapestry5.Asset;
+import org.apache.tapestry5.ContentType;
+import org.apache.tapestry5.ioc.Resource;
+import org.apache.tapestry5.ioc.internal.services.NonParallelExecutor;
+import org.apache.tapestry5.ioc.internal.util.ClasspathResource;
+import org.apache.tapestry5.ioc.services.ThreadLocale;
+import org.apache.tapestry5.ioc.test.TestBase;
+import org.apache.tapestry5.services.assets.*;
+import org.apache.tapestry5.services.javascript.JavaScriptAggregationStrategy;
+import org.apache.tapestry5.services.javascript.JavaScriptStack;
+import org.apache.tapestry5.services.javascript.JavaScriptStackSource;
+import org.apache.tapestry5.services.javascript.ModuleManager;
+import org.easymock.EasyMock;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Locale;
+import java.util.Map;
+
+public class JavaScriptStackAssemblerImplTest extends TestBase
+{
+    /**
+     * Upper-cases the content, and counts the number of minimizations.
+     */
+    private static class UpperCaseMinimizer implements ResourceMinimizer
+    {
+        int count;
+
+        public StreamableResource minimize(StreamableResource resource) throws IOException
+        {
+            count++;
+
+            String content = JavaScriptStackAssemblerImpl.getContent(resource).toUpperCase();
+
+            return new StreamableResourceImpl(resource.getDescription(), resource.getContentType(), resource.getCompression(),
+                    resource.getLastModified(), new BytestreamCache(content.getBytes("UTF-8")), null, null);
+        }
+    }
+
+    private final ContentType javascript = new ContentType("text/javascript");
+
+    private Asset mockAsset(Resource resource)
+    {
+        Asset asset = newMock(Asset.class);
+
+        expect(asset.getResource()).andReturn(resource).anyTimes();
+
+        return asset;
+    }
+
+    private void train_getStack(JavaScriptStackSource source, String stackName, Asset... libraries)
+    {
+        JavaScriptStack stack = newMock(JavaScriptStack.class);
+
+        expect(source.getStack(stackName)).andReturn(stack);
+        expect(stack.getJavaScriptLibraries()).andReturn(Arrays.asList(libraries));
+        expect(stack.getModules()).andReturn(Collections.<String>emptyList());
+    }
+
+    private void train_getStreamableResource(StreamableResourceSource source, ResourceChangeTracker tracker, Resource resource, String content) throws IOException
+    {
+        StreamableResource streamable = new StreamableResourceImpl(resource.toString(), javascript, CompressionStatus.COMPRESSABLE,
+                0L, new BytestreamCache(content.getBytes("UTF-8")), null, null);
+
+        expect(source.getStreamableResource(resource, StreamableResourceProcessing.FOR_AGGREGATION, tracker)).andReturn(streamable).anyTimes();
+    }
+
+    @Test
+    public void files_are_minimized_individually_and_reused() throws IOException
+    {
+        ThreadLocale threadLocale = newMock(ThreadLocale.class);
+        ResourceChangeTracker tracker = newMock(ResourceChangeTracker.class);
+        StreamableResourceSource streamableSource = newMock(StreamableResourceSource.class);
+        JavaScriptStackSource stackSource = newMock(JavaScriptStackSource.class);
+        UpperCaseMinimizer minimizer = new UpperCaseMinimizer();
+
+        Resource shared = new ClasspathResource("shared.js");
+        Resource first = new ClasspathResource("first.js");
+        Resource second = new ClasspathResource("second.js");
+
+        tracker.clearOnInvalidation(EasyMock.<Map<?, ?>>anyObject());
+
+        expect(threadLocale.getLocale()).andReturn(Locale.ENGLISH).anyTimes();
+
+        train_getStreamableResource(streamableSource, tracker, shared, "shared();");
+        train_getStreamableResource(streamableSource, tracker, first, "first();");
+        train_getStreamableResource(streamableSource, tracker, second, "second();");
+
+        train_getStack(stackSource, "a", mockAsset(shared), mockAsset(first));
+        train_getStack(stackSource, "b", mockAsset(shared), mockAsset(second));
+
+        replay();
+
+        JavaScriptStackAssembler assembler = new JavaScriptStackAssemblerImpl(threadLocale, tracker, streamableSource,
+                stackSource, null, null, minimizer, true, null, new NonParallelExecutor());
+
+        String a = JavaScriptStackAssemblerImpl.getContent(assembler.assembleJavaScriptResourceForStack("a", false,
+                JavaScriptAggregationStrategy.COMBINE_AND_MINIMIZE));
+
+        assertTrue(a.contains("SHARED();"));
+        assertTrue(a.contains("FIRST();"));
+        assertTrue(a.indexOf("SHARED") < a.indexOf("FIRST"));
+
+        // Cached; the stack is not re-assembled.
+
+        assertSame(assembler.assembleJavaScriptResourceForStack("A", false, JavaScriptAggregationStrategy.COMBINE_AND_MINIMIZE),
+                assembler.assembleJavaScriptResourceForStack("a", false, JavaScriptAggregationStrategy.COMBINE_AND_MINIMIZE));
+
+        String b = JavaScriptStackAssemblerImpl.getContent(assembler.assembleJavaScriptResourceForStack("b", false,
+                JavaScriptAggregationStrategy.COMBINE_AND_MINIMIZE));
+
+        assertTrue(b.contains("SHARED();"));
+        assertTrue(b.contains("SECOND();"));
+
+        // The shared file was only minimized once.
+
+        assertEquals(minimizer.count, 3);
+
+        verify();
+    }
+}
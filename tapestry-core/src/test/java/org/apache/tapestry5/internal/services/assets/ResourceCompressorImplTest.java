@@ -0,0 +1,137 @@
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.apache.tapestry5.internal.services.assets;
+
+import org.apache.tapestry5.ContentType;
+import org.apache.tapestry5.ioc.test.TestBase;
+import org.apache.tapestry5.services.assets.AssetChecksumGenerator;
+import org.apache.tapestry5.services.assets.CompressionStatus;
+import org.apache.tapestry5.services.assets.StreamableResource;
+import org.slf4j.LoggerFactory;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.GZIPInputStream;
+
+public class ResourceCompressorImplTest extends TestBase
+{
+    private static final String CONTENT = "var x = 'The quick brown fox jumps over the lazy dog.';\n";
+
+    private StreamableResource newResource(AssetChecksumGenerator generator, String content)
+    {
+        return new StreamableResourceImpl("test.js", new ContentType("text/javascript"), CompressionStatus.COMPRESSABLE,
+                0L, new BytestreamCache(content.getBytes()), generator, null);
+    }
+
+    private File createDirectory() throws IOException
+    {
+        File directory = File.createTempFile("compressed", "");
+
+        directory.delete();
+
+        // The directory is created lazily, by the compressor
+        return directory;
+    }
+
+    private String uncompress(StreamableResource resource) throws IOException
+    {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+
+        resource.streamTo(compressed);
+
+        assertEquals(compressed.size(), resource.getSize());
+
+        InputStream is = new GZIPInputStream(new ByteArrayInputStream(compressed.toByteArray()));
+        ByteArrayOutputStream result = new ByteArrayOutputStream();
+
+        byte[] buffer = new byte[100];
+
+        while (true)
+        {
+            int length = is.read(buffer);
+
+            if (length < 0)
+            {
+                break;
+            }
+
+            result.write(buffer, 0, length);
+        }
+
+        return result.toString();
+    }
+
+    @Test
+    public void compresses_in_memory_without_directory() throws IOException
+    {
+        AssetChecksumGenerator generator = newMock(AssetChecksumGenerator.class);
+
+        replay();
+
+        ResourceCompressor compressor = new ResourceCompressorImpl(LoggerFactory.getLogger(ResourceCompressorImpl.class), generator, "");
+
+        StreamableResource compressed = compressor.compress(newResource(generator, CONTENT));
+
+        assertTrue(compressed instanceof CompressedStreamableResource);
+        assertEquals(uncompress(compressed), CONTENT);
+
+        verify();
+    }
+
+    @Test
+    public void compressed_content_stored_once_in_directory() throws IOException
+    {
+        AssetChecksumGenerator generator = newMock(AssetChecksumGenerator.class);
+        File directory = createDirectory();
+
+        StreamableResource resource = newResource(generator, CONTENT);
+
+        expect(generator.generateChecksum(resource)).andReturn("abc123").atLeastOnce();
+
+        replay();
+
+        ResourceCompressor compressor = new ResourceCompressorImpl(LoggerFactory.getLogger(ResourceCompressorImpl.class), generator, directory.getPath());
+
+        StreamableResource compressed = compressor.compress(resource);
+
+        assertEquals(compressed.getCompression(), CompressionStatus.COMPRESSED);
+        assertEquals(compressed.getChecksum(), "abc123");
+        assertEquals(uncompress(compressed), CONTENT);
+
+        File[] files = directory.listFiles();
+
+        assertEquals(files.length, 1);
+
+        long lastModified = files[0].lastModified();
+
+        // Simulate a restart; the existing file is reused.
+
+        compressor = new ResourceCompressorImpl(LoggerFactory.getLogger(ResourceCompressorImpl.class), generator, directory.getPath());
+
+        assertEquals(uncompress(compressor.compress(resource)), CONTENT);
+
+        files = directory.listFiles();
+
+        assertEquals(files.length, 1);
+        assertEquals(files[0].lastModified(), lastModified);
+
+        files[0].delete();
+        directory.delete();
+
+        verify();
+    }
+}
@@ -0,0 +1,108 @@
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.apache.tapestry5.internal.services.messages;
+
+import org.apache.tapestry5.ioc.internal.util.CollectionFactory;
+import org.apache.tapestry5.ioc.test.TestBase;
+import org.testng.annotations.Test;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+public class LayeredPropertiesTest extends TestBase
+{
+    private static Map<String, String> properties(String... keysAndValues)
+    {
+        Map<String, String> result = CollectionFactory.newCaseInsensitiveMap();
+
+        for (int i = 0; i < keysAndValues.length; i += 2)
+        {
+            result.put(keysAndValues[i], keysAndValues[i + 1]);
+        }
+
+        return result;
+    }
+
+    @Test
+    public void layer_overrides_parent()
+    {
+        Map<String, String> base = LayeredProperties.extend(Collections.<String, String>emptyMap(),
+                properties("greeting", "Hello", "farewell", "Goodbye"));
+
+        Map<String, String> fr = LayeredProperties.extend(base, properties("Greeting", "Bonjour"));
+
+        assertEquals(fr.get("greeting"), "Bonjour");
+        assertEquals(fr.get("FAREWELL"), "Goodbye");
+        assertNull(fr.get("missing"));
+        assertTrue(fr.containsKey("farewell"));
+        assertEquals(fr.size(), 2);
+        assertEquals(fr.get("greeting"), "Bonjour");
+
+        // The parent is unchanged.
+
+        assertEquals(base.get("greeting"), "Hello");
+    }
+
+    @Test
+    public void empty_layer_returns_parent()
+    {
+        Map<String, String> base = LayeredProperties.extend(Collections.<String, String>emptyMap(), properties("a", "1"));
+
+        assertSame(LayeredProperties.extend(base, properties()), base);
+    }
+
+    @Test
+    public void deep_chains_are_flattened()
+    {
+        Map<String, String> properties = Collections.emptyMap();
+
+        for (int i = 0; i < LayeredProperties.MAX_DEPTH * 3; i++)
+        {
+            properties = LayeredProperties.extend(properties, properties("key" + i, "value" + i, "shared", "layer" + i));
+        }
+
+        assertEquals(properties.size(), LayeredProperties.MAX_DEPTH * 3 + 1);
+        assertEquals(properties.get("key0"), "value0");
+        assertEquals(properties.get("SHARED"), "layer" + (LayeredProperties.MAX_DEPTH * 3 - 1));
+    }
+
+    @Test
+    public void extend_does_not_merge_layers()
+    {
+        List<LayeredProperties> layers = CollectionFactory.newList();
+
+        Map<String, String> properties = Collections.emptyMap();
+
+        for (int i = 0; i < LayeredProperties.MAX_DEPTH; i++)
+        {
+            properties = LayeredProperties.extend(properties, properties("key" + i, "value" + i, "shared", "layer" + i));
+
+            layers.add((LayeredProperties) properties);
+        }
+
+        assertFalse(properties.isEmpty());
+        assertEquals(properties.size(), LayeredProperties.MAX_DEPTH + 1);
+        assertEquals(properties.get("key0"), "value0");
+
+        for (LayeredProperties layer : layers)
+        {
+            assertFalse(layer.isMerged());
+        }
+
+        // Iteration does merge the layers.
+
+        assertEquals(properties.entrySet().size(), LayeredProperties.MAX_DEPTH + 1);
+        assertTrue(layers.get(layers.size() - 1).isMerged());
+    }
+}
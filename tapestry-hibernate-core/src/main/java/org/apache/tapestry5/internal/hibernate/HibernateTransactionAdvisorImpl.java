@@ -18,8 +18,9 @@ import org.apache.tapestry5.hibernate.HibernateSessionManager;
 import org.apache.tapestry5.hibernate.HibernateTransactionAdvisor;
 import org.apache.tapestry5.hibernate.annotations.CommitAfter;
 import org.apache.tapestry5.ioc.MethodAdviceReceiver;
+import org.apache.tapestry5.plastic.InlineMethodAdvice;
+import org.apache.tapestry5.plastic.InstanceContext;
 import org.apache.tapestry5.plastic.MethodAdvice;
-import org.apache.tapestry5.plastic.MethodInvocation;
 
 import java.lang.reflect.Method;
 
@@ -31,25 +32,30 @@ public class HibernateTransactionAdvisorImpl implements HibernateTransactionAdvi
      * The rules for advice are the same for any method: commit on success or checked exception, abort on thrown
      * exception ... so we can use a single shared advice object.
      */
-    private final MethodAdvice advice = new MethodAdvice()
+    private final MethodAdvice advice = new InlineMethodAdvice()
     {
         @Override
-        public void advise(MethodInvocation invocation)
+        public Object beforeInvocation(Object instance, InstanceContext instanceContext)
         {
-            try
-            {
-                invocation.proceed();
-            }
-            catch (RuntimeException ex)
+            return null;
+        }
+
+        @Override
+        public void afterInvocation(Object instance, Object state, Throwable failure)
+        {
+            if (failure instanceof RuntimeException)
             {
                 manager.abort();
 
-                throw ex;
+                return;
             }
 
             // For success or checked exception, commit the transaction.
 
-            manager.commit();
+            if (!(failure instanceof Error))
+            {
+                manager.commit();
+            }
         }
     };
 
@@ -17,8 +17,9 @@ package org.apache.tapestry5.internal.hibernate;
 import org.apache.tapestry5.hibernate.HibernateSessionManager;
 import org.apache.tapestry5.hibernate.annotations.CommitAfter;
 import org.apache.tapestry5.model.MutableComponentModel;
+import org.apache.tapestry5.plastic.InlineMethodAdvice;
+import org.apache.tapestry5.plastic.InstanceContext;
 import org.apache.tapestry5.plastic.MethodAdvice;
-import org.apache.tapestry5.plastic.MethodInvocation;
 import org.apache.tapestry5.plastic.PlasticClass;
 import org.apache.tapestry5.plastic.PlasticMethod;
 import org.apache.tapestry5.services.transform.ComponentClassTransformWorker2;
@@ -33,7 +34,7 @@ public class CommitAfterWorker implements ComponentClassTransformWorker2
 {
     private final HibernateSessionManager manager;
 
-    private final MethodAdvice advice = new MethodAdvice()
+    private final MethodAdvice advice = new InlineMethodAdvice()
     {
         private void abort()
         {
@@ -47,12 +48,28 @@ public class CommitAfterWorker implements ComponentClassTransformWorker2
         }
 
         @Override
-        public void advise(MethodInvocation invocation)
+        public Object beforeInvocation(Object instance, InstanceContext instanceContext)
         {
-            try
+            return null;
+        }
+
+        @Override
+        public void afterInvocation(Object instance, Object state, Throwable failure)
+        {
+            if (failure instanceof RuntimeException)
             {
-                invocation.proceed();
+                abort();
 
+                return;
+            }
+
+            if (failure instanceof Error)
+            {
+                return;
+            }
+
+            try
+            {
                 // Success or checked exception:
 
                 manager.commit();
@@ -27,4 +27,14 @@ public class IOCConstants
      * @since 5.2.2
      */
     public static final String SERVICE_CLASS_RELOADING_ENABLED = "tapestry.service-reloading-enabled";
+
+    /**
+     * Name of a JVM System Property used to enable direct-bound service proxies. Normally, each method invocation
+     * on a service proxy obtains the service implementation from the proxy's object creator. When enabled, the
+     * proxy instead links directly to the service implementation once it is realized, bypassing the object creator on
+     * all later invocations. Defaults to false.
+     *
+     * @since 5.5
+     */
+    public static final String DIRECT_SERVICE_PROXIES_ENABLED = "tapestry.direct-service-proxies";
 }
@@ -59,4 +59,25 @@ public class IOCSymbols
      * @since 5.1.0.3
      */
     public static final String THREAD_POOL_ENABLED = "tapestry.thread-pool-enabled";
+
+    /**
+     * If "true", the {@link org.apache.tapestry5.ioc.services.ParallelExecutor} service runs each task in a new
+     * virtual thread (rather than using a thread pool; the other thread pool symbols are then ignored),
+     * and the {@link org.apache.tapestry5.ioc.services.cron.PeriodicExecutor} uses a virtual thread to schedule jobs
+     * (and so, each job runs in its own virtual thread). This requires Java 21 or above; on earlier versions
+     * a warning is logged and the thread pool is used. Defaults to "false".
+     *
+     * @since 5.5
+     */
+    public static final String THREAD_POOL_VIRTUAL_THREADS = "tapestry.thread-pool.virtual-threads";
+
+    /**
+     * Directory in which the {@link org.apache.tapestry5.ioc.services.ClasspathScanner} stores an index of the
+     * contents of scanned JAR files; the index is consulted at later startups so that JAR files that have not
+     * changed (in length or modification time) need not be opened and read. The index is written when the registry
+     * shuts down, and the directory is created if necessary. Defaults to blank, which disables the index.
+     *
+     * @since 5.5
+     */
+    public static final String CLASSPATH_SCAN_CACHE_DIRECTORY = "tapestry.classpath-scan-cache-directory";
 }
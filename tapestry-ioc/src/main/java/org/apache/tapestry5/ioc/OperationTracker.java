@@ -55,4 +55,35 @@ public interface OperationTracker
      * @since 5.4
      */
     <T> T perform(String description, IOOperation<T> operation) throws IOException;
+
+    /**
+     * Begins an operation, for code that can not pass the operation as a callback (such as
+     * {@linkplain org.apache.tapestry5.plastic.InlineMethodAdvice inline method advice}). Each call must be matched
+     * by a call to {@link #endOperation(Object, Throwable)}, on the same thread. The default implementation does not
+     * track the operation.
+     *
+     * @param description
+     *         used if there is an exception
+     * @return a value to pass to {@link #endOperation(Object, Throwable)}
+     * @since 5.5
+     */
+    default Object beginOperation(String description)
+    {
+        return null;
+    }
+
+    /**
+     * Ends an operation started by {@link #beginOperation(String)}. A {@link RuntimeException} thrown by the operation
+     * is logged and rethrown (wrapped) as with {@link #run(String, Runnable)}; any other failure is treated as
+     * completing the operation. The default implementation does nothing.
+     *
+     * @param operation
+     *         the value returned from {@link #beginOperation(String)}
+     * @param failure
+     *         the exception thrown by the operation, or null if it completed normally
+     * @since 5.5
+     */
+    default void endOperation(Object operation, Throwable failure)
+    {
+    }
 }
@@ -49,6 +49,13 @@ public class ModuleImpl implements Module
 
     private final Logger logger;
 
+    /**
+     * If true, service proxies link directly to the realized service.
+     *
+     * @see IOCConstants#DIRECT_SERVICE_PROXIES_ENABLED
+     */
+    private final boolean directServiceProxies = Boolean.getBoolean(IOCConstants.DIRECT_SERVICE_PROXIES_ENABLED);
+
     /**
      * Lazily instantiated. Access is guarded by BARRIER.
      */
@@ -481,6 +488,8 @@ public class ModuleImpl implements Module
     private Object createProxyInstance(final ObjectCreator creator, final ServiceProxyToken token,
                                        final Class serviceInterface, final Class serviceImplementation, final String description)
     {
+        final FieldHandle[] linkHandle = new FieldHandle[1];
+
         ClassInstantiator instantiator = proxyFactory.createProxy(serviceInterface, serviceImplementation, new PlasticClassTransformer()
         {
             @Override
@@ -497,17 +506,28 @@ public class ModuleImpl implements Module
                 PlasticMethod delegateMethod = plasticClass.introducePrivateMethod(serviceInterface.getName(),
                         "delegate", null, null);
 
-                // If not concerned with efficiency, this might be done with method advice instead.
-                delegateMethod.changeImplementation(new InstructionBuilderCallback()
+                if (directServiceProxies)
                 {
-                    @Override
-                    public void doBuild(InstructionBuilder builder)
+                    PlasticField linkField = plasticClass.introduceField(ServiceProxyLink.class, "link");
+
+                    linkHandle[0] = linkField.getHandle();
+
+                    implementDirectDelegateMethod(plasticClass, delegateMethod, creatorField, linkField,
+                            serviceInterface);
+                } else
+                {
+                    // If not concerned with efficiency, this might be done with method advice instead.
+                    delegateMethod.changeImplementation(new InstructionBuilderCallback()
                     {
-                        builder.loadThis().getField(creatorField);
-                        builder.invoke(ObjectCreator.class, Object.class, "createObject").checkcast(serviceInterface)
-                                .returnResult();
-                    }
-                });
+                        @Override
+                        public void doBuild(InstructionBuilder builder)
+                        {
+                            builder.loadThis().getField(creatorField);
+                            builder.invoke(ObjectCreator.class, Object.class, "createObject").checkcast(serviceInterface)
+                                    .returnResult();
+                        }
+                    });
+                }
 
                 plasticClass.proxyInterface(serviceInterface, delegateMethod);
 
@@ -524,7 +544,78 @@ public class ModuleImpl implements Module
             }
         }, false);
 
-        return instantiator.newInstance();
+        final Object proxy = instantiator.newInstance();
+
+        if (linkHandle[0] != null)
+        {
+            final FieldHandle handle = linkHandle[0];
+
+            // After shutdown, the proxy must once again defer to the creator, which will throw an exception.
+
+            registry.addRegistryShutdownListener(new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    handle.set(proxy, null);
+                }
+            });
+        }
+
+        return proxy;
+    }
+
+    /**
+     * Implements the delegate method of a direct-bound proxy: once the creator has provided the service, it is stored
+     * (inside a {@link ServiceProxyLink}) and invoked directly from then on. The creator
+     * is a {@link JustInTimeObjectCreator}, which always returns the same object until the Registry is shut down.
+     */
+    private static void implementDirectDelegateMethod(final PlasticClass plasticClass, PlasticMethod delegateMethod,
+                                                      final PlasticField creatorField, final PlasticField linkField,
+                                                      final Class serviceInterface)
+    {
+        delegateMethod.changeImplementation(new InstructionBuilderCallback()
+        {
+            @Override
+            public void doBuild(InstructionBuilder builder)
+            {
+                builder.loadThis().getField(linkField).dupe();
+
+                builder.when(Condition.NON_NULL, new WhenCallback()
+                {
+                    @Override
+                    public void ifTrue(InstructionBuilder builder)
+                    {
+                        builder.getField(ServiceProxyLink.class.getName(), "service", Object.class)
+                                .checkcast(serviceInterface).returnResult();
+                    }
+
+                    @Override
+                    public void ifFalse(InstructionBuilder builder)
+                    {
+                        builder.pop();
+                    }
+                });
+
+                builder.loadThis().getField(creatorField);
+                builder.invoke(ObjectCreator.class, Object.class, "createObject");
+
+                builder.startVariable(Object.class.getName(), new LocalVariableCallback()
+                {
+                    @Override
+                    public void doBuild(LocalVariable service, InstructionBuilder builder)
+                    {
+                        builder.storeVariable(service);
+
+                        builder.loadThis().newInstance(ServiceProxyLink.class).dupe().loadVariable(service)
+                                .invokeConstructor(ServiceProxyLink.class, Object.class);
+                        builder.putField(plasticClass.getClassName(), linkField.getName(), ServiceProxyLink.class);
+
+                        builder.loadVariable(service).checkcast(serviceInterface).returnResult();
+                    }
+                });
+            }
+        });
     }
 
     @Override
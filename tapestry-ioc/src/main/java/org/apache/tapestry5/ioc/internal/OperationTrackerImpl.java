@@ -38,6 +38,22 @@ public class OperationTrackerImpl implements OperationTracker
 
     private boolean logged;
 
+    /**
+     * An operation started by {@link #beginOperation(String)}.
+     */
+    private static final class Started
+    {
+        final String description;
+
+        final long startNanos;
+
+        Started(String description, long startNanos)
+        {
+            this.description = description;
+            this.startNanos = startNanos;
+        }
+    }
+
     public OperationTrackerImpl(Logger logger)
     {
         this.logger = logger;
@@ -128,6 +144,38 @@ public class OperationTrackerImpl implements OperationTracker
         }
     }
 
+    @Override
+    public Object beginOperation(String description)
+    {
+        assert InternalUtils.isNonBlank(description);
+
+        return new Started(description, start(description));
+    }
+
+    @Override
+    public void endOperation(Object operation, Throwable failure)
+    {
+        Started started = (Started) operation;
+
+        try
+        {
+            if (failure instanceof RuntimeException)
+            {
+                logAndRethrow((RuntimeException) failure);
+            }
+
+            if (failure instanceof Error)
+            {
+                handleError((Error) failure);
+            }
+
+            finish(started.description, started.startNanos);
+        } finally
+        {
+            handleFinally();
+        }
+    }
+
     private void handleFinally()
     {
         operations.pop();
@@ -87,4 +87,22 @@ public class PerThreadOperationTracker implements OperationTracker
             cleanup();
         }
     }
+
+    @Override
+    public Object beginOperation(String description)
+    {
+        return get().beginOperation(description);
+    }
+
+    @Override
+    public void endOperation(Object operation, Throwable failure)
+    {
+        try
+        {
+            get().endOperation(operation, failure);
+        } finally
+        {
+            cleanup();
+        }
+    }
 }
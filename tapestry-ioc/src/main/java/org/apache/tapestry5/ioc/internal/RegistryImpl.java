@@ -1266,6 +1266,18 @@ public class RegistryImpl implements Registry, InternalRegistry, ServiceProxyPro
         return operationTracker.perform(description, operation);
     }
 
+    @Override
+    public Object beginOperation(String description)
+    {
+        return operationTracker.beginOperation(description);
+    }
+
+    @Override
+    public void endOperation(Object operation, Throwable failure)
+    {
+        operationTracker.endOperation(operation, failure);
+    }
+
     @Override
     public Set<Class> getMarkerAnnotations()
     {
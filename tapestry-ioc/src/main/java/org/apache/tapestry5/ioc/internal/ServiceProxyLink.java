@@ -0,0 +1,32 @@
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+
+package org.apache.tapestry5.ioc.internal;
+
+/**
+ * Links a direct-bound service proxy to the realized service. The proxy stores a new link once the service is realized,
+ * and reads the service from the link on each subsequent method invocation. The final field ensures that a thread
+ * that sees the link also sees the fully constructed service, even though the proxy's field is not volatile.
+ *
+ * @see org.apache.tapestry5.ioc.IOCConstants#DIRECT_SERVICE_PROXIES_ENABLED
+ * @since 5.5
+ */
+public final class ServiceProxyLink
+{
+    public final Object service;
+
+    public ServiceProxyLink(Object service)
+    {
+        this.service = service;
+    }
+}
@@ -0,0 +1,254 @@
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+
+package org.apache.tapestry5.ioc.internal.services;
+
+import org.slf4j.Logger;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Persistent index used by {@link ClasspathScannerImpl} to avoid opening and reading JAR files that have not changed
+ * since a previous startup. For each JAR file and scanned package path, the index stores the names of all
+ * entries in the JAR inside that package (or a nested package). An entry is only used when the JAR file's length and
+ * last modified time match those recorded in the index.
+ *
+ * @see org.apache.tapestry5.ioc.IOCSymbols#CLASSPATH_SCAN_CACHE_DIRECTORY
+ * @since 5.5
+ */
+public class ClasspathScanIndex
+{
+    private static final int MAGIC = 0x54435349;
+
+    private static final int FORMAT_VERSION = 1;
+
+    private static final String FILE_NAME = "classpath-scan.idx";
+
+    private final File file;
+
+    private final Logger logger;
+
+    /**
+     * Keyed on JAR file path and package path.
+     */
+    private final Map<String, Entry> entries = new ConcurrentHashMap<String, Entry>();
+
+    private volatile boolean dirty;
+
+    static final class Entry
+    {
+        final String jarPath;
+
+        final String packagePath;
+
+        final long length;
+
+        final long lastModified;
+
+        final String[] names;
+
+        Entry(String jarPath, String packagePath, long length, long lastModified, String[] names)
+        {
+            this.jarPath = jarPath;
+            this.packagePath = packagePath;
+            this.length = length;
+            this.lastModified = lastModified;
+            this.names = names;
+        }
+    }
+
+    public ClasspathScanIndex(File directory, Logger logger)
+    {
+        this.file = new File(directory, FILE_NAME);
+        this.logger = logger;
+
+        if (file.isFile())
+        {
+            try
+            {
+                read();
+            } catch (Exception ex)
+            {
+                entries.clear();
+
+                logger.warn(String.format("Unable to read classpath scan index %s (the classpath will be scanned): %s",
+                        file, ex.getMessage()));
+            }
+        }
+    }
+
+    private static String toKey(String jarPath, String packagePath)
+    {
+        return jarPath + '!' + packagePath;
+    }
+
+    /**
+     * Returns the names of the entries inside the package path within the JAR file, or null if the JAR file
+     * is not indexed for that package path, or has changed since it was indexed.
+     */
+    public String[] get(File jarFile, String packagePath)
+    {
+        String jarPath = jarFile.getAbsolutePath();
+
+        Entry entry = entries.get(toKey(jarPath, packagePath));
+
+        if (entry == null || entry.length != jarFile.length() || entry.lastModified != jarFile.lastModified())
+        {
+            return null;
+        }
+
+        return entry.names;
+    }
+
+    /**
+     * Records the names of the entries inside the package path within the JAR file.
+     */
+    public void put(File jarFile, String packagePath, String[] names)
+    {
+        String jarPath = jarFile.getAbsolutePath();
+
+        entries.put(toKey(jarPath, packagePath),
+                new Entry(jarPath, packagePath, jarFile.length(), jarFile.lastModified(), names));
+
+        dirty = true;
+    }
+
+    /**
+     * Writes the index, if it has changed since it was read or last written. Entries for JAR files that no longer
+     * exist are discarded. Problems writing the file are logged.
+     */
+    public synchronized void store()
+    {
+        if (!dirty)
+        {
+            return;
+        }
+
+        dirty = false;
+
+        try
+        {
+            write();
+        } catch (IOException ex)
+        {
+            logger.warn(String.format("Unable to write classpath scan index %s: %s", file, ex.getMessage()));
+        }
+    }
+
+    private void read() throws IOException
+    {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file))))
+        {
+            if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION)
+            {
+                return;
+            }
+
+            int count = in.readInt();
+
+            for (int i = 0; i < count; i++)
+            {
+                String jarPath = in.readUTF();
+                String packagePath = in.readUTF();
+                long length = in.readLong();
+                long lastModified = in.readLong();
+
+                String[] names = new String[in.readInt()];
+
+                for (int j = 0; j < names.length; j++)
+                {
+                    names[j] = packagePath + in.readUTF();
+                }
+
+                entries.put(toKey(jarPath, packagePath), new Entry(jarPath, packagePath, length, lastModified, names));
+            }
+        }
+    }
+
+    private void write() throws IOException
+    {
+        File directory = file.getParentFile();
+
+        if (!directory.isDirectory() && !directory.mkdirs())
+        {
+            throw new IOException(String.format("Unable to create directory %s.", directory));
+        }
+
+        File temp = File.createTempFile("classpath-scan", ".tmp", directory);
+
+        try
+        {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp))))
+            {
+                List<Entry> live = new ArrayList<Entry>(entries.size());
+
+                for (Entry entry : entries.values())
+                {
+                    if (new File(entry.jarPath).isFile())
+                    {
+                        live.add(entry);
+                    } else
+                    {
+                        entries.remove(toKey(entry.jarPath, entry.packagePath));
+                    }
+                }
+
+                out.writeInt(MAGIC);
+                out.writeInt(FORMAT_VERSION);
+                out.writeInt(live.size());
+
+                for (Entry entry : live)
+                {
+                    out.writeUTF(entry.jarPath);
+                    out.writeUTF(entry.packagePath);
+                    out.writeLong(entry.length);
+                    out.writeLong(entry.lastModified);
+                    out.writeInt(entry.names.length);
+
+                    // Names always start with the package path, so only the remainder is stored.
+
+                    for (String name : entry.names)
+                    {
+                        out.writeUTF(name.substring(entry.packagePath.length()));
+                    }
+                }
+            }
+
+            try
+            {
+                Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                        StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException ex)
+            {
+                Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally
+        {
+            temp.delete();
+        }
+    }
+}
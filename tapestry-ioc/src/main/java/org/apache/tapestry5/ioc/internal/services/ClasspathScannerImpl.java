@@ -14,35 +14,104 @@
 
 package org.apache.tapestry5.ioc.internal.services;
 
+import org.apache.tapestry5.ioc.IOCSymbols;
+import org.apache.tapestry5.ioc.annotations.PostInjection;
+import org.apache.tapestry5.ioc.annotations.Symbol;
 import org.apache.tapestry5.ioc.internal.util.CollectionFactory;
 import org.apache.tapestry5.ioc.internal.util.InternalUtils;
 import org.apache.tapestry5.ioc.services.ClasspathMatcher;
 import org.apache.tapestry5.ioc.services.ClasspathScanner;
 import org.apache.tapestry5.ioc.services.ClasspathURLConverter;
+import org.apache.tapestry5.ioc.services.RegistryShutdownHub;
 import org.apache.tapestry5.ioc.util.Stack;
+import org.slf4j.Logger;
 
 import java.io.*;
 import java.net.JarURLConnection;
+import java.net.URISyntaxException;
 import java.net.URL;
 import java.net.URLConnection;
+import java.util.Collections;
 import java.util.Enumeration;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 import java.util.jar.JarEntry;
 import java.util.jar.JarFile;
 import java.util.regex.Pattern;
 
+/**
+ * Scans each root URL for the package (typically, one per JAR file or classes folder) in parallel, using the
+ * common {@link ForkJoinPool}. When {@link IOCSymbols#CLASSPATH_SCAN_CACHE_DIRECTORY} is set, the contents of
+ * JAR files are recorded in a {@link ClasspathScanIndex}, so that unchanged JAR files need not be opened
+ * after a restart. The index is written when the registry shuts down.
+ */
 public class ClasspathScannerImpl implements ClasspathScanner
 {
     private final ClassLoader contextClassLoader = Thread.currentThread().getContextClassLoader();
 
     private final ClasspathURLConverter converter;
 
+    private final ClasspathScanIndex index;
+
     private static final Pattern FOLDER_NAME_PATTERN = Pattern.compile("^\\p{javaJavaIdentifierStart}[\\p{javaJavaIdentifierPart}]*$", Pattern.CASE_INSENSITIVE);
 
 
     public ClasspathScannerImpl(ClasspathURLConverter converter)
     {
         this.converter = converter;
+        this.index = null;
+    }
+
+    /**
+     * @since 5.5
+     */
+    public ClasspathScannerImpl(ClasspathURLConverter converter,
+                                @Symbol(IOCSymbols.CLASSPATH_SCAN_CACHE_DIRECTORY)
+                                String cacheDirectory,
+                                Logger logger)
+    {
+        this.converter = converter;
+        this.index = InternalUtils.isBlank(cacheDirectory) ? null : new ClasspathScanIndex(new File(cacheDirectory), logger);
+    }
+
+    /**
+     * Arranges for the index (if any) to be written once, when the registry shuts down, rather than after
+     * each scan.
+     *
+     * @since 5.5
+     */
+    @PostInjection
+    public void storeIndexAtShutdown(RegistryShutdownHub hub)
+    {
+        if (index != null)
+        {
+            hub.addRegistryShutdownListener(new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    storeIndex();
+                }
+            });
+        }
+    }
+
+    /**
+     * Writes the index, if there is one and it has changed since it was read or last written.
+     *
+     * @since 5.5
+     */
+    public void storeIndex()
+    {
+        if (index != null)
+        {
+            index.store();
+        }
     }
 
     /**
@@ -62,7 +131,74 @@ public class ClasspathScannerImpl implements ClasspathScanner
         assert packagePath != null && packagePath.endsWith("/");
         assert matcher != null;
 
-        return new Job(matcher, contextClassLoader, converter).findMatches(packagePath);
+        List<URL> urls = Collections.list(contextClassLoader.getResources(packagePath));
+
+        Set<String> matches;
+
+        if (urls.size() < 2)
+        {
+            matches = new Job(matcher, contextClassLoader, converter, index).findMatches(packagePath);
+        } else
+        {
+            matches = scanInParallel(packagePath, matcher, urls);
+        }
+
+        return matches;
+    }
+
+    private Set<String> scanInParallel(final String packagePath, final ClasspathMatcher matcher, List<URL> urls) throws IOException
+    {
+        final Set<String> matches = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
+        List<ForkJoinTask<Void>> tasks = CollectionFactory.newList();
+
+        for (URL url : urls)
+        {
+            // The converter is invoked here, as implementations are not necessarily thread-safe.
+
+            final URL converted = converter.convert(url);
+
+            tasks.add(ForkJoinPool.commonPool().submit(new Callable<Void>()
+            {
+                @Override
+                public Void call() throws IOException
+                {
+                    new Job(matcher, converter, index, matches).scanRoot(packagePath, converted);
+
+                    return null;
+                }
+            }));
+        }
+
+        for (ForkJoinTask<Void> task : tasks)
+        {
+            try
+            {
+                task.get();
+            } catch (InterruptedException ex)
+            {
+                Thread.currentThread().interrupt();
+
+                throw new InterruptedIOException(ex.getMessage());
+            } catch (ExecutionException ex)
+            {
+                Throwable cause = ex.getCause();
+
+                if (cause instanceof IOException)
+                {
+                    throw (IOException) cause;
+                }
+
+                if (cause instanceof Error)
+                {
+                    throw (Error) cause;
+                }
+
+                throw (RuntimeException) cause;
+            }
+        }
+
+        return CollectionFactory.newSet(matches);
     }
 
     /**
@@ -136,7 +272,8 @@ public class ClasspathScannerImpl implements ClasspathScanner
     }
 
     /**
-     * Encapsulates the data, result, and queue of deferred operations for performing the scan.
+     * Encapsulates the data, result, and queue of deferred operations for performing the scan. When scanning in
+     * parallel, there is one Job per root URL, and all the Jobs share a single (thread-safe) set of matches.
      */
     static class Job
     {
@@ -146,7 +283,9 @@ public class ClasspathScannerImpl implements ClasspathScanner
 
         final ClassLoader classloader;
 
-        final Set<String> matches = CollectionFactory.newSet();
+        final ClasspathScanIndex index;
+
+        final Set<String> matches;
 
         /**
          * Explicit queue used to avoid deep tail-recursion.
@@ -155,10 +294,26 @@ public class ClasspathScannerImpl implements ClasspathScanner
 
 
         Job(ClasspathMatcher matcher, ClassLoader classloader, ClasspathURLConverter converter)
+        {
+            this(matcher, classloader, converter, null);
+        }
+
+        Job(ClasspathMatcher matcher, ClassLoader classloader, ClasspathURLConverter converter, ClasspathScanIndex index)
         {
             this.matcher = matcher;
             this.classloader = classloader;
             this.converter = converter;
+            this.index = index;
+            this.matches = CollectionFactory.newSet();
+        }
+
+        Job(ClasspathMatcher matcher, ClasspathURLConverter converter, ClasspathScanIndex index, Set<String> matches)
+        {
+            this.matcher = matcher;
+            this.classloader = null;
+            this.converter = converter;
+            this.index = index;
+            this.matches = matches;
         }
 
         Set<String> findMatches(String packagePath) throws IOException
@@ -168,21 +323,25 @@ public class ClasspathScannerImpl implements ClasspathScanner
 
             while (urls.hasMoreElements())
             {
-                URL url = urls.nextElement();
+                scanRoot(packagePath, converter.convert(urls.nextElement()));
+            }
 
-                URL converted = converter.convert(url);
+            return matches;
+        }
 
-                scanURL(packagePath, converted);
+        /**
+         * Scans a single (converted) root URL for the package, including any work queued along the way.
+         */
+        void scanRoot(String packagePath, URL url) throws IOException
+        {
+            scanURL(packagePath, url);
 
-                while (!queue.isEmpty())
-                {
-                    IOWork queued = queue.pop();
+            while (!queue.isEmpty())
+            {
+                IOWork queued = queue.pop();
 
-                    queued.run();
-                }
+                queued.run();
             }
-
-            return matches;
         }
 
         void scanURL(final String packagePath, final URL url) throws IOException
@@ -193,7 +352,18 @@ public class ClasspathScannerImpl implements ClasspathScanner
 
             if (connection instanceof JarURLConnection)
             {
-                jarFile = ((JarURLConnection) connection).getJarFile();
+                JarURLConnection jarConnection = (JarURLConnection) connection;
+
+                File file = index == null ? null : toFile(jarConnection.getJarFileURL());
+
+                if (file != null)
+                {
+                    scanIndexedJarFile(packagePath, jarConnection, file);
+
+                    return;
+                }
+
+                jarFile = jarConnection.getJarFile();
             } else
             {
                 jarFile = getAlternativeJarFile(url);
@@ -321,6 +491,73 @@ public class ClasspathScannerImpl implements ClasspathScanner
 
         }
 
+        /**
+         * Returns the file for a "file:" URL, or null for any other kind of URL.
+         */
+        private static File toFile(URL url)
+        {
+            if (!url.getProtocol().equals("file"))
+            {
+                return null;
+            }
+
+            try
+            {
+                return new File(url.toURI());
+            } catch (URISyntaxException ex)
+            {
+                return new File(url.getPath());
+            }
+        }
+
+        /**
+         * Matches against the entry names stored in the index for the JAR file; the JAR file is only opened (and
+         * the index updated) if it is not indexed, or has changed.
+         */
+        private void scanIndexedJarFile(String packagePath, JarURLConnection connection, File file) throws IOException
+        {
+            String[] names = index.get(file, packagePath);
+
+            if (names == null)
+            {
+                List<String> found = CollectionFactory.newList();
+
+                Enumeration<JarEntry> e = connection.getJarFile().entries();
+
+                while (e.hasMoreElements())
+                {
+                    String name = e.nextElement().getName();
+
+                    if (name.startsWith(packagePath))
+                    {
+                        found.add(name);
+                    }
+                }
+
+                names = found.toArray(new String[found.size()]);
+
+                index.put(file, packagePath, names);
+            }
+
+            for (String name : names)
+            {
+                match(name);
+            }
+        }
+
+        private void match(String name)
+        {
+            int lastSlashx = name.lastIndexOf('/');
+
+            String filePackagePath = name.substring(0, lastSlashx + 1);
+            String fileName = name.substring(lastSlashx + 1);
+
+            if (matcher.matches(filePackagePath, fileName))
+            {
+                matches.add(name);
+            }
+        }
+
         private void scanJarFile(String packagePath, JarFile jarFile)
         {
             Enumeration<JarEntry> e = jarFile.entries();
@@ -331,15 +568,7 @@ public class ClasspathScannerImpl implements ClasspathScanner
 
                 if (!name.startsWith(packagePath)) continue;
 
-                int lastSlashx = name.lastIndexOf('/');
-
-                String filePackagePath = name.substring(0, lastSlashx + 1);
-                String fileName = name.substring(lastSlashx + 1);
-
-                if (matcher.matches(filePackagePath, fileName))
-                {
-                    matches.add(name);
-                }
+                match(name);
             }
         }
     }
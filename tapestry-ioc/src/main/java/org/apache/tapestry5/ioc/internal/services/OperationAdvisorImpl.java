@@ -20,6 +20,8 @@ import org.apache.tapestry5.ioc.annotations.Operation;
 import org.apache.tapestry5.ioc.annotations.PreventServiceDecoration;
 import org.apache.tapestry5.ioc.internal.util.InternalUtils;
 import org.apache.tapestry5.ioc.services.OperationAdvisor;
+import org.apache.tapestry5.plastic.InlineMethodAdvice;
+import org.apache.tapestry5.plastic.InstanceContext;
 import org.apache.tapestry5.plastic.MethodAdvice;
 import org.apache.tapestry5.plastic.MethodInvocation;
 
@@ -47,7 +49,7 @@ public class OperationAdvisorImpl implements OperationAdvisor
         };
     }
 
-    private class SimpleAdvice implements MethodAdvice
+    private class SimpleAdvice implements InlineMethodAdvice
     {
         private final String description;
 
@@ -57,9 +59,15 @@ public class OperationAdvisorImpl implements OperationAdvisor
         }
 
         @Override
-        public void advise(MethodInvocation invocation)
+        public Object beforeInvocation(Object instance, InstanceContext instanceContext)
         {
-            tracker.run(description, toRunnable(invocation));
+            return tracker.beginOperation(description);
+        }
+
+        @Override
+        public void afterInvocation(Object instance, Object state, Throwable failure)
+        {
+            tracker.endOperation(state, failure);
         }
     }
 
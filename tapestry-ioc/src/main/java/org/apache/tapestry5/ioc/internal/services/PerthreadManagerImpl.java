@@ -12,9 +12,16 @@
 
 package org.apache.tapestry5.ioc.internal.services;
 
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
-import java.util.Map;
-import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.tapestry5.ioc.Invokable;
@@ -26,25 +33,83 @@ import org.apache.tapestry5.ioc.services.RegistryShutdownHub;
 import org.apache.tapestry5.ioc.services.ThreadCleanupListener;
 import org.slf4j.Logger;
 
+/**
+ * Each value created by the manager is assigned a slot, a dense integer index; per-thread values are stored in a
+ * per-thread array indexed by slot, rather than a map, which avoids hashing and boxing on every access. The array
+ * grows as needed, and at cleanup only the slots written since the last cleanup are cleared, so that the array may
+ * be reused by the next request processed by the same thread. Threads that never store a value never allocate an
+ * array.
+ *
+ * Once a value is garbage collected, its slot is reused by the next value created. Each entry records the id of
+ * the value that wrote it, so a value never sees an entry left behind by the previous owner of its slot.
+ */
 @SuppressWarnings("all")
 public class PerthreadManagerImpl implements PerthreadManager
 {
+    private static final int MINIMUM_CAPACITY = 32;
+
     private final PerThreadValue<List<Runnable>> callbacksValue;
 
-    private static class MapHolder extends ThreadLocal<Map>
+    private static final class Storage
     {
-        @Override
-        protected Map initialValue()
+        Object[] values;
+
+        /**
+         * The id of the value that wrote each entry.
+         */
+        int[] owners;
+
+        /**
+         * One more than the highest slot written since the last cleanup.
+         */
+        int limit;
+
+        Storage(int capacity)
+        {
+            values = new Object[capacity];
+            owners = new int[capacity];
+        }
+
+        void ensureCapacity(int slot)
         {
-            return CollectionFactory.newMap();
+            if (slot >= values.length)
+            {
+                int capacity = Math.max(slot + 1, values.length * 2);
+
+                values = Arrays.copyOf(values, capacity);
+                owners = Arrays.copyOf(owners, capacity);
+            }
+        }
+    }
+
+    private static final class SlotReference extends WeakReference<Object>
+    {
+        final int slot;
+
+        SlotReference(Object value, int slot, ReferenceQueue<Object> queue)
+        {
+            super(value, queue);
+
+            this.slot = slot;
         }
     }
 
     private final Logger logger;
 
-    private final MapHolder holder = new MapHolder();
+    private final ThreadLocal<Storage> holder = new ThreadLocal<Storage>();
 
-    private final AtomicInteger uuidGenerator = new AtomicInteger();
+    private final AtomicInteger slotGenerator = new AtomicInteger();
+
+    private final AtomicInteger idGenerator = new AtomicInteger();
+
+    private final ReferenceQueue<Object> releasedValues = new ReferenceQueue<Object>();
+
+    /**
+     * Keeps the references themselves reachable until they are enqueued.
+     */
+    private final Set<SlotReference> slotReferences = Collections.newSetFromMap(new ConcurrentHashMap<SlotReference, Boolean>());
+
+    private final Queue<Integer> freeSlots = new ConcurrentLinkedQueue<Integer>();
 
     private volatile boolean shutdown = false;
 
@@ -64,21 +129,106 @@ public class PerthreadManagerImpl implements PerthreadManager
             {
                 cleanup();
                 shutdown = true;
+                holder.remove();
             }
         });
     }
 
-    private Map getPerthreadMap()
+    private Object read(int slot, int id)
     {
         // This is a degenerate case; it may not even exist; but if during registry shutdown somehow code executes
-        // that attempts to create new values or add new listeners, those go into a new map instance that is
-        // not referenced (and so immediately GCed).
+        // that attempts to create new values or add new listeners, those are simply not stored.
         if (shutdown)
         {
-            return CollectionFactory.newMap();
+            return null;
+        }
+
+        Storage storage = holder.get();
+
+        if (storage == null || slot >= storage.values.length || storage.owners[slot] != id)
+        {
+            return null;
+        }
+
+        return storage.values[slot];
+    }
+
+    private void write(int slot, int id, Object value)
+    {
+        if (shutdown)
+        {
+            return;
+        }
+
+        Storage storage = holder.get();
+
+        if (storage == null)
+        {
+            // Size for all slots allocated so far, to avoid growing the array in the middle of a request.
+            storage = new Storage(Math.max(MINIMUM_CAPACITY, slotGenerator.get()));
+
+            holder.set(storage);
+        }
+
+        storage.ensureCapacity(slot);
+
+        storage.values[slot] = value;
+        storage.owners[slot] = id;
+
+        if (slot >= storage.limit)
+        {
+            storage.limit = slot + 1;
+        }
+    }
+
+    /**
+     * Returns the slots of values that have been garbage collected to the free list.
+     */
+    private void releaseSlots()
+    {
+        while (true)
+        {
+            Reference<?> reference = releasedValues.poll();
+
+            if (reference == null)
+            {
+                return;
+            }
+
+            slotReferences.remove(reference);
+
+            freeSlots.add(((SlotReference) reference).slot);
+        }
+    }
+
+    private int allocateSlot()
+    {
+        releaseSlots();
+
+        Integer slot = freeSlots.poll();
+
+        return slot == null ? slotGenerator.getAndIncrement() : slot;
+    }
+
+    private int nextId()
+    {
+        while (true)
+        {
+            int id = idGenerator.incrementAndGet();
+
+            // 0 marks an empty entry.
+            if (id != 0)
+            {
+                return id;
+            }
         }
+    }
 
-        return holder.get();
+    private <T> T track(T value, int slot)
+    {
+        slotReferences.add(new SlotReference(value, slot, releasedValues));
+
+        return value;
     }
 
     private List<Runnable> getCallbacks()
@@ -124,53 +274,96 @@ public class PerthreadManagerImpl implements PerthreadManager
     @Override
     public void cleanup()
     {
-        List<Runnable> callbacks = getCallbacks();
+        // Don't allocate storage for a thread that never stored anything.
 
-        callbacksValue.set(null);
+        if (holder.get() == null)
+        {
+            return;
+        }
+
+        List<Runnable> callbacks = callbacksValue.get();
 
-        for (Runnable callback : callbacks)
+        if (callbacks != null)
         {
-            try
-            {
-                callback.run();
-            } catch (Exception ex)
+            callbacksValue.set(null);
+
+            for (Runnable callback : callbacks)
             {
-                logger.warn("Error invoking callback {}: {}", callback, ex, ex);
+                try
+                {
+                    callback.run();
+                } catch (Exception ex)
+                {
+                    logger.warn("Error invoking callback {}: {}", callback, ex, ex);
+                }
             }
         }
 
         // Listeners should not re-add themselves or store any per-thread state
         // here, it will be lost.
 
-        // Discard the per-thread map of values, including the key that stores
+        // Discard the per-thread values, including the slot that stores
         // the listeners. This means that if a listener attempts to register
         // new listeners, the new listeners will not be triggered and will be
-        // released to the GC.
+        // released to the GC. The storage array itself is kept for reuse.
 
-        holder.remove();
-    }
+        Storage storage = holder.get();
 
-    private static Object NULL_VALUE = new Object();
+        if (!shutdown && storage != null)
+        {
+            Arrays.fill(storage.values, 0, storage.limit, null);
+            Arrays.fill(storage.owners, 0, storage.limit, 0);
+
+            storage.limit = 0;
+        }
+    }
 
-    <T> ObjectCreator<T> createValue(final Object key, final ObjectCreator<T> delegate)
+    @Override
+    public int getAllocatedValueCount()
     {
-        return new DefaultObjectCreator<T>(key, delegate);
+        releaseSlots();
+
+        return slotGenerator.get() - freeSlots.size();
     }
 
-    public <T> ObjectCreator<T> createValue(ObjectCreator<T> delegate)
+    @Override
+    public int getActiveValueCount()
     {
-        return createValue(uuidGenerator.getAndIncrement(), delegate);
+        Storage storage = holder.get();
+
+        if (shutdown || storage == null)
+        {
+            return 0;
+        }
+
+        int count = 0;
+
+        for (int i = 0; i < storage.limit; i++)
+        {
+            if (storage.values[i] != null)
+            {
+                count++;
+            }
+        }
+
+        return count;
     }
 
-    <T> PerThreadValue<T> createValue(final Object key)
+    private static Object NULL_VALUE = new Object();
+
+    public <T> ObjectCreator<T> createValue(ObjectCreator<T> delegate)
     {
-        return new DefaultPerThreadValue(key);
+        int slot = allocateSlot();
+
+        return track(new DefaultObjectCreator<T>(slot, nextId(), delegate), slot);
     }
 
     @Override
     public <T> PerThreadValue<T> createValue()
     {
-        return createValue(uuidGenerator.getAndIncrement());
+        int slot = allocateSlot();
+
+        return track(new DefaultPerThreadValue(slot, nextId()), slot);
     }
 
     @Override
@@ -201,13 +394,14 @@ public class PerthreadManagerImpl implements PerthreadManager
 
     private final class DefaultPerThreadValue<T> implements PerThreadValue<T>
     {
-        private final Object key;
+        private final int slot, id;
 
-        DefaultPerThreadValue(final Object key)
+        DefaultPerThreadValue(final int slot, final int id)
         {
-            this.key = key;
-
+            this.slot = slot;
+            this.id = id;
         }
+
         @Override
         public T get()
         {
@@ -217,9 +411,7 @@ public class PerthreadManagerImpl implements PerthreadManager
         @Override
         public T get(T defaultValue)
         {
-            Map map = getPerthreadMap();
-
-            Object storedValue = map.get(key);
+            Object storedValue = read(slot, id);
 
             if (storedValue == null)
             {
@@ -237,7 +429,7 @@ public class PerthreadManagerImpl implements PerthreadManager
         @Override
         public T set(T newValue)
         {
-            getPerthreadMap().put(key, newValue == null ? NULL_VALUE : newValue);
+            write(slot, id, newValue == null ? NULL_VALUE : newValue);
 
             return newValue;
         }
@@ -245,35 +437,35 @@ public class PerthreadManagerImpl implements PerthreadManager
         @Override
         public boolean exists()
         {
-            return getPerthreadMap().containsKey(key);
+            return read(slot, id) != null;
         }
     }
 
     private final class DefaultObjectCreator<T> implements ObjectCreator<T>
     {
 
-        private final Object key;
+        private final int slot, id;
         private final ObjectCreator<T> delegate;
 
-        DefaultObjectCreator(final Object key, final ObjectCreator<T> delegate)
+        DefaultObjectCreator(final int slot, final int id, final ObjectCreator<T> delegate)
         {
-            this.key = key;
+            this.slot = slot;
+            this.id = id;
             this.delegate = delegate;
         }
 
         public T createObject()
         {
-            Map map = getPerthreadMap();
-            T storedValue = (T) map.get(key);
+            Object storedValue = read(slot, id);
 
             if (storedValue != null)
             {
-                return (storedValue == NULL_VALUE) ? null : storedValue;
+                return (storedValue == NULL_VALUE) ? null : (T) storedValue;
             }
 
             T newValue = delegate.createObject();
 
-            map.put(key, newValue == null ? NULL_VALUE : newValue);
+            write(slot, id, newValue == null ? NULL_VALUE : newValue);
 
             return newValue;
         }
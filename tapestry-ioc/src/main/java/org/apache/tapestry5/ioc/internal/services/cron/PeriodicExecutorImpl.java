@@ -12,9 +12,12 @@
 
 package org.apache.tapestry5.ioc.internal.services.cron;
 
+import org.apache.tapestry5.ioc.IOCSymbols;
 import org.apache.tapestry5.ioc.Invokable;
 import org.apache.tapestry5.ioc.annotations.PostInjection;
+import org.apache.tapestry5.ioc.annotations.Symbol;
 import org.apache.tapestry5.ioc.internal.util.CollectionFactory;
+import org.apache.tapestry5.ioc.internal.util.JDKUtils;
 import org.apache.tapestry5.ioc.services.ParallelExecutor;
 import org.apache.tapestry5.ioc.services.RegistryShutdownHub;
 import org.apache.tapestry5.ioc.services.cron.PeriodicExecutor;
@@ -39,7 +42,7 @@ public class PeriodicExecutorImpl implements PeriodicExecutor, Runnable
     // Synchronized by jobLock
     private final List<Job> jobs = CollectionFactory.newList();
 
-    private final Thread thread = new Thread(this, "Tapestry PeriodicExecutor");
+    private final Thread thread;
 
     private transient boolean shutdown;
 
@@ -235,10 +238,18 @@ public class PeriodicExecutorImpl implements PeriodicExecutor, Runnable
 
     }
 
-    public PeriodicExecutorImpl(ParallelExecutor parallelExecutor, Logger logger)
+    public PeriodicExecutorImpl(ParallelExecutor parallelExecutor, Logger logger,
+                                @Symbol(IOCSymbols.THREAD_POOL_VIRTUAL_THREADS)
+                                boolean virtualThreads)
     {
         this.parallelExecutor = parallelExecutor;
         this.logger = logger;
+
+        String threadName = "Tapestry PeriodicExecutor";
+
+        thread = virtualThreads && JDKUtils.VIRTUAL_THREADS_AVAILABLE
+                ? JDKUtils.newVirtualThread(threadName, this)
+                : new Thread(this, threadName);
     }
 
     @PostInjection
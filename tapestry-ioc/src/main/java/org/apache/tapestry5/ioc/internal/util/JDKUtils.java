@@ -14,6 +14,10 @@
 
 package org.apache.tapestry5.ioc.internal.util;
 
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 
@@ -28,6 +32,90 @@ public class JDKUtils
      */
     public static final boolean JDK_1_5 = isVersion("1.5");
 
+    /**
+     * Is the running JVM capable of creating virtual threads (JDK 21 and above)?
+     *
+     * @since 5.5
+     */
+    public static final boolean VIRTUAL_THREADS_AVAILABLE = findMethod(Executors.class, "newVirtualThreadPerTaskExecutor") != null;
+
+    private static Method findMethod(Class<?> type, String name, Class<?>... parameterTypes)
+    {
+        try
+        {
+            return type.getMethod(name, parameterTypes);
+        } catch (NoSuchMethodException ex)
+        {
+            return null;
+        }
+    }
+
+    private static Object invoke(Method method, Object target, Object... arguments)
+    {
+        try
+        {
+            return method.invoke(target, arguments);
+        } catch (InvocationTargetException ex)
+        {
+            throw new RuntimeException(ex.getCause());
+        } catch (IllegalAccessException ex)
+        {
+            throw new RuntimeException(ex);
+        }
+    }
+
+    /**
+     * Returns an executor that starts a new virtual thread for each task. The executor is obtained reflectively,
+     * as Tapestry is compiled for older JDKs.
+     *
+     * @throws UnsupportedOperationException
+     *         if {@linkplain #VIRTUAL_THREADS_AVAILABLE virtual threads are not available}
+     * @since 5.5
+     */
+    public static ExecutorService newVirtualThreadPerTaskExecutor()
+    {
+        checkVirtualThreadsAvailable();
+
+        return (ExecutorService) invoke(findMethod(Executors.class, "newVirtualThreadPerTaskExecutor"), null);
+    }
+
+    /**
+     * Creates, but does not start, a new virtual thread.
+     *
+     * @throws UnsupportedOperationException
+     *         if {@linkplain #VIRTUAL_THREADS_AVAILABLE virtual threads are not available}
+     * @since 5.5
+     */
+    public static Thread newVirtualThread(String name, Runnable runnable)
+    {
+        checkVirtualThreadsAvailable();
+
+        Class<?> builderType;
+
+        try
+        {
+            builderType = Class.forName("java.lang.Thread$Builder");
+        } catch (ClassNotFoundException ex)
+        {
+            throw new UnsupportedOperationException(ex);
+        }
+
+        Object builder = invoke(findMethod(Thread.class, "ofVirtual"), null);
+
+        builder = invoke(findMethod(builderType, "name", String.class), builder, name);
+
+        return (Thread) invoke(findMethod(builderType, "unstarted", Runnable.class), builder, runnable);
+    }
+
+    private static void checkVirtualThreadsAvailable()
+    {
+        if (!VIRTUAL_THREADS_AVAILABLE)
+        {
+            throw new UnsupportedOperationException(String.format("Virtual threads are not supported by Java %s.",
+                    System.getProperty("java.specification.version")));
+        }
+    }
+
     private static boolean isVersion(String versionId)
     {
         return System.getProperty("java.specification.version").equals(versionId);
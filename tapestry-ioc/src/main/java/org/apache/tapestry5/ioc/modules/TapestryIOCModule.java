@@ -22,10 +22,12 @@ import org.apache.tapestry5.ioc.internal.services.*;
 import org.apache.tapestry5.ioc.internal.services.cron.PeriodicExecutorImpl;
 import org.apache.tapestry5.ioc.internal.util.CollectionFactory;
 import org.apache.tapestry5.ioc.internal.util.InternalUtils;
+import org.apache.tapestry5.ioc.internal.util.JDKUtils;
 import org.apache.tapestry5.ioc.services.*;
 import org.apache.tapestry5.ioc.services.cron.PeriodicExecutor;
 import org.apache.tapestry5.ioc.util.TimeInterval;
 import org.apache.tapestry5.services.UpdateListenerHub;
+import org.slf4j.Logger;
 
 import java.io.File;
 import java.lang.reflect.Array;
@@ -33,6 +35,7 @@ import java.math.BigDecimal;
 import java.math.BigInteger;
 import java.util.*;
 import java.util.Map.Entry;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
@@ -236,6 +239,11 @@ public final class TapestryIOCModule
                                                           @Symbol(IOCSymbols.THREAD_POOL_QUEUE_SIZE)
                                                           int queueSize,
 
+                                                          @Symbol(IOCSymbols.THREAD_POOL_VIRTUAL_THREADS)
+                                                          boolean virtualThreads,
+
+                                                          Logger logger,
+
                                                           PerthreadManager perthreadManager,
 
                                                           RegistryShutdownHub shutdownHub,
@@ -246,10 +254,16 @@ public final class TapestryIOCModule
         if (!threadPoolEnabled)
             return new NonParallelExecutor();
 
-        LinkedBlockingQueue<Runnable> workQueue = new LinkedBlockingQueue<Runnable>(queueSize);
+        if (virtualThreads && !JDKUtils.VIRTUAL_THREADS_AVAILABLE)
+        {
+            logger.warn(String.format("Virtual threads (%s) are not supported by Java %s; a thread pool will be used instead.",
+                    IOCSymbols.THREAD_POOL_VIRTUAL_THREADS, System.getProperty("java.specification.version")));
+        }
 
-        final ThreadPoolExecutor executorService = new ThreadPoolExecutor(coreSize, maxSize, keepAliveMillis,
-                TimeUnit.MILLISECONDS, workQueue);
+        final ExecutorService executorService = virtualThreads && JDKUtils.VIRTUAL_THREADS_AVAILABLE
+                ? JDKUtils.newVirtualThreadPerTaskExecutor()
+                : new ThreadPoolExecutor(coreSize, maxSize, keepAliveMillis,
+                TimeUnit.MILLISECONDS, new LinkedBlockingQueue<Runnable>(queueSize));
 
         shutdownHub.addRegistryShutdownListener(new Runnable()
         {
@@ -272,6 +286,8 @@ public final class TapestryIOCModule
         configuration.add(IOCSymbols.THREAD_POOL_KEEP_ALIVE, "1 m");
         configuration.add(IOCSymbols.THREAD_POOL_ENABLED, true);
         configuration.add(IOCSymbols.THREAD_POOL_QUEUE_SIZE, 100);
+        configuration.add(IOCSymbols.THREAD_POOL_VIRTUAL_THREADS, false);
+        configuration.add(IOCSymbols.CLASSPATH_SCAN_CACHE_DIRECTORY, "");
     }
     
     public static void contributeRegistryStartup(OrderedConfiguration<Runnable> configuration, 
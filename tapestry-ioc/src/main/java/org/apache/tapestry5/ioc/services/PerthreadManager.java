@@ -62,6 +62,29 @@ public interface PerthreadManager
      */
     <T> ObjectCreator<T> createValue(ObjectCreator<T> delegate);
 
+    /**
+     * Returns the number of per-thread values (including the {@link ObjectCreator}s) created by this manager that
+     * are still in use; each is assigned a slot in the per-thread storage of every thread. The default implementation
+     * returns 0, for implementations that do not track this.
+     *
+     * @since 5.5
+     */
+    default int getAllocatedValueCount()
+    {
+        return 0;
+    }
+
+    /**
+     * Returns the number of per-thread values that currently have a value stored for the current thread. The default
+     * implementation returns 0, for implementations that do not track this.
+     *
+     * @since 5.5
+     */
+    default int getActiveValueCount()
+    {
+        return 0;
+    }
+
     /**
      * Invokes {@link Runnable#run()}, providing a try...finally to {@linkplain #cleanup() cleanup} after.
      *
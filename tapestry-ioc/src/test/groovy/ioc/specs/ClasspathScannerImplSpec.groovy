@@ -1,12 +1,18 @@
 package ioc.specs
 
 import org.apache.tapestry5.ioc.Registry
+import org.apache.tapestry5.ioc.internal.services.ClasspathScanIndex
 import org.apache.tapestry5.ioc.internal.services.ClasspathScannerImpl
 import org.apache.tapestry5.ioc.internal.services.ClasspathURLConverterImpl
 import org.apache.tapestry5.ioc.services.ClasspathMatcher
+import org.apache.tapestry5.ioc.services.RegistryShutdownHub
 import org.apache.tapestry5.ioc.util.IdAllocator
+import org.slf4j.Logger
 import spock.lang.Specification
 
+import java.util.jar.JarEntry
+import java.util.jar.JarOutputStream
+
 class ClasspathScannerImplSpec extends Specification {
 
     // TAP5-2096
@@ -35,5 +41,107 @@ class ClasspathScannerImplSpec extends Specification {
         classes.contains(IdAllocator.name.replaceAll(/\./, "/") + '.class')
     }
 
+    def "scanning in parallel finds the same matches as scanning sequentially"() {
+        ClasspathMatcher classes = { packagePath, fileName -> fileName.endsWith(".class") } as ClasspathMatcher
+
+        def loader = Thread.currentThread().contextClassLoader
+        def converter = new ClasspathURLConverterImpl()
+
+        when:
+
+        def expected = new ClasspathScannerImpl.Job(classes, loader, converter).findMatches("org/apache/tapestry5/")
+        def actual = new ClasspathScannerImpl(converter).scan("org/apache/tapestry5/", classes)
+
+        then:
+
+        !expected.empty
+        actual == expected
+    }
+
+    def "contents of JAR files are stored in the index"() {
+        def dir = File.createTempDir()
+        def jar = new File(dir, "library.jar")
+        def cacheDir = new File(dir, "cache")
+        def hub = Mock(RegistryShutdownHub)
+        Runnable shutdownListener = null
+
+        writeJar(jar, "lib/Alpha.class", "lib/sub/Beta.class", "lib/readme.txt", "other/Gamma.class")
+
+        ClasspathMatcher classes = { packagePath, fileName -> fileName.endsWith(".class") } as ClasspathMatcher
+
+        def thread = Thread.currentThread()
+        def oldLoader = thread.contextClassLoader
+        def loader = new URLClassLoader([jar.toURI().toURL()] as URL[], (ClassLoader) null)
+
+        when:
+
+        thread.contextClassLoader = loader
+
+        def scanner = new ClasspathScannerImpl(new ClasspathURLConverterImpl(), cacheDir.absolutePath, Mock(Logger))
+        scanner.storeIndexAtShutdown(hub)
+
+        def matches = scanner.scan("lib/", classes)
+
+        then:
+
+        matches == ["lib/Alpha.class", "lib/sub/Beta.class"] as Set
+
+        and: "the index is not written by the scan"
+
+        !cacheDir.exists()
+
+        1 * hub.addRegistryShutdownListener(_ as Runnable) >> { args -> shutdownListener = args[0] }
+
+        when: "the registry shuts down, and the index is read again"
+
+        shutdownListener.run()
+
+        def index = new ClasspathScanIndex(cacheDir, Mock(Logger))
+
+        then:
+
+        index.get(jar, "lib/") as Set == ["lib/", "lib/Alpha.class", "lib/sub/", "lib/sub/Beta.class", "lib/readme.txt"] as Set
+        index.get(jar, "other/") == null
+
+        when: "the JAR file changes"
+
+        jar.setLastModified(jar.lastModified() - 10000)
+
+        then:
+
+        index.get(jar, "lib/") == null
+
+        cleanup:
+
+        thread.contextClassLoader = oldLoader
+        loader?.close()
+        dir.deleteDir()
+    }
+
+    private static void writeJar(File file, String... names) {
+        def dirs = [] as Set
+
+        file.withOutputStream { stream ->
+            def out = new JarOutputStream(stream)
+
+            names.each { name ->
+                def path = ""
 
+                name.split("/").dropRight(1).each { part ->
+                    path += part + "/"
+
+                    if (dirs.add(path)) {
+                        out.putNextEntry(new JarEntry(path))
+                        out.closeEntry()
+                    }
+                }
+
+                out.putNextEntry(new JarEntry(name))
+                out.write(name.bytes)
+                out.closeEntry()
+            }
+
+            out.close()
+        }
+    }
 }
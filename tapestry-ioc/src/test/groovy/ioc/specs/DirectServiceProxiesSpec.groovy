@@ -0,0 +1,109 @@
+package ioc.specs
+
+import org.apache.tapestry5.ioc.*
+import org.apache.tapestry5.ioc.internal.ServiceProxyLink
+
+class DirectServiceProxiesSpec extends AbstractRegistrySpecification {
+
+  def setup() {
+    System.setProperty IOCConstants.DIRECT_SERVICE_PROXIES_ENABLED, "true"
+  }
+
+  def cleanup() {
+    System.clearProperty IOCConstants.DIRECT_SERVICE_PROXIES_ENABLED
+  }
+
+  private ServiceProxyLink linkOf(proxy) {
+    def field = proxy.class.declaredFields.find { it.type == ServiceProxyLink }
+
+    field.accessible = true
+
+    return field.get(proxy)
+  }
+
+  def "proxy is linked to the service once realized"() {
+    buildRegistry FredModule, BarneyModule
+
+    def fred = getService "Fred", Runnable
+
+    expect:
+
+    linkOf(fred) == null
+
+    when:
+
+    fred.run()
+
+    then:
+
+    def link = linkOf(fred)
+
+    link != null
+    link.service instanceof Runnable
+    !link.service.is(fred)
+
+    when:
+
+    fred.run()
+
+    then:
+
+    linkOf(fred).is(link)
+  }
+
+  def "shutdown unlinks and deactivates proxies"() {
+    buildRegistry FredModule, BarneyModule
+
+    def fred = getService "Fred", Runnable
+
+    fred.run()
+
+    shutdown()
+
+    expect:
+
+    linkOf(fred) == null
+
+    when:
+
+    fred.run()
+
+    then:
+
+    RuntimeException ex = thrown()
+
+    ex.message.contains "Proxy for service Fred is no longer active because the IOC Registry has been shut down."
+
+    cleanup:
+
+    registry = null
+  }
+
+  def "per-thread services remain per-thread when linked"() {
+    buildRegistry PerThreadModule
+
+    def holder = getService StringHolder
+
+    when:
+
+    holder.value = "fred"
+
+    then:
+
+    holder.value == "fred"
+    linkOf(holder) != null
+
+    when:
+
+    def otherValue = "unset"
+
+    def t = new Thread({ otherValue = holder.value })
+
+    t.start()
+    t.join()
+
+    then:
+
+    otherValue == null
+  }
+}
@@ -4,6 +4,8 @@ import org.apache.tapestry5.ioc.internal.util.MessageFormatterImpl
 import spock.lang.Specification
 import spock.lang.Unroll
 
+import java.util.MissingFormatArgumentException
+
 class MessageFormatterImplSpec extends Specification {
 
     @Unroll
@@ -26,6 +28,42 @@ class MessageFormatterImplSpec extends Specification {
         "%s failed: %s"           | ["Another", new NullPointerException()]         | "Another failed: java.lang.NullPointerException" | "expansion of exception without message is exception class name"
     }
 
+    @Unroll
+    def "same result as String.format(): #format"() {
+
+        def mf = new MessageFormatterImpl(format, locale)
+
+        expect:
+
+        mf.format(* args) == String.format(locale, format, * args)
+
+        where:
+
+        format                         | args                      | locale
+        "no conversions"               | []                        | Locale.ENGLISH
+        "%s%s"                         | ["a", null]               | Locale.ENGLISH
+        "100%% of %d"                  | [-42L]                    | Locale.ENGLISH
+        "%,d items"                    | [1234567]                 | Locale.GERMAN
+        "%5.2f and %-6s|"              | [3.14159d, "x"]           | Locale.FRENCH
+        "%2\$s before %1\$s, %<s again" | ["one", "two"]         | Locale.ENGLISH
+        "%S line%n"                    | ["shout"]                 | Locale.ENGLISH
+        "%d in Thai digits"            | [42]                      | new Locale("th", "TH", "TH")
+        "%s and %d"                    | ["extra", 1, "unused"]    | Locale.ENGLISH
+    }
+
+    def "missing arguments are reported as by String.format()"() {
+
+        def mf = new MessageFormatterImpl("%s and %s", null)
+
+        when:
+
+        mf.format("one")
+
+        then:
+
+        thrown(MissingFormatArgumentException)
+    }
+
     def "toString() of a MessageFormatter is the format"() {
 
         when:
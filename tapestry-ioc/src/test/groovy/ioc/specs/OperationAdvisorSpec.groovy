@@ -1,5 +1,7 @@
 package ioc.specs
 
+import org.apache.tapestry5.ioc.IOOperation
+import org.apache.tapestry5.ioc.Invokable
 import org.apache.tapestry5.ioc.OperationTracker
 import org.apache.tapestry5.ioc.internal.DefaultModuleDefImpl
 import org.apache.tapestry5.ioc.internal.LoggerSourceImpl
@@ -31,18 +33,7 @@ class OperationAdvisorSpec extends Specification {
 
     def plasticProxyFactory = new PlasticProxyFactoryImpl(classLoader, proxyFactoryLogger)
 
-    def simpleOperationTracker = [
-
-        run: { description, operation ->
-          operations << description
-          operation.run()
-        },
-
-        invoke: {description, operation ->
-          operations << description
-          operation.invoke()
-        }
-    ] as OperationTracker
+    def simpleOperationTracker = new RecordingOperationTracker(operations: operations)
 
     registry = new RegistryImpl([
         new DefaultModuleDefImpl(TapestryIOCModule, logger, plasticProxyFactory),
@@ -85,3 +76,35 @@ class OperationAdvisorSpec extends Specification {
     operations == ["Second operation: foo", "Second operation: bar"]
   }
 }
+
+/**
+ * Implemented as a class (rather than a coerced map) so that the default methods of OperationTracker, used by
+ * inline operation advice, are overridden as well.
+ */
+class RecordingOperationTracker implements OperationTracker {
+
+  List operations
+
+  void run(String description, Runnable operation) {
+    operations << description
+    operation.run()
+  }
+
+  def <T> T invoke(String description, Invokable<T> operation) {
+    operations << description
+    operation.invoke()
+  }
+
+  def <T> T perform(String description, IOOperation<T> operation) throws IOException {
+    operations << description
+    operation.perform()
+  }
+
+  Object beginOperation(String description) {
+    operations << description
+    description
+  }
+
+  void endOperation(Object operation, Throwable failure) {
+  }
+}
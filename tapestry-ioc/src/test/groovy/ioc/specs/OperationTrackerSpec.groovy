@@ -38,5 +38,36 @@ class OperationTrackerSpec extends Specification {
     
   }
 
+  def "operations ended with a runtime exception are reported"() {
+    setup:
+    def logger = LoggerFactory.getLogger(OperationTracker)
+    def operationTracker = new OperationTrackerImpl(logger)
+
+    when:
+    operationTracker.run 'Outer operation', {
+      def operation = operationTracker.beginOperation 'Inner operation'
 
+      operationTracker.endOperation operation, new IllegalStateException('Inner failure')
+    }
+
+    then:
+    OperationException ex = thrown()
+    ex.trace == ['Outer operation', 'Inner operation']
+    ex.cause.message == 'Inner failure'
+    operationTracker.empty
+  }
+
+  def "operations ended normally, or with a checked exception, are complete"() {
+    setup:
+    def logger = LoggerFactory.getLogger(OperationTracker)
+    def operationTracker = new OperationTrackerImpl(logger)
+
+    when:
+    operationTracker.endOperation operationTracker.beginOperation('First operation'), null
+    operationTracker.endOperation operationTracker.beginOperation('Second operation'), new IOException()
+
+    then:
+    notThrown(Exception)
+    operationTracker.empty
+  }
 }
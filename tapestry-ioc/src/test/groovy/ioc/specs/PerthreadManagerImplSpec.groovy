@@ -179,5 +179,100 @@ class PerthreadManagerImplSpec extends Specification {
 
   }
 
+  def "per-thread storage grows as values are created, and is cleared by cleanup"() {
+    Logger logger = Mock()
+    def manager = new PerthreadManagerImpl(logger)
+
+    def first = manager.createValue()
+    first.set "first"
+
+    def values = (1..100).collect { manager.createValue() }
+
+    when:
+
+    values.eachWithIndex { value, i -> value.set i }
+
+    then:
+
+    first.get() == "first"
+    values[99].get() == 99
+    manager.activeValueCount == 101
+
+    // The callbacks value, plus the ones created above
+    manager.allocatedValueCount == 102
+
+    when:
+
+    manager.cleanup()
 
+    then:
+
+    !first.exists()
+    !values[99].exists()
+    manager.activeValueCount == 0
+  }
+
+  def "values are stored separately for each thread"() {
+    Logger logger = Mock()
+    def manager = new PerthreadManagerImpl(logger)
+    def value = manager.createValue()
+
+    value.set "main"
+
+    when:
+
+    def other = null
+    def thread = Thread.start { other = value.get("none") }
+    thread.join()
+
+    then:
+
+    other == "none"
+    value.get() == "main"
+  }
+
+  def "slots of garbage collected values are reused, without exposing the previous value"() {
+    Logger logger = Mock()
+    def manager = new PerthreadManagerImpl(logger)
+
+    manager.createValue().set "stale"
+
+    def allocated = manager.allocatedValueCount
+
+    when:
+
+    for (int i = 0; i < 50 && manager.allocatedValueCount == allocated; i++) {
+      System.gc()
+      Thread.sleep 20
+    }
+
+    def value = manager.createValue()
+
+    then:
+
+    manager.allocatedValueCount == allocated
+    manager.slotGenerator.get() == allocated
+
+    // The slot still holds "stale" for this thread, but that entry belongs to the collected value.
+    !value.exists()
+    value.get() == null
+  }
+
+  def "cleanup does not allocate storage for a thread that never stored a value"() {
+    Logger logger = Mock()
+    def manager = new PerthreadManagerImpl(logger)
+
+    when:
+
+    def storage = "unset"
+    def thread = Thread.start {
+      manager.cleanup()
+      storage = manager.holder.get()
+    }
+    thread.join()
+
+    then:
+
+    storage == null
+  }
 }
@@ -0,0 +1,60 @@
+package ioc.specs
+
+import org.apache.tapestry5.ioc.Invokable
+import org.apache.tapestry5.ioc.Registry
+import org.apache.tapestry5.ioc.RegistryBuilder
+import org.apache.tapestry5.ioc.internal.services.VirtualThreadsModule
+import org.apache.tapestry5.ioc.internal.util.JDKUtils
+import org.apache.tapestry5.ioc.services.ParallelExecutor
+import org.apache.tapestry5.ioc.services.cron.IntervalSchedule
+import org.apache.tapestry5.ioc.services.cron.PeriodicExecutor
+import spock.lang.AutoCleanup
+import spock.lang.Shared
+import spock.lang.Specification
+
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.TimeUnit
+
+class VirtualThreadsExecutorSpec extends Specification {
+
+  @Shared
+  @AutoCleanup("shutdown")
+  private Registry registry
+
+  @Shared
+  private ParallelExecutor executor
+
+  def setupSpec() {
+    registry = new RegistryBuilder().add(VirtualThreadsModule).build()
+
+    registry.performRegistryStartup()
+
+    executor = registry.getService ParallelExecutor
+  }
+
+  def "tasks run in virtual threads (when supported by the JVM)"() {
+
+    when:
+
+    def future = executor.invoke({ Thread.currentThread().toString() } as Invokable)
+
+    then:
+
+    future.get().startsWith("VirtualThread") == JDKUtils.VIRTUAL_THREADS_AVAILABLE
+  }
+
+  def "periodic jobs execute"() {
+
+    def latch = new CountDownLatch(2)
+
+    def job = registry.getService(PeriodicExecutor).addJob(new IntervalSchedule(10), "count down", { latch.countDown() } as Runnable)
+
+    expect:
+
+    latch.await(5, TimeUnit.SECONDS)
+
+    cleanup:
+
+    job.cancel()
+  }
+}
@@ -14,12 +14,11 @@
 
 package org.apache.tapestry5.internal.jpa;
 
-import org.apache.tapestry5.ioc.Invokable;
 import org.apache.tapestry5.jpa.EntityTransactionManager;
-import org.apache.tapestry5.plastic.MethodAdvice;
-import org.apache.tapestry5.plastic.MethodInvocation;
+import org.apache.tapestry5.plastic.InlineMethodAdvice;
+import org.apache.tapestry5.plastic.InstanceContext;
 
-public class CommitAfterMethodAdvice implements MethodAdvice
+public class CommitAfterMethodAdvice implements InlineMethodAdvice
 {
     private EntityTransactionManager manager;
     private String context;
@@ -31,16 +30,14 @@ public class CommitAfterMethodAdvice implements MethodAdvice
     }
 
     @Override
-    public void advise(final MethodInvocation invocation)
+    public Object beforeInvocation(Object instance, InstanceContext instanceContext)
     {
-        manager.invokeInTransaction(context, new Invokable<MethodInvocation>()
-        {
-            @Override
-            public MethodInvocation invoke()
-            {
-                return invocation.proceed();
-            }
-        });
+        return manager.beginInvocation(context);
+    }
 
+    @Override
+    public void afterInvocation(Object instance, Object state, Throwable failure)
+    {
+        manager.endInvocation(context, state, failure);
     }
 }
@@ -85,6 +85,19 @@ public class EntityTransactionManagerImpl implements EntityTransactionManager
                 invokable);
     }
 
+    @Override
+    public Object beginInvocation(String unitName)
+    {
+        return getPersistenceContextSpecificEntityTransactionManager(unitName).beginInvocation();
+    }
+
+    @Override
+    public void endInvocation(String unitName, Object invocation, Throwable failure)
+    {
+        getPersistenceContextSpecificEntityTransactionManager(unitName).endInvocation(invocation,
+                failure);
+    }
+
     private PersistenceContextSpecificEntityTransactionManager getPersistenceContextSpecificEntityTransactionManager(
             String unitName)
     {
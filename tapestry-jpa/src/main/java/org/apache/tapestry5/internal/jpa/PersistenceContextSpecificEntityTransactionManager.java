@@ -35,11 +35,27 @@ public class PersistenceContextSpecificEntityTransactionManager
     private boolean transactionBeingCommitted;
 
     private Deque<Invokable<?>> invokableUnitsForSequentialTransactions = new ArrayDeque<Invokable<?>>();
-    private Deque<Invokable<?>> invokableUnits = new ArrayDeque<Invokable<?>>();
+    private Deque<Unit> invokableUnits = new ArrayDeque<Unit>();
 
     private List<Invokable<Boolean>> beforeCommitInvokables = new ArrayList<Invokable<Boolean>>();
     private List<Invokable<Boolean>> afterCommitInvokables = new ArrayList<Invokable<Boolean>>();
 
+    /**
+     * A single unit of work, started by {@link #beginInvocation()} and completed by
+     * {@link #endInvocation(Object, Throwable)}.
+     */
+    private static final class Unit
+    {
+        private final boolean topLevel;
+
+        private EntityTransaction transaction;
+
+        private Unit(boolean topLevel)
+        {
+            this.topLevel = topLevel;
+        }
+    }
+
     public PersistenceContextSpecificEntityTransactionManager(Logger logger,
             EntityManager entityManager)
     {
@@ -66,28 +82,51 @@ public class PersistenceContextSpecificEntityTransactionManager
     }
 
     public <T> T invokeInTransaction(Invokable<T> invokable)
+    {
+        // happens for example if you try to run a transaction in @PostCommit hook. We can only
+        // allow VoidInvokables to be executed later; anything else is rejected by beginInvocation()
+        if (transactionBeingCommitted && invokable instanceof VoidInvokable)
+        {
+            invokableUnitsForSequentialTransactions.push(invokable);
+            return null;
+        }
+
+        Object invocation = beginInvocation();
+
+        T result;
+
+        try
+        {
+            result = invokable.invoke();
+        }
+        catch (RuntimeException | Error e)
+        {
+            endInvocation(invocation, e);
+
+            throw e;
+        }
+
+        endInvocation(invocation, null);
+
+        return result;
+    }
+
+    /**
+     * Starts a unit of work, beginning the transaction if it is not yet active. The returned value must be passed
+     * to {@link #endInvocation(Object, Throwable)} once the unit of work completes, on the same thread.
+     */
+    public Object beginInvocation()
     {
         if (transactionBeingCommitted)
         {
-            // happens for example if you try to run a transaction in @PostCommit hook. We can only
-            // allow VoidInvokables
-            // to be executed later
-            if (invokable instanceof VoidInvokable)
-            {
-                invokableUnitsForSequentialTransactions.push(invokable);
-                return null;
-            }
-            else
-            {
-                rollbackTransaction(getTransaction());
-                throw new RuntimeException(
-                        "Current transaction is already being committed. Transactions started @PostCommit are not allowed to return a value");
-            }
+            rollbackTransaction(getTransaction());
+            throw new RuntimeException(
+                    "Current transaction is already being committed. Transactions started @PostCommit are not allowed to return a value");
         }
 
-        final boolean topLevel = invokableUnits.isEmpty();
-        invokableUnits.push(invokable);
-        if (!topLevel)
+        Unit unit = new Unit(invokableUnits.isEmpty());
+        invokableUnits.push(unit);
+        if (!unit.topLevel)
         {
             if (logger.isWarnEnabled())
             {
@@ -95,12 +134,47 @@ public class PersistenceContextSpecificEntityTransactionManager
             }
         }
 
-        final EntityTransaction transaction = getTransaction();
         try
         {
-            T result = invokable.invoke();
+            unit.transaction = getTransaction();
+        }
+        catch (RuntimeException e)
+        {
+            invokableUnits.remove(unit);
+
+            throw e;
+        }
+
+        return unit;
+    }
+
+    /**
+     * Completes a unit of work started by {@link #beginInvocation()}. A runtime exception rolls the transaction
+     * back; success or a checked exception commits it, once the top level unit of work completes.
+     */
+    public void endInvocation(Object invocation, Throwable failure)
+    {
+        Unit unit = (Unit) invocation;
+        EntityTransaction transaction = unit.transaction;
+
+        try
+        {
+            if (failure instanceof RuntimeException)
+            {
+                if (transaction.isActive())
+                {
+                    rollbackTransaction(transaction);
+                }
+
+                return;
+            }
 
-            if (topLevel && invokableUnits.peek().equals(invokable))
+            if (failure instanceof Error)
+            {
+                return;
+            }
+
+            if (unit.topLevel && invokableUnits.peek() == unit)
             {
                 // Success or checked exception:
 
@@ -122,12 +196,10 @@ public class PersistenceContextSpecificEntityTransactionManager
                         invokeInTransaction(invokableUnitsForSequentialTransactions.pop());
                 }
             }
-
-            return result;
         }
         catch (final RuntimeException e)
         {
-            if (transaction != null && transaction.isActive())
+            if (transaction.isActive())
             {
                 rollbackTransaction(transaction);
             }
@@ -136,7 +208,7 @@ public class PersistenceContextSpecificEntityTransactionManager
         }
         finally
         {
-            invokableUnits.remove(invokable);
+            invokableUnits.remove(unit);
         }
     }
 
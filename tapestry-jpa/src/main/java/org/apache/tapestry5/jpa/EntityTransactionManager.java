@@ -26,6 +26,25 @@ public interface EntityTransactionManager
 
     void invokeAfterCommit(String unitName, Invokable<Boolean> invokable);
 
+    /**
+     * Starts a unit of work for the named persistence unit, as {@link #invokeInTransaction(String, Invokable)}
+     * does before invoking its invokable. Used by inline advice, which has no invokable to pass.
+     *
+     * @return opaque state to be passed to {@link #endInvocation(String, Object, Throwable)}
+     * @since 5.5
+     */
+    Object beginInvocation(String unitName);
+
+    /**
+     * Completes a unit of work started by {@link #beginInvocation(String)}, committing or rolling back the
+     * transaction as {@link #invokeInTransaction(String, Invokable)} would.
+     *
+     * @param failure
+     *         the exception thrown by the unit of work, or null if it completed normally
+     * @since 5.5
+     */
+    void endInvocation(String unitName, Object invocation, Throwable failure);
+
     @SuppressWarnings("rawtypes")
     public static class VoidInvokable implements Invokable
     {
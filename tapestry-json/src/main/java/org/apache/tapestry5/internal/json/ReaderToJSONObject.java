@@ -0,0 +1,41 @@
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.apache.tapestry5.internal.json;
+
+import org.apache.tapestry5.ioc.services.Coercion;
+import org.apache.tapestry5.json.JSONObject;
+import org.apache.tapestry5.json.JSONParser;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+
+/**
+ * Parses the content of the reader incrementally, using a {@link JSONParser}. The reader is not closed.
+ *
+ * @since 5.5
+ */
+public class ReaderToJSONObject implements Coercion<Reader, JSONObject>
+{
+    @Override
+    public JSONObject coerce(Reader input)
+    {
+        try
+        {
+            return new JSONParser(input).readObject();
+        } catch (IOException ex)
+        {
+            throw new UncheckedIOException(ex);
+        }
+    }
+}
@@ -0,0 +1,774 @@
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.apache.tapestry5.json;
+
+import org.apache.tapestry5.json.exceptions.JSONSyntaxException;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * A pull parser for JSON content read incrementally from a {@link Reader} or {@link InputStream}, without first
+ * reading the entire content into a String. The content is consumed as a series of {@linkplain Event events}; any
+ * object or array may be {@linkplain #readObject() materialized} as a {@link JSONObject} or {@link JSONArray}, or
+ * {@linkplain #skipChildren() skipped}, as it is reached.
+ *
+ * The parser accepts the same (lenient) syntax as {@link JSONObject#JSONObject(String)}.
+ *
+ * Instances are not thread safe.
+ *
+ * @since 5.5
+ */
+public class JSONParser implements Closeable
+{
+    /**
+     * The events produced by {@link #next()}.
+     */
+    public enum Event
+    {
+        START_OBJECT, END_OBJECT, START_ARRAY, END_ARRAY,
+
+        /**
+         * The key of a name/value pair within an object; see {@link #getKey()}.
+         */
+        KEY,
+
+        /**
+         * A simple value (a String, Integer, Long, Double, Boolean or {@link JSONObject#NULL}); see {@link #getValue()}.
+         */
+        VALUE
+    }
+
+    private enum State
+    {
+        OBJECT_START, OBJECT_VALUE, OBJECT_AFTER_VALUE, ARRAY_START, ARRAY_AFTER_SEPARATOR, ARRAY_AFTER_VALUE
+    }
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private static final String LITERAL_TERMINATORS = "{}[]/\\:,=;# \t\f\r\n";
+
+    private final Reader reader;
+
+    private final char[] buffer = new char[BUFFER_SIZE];
+
+    private int position, limit;
+
+    /**
+     * Number of characters read before the start of the buffer.
+     */
+    private long offset;
+
+    private final StringBuilder text = new StringBuilder();
+
+    private State[] stack = new State[16];
+
+    private int depth;
+
+    private boolean started;
+
+    private Event event;
+
+    private String key;
+
+    private Object value;
+
+    /**
+     * Parses UTF-8 content from the stream.
+     */
+    public JSONParser(InputStream input)
+    {
+        this(new InputStreamReader(input, StandardCharsets.UTF_8));
+    }
+
+    public JSONParser(Reader reader)
+    {
+        assert reader != null;
+
+        this.reader = reader;
+    }
+
+    /**
+     * Advances to the next event.
+     *
+     * @return the next event, or null once the top-level value has been completely read
+     * @throws JSONSyntaxException
+     *         if the content is not valid
+     */
+    public Event next() throws IOException
+    {
+        event = advance();
+
+        return event;
+    }
+
+    /**
+     * Returns the most recent event, or null.
+     */
+    public Event getEvent()
+    {
+        return event;
+    }
+
+    /**
+     * Returns the key, after a {@link Event#KEY} event.
+     */
+    public String getKey()
+    {
+        check(Event.KEY);
+
+        return key;
+    }
+
+    /**
+     * Returns the value, after a {@link Event#VALUE} event.
+     */
+    public Object getValue()
+    {
+        check(Event.VALUE);
+
+        return value;
+    }
+
+    /**
+     * Returns the number of objects and arrays that enclose the current position.
+     */
+    public int getDepth()
+    {
+        return depth;
+    }
+
+    /**
+     * Reads the content of the object just started (the current event must be {@link Event#START_OBJECT}), through
+     * the matching {@link Event#END_OBJECT}, and returns it as a JSONObject. If no event has been read yet, first reads
+     * the top-level value, which must be an object.
+     */
+    public JSONObject readObject() throws IOException
+    {
+        if (event == null && !started)
+        {
+            next();
+        }
+
+        check(Event.START_OBJECT);
+
+        JSONObject result = new JSONObject();
+
+        while (next() == Event.KEY)
+        {
+            String name = key;
+
+            result.put(name, readNextValue());
+        }
+
+        return result;
+    }
+
+    /**
+     * Reads the content of the array just started (the current event must be {@link Event#START_ARRAY}), through
+     * the matching {@link Event#END_ARRAY}, and returns it as a JSONArray. If no event has been read yet, first reads
+     * the top-level value, which must be an array.
+     */
+    public JSONArray readArray() throws IOException
+    {
+        if (event == null && !started)
+        {
+            next();
+        }
+
+        check(Event.START_ARRAY);
+
+        JSONArray result = new JSONArray();
+
+        while (true)
+        {
+            next();
+
+            if (event == Event.END_ARRAY)
+            {
+                return result;
+            }
+
+            result.put(currentValue());
+        }
+    }
+
+    /**
+     * Skips the content of the object or array just started, through the matching end event. Does nothing for other
+     * events.
+     */
+    public void skipChildren() throws IOException
+    {
+        if (event != Event.START_OBJECT && event != Event.START_ARRAY)
+        {
+            return;
+        }
+
+        int target = depth - 1;
+
+        while (depth > target)
+        {
+            next();
+        }
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        reader.close();
+    }
+
+    private Object readNextValue() throws IOException
+    {
+        next();
+
+        return currentValue();
+    }
+
+    private Object currentValue() throws IOException
+    {
+        switch (event)
+        {
+            case START_OBJECT:
+                return readObject();
+
+            case START_ARRAY:
+                return readArray();
+
+            default:
+                return value;
+        }
+    }
+
+    private void check(Event expected)
+    {
+        if (event != expected)
+        {
+            throw new IllegalStateException(String.format("Expected the current event to be %s, but it is %s.", expected, event));
+        }
+    }
+
+    private Event advance() throws IOException
+    {
+        if (depth == 0)
+        {
+            if (started)
+            {
+                return null;
+            }
+
+            started = true;
+
+            int c = nextClean();
+
+            if (c == -1)
+            {
+                throw syntaxError("End of input");
+            }
+
+            return startValue(c);
+        }
+
+        int c;
+
+        switch (stack[depth - 1])
+        {
+            case OBJECT_START:
+
+                c = nextClean();
+
+                if (c == '}')
+                {
+                    depth--;
+                    return Event.END_OBJECT;
+                }
+
+                return readKey(c);
+
+            case OBJECT_VALUE:
+
+                stack[depth - 1] = State.OBJECT_AFTER_VALUE;
+
+                c = nextClean();
+
+                if (c == -1)
+                {
+                    throw syntaxError("End of input");
+                }
+
+                return startValue(c);
+
+            case OBJECT_AFTER_VALUE:
+
+                c = nextClean();
+
+                if (c == '}')
+                {
+                    depth--;
+                    return Event.END_OBJECT;
+                }
+
+                if (c != ',' && c != ';')
+                {
+                    throw syntaxError("Expected a ',' or '}'");
+                }
+
+                return readKey(nextClean());
+
+            case ARRAY_START:
+            case ARRAY_AFTER_SEPARATOR:
+
+                c = nextClean();
+
+                switch (c)
+                {
+                    case -1:
+                        throw syntaxError("Expected a ',' or ']'");
+
+                    case ']':
+                        depth--;
+                        return Event.END_ARRAY;
+
+                    case ',':
+                    case ';':
+                        // A separator without a value first means "null".
+                        stack[depth - 1] = State.ARRAY_AFTER_SEPARATOR;
+                        value = JSONObject.NULL;
+                        return Event.VALUE;
+
+                    default:
+                        stack[depth - 1] = State.ARRAY_AFTER_VALUE;
+                        return startValue(c);
+                }
+
+            default:
+
+                c = nextClean();
+
+                switch (c)
+                {
+                    case ']':
+                        depth--;
+                        return Event.END_ARRAY;
+
+                    case ',':
+                    case ';':
+                        stack[depth - 1] = State.ARRAY_AFTER_SEPARATOR;
+                        return advance();
+
+                    default:
+                        throw syntaxError("Expected a ',' or ']'");
+                }
+        }
+    }
+
+    private Event readKey(int c) throws IOException
+    {
+        if (c == -1)
+        {
+            throw syntaxError("A JSONObject text must end with '}'");
+        }
+
+        Object name;
+
+        if (c == '"' || c == '\'')
+        {
+            name = readString((char) c);
+        } else if (c == '{' || c == '[')
+        {
+            throw syntaxError("Names must be strings, but " + (c == '{' ? "an object" : "an array") + " was found");
+        } else
+        {
+            name = readLiteral(c);
+        }
+
+        if (!(name instanceof String))
+        {
+            throw syntaxError("Names must be strings, but " + name
+                    + " is of type " + name.getClass().getName());
+        }
+
+        int separator = nextClean();
+
+        if (separator != ':' && separator != '=')
+        {
+            throw syntaxError("Expected a ':' after a key");
+        }
+
+        // Accept "=>" as a separator
+
+        if (read() != '>')
+        {
+            unread();
+        }
+
+        key = (String) name;
+
+        stack[depth - 1] = State.OBJECT_VALUE;
+
+        return Event.KEY;
+    }
+
+    private Event startValue(int c) throws IOException
+    {
+        switch (c)
+        {
+            case '{':
+                push(State.OBJECT_START);
+                return Event.START_OBJECT;
+
+            case '[':
+                push(State.ARRAY_START);
+                return Event.START_ARRAY;
+
+            case '"':
+            case '\'':
+                value = readString((char) c);
+                return Event.VALUE;
+
+            default:
+                value = readLiteral(c);
+                return Event.VALUE;
+        }
+    }
+
+    private void push(State state)
+    {
+        if (depth == stack.length)
+        {
+            stack = Arrays.copyOf(stack, depth * 2);
+        }
+
+        stack[depth++] = state;
+    }
+
+    private int read() throws IOException
+    {
+        if (position == limit)
+        {
+            offset += limit;
+
+            limit = reader.read(buffer, 0, BUFFER_SIZE);
+            position = 0;
+
+            if (limit <= 0)
+            {
+                limit = 0;
+                return -1;
+            }
+
+            // Consume an optional byte order mark at the very start of the content.
+
+            if (offset == 0 && buffer[0] == '\uFEFF')
+            {
+                position = 1;
+
+                return read();
+            }
+        }
+
+        return buffer[position++];
+    }
+
+    /**
+     * Un-reads the most recently read character; only valid immediately after a call to {@link #read()} that did not
+     * return -1.
+     */
+    private void unread()
+    {
+        if (position > 0)
+        {
+            position--;
+        }
+    }
+
+    private int nextClean() throws IOException
+    {
+        while (true)
+        {
+            int c = read();
+
+            switch (c)
+            {
+                case '\t':
+                case ' ':
+                case '\n':
+                case '\r':
+                    continue;
+
+                case '/':
+
+                    int peek = read();
+
+                    if (peek == '*')
+                    {
+                        skipComment();
+                        continue;
+                    }
+
+                    if (peek == '/')
+                    {
+                        skipToEndOfLine();
+                        continue;
+                    }
+
+                    if (peek != -1)
+                    {
+                        unread();
+                    }
+
+                    return c;
+
+                case '#':
+                    // Skip a # hash end-of-line comment.
+                    skipToEndOfLine();
+                    continue;
+
+                default:
+                    return c;
+            }
+        }
+    }
+
+    private void skipComment() throws IOException
+    {
+        int previous = 0;
+
+        while (true)
+        {
+            int c = read();
+
+            if (c == -1)
+            {
+                throw syntaxError("Unclosed comment");
+            }
+
+            if (previous == '*' && c == '/')
+            {
+                return;
+            }
+
+            previous = c;
+        }
+    }
+
+    private void skipToEndOfLine() throws IOException
+    {
+        while (true)
+        {
+            int c = read();
+
+            if (c == -1 || c == '\r' || c == '\n')
+            {
+                return;
+            }
+        }
+    }
+
+    private String readString(char quote) throws IOException
+    {
+        text.setLength(0);
+
+        while (true)
+        {
+            int c = read();
+
+            if (c == -1)
+            {
+                throw syntaxError("Unterminated string");
+            }
+
+            if (c == quote)
+            {
+                return text.toString();
+            }
+
+            if (c == '\\')
+            {
+                text.append(readEscapeCharacter());
+            } else
+            {
+                text.append((char) c);
+            }
+        }
+    }
+
+    private char readEscapeCharacter() throws IOException
+    {
+        int escaped = read();
+
+        switch (escaped)
+        {
+            case -1:
+                throw syntaxError("Unterminated escape sequence");
+
+            case 'u':
+                return readHex(4);
+
+            case 'x':
+                return readHex(2);
+
+            case 't':
+                return '\t';
+
+            case 'b':
+                return '\b';
+
+            case 'n':
+                return '\n';
+
+            case 'r':
+                return '\r';
+
+            case 'f':
+                return '\f';
+
+            default:
+                return (char) escaped;
+        }
+    }
+
+    private char readHex(int count) throws IOException
+    {
+        char[] hex = new char[count];
+
+        for (int i = 0; i < count; i++)
+        {
+            int c = read();
+
+            if (c == -1)
+            {
+                throw syntaxError("Unterminated escape sequence");
+            }
+
+            hex[i] = (char) c;
+        }
+
+        try
+        {
+            return (char) Integer.parseInt(new String(hex), 16);
+        } catch (NumberFormatException ex)
+        {
+            throw syntaxError("Invalid escape sequence: " + new String(hex));
+        }
+    }
+
+    /**
+     * Reads a literal: null, true, false, a number, or an unquoted string.
+     */
+    private Object readLiteral(int first) throws IOException
+    {
+        text.setLength(0);
+
+        int c = first;
+
+        while (LITERAL_TERMINATORS.indexOf(c) < 0)
+        {
+            text.append((char) c);
+
+            c = read();
+
+            if (c == -1)
+            {
+                break;
+            }
+
+            if (LITERAL_TERMINATORS.indexOf(c) >= 0)
+            {
+                unread();
+                break;
+            }
+        }
+
+        if (text.length() == 0)
+        {
+            throw syntaxError("Missing value");
+        }
+
+        String literal = text.toString();
+
+        if ("null".equalsIgnoreCase(literal))
+        {
+            return JSONObject.NULL;
+        }
+
+        if ("true".equalsIgnoreCase(literal))
+        {
+            return Boolean.TRUE;
+        }
+
+        if ("false".equalsIgnoreCase(literal))
+        {
+            return Boolean.FALSE;
+        }
+
+        // Try to parse as an integral type (same rules as JSONObject(String)) ...
+
+        if (literal.indexOf('.') == -1)
+        {
+            int base = 10;
+            String number = literal;
+
+            if (number.startsWith("0x") || number.startsWith("0X"))
+            {
+                number = number.substring(2);
+                base = 16;
+            } else if (number.startsWith("0") && number.length() > 1)
+            {
+                number = number.substring(1);
+                base = 8;
+            }
+
+            try
+            {
+                long longValue = Long.parseLong(number, base);
+
+                if (longValue <= Integer.MAX_VALUE && longValue >= Integer.MIN_VALUE)
+                {
+                    return (int) longValue;
+                }
+
+                return longValue;
+            } catch (NumberFormatException e)
+            {
+                // Fall through to try floating point.
+            }
+        }
+
+        // ... next as floating point ...
+
+        try
+        {
+            return Double.valueOf(literal);
+        } catch (NumberFormatException ignored)
+        {
+            // Fall through.
+        }
+
+        // ... finally give up; it's an unquoted string.
+
+        return literal;
+    }
+
+    private JSONSyntaxException syntaxError(String message)
+    {
+        long at = offset + position;
+
+        return new JSONSyntaxException((int) Math.min(at, Integer.MAX_VALUE), message + " at character " + at);
+    }
+}
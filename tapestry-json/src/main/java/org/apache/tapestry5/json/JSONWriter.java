@@ -0,0 +1,562 @@
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.apache.tapestry5.json;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+/**
+ * Writes JSON content directly to an output stream (as UTF-8), without building a {@link JSONObject} or
+ * {@link JSONArray} tree in memory; this is appropriate for large responses. Output is compact, and written through
+ * an internal buffer.
+ *
+ * Like {@link JSONStringer}, the writer enforces well-formed output: each {@link #object()} or {@link #array()} must
+ * be matched by {@link #endObject()} or {@link #endArray()}, and within an object, each {@link #key(String)} must be
+ * followed by a single value. Calls that would result in malformed JSON fail with an {@link IllegalStateException}.
+ *
+ * Instances are not thread safe.
+ *
+ * @since 5.5
+ */
+public class JSONWriter implements Closeable, Flushable
+{
+    private static final int BUFFER_SIZE = 8192;
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private enum Scope
+    {
+        EMPTY_ARRAY, NONEMPTY_ARRAY, EMPTY_OBJECT, DANGLING_KEY, NONEMPTY_OBJECT
+    }
+
+    private final OutputStream out;
+
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+
+    private int position;
+
+    private Scope[] stack = new Scope[16];
+
+    private int depth;
+
+    private boolean complete;
+
+    /**
+     * Used when writing a {@link JSONObject} or {@link JSONArray} value.
+     */
+    private final JSONPrintSession session = new JSONPrintSession()
+    {
+        @Override
+        public JSONPrintSession print(String value)
+        {
+            writeRaw(value);
+
+            return this;
+        }
+
+        @Override
+        public JSONPrintSession printQuoted(String value)
+        {
+            writeQuoted(value);
+
+            return this;
+        }
+
+        @Override
+        public JSONPrintSession newline()
+        {
+            return this;
+        }
+
+        @Override
+        public JSONPrintSession printSymbol(char symbol)
+        {
+            writeRaw(symbol);
+
+            return this;
+        }
+
+        @Override
+        public JSONPrintSession indent()
+        {
+            return this;
+        }
+
+        @Override
+        public JSONPrintSession outdent()
+        {
+            return this;
+        }
+    };
+
+    /**
+     * Wraps I/O failures inside the print session (whose methods may not throw IOException).
+     */
+    private static final class WriteFailure extends RuntimeException
+    {
+        WriteFailure(IOException cause)
+        {
+            super(cause);
+        }
+    }
+
+    public JSONWriter(OutputStream out)
+    {
+        assert out != null;
+
+        this.out = out;
+    }
+
+    /**
+     * Begins a new object; must be matched by a call to {@link #endObject()}.
+     */
+    public JSONWriter object() throws IOException
+    {
+        return open(Scope.EMPTY_OBJECT, '{');
+    }
+
+    /**
+     * Ends the current object.
+     */
+    public JSONWriter endObject() throws IOException
+    {
+        return close(Scope.EMPTY_OBJECT, Scope.NONEMPTY_OBJECT, '}');
+    }
+
+    /**
+     * Begins a new array; must be matched by a call to {@link #endArray()}.
+     */
+    public JSONWriter array() throws IOException
+    {
+        return open(Scope.EMPTY_ARRAY, '[');
+    }
+
+    /**
+     * Ends the current array.
+     */
+    public JSONWriter endArray() throws IOException
+    {
+        return close(Scope.EMPTY_ARRAY, Scope.NONEMPTY_ARRAY, ']');
+    }
+
+    /**
+     * Writes the key of the next name/value pair of the current object.
+     */
+    public JSONWriter key(String name) throws IOException
+    {
+        assert name != null;
+
+        Scope scope = peek();
+
+        if (scope == Scope.NONEMPTY_OBJECT)
+        {
+            put(',');
+        } else if (scope != Scope.EMPTY_OBJECT)
+        {
+            throw new IllegalStateException("A key may only be written inside an object.");
+        }
+
+        stack[depth - 1] = Scope.DANGLING_KEY;
+
+        quoted(name);
+        put(':');
+
+        return this;
+    }
+
+    /**
+     * Writes a value: null (or {@link JSONObject#NULL}), a String, Number, Boolean, {@link JSONString} (including
+     * {@link JSONLiteral}), {@link JSONObject} or {@link JSONArray}. Other objects are written as their string value.
+     */
+    public JSONWriter value(Object value) throws IOException
+    {
+        beforeValue();
+
+        if (value == null || value == JSONObject.NULL)
+        {
+            raw("null");
+        } else if (value instanceof String)
+        {
+            quoted((String) value);
+        } else if (value instanceof Number)
+        {
+            raw(JSONObject.numberToString((Number) value));
+        } else if (value instanceof Boolean)
+        {
+            raw(value.toString());
+        } else if (value instanceof JSONString)
+        {
+            raw(((JSONString) value).toJSONString());
+        } else if (value instanceof JSONCollection)
+        {
+            try
+            {
+                ((JSONCollection) value).print(session);
+            } catch (WriteFailure ex)
+            {
+                throw (IOException) ex.getCause();
+            }
+        } else
+        {
+            quoted(value.toString());
+        }
+
+        return this;
+    }
+
+    /**
+     * Writes a string value.
+     */
+    public JSONWriter value(String value) throws IOException
+    {
+        if (value == null)
+        {
+            return value((Object) null);
+        }
+
+        beforeValue();
+
+        quoted(value);
+
+        return this;
+    }
+
+    /**
+     * Writes a numeric value.
+     */
+    public JSONWriter value(long value) throws IOException
+    {
+        beforeValue();
+
+        raw(Long.toString(value));
+
+        return this;
+    }
+
+    /**
+     * Writes a numeric value, which must be finite.
+     */
+    public JSONWriter value(double value) throws IOException
+    {
+        beforeValue();
+
+        raw(JSONObject.numberToString(value));
+
+        return this;
+    }
+
+    /**
+     * Writes a boolean value.
+     */
+    public JSONWriter value(boolean value) throws IOException
+    {
+        beforeValue();
+
+        raw(value ? "true" : "false");
+
+        return this;
+    }
+
+    /**
+     * Writes buffered content to the output stream, and flushes the output stream.
+     */
+    @Override
+    public void flush() throws IOException
+    {
+        drain();
+
+        out.flush();
+    }
+
+    /**
+     * Writes buffered content and closes the output stream.
+     *
+     * @throws IllegalStateException
+     *         if an object or array has not been ended
+     */
+    @Override
+    public void close() throws IOException
+    {
+        try
+        {
+            if (depth > 0)
+            {
+                throw new IllegalStateException(String.format("JSON output is incomplete: %d objects or arrays have not been ended.", depth));
+            }
+
+            drain();
+        } finally
+        {
+            out.close();
+        }
+    }
+
+    private Scope peek()
+    {
+        if (depth == 0)
+        {
+            throw new IllegalStateException("JSON output must be within an object or array.");
+        }
+
+        return stack[depth - 1];
+    }
+
+    private JSONWriter open(Scope empty, char openBracket) throws IOException
+    {
+        if (depth == 0)
+        {
+            if (complete)
+            {
+                throw new IllegalStateException("JSON output may only contain a single top-level object or array.");
+            }
+        } else
+        {
+            beforeValue();
+        }
+
+        if (depth == stack.length)
+        {
+            stack = Arrays.copyOf(stack, depth * 2);
+        }
+
+        stack[depth++] = empty;
+
+        put(openBracket);
+
+        return this;
+    }
+
+    private JSONWriter close(Scope empty, Scope nonempty, char closeBracket) throws IOException
+    {
+        Scope scope = peek();
+
+        if (scope != empty && scope != nonempty)
+        {
+            throw new IllegalStateException(String.format("Unexpected '%s': the current %s has not been ended.",
+                    closeBracket, scope == Scope.DANGLING_KEY ? "key has no value; object" : "scope"));
+        }
+
+        depth--;
+
+        put(closeBracket);
+
+        if (depth == 0)
+        {
+            complete = true;
+        }
+
+        return this;
+    }
+
+    private void beforeValue() throws IOException
+    {
+        Scope scope = peek();
+
+        switch (scope)
+        {
+            case EMPTY_ARRAY:
+                stack[depth - 1] = Scope.NONEMPTY_ARRAY;
+                break;
+
+            case NONEMPTY_ARRAY:
+                put(',');
+                break;
+
+            case DANGLING_KEY:
+                stack[depth - 1] = Scope.NONEMPTY_OBJECT;
+                break;
+
+            default:
+                throw new IllegalStateException("A value inside an object must be preceded by a key.");
+        }
+    }
+
+    private void writeRaw(String value)
+    {
+        try
+        {
+            raw(value);
+        } catch (IOException ex)
+        {
+            throw new WriteFailure(ex);
+        }
+    }
+
+    private void writeRaw(char ch)
+    {
+        try
+        {
+            put(ch);
+        } catch (IOException ex)
+        {
+            throw new WriteFailure(ex);
+        }
+    }
+
+    private void writeQuoted(String value)
+    {
+        try
+        {
+            quoted(value);
+        } catch (IOException ex)
+        {
+            throw new WriteFailure(ex);
+        }
+    }
+
+    private void raw(String value) throws IOException
+    {
+        for (int i = 0, length = value.length(); i < length; i++)
+        {
+            put(value.charAt(i));
+        }
+    }
+
+    /**
+     * Writes a quoted string, escaped just as by {@link JSONObject#quote(String)}.
+     */
+    private void quoted(String value) throws IOException
+    {
+        put('"');
+
+        char current = 0;
+
+        for (int i = 0, length = value.length(); i < length; i++)
+        {
+            char previous = current;
+            current = value.charAt(i);
+
+            switch (current)
+            {
+                case '"':
+                case '\\':
+                    put('\\');
+                    put(current);
+                    break;
+
+                case '/':
+                    // Avoid "</" sequences, for HTML embedding
+                    if (previous == '<')
+                    {
+                        put('\\');
+                    }
+                    put(current);
+                    break;
+
+                case '\t':
+                    put('\\');
+                    put('t');
+                    break;
+
+                case '\b':
+                    put('\\');
+                    put('b');
+                    break;
+
+                case '\n':
+                    put('\\');
+                    put('n');
+                    break;
+
+                case '\r':
+                    put('\\');
+                    put('r');
+                    break;
+
+                case '\f':
+                    put('\\');
+                    put('f');
+                    break;
+
+                default:
+                    if (current <= 0x1F || (current >= 0x0080 && current < 0x00a0) || (current >= 0x2000 && current < 0x2100))
+                    {
+                        put('\\');
+                        put('u');
+                        put(HEX[(current >> 12) & 0xf]);
+                        put(HEX[(current >> 8) & 0xf]);
+                        put(HEX[(current >> 4) & 0xf]);
+                        put(HEX[current & 0xf]);
+                    } else if (Character.isHighSurrogate(current) && i + 1 < length && Character.isLowSurrogate(value.charAt(i + 1)))
+                    {
+                        putCodePoint(Character.toCodePoint(current, value.charAt(++i)));
+                    } else
+                    {
+                        put(current);
+                    }
+                    break;
+            }
+        }
+
+        put('"');
+    }
+
+    /**
+     * Writes a character (from the basic multilingual plane) as UTF-8.
+     */
+    private void put(char ch) throws IOException
+    {
+        if (ch < 0x80)
+        {
+            if (position == BUFFER_SIZE)
+            {
+                drain();
+            }
+
+            buffer[position++] = (byte) ch;
+            return;
+        }
+
+        putCodePoint(Character.isSurrogate(ch) ? '?' : ch);
+    }
+
+    private void putCodePoint(int codePoint) throws IOException
+    {
+        if (position > BUFFER_SIZE - 4)
+        {
+            drain();
+        }
+
+        if (codePoint < 0x80)
+        {
+            buffer[position++] = (byte) codePoint;
+        } else if (codePoint < 0x800)
+        {
+            buffer[position++] = (byte) (0xc0 | (codePoint >> 6));
+            buffer[position++] = (byte) (0x80 | (codePoint & 0x3f));
+        } else if (codePoint < 0x10000)
+        {
+            buffer[position++] = (byte) (0xe0 | (codePoint >> 12));
+            buffer[position++] = (byte) (0x80 | ((codePoint >> 6) & 0x3f));
+            buffer[position++] = (byte) (0x80 | (codePoint & 0x3f));
+        } else
+        {
+            buffer[position++] = (byte) (0xf0 | (codePoint >> 18));
+            buffer[position++] = (byte) (0x80 | ((codePoint >> 12) & 0x3f));
+            buffer[position++] = (byte) (0x80 | ((codePoint >> 6) & 0x3f));
+            buffer[position++] = (byte) (0x80 | (codePoint & 0x3f));
+        }
+    }
+
+    private void drain() throws IOException
+    {
+        if (position > 0)
+        {
+            out.write(buffer, 0, position);
+            position = 0;
+        }
+    }
+}
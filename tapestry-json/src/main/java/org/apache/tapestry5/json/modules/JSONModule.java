@@ -14,6 +14,8 @@
 
 package org.apache.tapestry5.json.modules;
 
+import org.apache.tapestry5.internal.json.ReaderToJSONArray;
+import org.apache.tapestry5.internal.json.ReaderToJSONObject;
 import org.apache.tapestry5.internal.json.StringToJSONArray;
 import org.apache.tapestry5.internal.json.StringToJSONObject;
 import org.apache.tapestry5.ioc.Configuration;
@@ -23,6 +25,8 @@ import org.apache.tapestry5.ioc.services.TypeCoercer;
 import org.apache.tapestry5.json.JSONArray;
 import org.apache.tapestry5.json.JSONObject;
 
+import java.io.Reader;
+
 /**
  * A module that integrates JSON into Tapestry in terms of type coercions.  tapestry-json can still
  * be used independently of the rest of Tapestry (since its a 'provided' dependency),
@@ -36,6 +40,8 @@ public class JSONModule
      * <ul>
      * <li>{@link String} to {@link org.apache.tapestry5.json.JSONObject}</li>
      * <li>{@link String} to {@link org.apache.tapestry5.json.JSONArray}</li>
+     * <li>{@link Reader} to {@link org.apache.tapestry5.json.JSONObject} (since 5.5)</li>
+     * <li>{@link Reader} to {@link org.apache.tapestry5.json.JSONArray} (since 5.5)</li>
      * </ul>
      * @param configuration the configuration to provide the type coercer to
      */
@@ -45,5 +51,9 @@ public class JSONModule
         configuration.add(CoercionTuple.create(String.class, JSONObject.class, new StringToJSONObject()));
 
         configuration.add(CoercionTuple.create(String.class, JSONArray.class, new StringToJSONArray()));
+
+        configuration.add(CoercionTuple.create(Reader.class, JSONObject.class, new ReaderToJSONObject()));
+
+        configuration.add(CoercionTuple.create(Reader.class, JSONArray.class, new ReaderToJSONArray()));
     }
 }
@@ -1,5 +1,7 @@
 package json.specs
 
+import org.apache.tapestry5.internal.json.ReaderToJSONArray
+import org.apache.tapestry5.internal.json.ReaderToJSONObject
 import org.apache.tapestry5.internal.json.StringToJSONArray
 import org.apache.tapestry5.internal.json.StringToJSONObject
 import org.apache.tapestry5.json.JSONArray
@@ -26,4 +28,20 @@ class CoercionsSpec extends Specification {
 
         new StringToJSONArray().coerce(json) == expected
     }
+
+    def "reader to JSONObject"() {
+        def json = /{foo:"bar", list: [1, 2]}/
+
+        expect:
+
+        new ReaderToJSONObject().coerce(new StringReader(json)) == new JSONObject(json)
+    }
+
+    def "reader to JSONArray"() {
+        def json = /[1, 2, 'three']/
+
+        expect:
+
+        new ReaderToJSONArray().coerce(new StringReader(json)) == new JSONArray(json)
+    }
 }
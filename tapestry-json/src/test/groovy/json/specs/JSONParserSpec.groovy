@@ -0,0 +1,173 @@
+package json.specs
+
+import org.apache.tapestry5.json.JSONArray
+import org.apache.tapestry5.json.JSONObject
+import org.apache.tapestry5.json.JSONParser
+import org.apache.tapestry5.json.exceptions.JSONSyntaxException
+import spock.lang.Specification
+import spock.lang.Unroll
+
+import static org.apache.tapestry5.json.JSONParser.Event.*
+
+class JSONParserSpec extends Specification {
+
+    def parser(String input) {
+        new JSONParser(new StringReader(input))
+    }
+
+    def events(JSONParser parser) {
+        def result = []
+
+        def event
+
+        while ((event = parser.next()) != null) {
+            result << (event == KEY ? "$event:${parser.key}" : event == VALUE ? "$event:${parser.value}" : event.name())
+        }
+
+        result
+    }
+
+    def "pull events for nested content"() {
+        expect:
+
+        events(parser(/{"a": [1, true, null], "b": {"c": 'd'}}/)) == [
+            "START_OBJECT", "KEY:a", "START_ARRAY", "VALUE:1", "VALUE:true", "VALUE:null", "END_ARRAY",
+            "KEY:b", "START_OBJECT", "KEY:c", "VALUE:d", "END_OBJECT", "END_OBJECT"]
+    }
+
+    def "depth tracks enclosing containers"() {
+        def p = parser("[[1]]")
+
+        when:
+
+        p.next()
+        p.next()
+        p.next()
+
+        then:
+
+        p.event == VALUE
+        p.depth == 2
+    }
+
+    @Unroll
+    def "same result as JSONObject(String) for #input"() {
+        expect:
+
+        parser(input).readObject() == new JSONObject(input)
+
+        where:
+
+        input << [
+            /{}/,
+            /{"name": "fred", "age": 42, "big": 12345678901, "ratio": 0.5}/,
+            /{unquoted: value, hex: 0x1F, octal: 017, flag: TRUE, nothing: NULL}/,
+            /{a = 1; b => 2, c: "three"}/,
+            """{ /* comment */ "a": 1, // line comment
+                # hash comment
+                "b": "\\u00e9\\x41\\n" }""",
+            /{"list": [,1,,2,], "nested": {"x": []}}/
+        ]
+    }
+
+    def "read an array"() {
+        expect:
+
+        parser("[1, 'two', [3]]").readArray() == new JSONArray("[1, 'two', [3]]")
+    }
+
+    def "materialize a subtree while streaming"() {
+        def p = parser(/{"skip": {"deep": [1, 2, {"x": 3}]}, "keep": {"y": [4]}, "after": 5}/)
+        def found = [:]
+
+        when:
+
+        p.next()
+
+        while (p.next() == KEY) {
+            def key = p.key
+            def event = p.next()
+
+            if (key == "skip") {
+                p.skipChildren()
+            } else if (event == START_OBJECT) {
+                found[key] = p.readObject()
+            } else {
+                found[key] = p.value
+            }
+        }
+
+        then:
+
+        found == [keep: new JSONObject("y", new JSONArray(4)), after: 5]
+        p.event == END_OBJECT
+        p.next() == null
+    }
+
+    def "content larger than the internal buffer"() {
+        def array = new JSONArray()
+
+        20000.times { array.put("value-" + it) }
+
+        def input = array.toString(true)
+
+        expect:
+
+        parser(input).readArray() == array
+    }
+
+    def "UTF-8 input stream with byte order mark"() {
+        def bytes = new ByteArrayOutputStream()
+
+        bytes.write([0xEF, 0xBB, 0xBF] as byte[])
+        bytes.write('{"name": "été"}'.getBytes("UTF-8"))
+
+        when:
+
+        def object = new JSONParser(new ByteArrayInputStream(bytes.toByteArray())).readObject()
+
+        then:
+
+        object.getString("name") == "été"
+    }
+
+    @Unroll
+    def "syntax error for #input"() {
+        when:
+
+        events(parser(input))
+
+        then:
+
+        def e = thrown(JSONSyntaxException)
+
+        e.message == message
+
+        where:
+
+        input           | message
+        ""              | "End of input at character 0"
+        /{"a": 1/       | "Expected a ',' or '}' at character 7"
+        /{"a" 1}/       | "Expected a ':' after a key at character 6"
+        /{1: 2}/        | "Names must be strings, but 1 is of type java.lang.Integer at character 2"
+        /{"a": 1,}/     | "Missing value at character 9"
+        /[1 2]/         | "Expected a ',' or ']' at character 4"
+        /["abc/         | "Unterminated string at character 5"
+        "[1 /* open"    | "Unclosed comment at character 10"
+    }
+
+    def "accessors verify the current event"() {
+        def p = parser("[1]")
+
+        when:
+
+        p.next()
+        p.key
+
+        then:
+
+        def e = thrown(IllegalStateException)
+
+        e.message == "Expected the current event to be KEY, but it is START_ARRAY."
+    }
+}
@@ -0,0 +1,136 @@
+package json.specs
+
+import org.apache.tapestry5.json.JSONArray
+import org.apache.tapestry5.json.JSONLiteral
+import org.apache.tapestry5.json.JSONObject
+import org.apache.tapestry5.json.JSONWriter
+import spock.lang.Specification
+
+class JSONWriterSpec extends Specification {
+
+    def bytes = new ByteArrayOutputStream()
+
+    def writer = new JSONWriter(bytes)
+
+    def output() {
+        writer.close()
+
+        new String(bytes.toByteArray(), "UTF-8")
+    }
+
+    def "write object with nested values"() {
+        when:
+
+        writer.object()
+            .key("name").value("fred")
+            .key("age").value(42)
+            .key("ratio").value(0.5d)
+            .key("active").value(true)
+            .key("none").value((Object) null)
+            .key("tags").array().value("a").value("b").endArray()
+            .key("empty").object().endObject()
+            .key("literal").value(new JSONLiteral("function() {}"))
+            .endObject()
+
+        then:
+
+        output() == '''{"name":"fred","age":42,"ratio":0.5,"active":true,"none":null,"tags":["a","b"],"empty":{},"literal":function() {}}'''
+    }
+
+    def "strings are escaped as by JSONObject.quote()"() {
+        def value = "Quote \" slash \\ </script> tab \t \u0001   café 😀"
+
+        when:
+
+        writer.array().value(value).endArray()
+
+        then:
+
+        output() == "[${JSONObject.quote(value)}]"
+    }
+
+    def "JSONObject and JSONArray values are written compactly"() {
+        def object = new JSONObject("a", 1, "b", new JSONArray(1, 2))
+
+        when:
+
+        writer.array().value(object).value(new JSONArray()).endArray()
+
+        then:
+
+        new JSONArray(output()) == new JSONArray(object, new JSONArray())
+    }
+
+    def "output larger than the buffer is written in full"() {
+        when:
+
+        writer.array()
+
+        10000.times { writer.value("row $it") }
+
+        writer.endArray()
+
+        def parsed = new JSONArray(output())
+
+        then:
+
+        parsed.length() == 10000
+        parsed.get(9999) == "row 9999"
+    }
+
+    def "a value inside an object requires a key"() {
+        when:
+
+        writer.object().value("fred")
+
+        then:
+
+        IllegalStateException e = thrown()
+
+        e.message == "A value inside an object must be preceded by a key."
+    }
+
+    def "a key is only valid inside an object"() {
+        when:
+
+        writer.array().key("fred")
+
+        then:
+
+        thrown(IllegalStateException)
+    }
+
+    def "mismatched end is an error"() {
+        when:
+
+        writer.array().endObject()
+
+        then:
+
+        thrown(IllegalStateException)
+    }
+
+    def "only a single top-level value is allowed"() {
+        when:
+
+        writer.array().endArray().object()
+
+        then:
+
+        thrown(IllegalStateException)
+    }
+
+    def "close with incomplete output is an error"() {
+        when:
+
+        writer.object().key("open").array()
+
+        writer.close()
+
+        then:
+
+        IllegalStateException e = thrown()
+
+        e.message == "JSON output is incomplete: 2 objects or arrays have not been ended."
+    }
+}